@@ -0,0 +1,62 @@
+package com.pepej.papi.cooldown;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Guava backed {@link CooldownMap} with the compact {@link UUID} keyed implementation,
+ * testing cooldowns for a population of players.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CooldownMapBenchmark {
+
+    @Param({"guava", "compact"})
+    public String implementation;
+
+    @Param({"100", "10000"})
+    public int players;
+
+    private CooldownMap<UUID> map;
+    private UUID[] keys;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Cooldown base = Cooldown.of(1, TimeUnit.SECONDS);
+        this.map = this.implementation.equals("guava") ? CooldownMap.create(base) : CooldownMap.createCompact(base);
+        this.keys = new UUID[this.players];
+        for (int i = 0; i < this.players; i++) {
+            this.keys[i] = UUID.randomUUID();
+            this.map.test(this.keys[i]);
+        }
+    }
+
+    private UUID nextKey() {
+        UUID key = this.keys[this.next];
+        this.next = (this.next + 1) % this.keys.length;
+        return key;
+    }
+
+    @Benchmark
+    public boolean test() {
+        return this.map.test(nextKey());
+    }
+
+    @Benchmark
+    public long remainingMillis() {
+        return this.map.remainingMillis(nextKey());
+    }
+
+    @Benchmark
+    public boolean testNewKey() {
+        // a key which hasn't been seen before, as when players join
+        return this.map.test(UUID.randomUUID());
+    }
+}
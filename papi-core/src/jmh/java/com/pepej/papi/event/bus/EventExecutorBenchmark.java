@@ -0,0 +1,73 @@
+package com.pepej.papi.event.bus;
+
+import com.pepej.papi.event.bus.api.EventBus;
+import com.pepej.papi.event.bus.api.SimpleEventBus;
+import com.pepej.papi.event.bus.method.EventExecutor;
+import com.pepej.papi.event.bus.method.LambdaEventExecutorFactory;
+import com.pepej.papi.event.bus.method.MethodHandleEventExecutorFactory;
+import com.pepej.papi.event.bus.method.SimpleMethodSubscriptionAdapter;
+import com.pepej.papi.event.bus.method.annotation.Subscribe;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of posting through subscribers created by each {@link EventExecutor.Factory}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventExecutorBenchmark {
+    private static final int POSTS = 1_000_000;
+
+    @Param({"reflection", "methodhandle", "lambda"})
+    public String factory;
+
+    private EventBus<Object> bus;
+    private final TestEvent event = new TestEvent();
+
+    @Setup
+    public void setup() {
+        this.bus = new SimpleEventBus<>(Object.class);
+        new SimpleMethodSubscriptionAdapter<>(this.bus, createFactory(this.factory)).register(new TestListener());
+    }
+
+    private static EventExecutor.Factory<Object, TestListener> createFactory(String name) {
+        switch (name) {
+            case "reflection":
+                return (object, method) -> {
+                    method.setAccessible(true);
+                    return (listener, event) -> method.invoke(listener, event);
+                };
+            case "methodhandle":
+                return new MethodHandleEventExecutorFactory<>();
+            case "lambda":
+                return new LambdaEventExecutorFactory<>();
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSTS)
+    public void post(Blackhole blackhole) {
+        for (int i = 0; i < POSTS; i++) {
+            blackhole.consume(this.bus.post(this.event));
+        }
+    }
+
+    public static final class TestEvent {
+        private long value;
+    }
+
+    public static final class TestListener {
+        @Subscribe
+        public void onEvent(TestEvent event) {
+            event.value++;
+        }
+    }
+}
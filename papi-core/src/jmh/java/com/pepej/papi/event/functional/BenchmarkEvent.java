@@ -0,0 +1,30 @@
+package com.pepej.papi.event.functional;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+/**
+ * A synchronous event which can be constructed without a server.
+ */
+public final class BenchmarkEvent extends Event {
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+
+    private long value;
+
+    public long getValue() {
+        return this.value;
+    }
+
+    public void increment() {
+        this.value++;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pepej.papi.event.functional.merged;
+
+import com.google.common.reflect.TypeToken;
+import com.pepej.papi.event.MergedSubscription;
+import com.pepej.papi.event.functional.BenchmarkEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Measures the cost of passing an event through a {@link PapiMergedEventListener}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergedSubscriptionBenchmark {
+
+    @Param({"handler", "filtered", "expiring"})
+    public String shape;
+
+    private PapiMergedEventListener<BenchmarkEvent> listener;
+    private final BenchmarkEvent event = new BenchmarkEvent();
+
+    @Setup
+    public void setup() {
+        MergedSubscriptionBuilderImpl<BenchmarkEvent> builder = new MergedSubscriptionBuilderImpl<>(TypeToken.of(BenchmarkEvent.class));
+        builder.bindEvent(BenchmarkEvent.class, e -> e);
+        switch (this.shape) {
+            case "handler":
+                break;
+            case "filtered":
+                builder.filter(e -> e.getValue() >= 0);
+                break;
+            case "expiring":
+                builder.filter(e -> e.getValue() >= 0);
+                builder.expireAfter(Long.MAX_VALUE);
+                break;
+            default:
+                throw new IllegalArgumentException(this.shape);
+        }
+        List<BiConsumer<MergedSubscription<BenchmarkEvent>, ? super BenchmarkEvent>> handlers = Collections.singletonList((s, e) -> e.increment());
+        this.listener = new PapiMergedEventListener<>(builder, handlers);
+    }
+
+    @Benchmark
+    public long execute() {
+        this.listener.execute(this.listener, this.event);
+        return this.event.getValue();
+    }
+}
@@ -0,0 +1,115 @@
+package com.pepej.papi.messaging.conversation;
+
+import com.pepej.papi.messaging.loopback.LoopbackMessenger;
+import com.pepej.papi.messaging.loopback.LoopbackNetwork;
+import com.pepej.papi.promise.Promise;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures conversation round trips between two nodes of a loopback network, while
+ * a number of other conversations are waiting for replies which never arrive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversationBenchmark {
+
+    @Param({"0", "10000"})
+    public int outstanding;
+
+    private LoopbackNetwork network;
+    private LoopbackMessenger server;
+    private LoopbackMessenger client;
+    private ConversationChannel<Request, Reply> channel;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        this.network = LoopbackNetwork.create();
+        this.server = this.network.newMessenger();
+        this.client = this.network.newMessenger();
+
+        this.server.getConversationChannel("bench", Request.class, Reply.class).newAgent((agent, message) ->
+                message.ignore ? ConversationReply.noReply() : ConversationReply.of(new Reply(message.id))
+        );
+        this.channel = this.client.getConversationChannel("bench", Request.class, Reply.class);
+        // subscriptions are made asynchronously
+        Thread.sleep(200);
+
+        for (int i = 0; i < this.outstanding; i++) {
+            this.channel.sendMessage(new Request(UUID.randomUUID(), true), new ReplyListener(Promise.empty()), 1, TimeUnit.HOURS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.channel.close();
+        this.client.close();
+        this.server.close();
+        this.network.close();
+    }
+
+    @Benchmark
+    public Reply roundTrip() {
+        Promise<Reply> promise = Promise.empty();
+        this.channel.sendMessage(new Request(UUID.randomUUID(), false), new ReplyListener(promise), 5, TimeUnit.SECONDS);
+        return promise.join();
+    }
+
+    public static final class Request implements ConversationMessage {
+        private final UUID id;
+        private final boolean ignore;
+
+        Request(UUID id, boolean ignore) {
+            this.id = id;
+            this.ignore = ignore;
+        }
+
+        @NonNull
+        @Override
+        public UUID getConversationId() {
+            return this.id;
+        }
+    }
+
+    public static final class Reply implements ConversationMessage {
+        private final UUID id;
+
+        Reply(UUID id) {
+            this.id = id;
+        }
+
+        @NonNull
+        @Override
+        public UUID getConversationId() {
+            return this.id;
+        }
+    }
+
+    private static final class ReplyListener implements ConversationReplyListener<Reply> {
+        private final Promise<Reply> promise;
+
+        ReplyListener(Promise<Reply> promise) {
+            this.promise = promise;
+        }
+
+        @NonNull
+        @Override
+        public RegistrationAction onReply(@NonNull Reply reply) {
+            this.promise.supply(reply);
+            return RegistrationAction.STOP_LISTENING;
+        }
+
+        @Override
+        public void onTimeout(@NonNull List<Reply> replies) {
+            this.promise.supplyException(new IllegalStateException("timed out"));
+        }
+    }
+}
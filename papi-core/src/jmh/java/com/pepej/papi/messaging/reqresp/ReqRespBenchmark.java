@@ -0,0 +1,92 @@
+package com.pepej.papi.messaging.reqresp;
+
+import com.pepej.papi.messaging.loopback.LoopbackMessenger;
+import com.pepej.papi.messaging.loopback.LoopbackNetwork;
+import com.pepej.papi.promise.Promise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures request/response round trips between two nodes of a loopback network,
+ * sending requests one at a time, pipelined, and in batches.
+ *
+ * <p>Each operation completes {@link #requests} requests.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReqRespBenchmark {
+
+    @Param({"1", "16", "256"})
+    public int requests;
+
+    private LoopbackNetwork network;
+    private LoopbackMessenger server;
+    private LoopbackMessenger client;
+    private ReqRespChannel<Integer, Integer> channel;
+    private List<Integer> batch;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        this.network = LoopbackNetwork.create();
+        this.server = this.network.newMessenger();
+        this.client = this.network.newMessenger();
+
+        this.server.getReqRespChannel("bench", Integer.class, Integer.class).responseHandler(req -> req + 1);
+        this.channel = this.client.getReqRespChannel("bench", Integer.class, Integer.class);
+        // creates the batch channel. its reply may be missed, as subscriptions are made asynchronously
+        this.channel.requestAll(Collections.singletonList(0));
+        Thread.sleep(200);
+
+        this.batch = new ArrayList<>(this.requests);
+        for (int i = 0; i < this.requests; i++) {
+            this.batch.add(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.channel.closeAndReportException();
+        this.client.close();
+        this.server.close();
+        this.network.close();
+    }
+
+    @Benchmark
+    public int sequential() {
+        int sum = 0;
+        for (int i = 0; i < this.requests; i++) {
+            sum += this.channel.request(i).join();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int pipelined() {
+        List<Promise<Integer>> promises = new ArrayList<>(this.requests);
+        for (int i = 0; i < this.requests; i++) {
+            promises.add(this.channel.request(i));
+        }
+        int sum = 0;
+        for (Promise<Integer> promise : promises) {
+            sum += promise.join();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int batched() {
+        int sum = 0;
+        for (Integer resp : this.channel.requestAll(this.batch).join()) {
+            sum += resp;
+        }
+        return sum;
+    }
+}
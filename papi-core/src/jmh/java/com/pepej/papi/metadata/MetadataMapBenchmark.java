@@ -0,0 +1,65 @@
+package com.pepej.papi.metadata;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MetadataMap} reads while other threads are reading and writing
+ * the same map, as happens when several plugins share player metadata.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataMapBenchmark {
+    private static final int KEYS = 32;
+
+    private final MetadataMap map = MetadataMap.create();
+    private final MetadataKey<Integer>[] keys = createKeys();
+
+    @SuppressWarnings("unchecked")
+    private static MetadataKey<Integer>[] createKeys() {
+        MetadataKey<Integer>[] keys = new MetadataKey[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = MetadataKey.createIntegerKey("key-" + i);
+        }
+        return keys;
+    }
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < KEYS; i++) {
+            if (i % 2 == 0) {
+                this.map.put(this.keys[i], i);
+            } else {
+                this.map.put(this.keys[i], ExpiringValue.of(i, 1, TimeUnit.HOURS));
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(3)
+    public Integer read() {
+        return this.map.getOrNull(this.keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public void write() {
+        int i = ThreadLocalRandom.current().nextInt(KEYS);
+        this.map.put(this.keys[i], i);
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public boolean has() {
+        return this.map.has(this.keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+}
@@ -0,0 +1,117 @@
+package com.pepej.papi.network;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.pepej.papi.messaging.Channel;
+import com.pepej.papi.messaging.loopback.LoopbackMessenger;
+import com.pepej.papi.messaging.loopback.LoopbackNetwork;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken for a status message to reach every node of a network,
+ * over the channel used by {@link AbstractNetwork}.
+ *
+ * <p>{@link AbstractNetwork} itself needs a running server, so this covers the
+ * encoding, fan-out, decoding and dispatch of the messages, but not the update of
+ * each node's view of the network.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatusFanOutBenchmark {
+
+    @Param({"2", "10", "50"})
+    public int nodes;
+
+    @Param({"snapshot", "delta"})
+    public String type;
+
+    @Param({"100"})
+    public int players;
+
+    private LoopbackNetwork network;
+    private final List<LoopbackMessenger> messengers = new ArrayList<>();
+    private Channel<StatusDelta> channel;
+    private StatusDelta message;
+
+    private volatile CountDownLatch received;
+
+    @Setup
+    public void setup() throws InterruptedException {
+        this.network = LoopbackNetwork.create();
+
+        LoopbackMessenger publisher = this.network.newMessenger();
+        this.messengers.add(publisher);
+        this.channel = publisher.getChannel("pnet-status-delta", StatusDelta.class);
+
+        for (int i = 0; i < this.nodes; i++) {
+            LoopbackMessenger node = this.network.newMessenger();
+            this.messengers.add(node);
+            node.getChannel("pnet-status-delta", StatusDelta.class).newAgent((agent, message) -> this.received.countDown());
+        }
+        // subscriptions are made asynchronously
+        Thread.sleep(200);
+
+        this.message = sample(this.type.equals("snapshot"), this.players);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.messengers.forEach(LoopbackMessenger::close);
+        this.messengers.clear();
+        this.network.close();
+    }
+
+    @Benchmark
+    public void fanOut() throws InterruptedException {
+        CountDownLatch received = new CountDownLatch(this.nodes);
+        this.received = received;
+        this.channel.sendMessage(this.message);
+        received.await();
+    }
+
+    private static StatusDelta sample(boolean snapshot, int players) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StatusDelta msg = new StatusDelta();
+        msg.type = snapshot ? StatusDelta.Type.SNAPSHOT : StatusDelta.Type.DELTA;
+        msg.id = "lobby-1";
+        msg.epoch = random.nextLong();
+        msg.sequence = 1;
+        msg.time = System.currentTimeMillis();
+        msg.maxPlayers = 200;
+
+        // a snapshot carries every player, a delta a couple of joins and leaves
+        Map<UUID, String> joined = new HashMap<>();
+        for (int i = 0; i < (snapshot ? players : 2); i++) {
+            joined.put(UUID.randomUUID(), "Player" + random.nextInt(1_000_000));
+        }
+        msg.joined = joined;
+        if (snapshot) {
+            msg.groups = Arrays.asList("lobby", "eu-west");
+        } else {
+            msg.left = Arrays.asList(UUID.randomUUID(), UUID.randomUUID());
+        }
+
+        JsonObject tps = new JsonObject();
+        tps.addProperty("tps1", 19.5 + random.nextDouble() / 2);
+        tps.addProperty("tps5", 19.5 + random.nextDouble() / 2);
+        tps.addProperty("tps15", 19.5 + random.nextDouble() / 2);
+        Map<String, JsonElement> metadata = new HashMap<>();
+        metadata.put("tps", tps);
+        msg.metadata = metadata;
+        return msg;
+    }
+}
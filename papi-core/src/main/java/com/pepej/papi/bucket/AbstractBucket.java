@@ -5,6 +5,7 @@ import com.pepej.papi.bucket.partitioning.BucketPartition;
 import com.pepej.papi.bucket.partitioning.PartitioningStrategy;
 import com.pepej.papi.utils.ImmutableCollectors;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.*;
 import java.util.function.Consumer;
@@ -31,6 +32,13 @@ public abstract class AbstractBucket<E> extends AbstractSet<E> implements Bucket
      */
     protected final Set<E> content;
 
+    /**
+     * The index of the partition each element in the bucket was allocated to,
+     * or null if elements are found by searching every partition
+     */
+    @Nullable
+    private final Map<E, Integer> index;
+
     /**
      * The partitions in the bucket
      */
@@ -52,6 +60,7 @@ public abstract class AbstractBucket<E> extends AbstractSet<E> implements Bucket
 
         this.size = size;
         this.content = createSet();
+        this.index = createIndex();
 
         Set<E>[] objs = new Set[size];
         for (int i = 0; i < size; i++) {
@@ -70,6 +79,20 @@ public abstract class AbstractBucket<E> extends AbstractSet<E> implements Bucket
      */
     protected abstract Set<E> createSet();
 
+    /**
+     * Supplies the map used to record the partition each element was allocated to.
+     *
+     * <p>The map must compare elements in the same way as the sets supplied by
+     * {@link #createSet()}. If no map is supplied, elements are removed by
+     * searching every partition.</p>
+     *
+     * @return a new map, or null
+     */
+    @Nullable
+    protected Map<E, Integer> createIndex() {
+        return null;
+    }
+
     @Override
     public int getPartitionCount() {
         return this.size;
@@ -103,7 +126,11 @@ public abstract class AbstractBucket<E> extends AbstractSet<E> implements Bucket
             return false;
         }
 
-        this.partitions.get(this.strategy.allocate(e, this)).add(e);
+        int partition = this.strategy.allocate(e, this);
+        if (this.index != null) {
+            this.index.put(e, partition);
+        }
+        this.partitions.get(partition).add(e);
         return true;
     }
 
@@ -113,11 +140,38 @@ public abstract class AbstractBucket<E> extends AbstractSet<E> implements Bucket
             return false;
         }
 
-        for (Set<E> partition : this.partitions) {
-            partition.remove(o);
+        removeFromPartition(o);
+        return true;
+    }
+
+    /**
+     * Removes an element from the partition it was allocated to.
+     *
+     * @param o the element
+     */
+    private void removeFromPartition(Object o) {
+        if (this.index == null) {
+            for (Set<E> partition : this.partitions) {
+                partition.remove(o);
+            }
+            return;
         }
 
-        return true;
+        Integer partition = this.index.remove(o);
+        if (partition != null) {
+            this.partitions.get(partition).remove(o);
+        }
+    }
+
+    /**
+     * Removes an element from the index, after it has been removed from its partition.
+     *
+     * @param o the element
+     */
+    private void unindex(Object o) {
+        if (this.index != null) {
+            this.index.remove(o);
+        }
     }
 
     @Override
@@ -125,6 +179,9 @@ public abstract class AbstractBucket<E> extends AbstractSet<E> implements Bucket
         for (Set<E> partition : this.partitions) {
             partition.clear();
         }
+        if (this.index != null) {
+            this.index.clear();
+        }
         this.content.clear();
     }
 
@@ -184,9 +241,7 @@ public abstract class AbstractBucket<E> extends AbstractSet<E> implements Bucket
             this.delegate.remove();
 
             // also remove the element from it's contained partition
-            for (Set<E> partition : AbstractBucket.this.partitions) {
-                partition.remove(this.current);
-            }
+            removeFromPartition(this.current);
         }
 
         @Override
@@ -228,6 +283,7 @@ public abstract class AbstractBucket<E> extends AbstractSet<E> implements Bucket
 
             // also remove from the bucket content set
             AbstractBucket.this.content.remove(o);
+            unindex(o);
             return true;
         }
 
@@ -235,6 +291,9 @@ public abstract class AbstractBucket<E> extends AbstractSet<E> implements Bucket
         public void clear() {
             // remove the content of the backing from the bucket content set
             AbstractBucket.this.content.removeAll(this.backing);
+            if (AbstractBucket.this.index != null) {
+                AbstractBucket.this.index.keySet().removeAll(this.backing);
+            }
             // then clear the backing
             this.backing.clear();
         }
@@ -312,6 +371,7 @@ public abstract class AbstractBucket<E> extends AbstractSet<E> implements Bucket
 
             // also remove from the bucket content set
             AbstractBucket.this.content.remove(this.current);
+            unindex(this.current);
         }
 
         @Override
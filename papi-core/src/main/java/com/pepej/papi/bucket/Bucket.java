@@ -15,7 +15,9 @@ import java.util.function.Consumer;
  *
  * <p>The performance of {@link Bucket} should be largely similar to the performance
  * of the underlying {@link Set}. Elements are stored twice - once in a set
- * containing all elements in the bucket, and again in a set representing each partition.</p>
+ * containing all elements in the bucket, and again in a set representing each partition.
+ * The partition each element was allocated to is also recorded, so removing an
+ * element only touches the partition which holds it.</p>
  *
  * @param <E> the element type
  */
@@ -0,0 +1,277 @@
+package com.pepej.papi.bucket;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Processes the elements of the next few positions in a {@link Cycle} of partitions
+ * in parallel, using a {@link ForkJoinPool}.
+ *
+ * <p>Each partition is processed by its own task, which stops once it has run for
+ * longer than the per-partition time budget. Elements which were not reached are
+ * skipped until the cycle next comes round to the partition, and are counted in the
+ * returned {@link Result}.</p>
+ *
+ * <p>The action is called concurrently from several threads, so it must be thread
+ * safe, and the partitions must be safe to iterate while they are modified, for
+ * example those of a {@link com.pepej.papi.bucket.partitioning.factory.BucketFactory#newConcurrentBucket concurrent bucket}.</p>
+ *
+ * @param <E> the element type
+ */
+public final class CycleProcessor<E> {
+
+    /**
+     * Creates a new cycle processor using the common {@link ForkJoinPool}.
+     *
+     * @param cycle the cycle of partitions
+     * @param action the action to apply to each element
+     * @param budget the maximum time to spend on a single partition
+     * @param unit the unit of budget
+     * @param <E> the element type
+     * @return a new cycle processor
+     */
+    @NonNull
+    public static <E> CycleProcessor<E> create(@NonNull Cycle<? extends Collection<E>> cycle, @NonNull Consumer<? super E> action, long budget, @NonNull TimeUnit unit) {
+        return create(cycle, action, ForkJoinPool.commonPool(), budget, unit);
+    }
+
+    /**
+     * Creates a new cycle processor.
+     *
+     * @param cycle the cycle of partitions
+     * @param action the action to apply to each element
+     * @param pool the pool to process partitions in
+     * @param budget the maximum time to spend on a single partition
+     * @param unit the unit of budget
+     * @param <E> the element type
+     * @return a new cycle processor
+     */
+    @NonNull
+    public static <E> CycleProcessor<E> create(@NonNull Cycle<? extends Collection<E>> cycle, @NonNull Consumer<? super E> action, @NonNull ForkJoinPool pool, long budget, @NonNull TimeUnit unit) {
+        Objects.requireNonNull(cycle, "cycle");
+        Objects.requireNonNull(action, "action");
+        Objects.requireNonNull(pool, "pool");
+        Objects.requireNonNull(unit, "unit");
+        Preconditions.checkArgument(budget > 0, "budget must be > 0");
+        return new CycleProcessor<>(cycle, action, pool, unit.toNanos(budget));
+    }
+
+    private final Cycle<? extends Collection<E>> cycle;
+    private final Consumer<? super E> action;
+    private final ForkJoinPool pool;
+    private final long budgetNanos;
+
+    private CycleProcessor(Cycle<? extends Collection<E>> cycle, Consumer<? super E> action, ForkJoinPool pool, long budgetNanos) {
+        this.cycle = cycle;
+        this.action = action;
+        this.pool = pool;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Advances the cycle by the given number of positions, and processes the
+     * partitions at each of them in parallel, waiting for them all to complete.
+     *
+     * <p>No partition is processed more than once by a single call, so the count
+     * is capped at the length of the cycle.</p>
+     *
+     * <p>If the action throws an exception, processing of that partition stops,
+     * and the exception is rethrown once every other partition has been processed.
+     * Exceptions thrown while processing the other partitions are suppressed by
+     * the first.</p>
+     *
+     * @param count the number of partitions to process
+     * @return the result
+     */
+    @NonNull
+    public Result processNext(int count) {
+        Preconditions.checkArgument(count > 0, "count must be > 0");
+        count = Math.min(count, this.cycle.getBacking().size());
+
+        List<PartitionTask<E>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new PartitionTask<>(this.cycle.next(), this.action, this.budgetNanos));
+        }
+
+        long start = System.nanoTime();
+        if (count == 1) {
+            this.pool.invoke(tasks.get(0));
+        } else {
+            this.pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAndJoin(tasks);
+                }
+            });
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int processed = 0;
+        int skipped = 0;
+        int overBudget = 0;
+        for (PartitionTask<E> task : tasks) {
+            processed += task.processed;
+            skipped += task.skipped;
+            if (task.overBudget) {
+                overBudget++;
+            }
+        }
+        return new Result(count, processed, skipped, overBudget, elapsed);
+    }
+
+    /**
+     * Runs every task, waiting for each of them to complete even if one fails.
+     *
+     * <p>Unlike {@link ForkJoinTask#invokeAll(Collection)}, which may cancel the
+     * remaining tasks once one fails, this joins each task before rethrowing the
+     * first exception, with any others suppressed by it.</p>
+     */
+    private static void invokeAndJoin(List<? extends ForkJoinTask<?>> tasks) {
+        for (int i = 1; i < tasks.size(); i++) {
+            tasks.get(i).fork();
+        }
+
+        Throwable failure = null;
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                if (i == 0) {
+                    tasks.get(i).invoke();
+                } else {
+                    tasks.get(i).join();
+                }
+            } catch (Throwable t) {
+                if (failure == null) {
+                    failure = t;
+                } else if (failure != t) {
+                    failure.addSuppressed(t);
+                }
+            }
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    private static final class PartitionTask<E> extends RecursiveAction {
+        private final Collection<E> partition;
+        private final Consumer<? super E> action;
+        private final long budgetNanos;
+        private int processed = 0;
+        private int skipped = 0;
+        private boolean overBudget = false;
+
+        PartitionTask(Collection<E> partition, Consumer<? super E> action, long budgetNanos) {
+            this.partition = partition;
+            this.action = action;
+            this.budgetNanos = budgetNanos;
+        }
+
+        @Override
+        protected void compute() {
+            long deadline = System.nanoTime() + this.budgetNanos;
+            for (E element : this.partition) {
+                if (System.nanoTime() - deadline > 0) {
+                    this.overBudget = true;
+                    this.skipped = Math.max(0, this.partition.size() - this.processed);
+                    return;
+                }
+                this.action.accept(element);
+                this.processed++;
+            }
+        }
+    }
+
+    /**
+     * The outcome of a call to {@link #processNext(int)}.
+     */
+    public static final class Result {
+        private final int partitions;
+        private final int processed;
+        private final int skipped;
+        private final int overBudget;
+        private final long elapsedNanos;
+
+        Result(int partitions, int processed, int skipped, int overBudget, long elapsedNanos) {
+            this.partitions = partitions;
+            this.processed = processed;
+            this.skipped = skipped;
+            this.overBudget = overBudget;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Gets the number of partitions which were processed.
+         *
+         * @return the number of partitions
+         */
+        public int getPartitions() {
+            return this.partitions;
+        }
+
+        /**
+         * Gets the number of elements the action was applied to.
+         *
+         * @return the number of processed elements
+         */
+        public int getProcessed() {
+            return this.processed;
+        }
+
+        /**
+         * Gets the approximate number of elements which were skipped, because
+         * their partition ran out of time.
+         *
+         * @return the number of skipped elements
+         */
+        public int getSkipped() {
+            return this.skipped;
+        }
+
+        /**
+         * Gets the number of partitions which ran out of time.
+         *
+         * @return the number of partitions over budget
+         */
+        public int getOverBudget() {
+            return this.overBudget;
+        }
+
+        /**
+         * Gets the wall clock time taken to process all of the partitions.
+         *
+         * @return the elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return this.elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                              .add("partitions", this.partitions)
+                              .add("processed", this.processed)
+                              .add("skipped", this.skipped)
+                              .add("overBudget", this.overBudget)
+                              .add("elapsedNanos", this.elapsedNanos)
+                              .toString();
+        }
+    }
+}
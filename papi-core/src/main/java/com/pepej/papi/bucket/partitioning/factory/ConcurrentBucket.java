@@ -4,6 +4,7 @@ import com.pepej.papi.bucket.AbstractBucket;
 import com.pepej.papi.bucket.partitioning.PartitioningStrategy;
 import org.jetbrains.annotations.ApiStatus;
 
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -17,4 +18,9 @@ class ConcurrentBucket<E> extends AbstractBucket<E> {
     protected Set<E> createSet() {
         return ConcurrentHashMap.newKeySet();
     }
+
+    @Override
+    protected Map<E, Integer> createIndex() {
+        return new ConcurrentHashMap<>();
+    }
 }
@@ -4,7 +4,9 @@ import com.pepej.papi.bucket.AbstractBucket;
 import com.pepej.papi.bucket.partitioning.PartitioningStrategy;
 import org.jetbrains.annotations.ApiStatus;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 @ApiStatus.Internal
 class HashSetBucket<E> extends AbstractBucket<E> {
@@ -16,4 +18,9 @@ class HashSetBucket<E> extends AbstractBucket<E> {
     protected Set<E> createSet() {
         return new HashSet<>();
     }
+
+    @Override
+    protected Map<E, Integer> createIndex() {
+        return new HashMap<>();
+    }
 }
@@ -6,7 +6,9 @@ import org.jetbrains.annotations.ApiStatus;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ApiStatus.Internal
 class SynchronizedHashSetBucket<E> extends AbstractBucket<E> {
@@ -18,4 +20,9 @@ class SynchronizedHashSetBucket<E> extends AbstractBucket<E> {
     protected Set<E> createSet() {
         return Collections.synchronizedSet(new HashSet<>());
     }
-}
\ No newline at end of file
+
+    @Override
+    protected Map<E, Integer> createIndex() {
+        return new ConcurrentHashMap<>();
+    }
+}
@@ -5,6 +5,7 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import java.util.Map;
 import java.util.Objects;
 import java.util.OptionalLong;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -27,6 +28,23 @@ public interface CooldownMap<T> {
         return new CooldownMapImpl<>(base);
     }
 
+    /**
+     * Creates a new collection keyed by {@link UUID}, with the cooldown properties defined by the base instance.
+     *
+     * <p>The returned map stores only the last tested time of each key, in a compact
+     * open-addressing table, rather than a {@link Cooldown} instance per key. Instances
+     * returned by {@link #get(Object)} are views, and {@link #put(Object, Cooldown)}
+     * copies the last tested time of the given cooldown.</p>
+     *
+     * @param base the cooldown to base off
+     * @return a new collection
+     */
+    @NonNull
+    static CooldownMap<UUID> createCompact(@NonNull Cooldown base) {
+        Objects.requireNonNull(base, "base");
+        return new UuidCooldownMapImpl(base);
+    }
+
     /**
      * Gets the base cooldown
      *
@@ -0,0 +1,145 @@
+package com.pepej.papi.cooldown;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.pepej.papi.time.Time;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Utilities for snapshotting and restoring {@link UUID} keyed {@link CooldownMap}s.
+ *
+ * <p>Snapshots use a compact binary format: a small header, followed by the
+ * key and last tested time of each cooldown. Times are stored as variable
+ * length offsets from the time the snapshot was taken, so most entries take
+ * 18 or 19 bytes.</p>
+ */
+public final class CooldownMaps {
+    private static final byte VERSION = 1;
+
+    /**
+     * Takes a snapshot of the cooldowns in the given map which have been tested.
+     *
+     * @param map the map
+     * @return the encoded snapshot
+     */
+    public static byte @NonNull [] snapshot(@NonNull CooldownMap<UUID> map) {
+        Objects.requireNonNull(map, "map");
+
+        Map<UUID, Cooldown> all = map.getAll();
+        UUID[] keys = new UUID[all.size()];
+        long[] times = new long[all.size()];
+        int size = 0;
+        for (Map.Entry<UUID, Cooldown> entry : all.entrySet()) {
+            long lastTested = entry.getValue().getLastTested().orElse(0);
+            if (lastTested != 0) {
+                keys[size] = entry.getKey();
+                times[size] = lastTested;
+                size++;
+            }
+        }
+
+        long now = Time.nowMillis();
+        ByteArrayDataOutput out = ByteStreams.newDataOutput(26 + size * 19);
+        writeHeader(out, map.getBase().getTimeout(), now, size);
+        for (int i = 0; i < size; i++) {
+            writeEntry(out, now, keys[i], times[i]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Restores the cooldowns in the given snapshot into the map.
+     *
+     * <p>A cooldown is only restored if it was tested more recently than the
+     * cooldown already held in the map for the same key.</p>
+     *
+     * @param map the map
+     * @param snapshot the encoded snapshot
+     * @return the number of cooldowns restored
+     * @throws IllegalArgumentException if the snapshot is malformed, or was taken from a map with a different timeout
+     */
+    public static int restore(@NonNull CooldownMap<UUID> map, byte @NonNull [] snapshot) {
+        Objects.requireNonNull(map, "map");
+        Objects.requireNonNull(snapshot, "snapshot");
+
+        int restored = 0;
+        try {
+            ByteArrayDataInput in = ByteStreams.newDataInput(snapshot);
+            Preconditions.checkArgument(in.readByte() == VERSION, "unknown snapshot version");
+            long timeout = in.readLong();
+            Preconditions.checkArgument(timeout == map.getBase().getTimeout(), "different timeout");
+            long takenAt = in.readLong();
+            int size = (int) readVarLong(in);
+            for (int i = 0; i < size; i++) {
+                UUID key = new UUID(in.readLong(), in.readLong());
+                if (merge(map, key, takenAt - readVarLong(in))) {
+                    restored++;
+                }
+            }
+        } catch (IllegalStateException e) {
+            // thrown by ByteArrayDataInput when the snapshot is truncated
+            throw new IllegalArgumentException("Malformed snapshot", e);
+        }
+        return restored;
+    }
+
+    /**
+     * Sets the last tested time of the given key, if it is later than the current one.
+     *
+     * @return true if the time was set
+     */
+    static boolean merge(CooldownMap<UUID> map, UUID key, long lastTested) {
+        if (lastTested <= 0 || map.getLastTested(key).orElse(0) >= lastTested) {
+            return false;
+        }
+        map.setLastTested(key, lastTested);
+        return true;
+    }
+
+    static void writeHeader(ByteArrayDataOutput out, long timeout, long now, int size) {
+        out.writeByte(VERSION);
+        out.writeLong(timeout);
+        out.writeLong(now);
+        writeVarLong(out, size);
+    }
+
+    static void writeEntry(ByteArrayDataOutput out, long now, UUID key, long lastTested) {
+        out.writeLong(key.getMostSignificantBits());
+        out.writeLong(key.getLeastSignificantBits());
+        writeVarLong(out, now - lastTested);
+    }
+
+    /**
+     * Writes a zigzag encoded variable length long.
+     */
+    private static void writeVarLong(ByteArrayDataOutput out, long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(ByteArrayDataInput in) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IllegalArgumentException("Malformed varlong");
+    }
+
+    private CooldownMaps() {
+        throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+}
@@ -0,0 +1,295 @@
+package com.pepej.papi.cooldown;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.pepej.papi.messaging.Channel;
+import com.pepej.papi.messaging.ChannelAgent;
+import com.pepej.papi.messaging.Messenger;
+import com.pepej.papi.messaging.codec.Codec;
+import com.pepej.papi.messaging.codec.EncodingException;
+import com.pepej.papi.messaging.codec.Message;
+import com.pepej.papi.scheduler.Schedulers;
+import com.pepej.papi.scheduler.Task;
+import com.pepej.papi.terminable.Terminable;
+import com.pepej.papi.time.Time;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link UUID} keyed {@link CooldownMap} which is kept in sync with maps on other
+ * servers sharing the same {@link Channel}.
+ *
+ * <p>Cooldowns are always tested against the local map. When a cooldown is reset,
+ * the new last tested time is queued, and queued times are broadcast in batches at
+ * a fixed interval. Received times are applied to the local map if they are later
+ * than the time already held, so cooldowns converge on the most recent test across
+ * the network, within the flush interval and the clock skew between servers.</p>
+ *
+ * <p>Changes made directly to the instances returned by {@link #get(UUID)} are not
+ * broadcast; the inline cooldown methods should be used instead.</p>
+ */
+public final class NetworkedCooldownMap implements CooldownMap<UUID>, Terminable {
+    // the maximum number of cooldowns sent in a single message
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    /**
+     * Creates a new networked cooldown map, flushing updates every 250 milliseconds.
+     *
+     * @param local the local map, which must be safe for concurrent use
+     * @param messenger the messenger
+     * @param channelName the name of the channel to broadcast updates on
+     * @return a networked cooldown map
+     */
+    @NonNull
+    public static NetworkedCooldownMap create(@NonNull CooldownMap<UUID> local, @NonNull Messenger messenger, @NonNull String channelName) {
+        return create(local, messenger, channelName, 250, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new networked cooldown map.
+     *
+     * @param local the local map, which must be safe for concurrent use
+     * @param messenger the messenger
+     * @param channelName the name of the channel to broadcast updates on
+     * @param flushInterval the duration to wait between broadcasting updates
+     * @param unit the unit of flushInterval
+     * @return a networked cooldown map
+     */
+    @NonNull
+    public static NetworkedCooldownMap create(@NonNull CooldownMap<UUID> local, @NonNull Messenger messenger, @NonNull String channelName, long flushInterval, @NonNull TimeUnit unit) {
+        Objects.requireNonNull(local, "local");
+        Objects.requireNonNull(messenger, "messenger");
+        Objects.requireNonNull(channelName, "channelName");
+        Objects.requireNonNull(unit, "unit");
+        Preconditions.checkArgument(flushInterval > 0, "flushInterval must be > 0");
+
+        return new NetworkedCooldownMap(local, messenger.getChannel(channelName, Update.class), flushInterval, unit);
+    }
+
+    // used to ignore our own updates when they are received
+    private final UUID instanceId = UUID.randomUUID();
+    private final CooldownMap<UUID> local;
+    private final Channel<Update> channel;
+    private final ChannelAgent<Update> agent;
+    private final Task task;
+
+    // key --> last tested time, waiting to be broadcast
+    private final Map<UUID, Long> pending = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    private NetworkedCooldownMap(CooldownMap<UUID> local, Channel<Update> channel, long flushInterval, TimeUnit unit) {
+        this.local = local;
+        this.channel = channel;
+        this.agent = channel.newAgent((agent, update) -> receive(update));
+        this.task = Schedulers.async().runRepeating(this::flush, flushInterval, unit, flushInterval, unit);
+    }
+
+    /**
+     * Gets the channel updates are broadcast on
+     *
+     * @return the channel
+     */
+    @NonNull
+    public Channel<Update> getChannel() {
+        return this.channel;
+    }
+
+    /**
+     * Gets the local map
+     *
+     * @return the local map
+     */
+    @NonNull
+    public CooldownMap<UUID> getLocal() {
+        return this.local;
+    }
+
+    private void queue(UUID key, long lastTested) {
+        if (lastTested > 0) {
+            this.pending.merge(key, lastTested, Math::max);
+        }
+    }
+
+    /**
+     * Broadcasts any queued updates.
+     */
+    public void flush() {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        UUID[] keys = new UUID[MAX_BATCH_SIZE];
+        long[] times = new long[MAX_BATCH_SIZE];
+        int size = 0;
+        for (Map.Entry<UUID, Long> entry : this.pending.entrySet()) {
+            keys[size] = entry.getKey();
+            times[size] = entry.getValue();
+            // only remove the entry if it hasn't been updated since we read it
+            this.pending.remove(entry.getKey(), entry.getValue());
+            if (++size == MAX_BATCH_SIZE) {
+                send(keys, times, size);
+                size = 0;
+            }
+        }
+        if (size != 0) {
+            send(keys, times, size);
+        }
+    }
+
+    private void send(UUID[] keys, long[] times, int size) {
+        long now = Time.nowMillis();
+        ByteArrayDataOutput out = ByteStreams.newDataOutput(26 + size * 19);
+        CooldownMaps.writeHeader(out, this.local.getBase().getTimeout(), now, size);
+        for (int i = 0; i < size; i++) {
+            CooldownMaps.writeEntry(out, now, keys[i], times[i]);
+        }
+        this.channel.sendMessage(new Update(this.instanceId, out.toByteArray()));
+    }
+
+    private void receive(Update update) {
+        if (this.closed || update.sender.equals(this.instanceId)) {
+            return;
+        }
+        CooldownMaps.restore(this.local, update.cooldowns);
+    }
+
+    @NonNull
+    @Override
+    public Cooldown getBase() {
+        return this.local.getBase();
+    }
+
+    @NonNull
+    @Override
+    public Cooldown get(@NonNull UUID key) {
+        return this.local.get(key);
+    }
+
+    @Override
+    public void put(@NonNull UUID key, @NonNull Cooldown cooldown) {
+        this.local.put(key, cooldown);
+        queue(key, cooldown.getLastTested().orElse(0));
+    }
+
+    @NonNull
+    @Override
+    public Map<UUID, Cooldown> getAll() {
+        return this.local.getAll();
+    }
+
+    @Override
+    public boolean test(@NonNull UUID key) {
+        if (!this.local.test(key)) {
+            return false;
+        }
+        queue(key, this.local.getLastTested(key).orElse(0));
+        return true;
+    }
+
+    @Override
+    public boolean testSilently(@NonNull UUID key) {
+        return this.local.testSilently(key);
+    }
+
+    @Override
+    public long elapsed(@NonNull UUID key) {
+        return this.local.elapsed(key);
+    }
+
+    @Override
+    public void reset(@NonNull UUID key) {
+        this.local.reset(key);
+        queue(key, this.local.getLastTested(key).orElse(0));
+    }
+
+    @Override
+    public long remainingMillis(@NonNull UUID key) {
+        return this.local.remainingMillis(key);
+    }
+
+    @Override
+    public long remainingTime(@NonNull UUID key, @NonNull TimeUnit unit) {
+        return this.local.remainingTime(key, unit);
+    }
+
+    @NonNull
+    @Override
+    public OptionalLong getLastTested(@NonNull UUID key) {
+        return this.local.getLastTested(key);
+    }
+
+    @Override
+    public void setLastTested(@NonNull UUID key, long time) {
+        this.local.setLastTested(key, time);
+        queue(key, time);
+    }
+
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.task.stop();
+        flush();
+        this.agent.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * A batch of cooldown updates, encoded in the {@link CooldownMaps#snapshot(CooldownMap) snapshot} format.
+     */
+    @Message(codec = UpdateCodec.class)
+    public static final class Update {
+        private final UUID sender;
+        private final byte[] cooldowns;
+
+        Update(UUID sender, byte[] cooldowns) {
+            this.sender = sender;
+            this.cooldowns = cooldowns;
+        }
+
+        @Override
+        public String toString() {
+            return "Update(sender=" + this.sender + ", bytes=" + this.cooldowns.length + ")";
+        }
+    }
+
+    /**
+     * Encodes an {@link Update} as the sender id, followed by the encoded cooldowns.
+     */
+    public static final class UpdateCodec implements Codec<Update> {
+
+        @Override
+        public byte[] encode(Update message) {
+            ByteArrayDataOutput out = ByteStreams.newDataOutput(16 + message.cooldowns.length);
+            out.writeLong(message.sender.getMostSignificantBits());
+            out.writeLong(message.sender.getLeastSignificantBits());
+            out.write(message.cooldowns);
+            return out.toByteArray();
+        }
+
+        @Override
+        public Update decode(byte[] buf) throws EncodingException {
+            if (buf.length < 16) {
+                throw new EncodingException("Update too short: " + buf.length + " bytes");
+            }
+            ByteArrayDataInput in = ByteStreams.newDataInput(buf);
+            UUID sender = new UUID(in.readLong(), in.readLong());
+            return new Update(sender, Arrays.copyOfRange(buf, 16, buf.length));
+        }
+    }
+}
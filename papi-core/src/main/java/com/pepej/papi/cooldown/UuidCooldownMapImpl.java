@@ -0,0 +1,360 @@
+package com.pepej.papi.cooldown;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonElement;
+import com.pepej.papi.gson.JsonBuilder;
+import com.pepej.papi.time.Time;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link CooldownMap} for {@link UUID} keys, which stores the last tested time of each
+ * key in an open-addressing table instead of holding a {@link Cooldown} instance per key.
+ *
+ * <p>Keys are stored as their most and least significant bits, and probed linearly.
+ * A last tested time of zero marks an empty slot, matching {@link CooldownImpl}, where
+ * it means the cooldown has never been tested.</p>
+ *
+ * <p>As with {@link CooldownMapImpl}, entries are dropped 10 seconds after their cooldown
+ * expires. This happens lazily: expired entries are treated as absent when they are read,
+ * and are purged from the table the next time it needs to be resized.</p>
+ */
+final class UuidCooldownMapImpl implements CooldownMap<UUID> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Cooldown base;
+    private final long timeout;
+    // entries which have not been tested for this long are expired
+    private final long retention;
+
+    private long[] most;
+    private long[] least;
+    private long[] lastTested;
+    private int mask;
+    // the number of occupied slots, including expired entries which haven't been purged yet
+    private int size = 0;
+
+    UuidCooldownMapImpl(Cooldown base) {
+        this.base = base;
+        this.timeout = base.getTimeout();
+        this.retention = this.timeout + 10000L;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        this.most = new long[capacity];
+        this.least = new long[capacity];
+        this.lastTested = new long[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    private static int hash(long most, long least) {
+        // murmur3 finalizer, in case the uuids aren't random
+        long h = most ^ (least * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Finds the slot holding the given key.
+     *
+     * @return the slot index, or {@code -(insertion point) - 1} if the key is absent
+     */
+    private int find(long most, long least) {
+        int i = hash(most, least) & this.mask;
+        while (this.lastTested[i] != 0) {
+            if (this.most[i] == most && this.least[i] == least) {
+                return i;
+            }
+            i = (i + 1) & this.mask;
+        }
+        return -i - 1;
+    }
+
+    private boolean isExpired(long lastTested, long now) {
+        return now - lastTested > this.retention;
+    }
+
+    /**
+     * Gets the last tested time of the given key, or zero if it has never been tested or has expired.
+     */
+    private long read(UUID key, long now) {
+        int i = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (i < 0) {
+            return 0;
+        }
+        long lastTested = this.lastTested[i];
+        return isExpired(lastTested, now) ? 0 : lastTested;
+    }
+
+    private void write(UUID key, long time) {
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        int i = find(most, least);
+        if (time <= 0) {
+            if (i >= 0) {
+                delete(i);
+            }
+            return;
+        }
+        if (i >= 0) {
+            this.lastTested[i] = time;
+            return;
+        }
+
+        // keep the load factor under 1/2
+        if ((this.size + 1) << 1 > this.mask + 1) {
+            rehash(Time.nowMillis());
+            i = find(most, least);
+        }
+        i = -i - 1;
+        this.most[i] = most;
+        this.least[i] = least;
+        this.lastTested[i] = time;
+        this.size++;
+    }
+
+    /**
+     * Removes the entry in the given slot, shifting back any entries in the
+     * same probe sequence so that no tombstone is needed.
+     */
+    private void delete(int slot) {
+        int hole = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & this.mask;
+            if (this.lastTested[i] == 0) {
+                break;
+            }
+            int home = hash(this.most[i], this.least[i]) & this.mask;
+            // move the entry into the hole if its home slot isn't between the hole and its current slot
+            if (((i - home) & this.mask) >= ((i - hole) & this.mask)) {
+                this.most[hole] = this.most[i];
+                this.least[hole] = this.least[i];
+                this.lastTested[hole] = this.lastTested[i];
+                hole = i;
+            }
+        }
+        this.lastTested[hole] = 0;
+        this.size--;
+    }
+
+    /**
+     * Rebuilds the table, dropping expired entries, and resizing it to fit those which remain.
+     */
+    private void rehash(long now) {
+        long[] most = this.most;
+        long[] least = this.least;
+        long[] lastTested = this.lastTested;
+
+        int live = 0;
+        for (long time : lastTested) {
+            if (time != 0 && !isExpired(time, now)) {
+                live++;
+            }
+        }
+
+        int capacity = INITIAL_CAPACITY;
+        while ((live + 1) << 1 > capacity) {
+            capacity <<= 1;
+        }
+        // grow early, rather than rehashing again after only a few inserts
+        if (live << 2 > capacity) {
+            capacity <<= 1;
+        }
+
+        allocate(capacity);
+        for (int j = 0; j < lastTested.length; j++) {
+            long time = lastTested[j];
+            if (time != 0 && !isExpired(time, now)) {
+                int i = -find(most[j], least[j]) - 1;
+                this.most[i] = most[j];
+                this.least[i] = least[j];
+                this.lastTested[i] = time;
+                this.size++;
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public Cooldown getBase() {
+        return this.base;
+    }
+
+    /**
+     * Gets a view of the cooldown for the given key.
+     *
+     * <p>The returned instance reads and writes through to this map.</p>
+     *
+     * @param key the key
+     * @return a cooldown instance
+     */
+    @NonNull
+    @Override
+    public Cooldown get(@NonNull UUID key) {
+        Objects.requireNonNull(key, "key");
+        return new Entry(key);
+    }
+
+    /**
+     * Sets the last tested time of the given key to that of the cooldown.
+     *
+     * <p>Unlike {@link CooldownMapImpl}, the cooldown instance is not retained.</p>
+     *
+     * @param key the key
+     * @param cooldown the cooldown
+     */
+    @Override
+    public void put(@NonNull UUID key, @NonNull Cooldown cooldown) {
+        Objects.requireNonNull(key, "key");
+        Preconditions.checkArgument(cooldown.getTimeout() == this.timeout, "different timeout");
+        setLastTested(key, cooldown.getLastTested().orElse(0));
+    }
+
+    /**
+     * Gets a snapshot of the keys in this map, mapped to views of their cooldowns.
+     *
+     * @return the cooldowns in this map
+     */
+    @NonNull
+    @Override
+    public synchronized Map<UUID, Cooldown> getAll() {
+        long now = Time.nowMillis();
+        ImmutableMap.Builder<UUID, Cooldown> builder = ImmutableMap.builder();
+        for (int i = 0; i < this.lastTested.length; i++) {
+            long time = this.lastTested[i];
+            if (time != 0 && !isExpired(time, now)) {
+                UUID key = new UUID(this.most[i], this.least[i]);
+                builder.put(key, new Entry(key));
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public synchronized boolean test(@NonNull UUID key) {
+        Objects.requireNonNull(key, "key");
+        long now = Time.nowMillis();
+        if (now - read(key, now) <= this.timeout) {
+            return false;
+        }
+        write(key, now);
+        return true;
+    }
+
+    @Override
+    public boolean testSilently(@NonNull UUID key) {
+        return elapsed(key) > this.timeout;
+    }
+
+    @Override
+    public synchronized long elapsed(@NonNull UUID key) {
+        Objects.requireNonNull(key, "key");
+        long now = Time.nowMillis();
+        return now - read(key, now);
+    }
+
+    @Override
+    public void reset(@NonNull UUID key) {
+        setLastTested(key, Time.nowMillis());
+    }
+
+    @Override
+    public long remainingMillis(@NonNull UUID key) {
+        long diff = elapsed(key);
+        return diff > this.timeout ? 0L : this.timeout - diff;
+    }
+
+    @Override
+    public long remainingTime(@NonNull UUID key, @NonNull TimeUnit unit) {
+        return Math.max(0L, unit.convert(remainingMillis(key), TimeUnit.MILLISECONDS));
+    }
+
+    @NonNull
+    @Override
+    public synchronized OptionalLong getLastTested(@NonNull UUID key) {
+        Objects.requireNonNull(key, "key");
+        long time = read(key, Time.nowMillis());
+        return time == 0 ? OptionalLong.empty() : OptionalLong.of(time);
+    }
+
+    @Override
+    public synchronized void setLastTested(@NonNull UUID key, long time) {
+        Objects.requireNonNull(key, "key");
+        write(key, time);
+    }
+
+    /**
+     * A view of the cooldown for a single key.
+     */
+    private final class Entry implements Cooldown {
+        private final UUID key;
+
+        Entry(UUID key) {
+            this.key = key;
+        }
+
+        @Override
+        public boolean testAndReset() {
+            return UuidCooldownMapImpl.this.test(this.key);
+        }
+
+        @Override
+        public boolean test() {
+            return testSilently(this.key);
+        }
+
+        @Override
+        public long elapsed() {
+            return UuidCooldownMapImpl.this.elapsed(this.key);
+        }
+
+        @Override
+        public void reset() {
+            UuidCooldownMapImpl.this.reset(this.key);
+        }
+
+        @NonNull
+        @Override
+        public OptionalLong getLastTested() {
+            return UuidCooldownMapImpl.this.getLastTested(this.key);
+        }
+
+        @Override
+        public void setLastTested(long time) {
+            UuidCooldownMapImpl.this.setLastTested(this.key, time);
+        }
+
+        @Override
+        public long getTimeout() {
+            return UuidCooldownMapImpl.this.timeout;
+        }
+
+        @NonNull
+        @Override
+        public Cooldown copy() {
+            return UuidCooldownMapImpl.this.base.copy();
+        }
+
+        @NonNull
+        @Override
+        public JsonElement serialize() {
+            return JsonBuilder.object()
+                              .add("lastTested", getLastTested().orElse(0))
+                              .add("timeout", UuidCooldownMapImpl.this.timeout)
+                              .build();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.pepej.papi.event.bus.api;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Set;
+
+/**
+ * A subscriber registry which lazily resolves and caches subscribers,
+ * invalidating the whole cache whenever a subscriber is added or removed.
+ *
+ * @param <E> the event type
+ * @see DispatchMode#CACHED
+ */
+final class CachingSubscriberRegistry<E> extends SubscriberRegistry<E> {
+    /**
+     * A cache containing a link between an event class, and the eventsubscribers which
+     * should be passed the given type of event.
+     */
+    private final LoadingCache<Class<?>, ResolvedSubscribers> cache = CacheBuilder.newBuilder()
+                                                                                   .initialCapacity(85)
+                                                                                   .build(CacheLoader.from(this::resolve));
+
+    CachingSubscriberRegistry() {
+    }
+
+    @Override
+    @NonNull ResolvedSubscribers subscribers(final @NonNull Class<?> clazz) {
+        return this.cache.getUnchecked(clazz);
+    }
+
+    @Override
+    void changed(final @NonNull Set<Class<?>> registeredClasses) {
+        this.cache.invalidateAll();
+    }
+}
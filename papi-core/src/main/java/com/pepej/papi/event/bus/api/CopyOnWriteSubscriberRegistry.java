@@ -0,0 +1,76 @@
+package com.pepej.papi.event.bus.api;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A subscriber registry which keeps an immutable array of subscribers for
+ * each event class it has dispatched, and only rebuilds the arrays of the
+ * classes affected by a change.
+ *
+ * <p>Lookups never block: they are a single read from a concurrent map
+ * followed by a volatile read of the dispatch table.</p>
+ *
+ * @param <E> the event type
+ * @see DispatchMode#COPY_ON_WRITE
+ */
+final class CopyOnWriteSubscriberRegistry<E> extends SubscriberRegistry<E> {
+    /**
+     * The dispatch tables, keyed by event class.
+     */
+    private final Map<Class<?>, DispatchTable> tables = new ConcurrentHashMap<>();
+
+    CopyOnWriteSubscriberRegistry() {
+    }
+
+    @Override
+    @NonNull ResolvedSubscribers subscribers(final @NonNull Class<?> clazz) {
+        final DispatchTable table = this.tables.get(clazz);
+        if(table != null) {
+            return table.subscribers;
+        }
+        return this.createTable(clazz).subscribers;
+    }
+
+    private @NonNull DispatchTable createTable(final @NonNull Class<?> clazz) {
+        // built whilst holding the mutex so that a concurrent change can't be missed
+        synchronized(this.mutex) {
+            return this.tables.computeIfAbsent(clazz, c -> new DispatchTable(CLASS_HIERARCHY.getUnchecked(c), this.resolve(c)));
+        }
+    }
+
+    @Override
+    void changed(final @NonNull Set<Class<?>> registeredClasses) {
+        for(final Map.Entry<Class<?>, DispatchTable> entry : this.tables.entrySet()) {
+            final DispatchTable table = entry.getValue();
+            if(table.isAffectedBy(registeredClasses)) {
+                table.subscribers = this.resolve(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * The resolved subscribers for a single event class.
+     */
+    private static final class DispatchTable {
+        private final Set<Class<?>> hierarchy;
+        private volatile ResolvedSubscribers subscribers;
+
+        DispatchTable(final @NonNull Set<Class<?>> hierarchy, final @NonNull ResolvedSubscribers subscribers) {
+            this.hierarchy = hierarchy;
+            this.subscribers = subscribers;
+        }
+
+        boolean isAffectedBy(final @NonNull Set<Class<?>> registeredClasses) {
+            for(final Class<?> registeredClass : registeredClasses) {
+                if(this.hierarchy.contains(registeredClass)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.pepej.papi.event.bus.api;
+
+/**
+ * Determines how a {@link SimpleEventBus} resolves the subscribers for
+ * a posted event.
+ */
+public enum DispatchMode {
+
+    /**
+     * Subscribers are resolved lazily for each event class and cached.
+     *
+     * <p>Any change to the registered subscribers invalidates the whole cache,
+     * so the next post of every event type has to resolve its subscribers again.</p>
+     */
+    CACHED,
+
+    /**
+     * Each event class is mapped to an immutable array of subscribers.
+     *
+     * <p>Registering or unregistering a subscriber only rebuilds the arrays of the
+     * event classes which are affected by the change, and posting an event is a
+     * lock-free read followed by a loop over the array.</p>
+     *
+     * <p>This mode is preferable for buses where subscribers are registered and
+     * unregistered frequently.</p>
+     */
+    COPY_ON_WRITE
+}
@@ -0,0 +1,70 @@
+package com.pepej.papi.event.bus.api;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * An immutable, flattened view of the subscribers for a single event class.
+ *
+ * <p>The properties of each subscriber are read once when the view is built,
+ * so posting does not have to query them for every event.</p>
+ */
+final class ResolvedSubscribers {
+    static final ResolvedSubscribers EMPTY = new ResolvedSubscribers(new EventSubscriber<?>[0], new boolean[0], new Type[0], false);
+
+    /**
+     * Creates a view of the given subscribers, which should already be sorted.
+     *
+     * @param subscribers the subscribers
+     * @return the view
+     */
+    static @NonNull ResolvedSubscribers of(final @NonNull List<EventSubscriber<?>> subscribers) {
+        if(subscribers.isEmpty()) {
+            return EMPTY;
+        }
+        final int size = subscribers.size();
+        final EventSubscriber<?>[] array = new EventSubscriber<?>[size];
+        final boolean[] consumeCancelled = new boolean[size];
+        final Type[] genericTypes = new Type[size];
+        boolean generic = false;
+        for(int i = 0; i < size; i++) {
+            final EventSubscriber<?> subscriber = subscribers.get(i);
+            array[i] = subscriber;
+            consumeCancelled[i] = subscriber.consumeCancelledEvents();
+            genericTypes[i] = subscriber.genericType();
+            generic |= genericTypes[i] != null;
+        }
+        return new ResolvedSubscribers(array, consumeCancelled, genericTypes, generic);
+    }
+
+    /**
+     * The subscribers, sorted by {@link EventSubscriber#postOrder() post order}.
+     */
+    final EventSubscriber<?>[] subscribers;
+    /**
+     * The {@link EventSubscriber#consumeCancelledEvents()} value of each subscriber.
+     */
+    final boolean[] consumeCancelled;
+    /**
+     * The {@link EventSubscriber#genericType()} of each subscriber.
+     */
+    final @Nullable Type[] genericTypes;
+    /**
+     * If any of the subscribers declares a generic type.
+     */
+    final boolean generic;
+
+    private ResolvedSubscribers(final EventSubscriber<?> @NonNull [] subscribers, final boolean @NonNull [] consumeCancelled, final @Nullable Type @NonNull [] genericTypes, final boolean generic) {
+        this.subscribers = subscribers;
+        this.consumeCancelled = consumeCancelled;
+        this.genericTypes = genericTypes;
+        this.generic = generic;
+    }
+
+    boolean isEmpty() {
+        return this.subscribers.length == 0;
+    }
+}
@@ -17,10 +17,34 @@ import static java.util.Objects.requireNonNull;
  */
 public class SimpleEventBus<E> implements EventBus<E> {
     private final Class<E> type;
-    private final SubscriberRegistry<E> registry = new SubscriberRegistry<>();
+    private final SubscriberRegistry<E> registry;
+    /**
+     * If a subclass overrides {@link #shouldPost(Object, EventSubscriber)}, in which case
+     * it has to be consulted for every subscriber.
+     */
+    private final boolean customShouldPost;
+    private volatile @Nullable SubscriberMetrics metrics;
 
     public SimpleEventBus(final @NonNull Class<E> type) {
+        this(type, DispatchMode.CACHED);
+    }
+
+    public SimpleEventBus(final @NonNull Class<E> type, final @NonNull DispatchMode dispatchMode) {
         this.type = requireNonNull(type, "type");
+        this.registry = SubscriberRegistry.create(requireNonNull(dispatchMode, "dispatchMode"));
+        this.customShouldPost = overridesShouldPost(this.getClass());
+    }
+
+    private static boolean overridesShouldPost(final @NonNull Class<?> clazz) {
+        for (Class<?> c = clazz; c != SimpleEventBus.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("shouldPost", Object.class, EventSubscriber.class);
+                return true;
+            } catch (final NoSuchMethodException e) {
+                // ignore
+            }
+        }
+        return false;
     }
     @NonNull
     @Override
@@ -62,6 +86,10 @@ public class SimpleEventBus<E> implements EventBus<E> {
      * <p>The default implementation of this method tests for cancellation
      * status and matching event/subscriber generic types.</p>
      *
+     * <p>Unless this method is overridden, {@link #post(Object)} performs the
+     * same tests without calling it, resolving the generic type of the event
+     * only once per post.</p>
+     *
      * @param event      the event
      * @param subscriber the subscriber
      * @return true if the event should be posted
@@ -76,13 +104,46 @@ public class SimpleEventBus<E> implements EventBus<E> {
     @Override
     @SuppressWarnings("unchecked")
     public PostResult post(final @NonNull E event) {
+        final ResolvedSubscribers resolved = this.registry.subscribers(event.getClass());
+        if (resolved.isEmpty()) {
+            return PostResult.success();
+        }
+        final EventSubscriber[] subscribers = resolved.subscribers;
+        final SubscriberMetrics metrics = this.metrics;
+        // resolved once per post rather than once per subscriber
+        final Type genericType = this.customShouldPost ? null : this.eventGenericType(event);
+        if (!this.customShouldPost && genericType != null && !resolved.generic) {
+            // no subscriber declares a generic type, so none of them can match
+            return PostResult.success();
+        }
+
         ImmutableMap.Builder<EventSubscriber<?>, Throwable> exceptions = null; // save on an allocation
-        for (final EventSubscriber subscriber : this.registry.subscribers(event.getClass())) {
-            if (!this.shouldPost(event, subscriber)) {
-                continue;
+        for (int i = 0; i < subscribers.length; i++) {
+            final EventSubscriber subscriber = subscribers[i];
+            if (this.customShouldPost) {
+                if (!this.shouldPost(event, subscriber)) {
+                    continue;
+                }
+            } else {
+                // cancellation is re-checked as earlier subscribers may cancel the event
+                if (!resolved.consumeCancelled[i] && this.eventCancelled(event)) {
+                    continue;
+                }
+                if (resolved.generic && !Objects.equals(genericType, resolved.genericTypes[i])) {
+                    continue;
+                }
             }
             try {
-                subscriber.invoke(event);
+                if (metrics == null) {
+                    subscriber.invoke(event);
+                } else {
+                    final long start = System.nanoTime();
+                    try {
+                        subscriber.invoke(event);
+                    } finally {
+                        metrics.record(subscriber, System.nanoTime() - start);
+                    }
+                }
             } catch (final Throwable e) {
                 if (exceptions == null) {
                     exceptions = ImmutableMap.builder();
@@ -98,6 +159,36 @@ public class SimpleEventBus<E> implements EventBus<E> {
         }
     }
 
+    /**
+     * Starts recording invocation counts and times for each subscriber.
+     *
+     * <p>If metrics are already enabled, the existing instance is returned.</p>
+     *
+     * @return the metrics
+     */
+    public synchronized @NonNull SubscriberMetrics enableMetrics() {
+        if (this.metrics == null) {
+            this.metrics = new SubscriberMetrics();
+        }
+        return this.metrics;
+    }
+
+    /**
+     * Stops recording subscriber metrics.
+     */
+    public synchronized void disableMetrics() {
+        this.metrics = null;
+    }
+
+    /**
+     * Gets the subscriber metrics, if they are {@link #enableMetrics() enabled}.
+     *
+     * @return the metrics, or null if they are not enabled
+     */
+    public @Nullable SubscriberMetrics metrics() {
+        return this.metrics;
+    }
+
     @Override
     public <T extends E> void register(final @NonNull Class<T> clazz, final @NonNull EventSubscriber<? super T> subscriber) {
         Preconditions.checkArgument(this.type.isAssignableFrom(clazz), "clazz " + clazz + " cannot be casted to event type " + this.type);
@@ -0,0 +1,226 @@
+package com.pepej.papi.event.bus.api;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how often, and for how long, each {@link EventSubscriber} of an
+ * {@link EventBus} is invoked.
+ *
+ * <p>Invocation times are recorded in nanoseconds into a histogram with
+ * power-of-two buckets: bucket {@code i} counts invocations which took
+ * between {@code 2^i} and {@code 2^(i+1) - 1} nanoseconds.</p>
+ *
+ * <p>Metrics are retained for subscribers which have since been unregistered
+ * until {@link #reset()} is called.</p>
+ *
+ * @see SimpleEventBus#enableMetrics()
+ */
+public final class SubscriberMetrics {
+    /**
+     * The number of histogram buckets.
+     */
+    public static final int BUCKETS = 64;
+
+    private final Map<EventSubscriber<?>, Timing> timings = new ConcurrentHashMap<>();
+
+    SubscriberMetrics() {
+    }
+
+    /**
+     * Records an invocation of the given subscriber.
+     *
+     * @param subscriber the subscriber
+     * @param nanos the duration of the invocation in nanoseconds
+     */
+    void record(final @NonNull EventSubscriber<?> subscriber, final long nanos) {
+        Timing timing = this.timings.get(subscriber);
+        if(timing == null) {
+            timing = this.timings.computeIfAbsent(subscriber, s -> new Timing());
+        }
+        timing.record(nanos);
+    }
+
+    /**
+     * Takes a snapshot of the metrics recorded so far.
+     *
+     * @return a snapshot of the metrics of each subscriber
+     */
+    public @NonNull Map<EventSubscriber<?>, Snapshot> snapshot() {
+        final ImmutableMap.Builder<EventSubscriber<?>, Snapshot> snapshot = ImmutableMap.builder();
+        for(final Map.Entry<EventSubscriber<?>, Timing> entry : this.timings.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshot.build();
+    }
+
+    /**
+     * Clears all recorded metrics.
+     */
+    public void reset() {
+        this.timings.clear();
+    }
+
+    /**
+     * Formats the recorded metrics into a human readable report, with the
+     * subscribers which have spent the most time first.
+     *
+     * @return the report
+     */
+    public @NonNull String dump() {
+        final StringBuilder sb = new StringBuilder();
+        this.snapshot().entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<EventSubscriber<?>, Snapshot> e) -> e.getValue().totalNanos()).reversed())
+            .forEach(e -> {
+                final Snapshot s = e.getValue();
+                sb.append(e.getKey())
+                  .append(": calls=").append(s.invocations())
+                  .append(", total=").append(TimeUnit.NANOSECONDS.toMillis(s.totalNanos())).append("ms")
+                  .append(", mean=").append(s.meanNanos()).append("ns")
+                  .append(", p50<").append(s.percentileNanos(0.5)).append("ns")
+                  .append(", p99<").append(s.percentileNanos(0.99)).append("ns")
+                  .append(", max=").append(s.maxNanos()).append("ns")
+                  .append('\n');
+            });
+        return sb.toString();
+    }
+
+    static int bucket(final long nanos) {
+        return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    /**
+     * The live metrics of a single subscriber.
+     */
+    private static final class Timing {
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        void record(final long nanos) {
+            this.invocations.increment();
+            this.totalNanos.add(nanos);
+            this.histogram.incrementAndGet(bucket(nanos));
+            if(nanos > this.maxNanos.get()) {
+                this.maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+        }
+
+        Snapshot snapshot() {
+            final long[] histogram = new long[BUCKETS];
+            for(int i = 0; i < BUCKETS; i++) {
+                histogram[i] = this.histogram.get(i);
+            }
+            return new Snapshot(this.invocations.sum(), this.totalNanos.sum(), this.maxNanos.get(), histogram);
+        }
+    }
+
+    /**
+     * A point-in-time copy of the metrics of a single subscriber.
+     */
+    public static final class Snapshot {
+        private final long invocations;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] histogram;
+
+        Snapshot(final long invocations, final long totalNanos, final long maxNanos, final long @NonNull [] histogram) {
+            this.invocations = invocations;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Gets the number of times the subscriber was invoked.
+         *
+         * @return the invocation count
+         */
+        public long invocations() {
+            return this.invocations;
+        }
+
+        /**
+         * Gets the total time spent invoking the subscriber.
+         *
+         * @return the total time in nanoseconds
+         */
+        public long totalNanos() {
+            return this.totalNanos;
+        }
+
+        /**
+         * Gets the longest single invocation of the subscriber.
+         *
+         * @return the maximum time in nanoseconds
+         */
+        public long maxNanos() {
+            return this.maxNanos;
+        }
+
+        /**
+         * Gets the mean time of an invocation of the subscriber.
+         *
+         * @return the mean time in nanoseconds
+         */
+        public long meanNanos() {
+            return this.invocations == 0 ? 0 : this.totalNanos / this.invocations;
+        }
+
+        /**
+         * Gets an upper bound for the given percentile of invocation times,
+         * accurate to the nearest power of two.
+         *
+         * @param percentile the percentile, between 0 and 1
+         * @return the upper bound in nanoseconds
+         */
+        public long percentileNanos(final double percentile) {
+            long total = 0;
+            for(final long count : this.histogram) {
+                total += count;
+            }
+            if(total == 0) {
+                return 0;
+            }
+            final long target = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                seen += this.histogram[i];
+                if(seen >= target) {
+                    return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                }
+            }
+            return this.maxNanos;
+        }
+
+        /**
+         * Gets a copy of the histogram of invocation times.
+         *
+         * @return the histogram
+         * @see SubscriberMetrics
+         */
+        public long @NonNull [] histogram() {
+            return this.histogram.clone();
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                              .add("invocations", this.invocations)
+                              .add("totalNanos", this.totalNanos)
+                              .add("meanNanos", this.meanNanos())
+                              .add("maxNanos", this.maxNanos)
+                              .toString();
+        }
+    }
+}
@@ -10,7 +10,9 @@ import com.google.common.reflect.TypeToken;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -20,13 +22,32 @@ import java.util.function.Predicate;
  *
  * @param <E> the event type
  */
-final class SubscriberRegistry<E> {
+abstract class SubscriberRegistry<E> {
     /**
      * A cache of class --> a set of interfaces and classes that the class is or is a subtype of.
      */
-    private static final LoadingCache<Class<?>, Set<Class<?>>> CLASS_HIERARCHY = CacheBuilder.newBuilder()
-                                                                                             .weakKeys()
-                                                                                             .build(CacheLoader.from(key -> (Set<Class<?>>) TypeToken.of(key).getTypes().rawTypes()));
+    static final LoadingCache<Class<?>, Set<Class<?>>> CLASS_HIERARCHY = CacheBuilder.newBuilder()
+                                                                                    .weakKeys()
+                                                                                    .build(CacheLoader.from(key -> (Set<Class<?>>) TypeToken.of(key).getTypes().rawTypes()));
+
+    /**
+     * Creates a new registry for the given dispatch mode.
+     *
+     * @param mode the dispatch mode
+     * @param <E> the event type
+     * @return a new registry
+     */
+    static <E> @NonNull SubscriberRegistry<E> create(final @NonNull DispatchMode mode) {
+        switch (mode) {
+            case CACHED:
+                return new CachingSubscriberRegistry<>();
+            case COPY_ON_WRITE:
+                return new CopyOnWriteSubscriberRegistry<>();
+            default:
+                throw new IllegalArgumentException("Unknown dispatch mode: " + mode);
+        }
+    }
+
     /**
      * A raw, unresolved multimap of class --> event subscriber.
      *
@@ -34,34 +55,13 @@ final class SubscriberRegistry<E> {
      */
     // technically a Multimap<Class<T>, EventSubscriber<? super T>>
     private final SetMultimap<Class<?>, EventSubscriber<?>> subscribers = HashMultimap.create();
-    /**
-     * A cache containing a link between an event class, and the eventsubscribers which
-     * should be passed the given type of event.
-     */
-    private final LoadingCache<Class<?>, List<EventSubscriber<?>>> cache = CacheBuilder.newBuilder()
-                                                                                       .initialCapacity(85)
-                                                                                       .build(CacheLoader.from(eventClass -> {
-                                                                                           final List<EventSubscriber<?>> subscribers = new ArrayList<>();
-                                                                                           final Set<? extends Class<?>> types = CLASS_HIERARCHY.getUnchecked(eventClass);
-                                                                                           assert types != null;
-                                                                                           synchronized(this.mutex) {
-                                                                                               for(final Class<?> type : types) {
-                                                                                                   subscribers.addAll(this.subscribers.get(type));
-                                                                                               }
-                                                                                           }
-
-                                                                                           subscribers.sort(Comparator.comparingInt(EventSubscriber::postOrder));
-                                                                                           return subscribers;
-                                                                                       }));
-    private final Object mutex = new Object();
-
-    SubscriberRegistry() {
-    }
+    final Object mutex = new Object();
 
     <T extends E> void register(final @NonNull Class<T> clazz, final @NonNull EventSubscriber<? super T> subscriber) {
         synchronized(this.mutex) {
-            this.subscribers.put(clazz, subscriber);
-            this.cache.invalidateAll();
+            if(this.subscribers.put(clazz, subscriber)) {
+                this.changed(Collections.singleton(clazz));
+            }
         }
     }
 
@@ -71,17 +71,27 @@ final class SubscriberRegistry<E> {
 
     void unregisterMatching(final @NonNull Predicate<EventSubscriber<?>> predicate) {
         synchronized(this.mutex) {
-            final boolean dirty = this.subscribers.values().removeIf(predicate);
-            if(dirty) {
-                this.cache.invalidateAll();
+            final Set<Class<?>> affected = new HashSet<>();
+            this.subscribers.entries().removeIf(entry -> {
+                if(predicate.test(entry.getValue())) {
+                    affected.add(entry.getKey());
+                    return true;
+                }
+                return false;
+            });
+            if(!affected.isEmpty()) {
+                this.changed(affected);
             }
         }
     }
 
     void unregisterAll() {
         synchronized(this.mutex) {
+            final Set<Class<?>> affected = new HashSet<>(this.subscribers.keySet());
             this.subscribers.clear();
-            this.cache.invalidateAll();
+            if(!affected.isEmpty()) {
+                this.changed(affected);
+            }
         }
     }
 
@@ -91,7 +101,38 @@ final class SubscriberRegistry<E> {
         }
     }
 
-    @NonNull List<EventSubscriber<?>> subscribers(final @NonNull Class<?> clazz) {
-        return this.cache.getUnchecked(clazz);
+    /**
+     * Gets the subscribers which should be passed events of the given class,
+     * sorted by {@link EventSubscriber#postOrder() post order}.
+     *
+     * @param clazz the event class
+     * @return the subscribers
+     */
+    abstract @NonNull ResolvedSubscribers subscribers(final @NonNull Class<?> clazz);
+
+    /**
+     * Called whilst holding the {@link #mutex} after subscribers registered
+     * against the given classes have been added or removed.
+     *
+     * @param registeredClasses the classes the changed subscribers were registered with
+     */
+    abstract void changed(final @NonNull Set<Class<?>> registeredClasses);
+
+    /**
+     * Collects and sorts the subscribers which should be passed events of the given class.
+     *
+     * @param eventClass the event class
+     * @return the resolved subscribers
+     */
+    final @NonNull ResolvedSubscribers resolve(final @NonNull Class<?> eventClass) {
+        final List<EventSubscriber<?>> subscribers = new ArrayList<>();
+        final Set<Class<?>> types = CLASS_HIERARCHY.getUnchecked(eventClass);
+        synchronized(this.mutex) {
+            for(final Class<?> type : types) {
+                subscribers.addAll(this.subscribers.get(type));
+            }
+        }
+        subscribers.sort(Comparator.comparingInt(EventSubscriber::postOrder));
+        return ResolvedSubscribers.of(subscribers);
     }
 }
@@ -0,0 +1,108 @@
+package com.pepej.papi.event.bus.method;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An executor factory which uses {@link LambdaMetafactory} to spin a class
+ * implementing {@link EventExecutor} for each subscriber method.
+ *
+ * <p>The generated executor calls the method directly, rather than through a
+ * non-constant {@link MethodHandle}, which allows the JIT to inline the
+ * subscriber into the event bus.</p>
+ *
+ * <p>Generated executors do not capture the listener object, so they are
+ * shared between all listeners declaring the same method. Static methods
+ * are still invoked through a method handle, and classes which cannot be
+ * accessed privately, or for which the metafactory refuses to spin a class,
+ * fall back to a {@link MethodHandleEventExecutorFactory}.</p>
+ *
+ * <p>Private access to the listener class is taken through
+ * {@code MethodHandles.privateLookupIn} on Java 9 and above, and through the
+ * private {@link MethodHandles.Lookup} constructor on Java 8.</p>
+ *
+ * @param <E> the event type
+ * @param <L> the listener type
+ */
+public final class LambdaEventExecutorFactory<E, L> implements EventExecutor.Factory<E, L> {
+    private static final MethodType INVOKED_TYPE = MethodType.methodType(EventExecutor.class);
+    private static final MethodType SAM_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final LookupFactory LOOKUP_FACTORY = createLookupFactory();
+
+    private final Map<Method, EventExecutor<E, L>> cache = new ConcurrentHashMap<>();
+    private final EventExecutor.Factory<E, L> fallback = new MethodHandleEventExecutorFactory<>();
+
+    @Override
+    public @NonNull EventExecutor<E, L> create(final @NonNull Object object, final @NonNull Method method) throws Throwable {
+        EventExecutor<E, L> executor = this.cache.get(method);
+        if (executor != null) {
+            return executor;
+        }
+
+        if (LOOKUP_FACTORY == null) {
+            return this.fallback.create(object, method);
+        }
+        final MethodHandles.Lookup lookup;
+        try {
+            lookup = LOOKUP_FACTORY.privateLookupIn(method.getDeclaringClass());
+        } catch (final ReflectiveOperationException | SecurityException e) {
+            return this.fallback.create(object, method);
+        }
+        try {
+            executor = generate(lookup, method);
+        } catch (final LambdaConversionException | IllegalAccessException | SecurityException e) {
+            // on java 16+, a class in another module (or loaded by another class loader)
+            // only gets a lookup without full privilege, which the metafactory rejects
+            return this.fallback.create(object, method);
+        }
+        final EventExecutor<E, L> existing = this.cache.putIfAbsent(method, executor);
+        return existing != null ? existing : executor;
+    }
+
+    private static LookupFactory createLookupFactory() {
+        try {
+            // java 9+
+            final Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+            final MethodHandles.Lookup caller = MethodHandles.lookup();
+            return target -> (MethodHandles.Lookup) privateLookupIn.invoke(null, target, caller);
+        } catch (final NoSuchMethodException e) {
+            // java 8
+        }
+        try {
+            final Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+            constructor.setAccessible(true);
+            final int modes = MethodHandles.Lookup.PUBLIC | MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED | MethodHandles.Lookup.PACKAGE;
+            return target -> constructor.newInstance(target, modes);
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E, L> @NonNull EventExecutor<E, L> generate(final MethodHandles.@NonNull Lookup lookup, final @NonNull Method method) throws Throwable {
+        final MethodHandle handle = lookup.unreflect(method);
+        if (Modifier.isStatic(method.getModifiers())) {
+            // the listener can't be dropped by the metafactory
+            return (listener, event) -> handle.invoke(event);
+        }
+        final MethodType instantiatedType = MethodType.methodType(void.class, method.getDeclaringClass(), method.getParameterTypes()[0]);
+        return (EventExecutor<E, L>) LambdaMetafactory.metafactory(lookup, "invoke", INVOKED_TYPE, SAM_TYPE, handle, instantiatedType)
+                                                     .getTarget()
+                                                     .invoke();
+    }
+
+    @FunctionalInterface
+    private interface LookupFactory {
+        MethodHandles.@NonNull Lookup privateLookupIn(@NonNull Class<?> target) throws ReflectiveOperationException;
+    }
+}
@@ -0,0 +1,229 @@
+package com.pepej.papi.event.functional.single;
+
+import com.pepej.papi.Papi;
+import com.pepej.papi.plugin.PapiPlugin;
+import com.pepej.papi.terminable.Terminable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single Bukkit {@link EventExecutor} which dispatches an event to every
+ * multiplexed {@link PapiSingleEventListener} of a plugin with the same event
+ * class and priority.
+ *
+ * <p>Executors are never shared between plugins, as each is registered with
+ * Bukkit by, and closed along with, a single plugin.</p>
+ *
+ * <p>Listeners are held in immutable arrays, indexed by the runtime class of the
+ * event. Adding or removing a listener rebuilds the index and swaps it in
+ * atomically. The executor stays registered with Bukkit once its last listener
+ * is removed, and is only unregistered when its plugin is disabled, so the Bukkit
+ * {@link HandlerList} is only modified when the first listener is added.
+ * Subscriptions which come and go, such as those which expire after a single
+ * call, don't register and unregister with Bukkit each time.</p>
+ *
+ * @param <T> the event type
+ */
+final class MultiplexedEventExecutor<T extends Event> implements EventExecutor, Listener, Terminable {
+    private static final PapiSingleEventListener<?>[] EMPTY = new PapiSingleEventListener<?>[0];
+    private static final Map<Key, MultiplexedEventExecutor<?>> EXECUTORS = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a listener to the executor for its plugin, event class and priority,
+     * registering the executor with Bukkit if necessary.
+     *
+     * @param listener the listener
+     * @param plugin the plugin to register and bind the executor with
+     * @param <T> the event type
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Event> void add(@NonNull PapiSingleEventListener<T> listener, @NonNull PapiPlugin plugin) {
+        Key key = new Key(plugin, listener.getEventClass(), listener.getPriority());
+        while (true) {
+            MultiplexedEventExecutor<T> executor = (MultiplexedEventExecutor<T>) EXECUTORS.computeIfAbsent(key, k -> {
+                MultiplexedEventExecutor<T> created = new MultiplexedEventExecutor<>(key);
+                Papi.plugins().registerEvent(key.eventClass, created, key.priority, created, key.plugin, false);
+                key.plugin.bind(created);
+                return created;
+            });
+            if (executor.addListener(listener)) {
+                return;
+            }
+            // the executor was closed concurrently, try again with a new one
+        }
+    }
+
+    private final Key key;
+    private final Object lock = new Object();
+
+    /**
+     * All listeners, in registration order.
+     */
+    private final List<PapiSingleEventListener<T>> listeners = new ArrayList<>();
+
+    /**
+     * The runtime event class --> listeners index. Replaced, never mutated.
+     */
+    private volatile Map<Class<?>, PapiSingleEventListener<?>[]> index = new IdentityHashMap<>();
+    private volatile boolean closed = false;
+
+    private MultiplexedEventExecutor(Key key) {
+        this.key = key;
+    }
+
+    private boolean addListener(PapiSingleEventListener<T> listener) {
+        synchronized (this.lock) {
+            if (this.closed) {
+                return false;
+            }
+            listener.multiplexer = this;
+            this.listeners.add(listener);
+            this.rebuild();
+            return true;
+        }
+    }
+
+    /**
+     * Removes a listener from the executor.
+     *
+     * <p>The executor stays registered with Bukkit, even if it was the last
+     * listener, ready for the next listener to be added.</p>
+     *
+     * @param listener the listener
+     */
+    void remove(PapiSingleEventListener<T> listener) {
+        synchronized (this.lock) {
+            if (this.listeners.remove(listener)) {
+                this.rebuild();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index for every event class seen so far.
+     */
+    private void rebuild() {
+        Map<Class<?>, PapiSingleEventListener<?>[]> index = new IdentityHashMap<>();
+        for (Class<?> eventClass : this.index.keySet()) {
+            index.put(eventClass, resolve(eventClass));
+        }
+        // always include the registered class, it is by far the most likely to be called
+        index.put(this.key.eventClass, resolve(this.key.eventClass));
+        this.index = index;
+    }
+
+    private PapiSingleEventListener<?>[] resolve(Class<?> eventClass) {
+        List<PapiSingleEventListener<T>> resolved = new ArrayList<>(this.listeners.size());
+        for (PapiSingleEventListener<T> listener : this.listeners) {
+            if (listener.accepts(eventClass)) {
+                resolved.add(listener);
+            }
+        }
+        return resolved.isEmpty() ? EMPTY : resolved.toArray(EMPTY);
+    }
+
+    private PapiSingleEventListener<?>[] lookup(Class<?> eventClass) {
+        PapiSingleEventListener<?>[] listeners = this.index.get(eventClass);
+        if (listeners != null) {
+            return listeners;
+        }
+
+        // first time we've seen this subclass
+        synchronized (this.lock) {
+            listeners = this.index.get(eventClass);
+            if (listeners == null) {
+                Map<Class<?>, PapiSingleEventListener<?>[]> index = new IdentityHashMap<>(this.index);
+                listeners = resolve(eventClass);
+                index.put(eventClass, listeners);
+                this.index = index;
+            }
+            return listeners;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void execute(Listener ignored, Event event) {
+        if (!this.key.eventClass.isInstance(event)) {
+            return;
+        }
+        PapiSingleEventListener<?>[] listeners = lookup(event.getClass());
+        if (listeners.length == 0) {
+            return;
+        }
+        T eventInstance = (T) event;
+        for (PapiSingleEventListener<?> listener : listeners) {
+            PapiSingleEventListener<T> l = (PapiSingleEventListener<T>) listener;
+            try {
+                l.dispatch(eventInstance);
+            } catch (Exception e) {
+                // don't let one subscription prevent the others from being called
+                l.handleException(eventInstance, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this.lock) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            // the plugin is being disabled, so its listeners won't be called again
+            for (PapiSingleEventListener<T> listener : this.listeners) {
+                listener.deactivate();
+            }
+            this.listeners.clear();
+            this.index = new IdentityHashMap<>();
+            EXECUTORS.remove(this.key, this);
+        }
+        HandlerList.unregisterAll(this);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    private static final class Key {
+        private final PapiPlugin plugin;
+        private final Class<? extends Event> eventClass;
+        private final EventPriority priority;
+
+        Key(PapiPlugin plugin, Class<? extends Event> eventClass, EventPriority priority) {
+            this.plugin = plugin;
+            this.eventClass = eventClass;
+            this.priority = priority;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return this.plugin == other.plugin && this.eventClass == other.eventClass && this.priority == other.priority;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(this.plugin), this.eventClass, this.priority);
+        }
+
+        @Override
+        public String toString() {
+            return this.plugin.getName() + ":" + this.eventClass.getName() + "@" + this.priority;
+        }
+    }
+}
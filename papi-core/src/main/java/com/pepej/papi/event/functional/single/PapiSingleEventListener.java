@@ -2,13 +2,13 @@ package com.pepej.papi.event.functional.single;
 
 import com.pepej.papi.Papi;
 import com.pepej.papi.event.SingleSubscription;
+import com.pepej.papi.plugin.PapiPlugin;
 import com.pepej.papi.shadow.ClassTarget;
 import com.pepej.papi.shadow.DynamicClassTarget;
 import com.pepej.papi.shadow.Shadow;
 import com.pepej.papi.shadow.Static;
 import org.bukkit.event.*;
 import org.bukkit.plugin.EventExecutor;
-import org.bukkit.plugin.Plugin;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.lang.reflect.Method;
@@ -16,13 +16,32 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
 class PapiSingleEventListener<T extends Event> implements SingleSubscription<T>, EventExecutor, Listener {
+
+    /**
+     * Creates a listener, specialised for the shape of the subscription.
+     *
+     * @param builder the builder
+     * @param handlers the handlers
+     * @param <T> the event type
+     * @return a new listener
+     */
+    static <T extends Event> PapiSingleEventListener<T> create(SingleSubscriptionBuilderImpl<T> builder, List<BiConsumer<SingleSubscription<T>, ? super T>> handlers) {
+        boolean expiryTests = !builder.preExpiryTests.isEmpty() || !builder.midExpiryTests.isEmpty() || !builder.postExpiryTests.isEmpty();
+        if (expiryTests) {
+            return new PapiSingleEventListener<>(builder, handlers);
+        }
+        if (builder.filters.isEmpty() && handlers.size() == 1) {
+            return new SingleHandler<>(builder, handlers);
+        }
+        return new Unexpiring<>(builder, handlers);
+    }
+
     private final Class<T> eventClass;
     private final EventPriority priority;
 
@@ -34,15 +53,23 @@ class PapiSingleEventListener<T extends Event> implements SingleSubscription<T>,
     private final BiPredicate<SingleSubscription<T>, T>[] postExpiryTests;
     private final BiConsumer<SingleSubscription<T>, ? super T>[] handlers;
 
-    private final AtomicLong callCount = new AtomicLong(0);
-    private final AtomicBoolean active = new AtomicBoolean(true);
+    // only counted by listeners with expiry tests, which may need the count.
+    // sync events are only ever called on the main thread, so don't need an atomic
+    private long syncCallCount = 0;
+    private final LongAdder asyncCallCount = new LongAdder();
+    private volatile boolean active = true;
+
+    private final boolean multiplexed;
+    // set by the multiplexer before the listener can receive any events
+    volatile MultiplexedEventExecutor<T> multiplexer = null;
 
     @SuppressWarnings("unchecked")
-    PapiSingleEventListener(SingleSubscriptionBuilderImpl<T> builder, List<BiConsumer<SingleSubscription<T>, ? super T>> handlers) {
+    private PapiSingleEventListener(SingleSubscriptionBuilderImpl<T> builder, List<BiConsumer<SingleSubscription<T>, ? super T>> handlers) {
         this.eventClass = builder.eventClass;
         this.priority = builder.priority;
         this.exceptionConsumer = builder.exceptionConsumer;
         this.handleSubclasses = builder.handleSubclasses;
+        this.multiplexed = builder.multiplexed;
         this.filters = builder.filters.toArray(new Predicate[0]);
         this.preExpiryTests = builder.preExpiryTests.toArray(new BiPredicate[0]);
         this.midExpiryTests = builder.midExpiryTests.toArray(new BiPredicate[0]);
@@ -50,8 +77,26 @@ class PapiSingleEventListener<T extends Event> implements SingleSubscription<T>,
         this.handlers = handlers.toArray(new BiConsumer[0]);
     }
 
-    void register(Plugin plugin) {
-        Papi.plugins().registerEvent(eventClass, this, priority, this, plugin, false);
+    void register(PapiPlugin plugin) {
+        if (multiplexed) {
+            MultiplexedEventExecutor.add(this, plugin);
+        } else {
+            Papi.plugins().registerEvent(eventClass, this, priority, this, plugin, false);
+        }
+    }
+
+    EventPriority getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * Gets if events of the given runtime class should be passed to this listener.
+     *
+     * @param clazz the event class
+     * @return if the event should be handled
+     */
+    boolean accepts(Class<?> clazz) {
+        return handleSubclasses ? eventClass.isAssignableFrom(clazz) : clazz == eventClass;
     }
 
     @Override
@@ -68,20 +113,25 @@ class PapiSingleEventListener<T extends Event> implements SingleSubscription<T>,
             }
         }
 
+        dispatch(eventClass.cast(event));
+    }
+
+    /**
+     * Handles an event which is already known to be accepted by this listener.
+     *
+     * @param eventInstance the event
+     */
+    void dispatch(T eventInstance) {
         // this handler is disabled, so unregister from the event.
-        if (!active.get()) {
-            event.getHandlers().unregister(listener);
+        if (!active) {
+            detach(eventInstance);
             return;
         }
 
-        // obtain the event instance
-        T eventInstance = eventClass.cast(event);
-
         // check pre-expiry tests
         for (BiPredicate<SingleSubscription<T>, T> test : preExpiryTests) {
             if (test.test(this, eventInstance)) {
-                event.getHandlers().unregister(listener);
-                active.set(false);
+                expire(eventInstance);
                 return;
             }
         }
@@ -98,8 +148,7 @@ class PapiSingleEventListener<T extends Event> implements SingleSubscription<T>,
             // check mid-expiry tests
             for (BiPredicate<SingleSubscription<T>, T> test : midExpiryTests) {
                 if (test.test(this, eventInstance)) {
-                    event.getHandlers().unregister(listener);
-                    active.set(false);
+                    expire(eventInstance);
                     return;
                 }
             }
@@ -110,7 +159,11 @@ class PapiSingleEventListener<T extends Event> implements SingleSubscription<T>,
             }
 
             // increment call counter
-            callCount.incrementAndGet();
+            if (eventInstance.isAsynchronous()) {
+                asyncCallCount.increment();
+            } else {
+                syncCallCount++;
+            }
         } catch (Exception t) {
             exceptionConsumer.accept(eventInstance, t);
         }
@@ -118,13 +171,42 @@ class PapiSingleEventListener<T extends Event> implements SingleSubscription<T>,
         // check post-expiry tests
         for (BiPredicate<SingleSubscription<T>, T> test : postExpiryTests) {
             if (test.test(this, eventInstance)) {
-                event.getHandlers().unregister(listener);
-                active.set(false);
+                expire(eventInstance);
                 return;
             }
         }
     }
 
+    void handleException(T event, Exception e) {
+        exceptionConsumer.accept(event, e);
+    }
+
+    private void expire(T event) {
+        detach(event);
+        active = false;
+    }
+
+    /**
+     * Stops this listener from receiving events.
+     *
+     * @param event the event currently being handled
+     */
+    final void detach(T event) {
+        MultiplexedEventExecutor<T> multiplexer = this.multiplexer;
+        if (multiplexer != null) {
+            multiplexer.remove(this);
+        } else {
+            event.getHandlers().unregister(this);
+        }
+    }
+
+    /**
+     * Marks this listener as inactive, after it has been removed by its multiplexer.
+     */
+    final void deactivate() {
+        active = false;
+    }
+
     @NonNull
     @Override
     public Class<T> getEventClass() {
@@ -133,24 +215,41 @@ class PapiSingleEventListener<T extends Event> implements SingleSubscription<T>,
 
     @Override
     public boolean isActive() {
-        return active.get();
+        return active;
     }
 
     @Override
     public boolean isClosed() {
-        return !active.get();
+        return !active;
     }
 
+    /**
+     * Gets the number of times the handlers have been called.
+     *
+     * <p>Calls are only counted for subscriptions with expiry tests, so this is
+     * always zero for subscriptions without any.</p>
+     *
+     * @return the number of calls
+     */
     @Override
     public long getCallCounter() {
-        return callCount.get();
+        return syncCallCount + asyncCallCount.sum();
     }
 
     @Override
     public boolean unregister() {
-        // already unregistered
-        if (!active.getAndSet(false)) {
-            return false;
+        synchronized (this) {
+            // already unregistered
+            if (!active) {
+                return false;
+            }
+            active = false;
+        }
+
+        MultiplexedEventExecutor<T> multiplexer = this.multiplexer;
+        if (multiplexer != null) {
+            multiplexer.remove(this);
+            return true;
         }
 
         // also remove the handler directly, just in case the event has a really low throughput.
@@ -172,6 +271,63 @@ class PapiSingleEventListener<T extends Event> implements SingleSubscription<T>,
         return functions;
     }
 
+    /**
+     * A listener without any expiry tests, which doesn't count its calls.
+     */
+    private static final class Unexpiring<T extends Event> extends PapiSingleEventListener<T> {
+        Unexpiring(SingleSubscriptionBuilderImpl<T> builder, List<BiConsumer<SingleSubscription<T>, ? super T>> handlers) {
+            super(builder, handlers);
+        }
+
+        @Override
+        void dispatch(T eventInstance) {
+            if (!super.active) {
+                detach(eventInstance);
+                return;
+            }
+
+            try {
+                for (Predicate<T> filter : super.filters) {
+                    if (!filter.test(eventInstance)) {
+                        return;
+                    }
+                }
+                for (BiConsumer<SingleSubscription<T>, ? super T> handler : super.handlers) {
+                    handler.accept(this, eventInstance);
+                }
+            } catch (Exception t) {
+                handleException(eventInstance, t);
+            }
+        }
+    }
+
+    /**
+     * A listener with a single handler, and no filters or expiry tests, which
+     * doesn't count its calls.
+     */
+    private static final class SingleHandler<T extends Event> extends PapiSingleEventListener<T> {
+        private final BiConsumer<SingleSubscription<T>, ? super T> handler;
+
+        SingleHandler(SingleSubscriptionBuilderImpl<T> builder, List<BiConsumer<SingleSubscription<T>, ? super T>> handlers) {
+            super(builder, handlers);
+            this.handler = handlers.get(0);
+        }
+
+        @Override
+        void dispatch(T eventInstance) {
+            if (!super.active) {
+                detach(eventInstance);
+                return;
+            }
+
+            try {
+                this.handler.accept(this, eventInstance);
+            } catch (Exception t) {
+                handleException(eventInstance, t);
+            }
+        }
+    }
+
     private static void unregisterListener(Class<? extends Event> eventClass, Listener listener) {
         try {
             // unfortunately we can't cache this reflect call, as the method is static
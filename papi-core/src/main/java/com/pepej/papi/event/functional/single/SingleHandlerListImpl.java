@@ -33,7 +33,7 @@ class SingleHandlerListImpl<T extends Event> implements SingleHandlerList<T> {
             throw new IllegalStateException("No handlers have been registered");
         }
 
-        PapiSingleEventListener<T> listener = new PapiSingleEventListener<>(this.builder, this.handlers);
+        PapiSingleEventListener<T> listener = PapiSingleEventListener.create(this.builder, this.handlers);
         listener.register(LoaderUtils.getPlugin());
         return listener;
     }
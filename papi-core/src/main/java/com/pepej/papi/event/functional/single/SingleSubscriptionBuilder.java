@@ -132,6 +132,24 @@ public interface SingleSubscriptionBuilder<T extends Event> extends Subscription
     @NonNull
     SingleSubscriptionBuilder<T> handleSubclasses();
 
+    /**
+     * Sets that the handler should be dispatched through a shared executor.
+     *
+     * <p>Rather than registering a listener with Bukkit for every subscription, all
+     * multiplexed subscriptions with the same event class and priority share a single
+     * Bukkit executor, which only passes each event to the subscriptions accepting its
+     * class. Registering and unregistering a multiplexed subscription does not modify
+     * the Bukkit {@link org.bukkit.event.HandlerList}.</p>
+     *
+     * <p>This is useful when many subscriptions listen to the same high frequency event.
+     * Multiplexed subscriptions are called in the order they were registered, but not
+     * necessarily in order with other listeners at the same priority.</p>
+     *
+     * @return the builder instance
+     */
+    @NonNull
+    SingleSubscriptionBuilder<T> multiplexed();
+
     /**
      * Return the handler list builder to append handlers for the event.
      *
@@ -20,6 +20,7 @@ class SingleSubscriptionBuilderImpl<T extends Event> implements SingleSubscripti
 
     BiConsumer<? super T, Exception> exceptionConsumer = DEFAULT_EXCEPTION_CONSUMER;
     boolean handleSubclasses = false;
+    boolean multiplexed = false;
     final List<Predicate<T>> filters = new ArrayList<>(3);
     final List<BiPredicate<SingleSubscription<T>, T>> preExpiryTests = new ArrayList<>(0);
     final List<BiPredicate<SingleSubscription<T>, T>> midExpiryTests = new ArrayList<>(0);
@@ -83,6 +84,13 @@ class SingleSubscriptionBuilderImpl<T extends Event> implements SingleSubscripti
         return this;
     }
 
+    @NonNull
+    @Override
+    public SingleSubscriptionBuilder<T> multiplexed() {
+        this.multiplexed = true;
+        return this;
+    }
+
     @NonNull
     @Override
     public SingleHandlerList<T> handlers() {
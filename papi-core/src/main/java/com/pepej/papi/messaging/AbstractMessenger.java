@@ -13,15 +13,27 @@ import com.pepej.papi.messaging.codec.GsonCodec;
 import com.pepej.papi.messaging.codec.Message;
 import com.pepej.papi.promise.Promise;
 import com.pepej.papi.scheduler.Schedulers;
+import com.pepej.papi.scheduler.Task;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -30,12 +42,23 @@ import java.util.function.Consumer;
  *
  * <p>Outgoing messages are passed to a {@link BiConsumer} to be passed on.</p>
  * <p>Incoming messages can be distributed using {@link #registerIncomingMessage(String, byte[])}.</p>
+ *
+ * <p>Channels with the same name whose message types use the same {@link Message#codec() codec}
+ * share a single codec instance, and each incoming message is only decoded once for all of
+ * them. The decoded object is passed to the listeners of each of those channels.</p>
+ *
+ * <p>Decoded messages are delivered to listeners according to the {@link DeliveryPolicy}
+ * of their channel.</p>
  */
 @SuppressWarnings("UnstableApiUsage")
 public class AbstractMessenger implements Messenger {
 
     @SuppressWarnings("unchecked")
     private final LoadingCache<Map.Entry<String, TypeToken<?>>, AbstractChannel<?>> channels = CacheBuilder.newBuilder().build(new ChannelLoader());
+    // channel name --> the channels with that name, used to route incoming messages
+    private final Map<String, List<AbstractChannel<?>>> channelsByName = new ConcurrentHashMap<>();
+    // codec class --> the shared instance, for codecs specified by @Message annotations
+    private final Map<Class<?>, Codec<?>> codecs = new ConcurrentHashMap<>();
 
     // consumer for outgoing messages. accepts in the format [channel name, message]
     private final BiConsumer<String, byte[]> outgoingMessages;
@@ -67,10 +90,41 @@ public class AbstractMessenger implements Messenger {
         Objects.requireNonNull(channel, "channel");
         Objects.requireNonNull(message, "message");
 
-        for (Map.Entry<Map.Entry<String, TypeToken<?>>, AbstractChannel<?>> c : this.channels.asMap().entrySet()) {
-            if (c.getKey().getKey().equals(channel)) {
-                c.getValue().onIncomingMessage(message);
+        // batches are published on a separate channel, named after the channel they were sent on
+        boolean batch = channel.endsWith(OutboundBatcher.CHANNEL_SUFFIX);
+        String name = batch ? channel.substring(0, channel.length() - OutboundBatcher.CHANNEL_SUFFIX.length()) : channel;
+
+        List<AbstractChannel<?>> channels = this.channelsByName.get(name);
+        if (channels == null) {
+            return;
+        }
+
+        if (batch) {
+            List<byte[]> messages;
+            try {
+                messages = OutboundBatcher.unpack(message);
+            } catch (IllegalArgumentException e) {
+                new RuntimeException("Unable to unpack batch: " + Base64.getEncoder().encodeToString(message), e).printStackTrace();
+                return;
+            }
+            for (byte[] m : messages) {
+                route(channels, m);
             }
+        } else {
+            route(channels, message);
+        }
+    }
+
+    private static void route(List<AbstractChannel<?>> channels, byte[] message) {
+        if (channels.size() == 1) {
+            channels.get(0).onIncomingMessage(message, null);
+            return;
+        }
+
+        // codec --> decoded message, so channels sharing a codec only decode once
+        Map<Codec<?>, Object> decoded = new IdentityHashMap<>();
+        for (AbstractChannel<?> c : channels) {
+            c.onIncomingMessage(message, decoded);
         }
     }
 
@@ -80,22 +134,21 @@ public class AbstractMessenger implements Messenger {
     public <T> Channel<T> getChannel(@Nonnull String name, @Nonnull TypeToken<T> type) {
         Objects.requireNonNull(name, "name");
         Preconditions.checkArgument(!name.trim().isEmpty(), "name cannot be empty");
+        Preconditions.checkArgument(!name.endsWith(OutboundBatcher.CHANNEL_SUFFIX), "name cannot end with %s", OutboundBatcher.CHANNEL_SUFFIX);
         Objects.requireNonNull(type, "type");
 
         return (Channel<T>) this.channels.getUnchecked(Maps.immutableEntry(name, type));
     }
 
-    private static <T> Codec<T> getCodec(TypeToken<T> type) {
+    @SuppressWarnings("unchecked")
+    private <T> Codec<T> getCodec(TypeToken<T> type) {
         Class<? super T> rawType = type.getRawType();
         do {
             Message message = rawType.getAnnotation(Message.class);
             if (message != null) {
-                Class<? extends Codec<?>> codec = message.codec();
-                try {
-                    //noinspection unchecked
-                    return (Codec<T>) codec.newInstance();
-                } catch (InstantiationException | IllegalAccessException e) {
-                    e.printStackTrace();
+                Codec<?> codec = this.codecs.computeIfAbsent(message.codec(), AbstractMessenger::newCodec);
+                if (codec != null) {
+                    return (Codec<T>) codec;
                 }
             }
         } while ((rawType = rawType.getSuperclass()) != null);
@@ -103,6 +156,16 @@ public class AbstractMessenger implements Messenger {
         return new GsonCodec<>(GsonProvider.standard(), type);
     }
 
+    @Nullable
+    private static Codec<?> newCodec(Class<?> codecClass) {
+        try {
+            return (Codec<?>) codecClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     private static class AbstractChannel<T> implements Channel<T> {
         private final AbstractMessenger messenger;
         private final String name;
@@ -110,46 +173,94 @@ public class AbstractMessenger implements Messenger {
         private final Codec<T> codec;
 
         private final Set<AbstractChannelAgent<T>> agents = ConcurrentHashMap.newKeySet();
-        private boolean subscribed = false;
+        private final Dispatcher<T> dispatcher = new Dispatcher<>(this);
+        private volatile boolean subscribed = false;
+        // if the batches sent on this channel are subscribed to
+        private volatile boolean subscribedBatches = false;
+        @Nullable
+        private volatile OutboundBatcher<T> batcher = null;
 
         private AbstractChannel(AbstractMessenger messenger, String name, TypeToken<T> type) {
             this.messenger = messenger;
             this.name = name;
             this.type = type;
-            this.codec = AbstractMessenger.getCodec(type);
+            this.codec = messenger.getCodec(type);
         }
 
-        private void onIncomingMessage(byte[] message) {
-            try {
-                T decoded = this.codec.decode(message);
-                Objects.requireNonNull(decoded, "decoded");
+        /**
+         * Passes an incoming message to the agents of this channel.
+         *
+         * @param message the encoded message
+         * @param decoded the messages already decoded by other channels with the same name, by codec
+         */
+        @SuppressWarnings("unchecked")
+        private void onIncomingMessage(byte[] message, @Nullable Map<Codec<?>, Object> decoded) {
+            if (!this.subscribed) {
+                // nothing is listening, so don't bother decoding
+                return;
+            }
 
-                for (AbstractChannelAgent<T> agent : this.agents) {
-                    try {
-                        agent.onIncomingMessage(decoded);
-                    } catch (Exception e) {
-                        new RuntimeException("Unable to pass decoded message to agent: " + decoded, e).printStackTrace();
-                    }
+            T msg;
+            if (decoded != null && decoded.containsKey(this.codec)) {
+                msg = (T) decoded.get(this.codec);
+            } else {
+                msg = decode(message);
+                if (decoded != null) {
+                    decoded.put(this.codec, msg);
+                }
+            }
+            if (msg != null) {
+                this.dispatcher.dispatch(msg);
+            }
+        }
+
+        private void deliver(List<T> messages) {
+            for (AbstractChannelAgent<T> agent : this.agents) {
+                try {
+                    agent.deliver(messages);
+                } catch (Exception e) {
+                    new RuntimeException("Unable to pass decoded messages to agent: " + messages, e).printStackTrace();
                 }
+            }
+        }
 
+        @Nullable
+        private T decode(byte[] message) {
+            try {
+                T decoded = this.codec.decode(message);
+                Objects.requireNonNull(decoded, "decoded");
+                return decoded;
             } catch (Exception e) {
                 new RuntimeException("Unable to decode message: " + Base64.getEncoder().encodeToString(message), e).printStackTrace();
+                return null;
             }
         }
 
-        private void checkSubscription() {
+        private synchronized void checkSubscription() {
             boolean shouldSubscribe = this.agents.stream().anyMatch(AbstractChannelAgent::hasListeners);
-            if (shouldSubscribe == this.subscribed) {
+            // batching is opt-in, so only listen for batches once something here uses them
+            boolean shouldSubscribeBatches = shouldSubscribe && (this.batcher != null ||
+                    this.dispatcher.policy.getMode() == DeliveryPolicy.Mode.BATCHING ||
+                    this.agents.stream().anyMatch(AbstractChannelAgent::hasBatchListeners));
+
+            boolean changed = shouldSubscribe != this.subscribed;
+            boolean batchesChanged = shouldSubscribeBatches != this.subscribedBatches;
+            if (!changed && !batchesChanged) {
                 return;
             }
             this.subscribed = shouldSubscribe;
+            this.subscribedBatches = shouldSubscribeBatches;
+            if (changed) {
+                this.dispatcher.updateFlushTask();
+            }
 
             Schedulers.async().run(() -> {
                 try {
-                    if (shouldSubscribe) {
-                        this.messenger.notifySub.accept(this.name);
-                    } else {
-                        this.messenger.notifyUnsub.accept(this.name);
+                    if (changed) {
+                        notify(this.name, shouldSubscribe);
+                    }
+                    if (batchesChanged) {
+                        notify(OutboundBatcher.batchChannel(this.name), shouldSubscribeBatches);
                     }
                 } catch (Exception e) {
                     e.printStackTrace();
@@ -157,6 +268,14 @@ public class AbstractMessenger implements Messenger {
             });
         }
 
+        private void notify(String channel, boolean subscribe) {
+            if (subscribe) {
+                this.messenger.notifySub.accept(channel);
+            } else {
+                this.messenger.notifyUnsub.accept(channel);
+            }
+        }
+
         @Override
         @NonNull
         public String getName() {
@@ -175,6 +294,43 @@ public class AbstractMessenger implements Messenger {
             return this.codec;
         }
 
+        @NonNull
+        @Override
+        public DeliveryPolicy getDeliveryPolicy() {
+            return this.dispatcher.policy;
+        }
+
+        @Override
+        public void setDeliveryPolicy(@NonNull DeliveryPolicy policy) {
+            Objects.requireNonNull(policy, "policy");
+            this.dispatcher.setPolicy(policy);
+            checkSubscription();
+        }
+
+        @NonNull
+        @Override
+        public ChannelMetrics getMetrics() {
+            return this.dispatcher;
+        }
+
+        @Nullable
+        @Override
+        public OutboundBatching<T> getOutboundBatching() {
+            OutboundBatcher<T> batcher = this.batcher;
+            return batcher == null ? null : batcher.getOptions();
+        }
+
+        @Override
+        public synchronized void setOutboundBatching(@Nullable OutboundBatching<T> batching) {
+            OutboundBatcher<T> previous = this.batcher;
+            this.batcher = batching == null ? null : new OutboundBatcher<>(batching, this.codec, this.name, this.messenger.outgoingMessages);
+            if (previous != null) {
+                // send anything still waiting in the previous batch
+                Schedulers.async().run(previous::flush);
+            }
+            checkSubscription();
+        }
+
         @Override
         @NonNull
         public ChannelAgent<T> newAgent() {
@@ -187,6 +343,10 @@ public class AbstractMessenger implements Messenger {
         @NonNull
         public Promise<Void> sendMessage(@NonNull T message) {
             Objects.requireNonNull(message, "message");
+            OutboundBatcher<T> batcher = this.batcher;
+            if (batcher != null) {
+                return batcher.add(message);
+            }
             return Schedulers.async().call(() -> {
                 byte[] buf = this.codec.encode(message);
                 this.messenger.outgoingMessages.accept(this.name, buf);
@@ -199,20 +359,36 @@ public class AbstractMessenger implements Messenger {
         @Nullable
         private AbstractChannel<T> channel;
         private final Set<ChannelListener<T>> listeners = ConcurrentHashMap.newKeySet();
+        private final Set<BatchChannelListener<T>> batchListeners = ConcurrentHashMap.newKeySet();
 
         AbstractChannelAgent(@Nullable AbstractChannel<T> channel) {
             this.channel = channel;
         }
 
-        private void onIncomingMessage(T message) {
+        private void deliver(List<T> messages) {
             for (ChannelListener<T> listener : this.listeners) {
-                Schedulers.async().run(() -> {
-                    try {
-                        listener.onMessage(this, message);
-                    } catch (Exception e) {
-                        new RuntimeException("Unable to pass decoded message to listener: " + listener, e).printStackTrace();
-                    }
-                });
+                for (T message : messages) {
+                    post(listener, message);
+                }
+            }
+            for (BatchChannelListener<T> listener : this.batchListeners) {
+                post(listener, messages);
+            }
+        }
+
+        private void post(ChannelListener<T> listener, T message) {
+            try {
+                listener.onMessage(this, message);
+            } catch (Exception e) {
+                new RuntimeException("Unable to pass decoded message to listener: " + listener, e).printStackTrace();
+            }
+        }
+
+        private void post(BatchChannelListener<T> listener, List<T> messages) {
+            try {
+                listener.onMessages(this, messages);
+            } catch (Exception e) {
+                new RuntimeException("Unable to pass decoded messages to listener: " + listener, e).printStackTrace();
             }
         }
 
@@ -232,7 +408,11 @@ public class AbstractMessenger implements Messenger {
 
         @Override
         public boolean hasListeners() {
-            return !this.listeners.isEmpty();
+            return !this.listeners.isEmpty() || !this.batchListeners.isEmpty();
+        }
+
+        private boolean hasBatchListeners() {
+            return !this.batchListeners.isEmpty();
         }
 
         @Override
@@ -255,6 +435,26 @@ public class AbstractMessenger implements Messenger {
             }
         }
 
+        @Override
+        public boolean addBatchListener(@NonNull BatchChannelListener<T> listener) {
+            Preconditions.checkState(this.channel != null, "agent not active");
+            try {
+                return this.batchListeners.add(listener);
+            } finally {
+                this.channel.checkSubscription();
+            }
+        }
+
+        @Override
+        public boolean removeBatchListener(@NonNull BatchChannelListener<T> listener) {
+            Preconditions.checkState(this.channel != null, "agent not active");
+            try {
+                return this.batchListeners.remove(listener);
+            } finally {
+                this.channel.checkSubscription();
+            }
+        }
+
         @Override
         public void close() {
             if (this.channel == null) {
@@ -262,16 +462,213 @@ public class AbstractMessenger implements Messenger {
             }
 
             this.listeners.clear();
+            this.batchListeners.clear();
             this.channel.agents.remove(this);
             this.channel.checkSubscription();
             this.channel = null;
         }
     }
 
+    /**
+     * Delivers the messages received by a channel according to its {@link DeliveryPolicy}.
+     */
+    private static final class Dispatcher<T> implements ChannelMetrics {
+        private final AbstractChannel<T> channel;
+        private volatile DeliveryPolicy policy = DeliveryPolicy.async();
+
+        // messages waiting to be delivered by the serial and batching policies
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+        // if the queue is currently being drained
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        @Nullable
+        private Task flushTask = null;
+        private long flushInterval = 0;
+
+        private final AtomicInteger queueDepth = new AtomicInteger(0);
+        private final AtomicInteger peakQueueDepth = new AtomicInteger(0);
+        private final LongAdder received = new LongAdder();
+        private final LongAdder delivered = new LongAdder();
+
+        Dispatcher(AbstractChannel<T> channel) {
+            this.channel = channel;
+        }
+
+        void dispatch(T message) {
+            this.received.increment();
+            this.peakQueueDepth.accumulateAndGet(this.queueDepth.incrementAndGet(), Math::max);
+
+            switch (this.policy.getMode()) {
+                case INLINE:
+                    this.channel.deliver(Collections.singletonList(message));
+                    delivered(1);
+                    break;
+                case SERIAL:
+                    this.queue.add(message);
+                    scheduleDrain();
+                    break;
+                case BATCHING:
+                    // delivered by the flush task
+                    this.queue.add(message);
+                    break;
+                default:
+                    dispatchAsync(message);
+                    break;
+            }
+        }
+
+        private void dispatchAsync(T message) {
+            List<T> batch = Collections.singletonList(message);
+            // the message is delivered once all of the tasks have completed.
+            // starts at 1 so it can't complete before all of the tasks have been submitted
+            AtomicInteger remaining = new AtomicInteger(1);
+            Runnable done = () -> {
+                if (remaining.decrementAndGet() == 0) {
+                    delivered(1);
+                }
+            };
+
+            for (AbstractChannelAgent<T> agent : this.channel.agents) {
+                for (ChannelListener<T> listener : agent.listeners) {
+                    remaining.incrementAndGet();
+                    Schedulers.async().run(() -> {
+                        try {
+                            agent.post(listener, message);
+                        } finally {
+                            done.run();
+                        }
+                    });
+                }
+                for (BatchChannelListener<T> listener : agent.batchListeners) {
+                    remaining.incrementAndGet();
+                    Schedulers.async().run(() -> {
+                        try {
+                            agent.post(listener, batch);
+                        } finally {
+                            done.run();
+                        }
+                    });
+                }
+            }
+            done.run();
+        }
+
+        private void scheduleDrain() {
+            if (this.draining.compareAndSet(false, true)) {
+                Schedulers.async().run(this::drainSerially);
+            }
+        }
+
+        private void drainSerially() {
+            try {
+                T message;
+                while ((message = this.queue.poll()) != null) {
+                    this.channel.deliver(Collections.singletonList(message));
+                    delivered(1);
+                }
+            } finally {
+                this.draining.set(false);
+            }
+
+            // a message may have been queued after the last poll, but before draining was reset
+            if (!this.queue.isEmpty() && this.policy.getMode() != DeliveryPolicy.Mode.BATCHING) {
+                scheduleDrain();
+            }
+        }
+
+        private void flush() {
+            if (!this.draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                List<T> batch = new ArrayList<>();
+                T message;
+                while ((message = this.queue.poll()) != null) {
+                    batch.add(message);
+                }
+                if (!batch.isEmpty()) {
+                    this.channel.deliver(Collections.unmodifiableList(batch));
+                    delivered(batch.size());
+                }
+            } finally {
+                this.draining.set(false);
+            }
+        }
+
+        synchronized void setPolicy(DeliveryPolicy policy) {
+            if (policy.equals(this.policy)) {
+                return;
+            }
+
+            this.policy = policy;
+            updateFlushTask();
+
+            if (policy.getMode() != DeliveryPolicy.Mode.BATCHING && !this.queue.isEmpty()) {
+                // deliver anything queued under the previous policy
+                scheduleDrain();
+            }
+        }
+
+        /**
+         * Starts or stops the flush task, which only runs while the channel
+         * has a batching policy and is subscribed to.
+         */
+        synchronized void updateFlushTask() {
+            boolean shouldRun = this.policy.getMode() == DeliveryPolicy.Mode.BATCHING && this.channel.subscribed;
+            if (this.flushTask != null) {
+                if (shouldRun && this.flushInterval == this.policy.getIntervalMillis()) {
+                    return;
+                }
+                this.flushTask.stop();
+                this.flushTask = null;
+                // deliver anything still queued
+                Schedulers.async().run(this::flush);
+            }
+
+            if (shouldRun) {
+                long interval = this.policy.getIntervalMillis();
+                this.flushTask = Schedulers.async().runRepeating(this::flush, interval, TimeUnit.MILLISECONDS, interval, TimeUnit.MILLISECONDS);
+                this.flushInterval = interval;
+            }
+        }
+
+        private void delivered(int count) {
+            this.queueDepth.addAndGet(-count);
+            this.delivered.add(count);
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return this.queueDepth.get();
+        }
+
+        @Override
+        public int getPeakQueueDepth() {
+            return this.peakQueueDepth.get();
+        }
+
+        @Override
+        public long getReceived() {
+            return this.received.sum();
+        }
+
+        @Override
+        public long getDelivered() {
+            return this.delivered.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "ChannelMetrics(queueDepth=" + getQueueDepth() + ", peakQueueDepth=" + getPeakQueueDepth() +
+                   ", received=" + getReceived() + ", delivered=" + getDelivered() + ")";
+        }
+    }
+
     private class ChannelLoader<T> extends CacheLoader<Map.Entry<String, TypeToken<T>>, Channel<T>> {
         @Override
         public Channel<T> load(Map.Entry<String, TypeToken<T>> spec) throws Exception {
-            return new AbstractChannel<>(AbstractMessenger.this, spec.getKey(), spec.getValue());
+            AbstractChannel<T> channel = new AbstractChannel<>(AbstractMessenger.this, spec.getKey(), spec.getValue());
+            AbstractMessenger.this.channelsByName.computeIfAbsent(spec.getKey(), n -> new CopyOnWriteArrayList<>()).add(channel);
+            return channel;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.pepej.papi.messaging;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.List;
+
+/**
+ * Represents an object listening to messages sent on the channel, which
+ * receives them in batches.
+ *
+ * <p>When the channel uses a {@link DeliveryPolicy#batching(long, java.util.concurrent.TimeUnit) batching}
+ * delivery policy, each batch contains the messages received since the previous
+ * one. Otherwise, each batch contains a single message.</p>
+ *
+ * @param <T> the channel message type
+ */
+@FunctionalInterface
+public interface BatchChannelListener<T> {
+
+    /**
+     * Called when a batch of messages is posted to this listener.
+     *
+     * @param agent the agent which forwarded the messages.
+     * @param messages the messages, in the order they were received
+     */
+    void onMessages(@NonNull ChannelAgent<T> agent, @NonNull List<T> messages);
+
+}
@@ -0,0 +1,45 @@
+package com.pepej.papi.messaging;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Collections;
+import java.util.Objects;
+
+/**
+ * Adapts a {@link BatchChannelListener} to a {@link ChannelListener}, passing
+ * each message in a batch of its own.
+ *
+ * <p>Adapters are equal if they wrap the same listener, so a listener can be
+ * removed using a new adapter.</p>
+ *
+ * @param <T> the channel message type
+ */
+final class BatchListenerAdapter<T> implements ChannelListener<T> {
+    private final BatchChannelListener<T> delegate;
+
+    BatchListenerAdapter(BatchChannelListener<T> delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+    }
+
+    @Override
+    public void onMessage(@NonNull ChannelAgent<T> agent, @NonNull T message) {
+        this.delegate.onMessages(agent, Collections.singletonList(message));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BatchListenerAdapter)) return false;
+        return this.delegate.equals(((BatchListenerAdapter<?>) o).delegate);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.delegate.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchListenerAdapter(" + this.delegate + ")";
+    }
+}
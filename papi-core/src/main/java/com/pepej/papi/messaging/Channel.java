@@ -5,6 +5,7 @@ import com.pepej.papi.interfaces.TypeAware;
 import com.pepej.papi.messaging.codec.Codec;
 import com.pepej.papi.promise.Promise;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 
 /**
@@ -41,6 +42,73 @@ public interface Channel<T> extends TypeAware<T> {
     @NonNull
     Codec<T> getCodec();
 
+    /**
+     * Gets the policy used to deliver received messages to listeners.
+     *
+     * <p>Channels which don't support delivery policies use {@link DeliveryPolicy#async()}.</p>
+     *
+     * @return the delivery policy
+     */
+    @NonNull
+    default DeliveryPolicy getDeliveryPolicy() {
+        return DeliveryPolicy.async();
+    }
+
+    /**
+     * Sets the policy used to deliver received messages to listeners.
+     *
+     * <p>Messages already queued under the previous policy are still delivered.</p>
+     *
+     * @param policy the delivery policy
+     * @throws UnsupportedOperationException if the channel doesn't support the policy
+     */
+    default void setDeliveryPolicy(@NonNull DeliveryPolicy policy) {
+        if (!policy.equals(getDeliveryPolicy())) {
+            throw new UnsupportedOperationException("Channel does not support delivery policies: " + getName());
+        }
+    }
+
+    /**
+     * Gets the delivery metrics for this channel.
+     *
+     * <p>Channels which don't record metrics return metrics which are always zero.</p>
+     *
+     * @return the metrics
+     */
+    @NonNull
+    default ChannelMetrics getMetrics() {
+        return EmptyChannelMetrics.INSTANCE;
+    }
+
+    /**
+     * Gets the options used to batch messages sent on this channel, if batching is enabled.
+     *
+     * @return the batching options, or null if messages are sent individually
+     */
+    @Nullable
+    default OutboundBatching<T> getOutboundBatching() {
+        return null;
+    }
+
+    /**
+     * Sets the options used to batch messages sent on this channel.
+     *
+     * <p>Batches of several messages are published on a separate channel, named
+     * after this one with a {@code #batch} suffix. Receivers only listen there
+     * once their channel has a {@link BatchChannelListener}, a
+     * {@link DeliveryPolicy#batching(long, java.util.concurrent.TimeUnit) batching}
+     * delivery policy, or outbound batching of its own, so batching should only
+     * be enabled once every receiver of the channel does one of these.</p>
+     *
+     * @param batching the batching options, or null to send messages individually
+     * @throws UnsupportedOperationException if the channel doesn't support batching
+     */
+    default void setOutboundBatching(@Nullable OutboundBatching<T> batching) {
+        if (batching != null) {
+            throw new UnsupportedOperationException("Channel does not support outbound batching: " + getName());
+        }
+    }
+
     /**
      * Creates a new {@link ChannelAgent} for this channel.
      *
@@ -67,7 +135,8 @@ public interface Channel<T> extends TypeAware<T> {
      * Sends a new message to the channel.
      *
      * <p>This method will return immediately, and the future will be completed
-     * once the message has been sent.</p>
+     * once the message has been sent. If batching is enabled, the message is sent
+     * with the rest of its batch.</p>
      *
      * @param message the message to dispatch
      * @return a promise which will complete when the message has sent.
@@ -29,7 +29,7 @@ public interface ChannelAgent<T> extends Terminable {
     Set<ChannelListener<T>> getListeners();
 
     /**
-     * Gets if this agent has any active listeners.
+     * Gets if this agent has any active listeners, including batch listeners.
      *
      * @return true if this agent has listeners
      */
@@ -51,6 +51,29 @@ public interface ChannelAgent<T> extends Terminable {
      */
     boolean removeListener(@NonNull ChannelListener<T> listener);
 
+    /**
+     * Adds a new batch listener to the channel.
+     *
+     * <p>Agents which don't support batch listeners pass each message to the
+     * listener in a batch of its own.</p>
+     *
+     * @param listener the listener to add
+     * @return true if successful
+     */
+    default boolean addBatchListener(@NonNull BatchChannelListener<T> listener) {
+        return addListener(new BatchListenerAdapter<>(listener));
+    }
+
+    /**
+     * Removes a batch listener from the channel.
+     *
+     * @param listener the listener to remove
+     * @return true if successful
+     */
+    default boolean removeBatchListener(@NonNull BatchChannelListener<T> listener) {
+        return removeListener(new BatchListenerAdapter<>(listener));
+    }
+
     @Override
     void close();
 }
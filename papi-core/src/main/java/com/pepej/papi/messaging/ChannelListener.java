@@ -13,7 +13,7 @@ public interface ChannelListener<T> {
     /**
      * Called when a message is posted to this listener.
      *
-     * <p>This method is called asynchronously.</p>
+     * <p>The thread this method is called on depends on the channel's {@link DeliveryPolicy}.</p>
      *
      * @param agent the agent which forwarded the message.
      * @param message the message
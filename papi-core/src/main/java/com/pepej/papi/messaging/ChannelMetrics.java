@@ -0,0 +1,37 @@
+package com.pepej.papi.messaging;
+
+/**
+ * Counters describing the delivery of messages received by a {@link Channel}.
+ */
+public interface ChannelMetrics {
+
+    /**
+     * Gets the number of messages which have been received, but not yet
+     * delivered to every listener.
+     *
+     * @return the queue depth
+     */
+    int getQueueDepth();
+
+    /**
+     * Gets the largest queue depth seen since the channel was created.
+     *
+     * @return the peak queue depth
+     */
+    int getPeakQueueDepth();
+
+    /**
+     * Gets the total number of messages received by the channel.
+     *
+     * @return the number of messages received
+     */
+    long getReceived();
+
+    /**
+     * Gets the total number of messages delivered to the channel's listeners.
+     *
+     * @return the number of messages delivered
+     */
+    long getDelivered();
+
+}
@@ -0,0 +1,139 @@
+package com.pepej.papi.messaging;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Determines how the messages received by a {@link Channel} are delivered to its listeners.
+ */
+public final class DeliveryPolicy {
+    private static final DeliveryPolicy ASYNC = new DeliveryPolicy(Mode.ASYNC, 0);
+    private static final DeliveryPolicy INLINE = new DeliveryPolicy(Mode.INLINE, 0);
+    private static final DeliveryPolicy SERIAL = new DeliveryPolicy(Mode.SERIAL, 0);
+
+    /**
+     * Gets a policy which delivers each message to each listener in a separate async task.
+     *
+     * <p>This is the default policy. Messages may be delivered out of order.</p>
+     *
+     * @return the async policy
+     */
+    @NonNull
+    public static DeliveryPolicy async() {
+        return ASYNC;
+    }
+
+    /**
+     * Gets a policy which delivers messages on the thread they were received on.
+     *
+     * <p>Listeners should return quickly, as they hold up the receipt of further messages.</p>
+     *
+     * @return the inline policy
+     */
+    @NonNull
+    public static DeliveryPolicy inline() {
+        return INLINE;
+    }
+
+    /**
+     * Gets a policy which delivers messages one at a time, in the order they were
+     * received, from a single async task per channel.
+     *
+     * @return the serial policy
+     */
+    @NonNull
+    public static DeliveryPolicy serial() {
+        return SERIAL;
+    }
+
+    /**
+     * Gets a policy which queues messages, and delivers the queued messages in
+     * the order they were received at a fixed interval.
+     *
+     * <p>{@link BatchChannelListener}s receive all of the queued messages in a single call.</p>
+     *
+     * @param interval the interval between deliveries
+     * @param unit the unit of interval
+     * @return a batching policy
+     */
+    @NonNull
+    public static DeliveryPolicy batching(long interval, @NonNull TimeUnit unit) {
+        Objects.requireNonNull(unit, "unit");
+        Preconditions.checkArgument(interval > 0, "interval must be > 0");
+        return new DeliveryPolicy(Mode.BATCHING, unit.toMillis(interval));
+    }
+
+    private final Mode mode;
+    private final long intervalMillis;
+
+    private DeliveryPolicy(Mode mode, long intervalMillis) {
+        this.mode = mode;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Gets the mode of this policy.
+     *
+     * @return the mode
+     */
+    @NonNull
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    /**
+     * Gets the interval between deliveries, for {@link Mode#BATCHING batching} policies.
+     *
+     * @return the interval in milliseconds, or 0 if the policy doesn't batch
+     */
+    public long getIntervalMillis() {
+        return this.intervalMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DeliveryPolicy)) return false;
+        DeliveryPolicy that = (DeliveryPolicy) o;
+        return this.mode == that.mode && this.intervalMillis == that.intervalMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.mode, this.intervalMillis);
+    }
+
+    @Override
+    public String toString() {
+        return this.mode == Mode.BATCHING ? "DeliveryPolicy(" + this.mode + ", " + this.intervalMillis + "ms)" : "DeliveryPolicy(" + this.mode + ")";
+    }
+
+    /**
+     * The delivery modes.
+     */
+    public enum Mode {
+
+        /**
+         * Each message is delivered to each listener in a separate async task.
+         */
+        ASYNC,
+
+        /**
+         * Messages are delivered on the thread they were received on.
+         */
+        INLINE,
+
+        /**
+         * Messages are delivered in order from a single async task.
+         */
+        SERIAL,
+
+        /**
+         * Messages are queued and delivered in order at a fixed interval.
+         */
+        BATCHING
+    }
+}
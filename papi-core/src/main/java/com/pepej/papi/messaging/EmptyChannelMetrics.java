@@ -0,0 +1,37 @@
+package com.pepej.papi.messaging;
+
+/**
+ * The metrics of a {@link Channel} which doesn't record them.
+ */
+final class EmptyChannelMetrics implements ChannelMetrics {
+    static final EmptyChannelMetrics INSTANCE = new EmptyChannelMetrics();
+
+    private EmptyChannelMetrics() {
+
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return 0;
+    }
+
+    @Override
+    public int getPeakQueueDepth() {
+        return 0;
+    }
+
+    @Override
+    public long getReceived() {
+        return 0;
+    }
+
+    @Override
+    public long getDelivered() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelMetrics(empty)";
+    }
+}
@@ -0,0 +1,241 @@
+package com.pepej.papi.messaging;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.pepej.papi.messaging.codec.Codec;
+import com.pepej.papi.promise.Promise;
+import com.pepej.papi.scheduler.Schedulers;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Accumulates the messages sent on a channel, and publishes them in batches
+ * according to its {@link OutboundBatching} options.
+ *
+ * <p>A batch containing several messages is published on a separate channel,
+ * named with the {@link #CHANNEL_SUFFIX batch suffix}, so it can never be
+ * confused with an ordinary message. It is framed as a format version, followed
+ * by the number of messages, and the length and encoded form of each message.
+ * A batch of one message is published unframed on the channel itself.</p>
+ *
+ * @param <T> the channel message type
+ */
+final class OutboundBatcher<T> {
+
+    /**
+     * The suffix added to the name of a channel to get the name its batches are published on.
+     */
+    static final String CHANNEL_SUFFIX = "#batch";
+
+    private static final int VERSION = 1;
+
+    /**
+     * Gets the name of the channel the batches of a channel are published on.
+     *
+     * @param channel the channel name
+     * @return the batch channel name
+     */
+    static String batchChannel(String channel) {
+        return channel + CHANNEL_SUFFIX;
+    }
+
+    static byte[] pack(List<byte[]> messages) {
+        int size = 5;
+        for (byte[] message : messages) {
+            size += 4 + message.length;
+        }
+        ByteArrayDataOutput out = ByteStreams.newDataOutput(size);
+        out.writeByte(VERSION);
+        out.writeInt(messages.size());
+        for (byte[] message : messages) {
+            out.writeInt(message.length);
+            out.write(message);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Unpacks the messages in a framed batch.
+     *
+     * @param buf the batch
+     * @return the encoded messages
+     * @throws IllegalArgumentException if the batch is malformed
+     */
+    static List<byte[]> unpack(byte[] buf) {
+        try {
+            ByteArrayDataInput in = ByteStreams.newDataInput(buf);
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported batch version: " + version);
+            }
+            int count = in.readInt();
+            if (count < 0 || count > (buf.length - 5) / 4) {
+                throw new IllegalArgumentException("Invalid batch size: " + count);
+            }
+            List<byte[]> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] message = new byte[in.readInt()];
+                in.readFully(message);
+                messages.add(message);
+            }
+            return messages;
+        } catch (IllegalStateException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Malformed batch", e);
+        }
+    }
+
+    private final OutboundBatching<T> options;
+    private final Codec<T> codec;
+    private final String channel;
+    private final BiConsumer<String, byte[]> publisher;
+
+    // the messages in the pending batch, keyed if the options are coalescing
+    private final List<T> messages = new ArrayList<>();
+    private final Map<Object, T> coalesced = new LinkedHashMap<>();
+    // completed once the pending batch has been published, null if there's no pending batch
+    @Nullable
+    private Promise<Void> promise = null;
+    // incremented each time a batch is taken, so a window timer only flushes its own batch
+    private long generation = 0;
+
+    OutboundBatcher(OutboundBatching<T> options, Codec<T> codec, String channel, BiConsumer<String, byte[]> publisher) {
+        this.options = options;
+        this.codec = codec;
+        this.channel = channel;
+        this.publisher = publisher;
+    }
+
+    OutboundBatching<T> getOptions() {
+        return this.options;
+    }
+
+    /**
+     * Adds a message to the pending batch.
+     *
+     * @param message the message
+     * @return a promise which completes when the batch containing the message has been published
+     */
+    Promise<Void> add(T message) {
+        Promise<Void> promise;
+        long newBatch = -1;
+        Batch<T> full = null;
+        synchronized (this) {
+            if (this.promise == null) {
+                this.promise = Promise.empty();
+                newBatch = this.generation;
+            }
+            promise = this.promise;
+
+            int size;
+            Function<? super T, ?> keyExtractor = this.options.getKeyExtractor();
+            if (keyExtractor != null) {
+                this.coalesced.put(keyExtractor.apply(message), message);
+                size = this.coalesced.size();
+            } else {
+                this.messages.add(message);
+                size = this.messages.size();
+            }
+
+            // cut the batch now, so later messages start a new one
+            if (size >= this.options.getMaxSize()) {
+                full = take();
+            }
+        }
+
+        if (full != null) {
+            Batch<T> batch = full;
+            Schedulers.async().run(() -> publish(batch));
+        } else if (newBatch != -1) {
+            long generation = newBatch;
+            Schedulers.async().runLater(() -> flush(generation), this.options.getWindowMillis(), TimeUnit.MILLISECONDS);
+        }
+        return promise;
+    }
+
+    /**
+     * Publishes the pending batch, if there is one.
+     */
+    void flush() {
+        Batch<T> batch;
+        synchronized (this) {
+            batch = take();
+        }
+        if (batch != null) {
+            publish(batch);
+        }
+    }
+
+    private void flush(long generation) {
+        Batch<T> batch;
+        synchronized (this) {
+            if (this.generation != generation) {
+                // the batch has already been published
+                return;
+            }
+            batch = take();
+        }
+        if (batch != null) {
+            publish(batch);
+        }
+    }
+
+    /**
+     * Takes the pending batch, leaving none in its place.
+     *
+     * @return the batch, or null if there is no pending batch
+     */
+    @Nullable
+    private Batch<T> take() {
+        if (this.promise == null) {
+            return null;
+        }
+        Promise<Void> promise = this.promise;
+        this.promise = null;
+        this.generation++;
+
+        List<T> messages;
+        if (this.options.getKeyExtractor() != null) {
+            messages = new ArrayList<>(this.coalesced.values());
+            this.coalesced.clear();
+        } else {
+            messages = new ArrayList<>(this.messages);
+            this.messages.clear();
+        }
+        return new Batch<>(messages, promise);
+    }
+
+    private void publish(Batch<T> batch) {
+        try {
+            List<byte[]> encoded = new ArrayList<>(batch.messages.size());
+            for (T message : batch.messages) {
+                encoded.add(this.codec.encode(message));
+            }
+            if (encoded.size() == 1) {
+                this.publisher.accept(this.channel, encoded.get(0));
+            } else {
+                this.publisher.accept(batchChannel(this.channel), pack(encoded));
+            }
+            batch.promise.supply(null);
+        } catch (Exception e) {
+            batch.promise.supplyException(e);
+        }
+    }
+
+    private static final class Batch<T> {
+        private final List<T> messages;
+        private final Promise<Void> promise;
+
+        Batch(List<T> messages, Promise<Void> promise) {
+            this.messages = messages;
+            this.promise = promise;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.pepej.papi.messaging;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Options for batching the messages sent on a {@link Channel}.
+ *
+ * <p>Messages sent while batching is enabled are held for up to the batching window,
+ * or until the maximum batch size is reached, and are then published together as a
+ * single payload. Receiving messengers unpack the payload and pass each message to
+ * the channel's listeners as if it had been sent on its own.</p>
+ *
+ * <p>If a key extractor is set, a message replaces any message with the same key
+ * which is waiting in the current batch, so only the latest value for each key is sent.</p>
+ *
+ * @param <T> the channel message type
+ */
+public final class OutboundBatching<T> {
+
+    /**
+     * Creates new batching options.
+     *
+     * @param window the maximum time to hold a message before sending its batch
+     * @param unit the unit of window
+     * @param maxSize the maximum number of messages in a batch
+     * @param <T> the channel message type
+     * @return the options
+     */
+    @NonNull
+    public static <T> OutboundBatching<T> create(long window, @NonNull TimeUnit unit, int maxSize) {
+        Objects.requireNonNull(unit, "unit");
+        Preconditions.checkArgument(window > 0, "window must be > 0");
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be > 0");
+        return new OutboundBatching<>(unit.toMillis(window), maxSize, null);
+    }
+
+    private final long windowMillis;
+    private final int maxSize;
+    @Nullable
+    private final Function<? super T, ?> keyExtractor;
+
+    private OutboundBatching(long windowMillis, int maxSize, @Nullable Function<? super T, ?> keyExtractor) {
+        this.windowMillis = windowMillis;
+        this.maxSize = maxSize;
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Returns a copy of these options which collapses messages with the same key,
+     * so only the latest value for each key is sent in a batch.
+     *
+     * @param keyExtractor the function returning the key of a message
+     * @return the new options
+     */
+    @NonNull
+    public OutboundBatching<T> coalescing(@NonNull Function<? super T, ?> keyExtractor) {
+        Objects.requireNonNull(keyExtractor, "keyExtractor");
+        return new OutboundBatching<>(this.windowMillis, this.maxSize, keyExtractor);
+    }
+
+    /**
+     * Gets the maximum time a message is held before its batch is sent.
+     *
+     * @return the window in milliseconds
+     */
+    public long getWindowMillis() {
+        return this.windowMillis;
+    }
+
+    /**
+     * Gets the maximum number of messages in a batch.
+     *
+     * @return the maximum batch size
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Gets the function used to collapse superseded messages, if any.
+     *
+     * @return the key extractor
+     */
+    @Nullable
+    public Function<? super T, ?> getKeyExtractor() {
+        return this.keyExtractor;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboundBatching(window=" + this.windowMillis + "ms, maxSize=" + this.maxSize + ", coalescing=" + (this.keyExtractor != null) + ")";
+    }
+}
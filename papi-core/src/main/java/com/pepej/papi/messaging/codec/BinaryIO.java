@@ -0,0 +1,221 @@
+package com.pepej.papi.messaging.codec;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Primitives shared by the binary codecs: variable length integers,
+ * length prefixed strings, and a tagged encoding of {@link JsonElement} trees.
+ */
+final class BinaryIO {
+
+    // tags used to encode json elements
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FALSE = 1;
+    private static final int TAG_TRUE = 2;
+    private static final int TAG_INTEGER = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_ARRAY = 6;
+    private static final int TAG_OBJECT = 7;
+    private static final int TAG_BIG_NUMBER = 8;
+
+    // the maximum depth of nested arrays and objects which will be decoded
+    private static final int MAX_DEPTH = 512;
+
+    static void writeVarInt(ByteArrayDataOutput out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteArrayDataInput in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EncodingException("Malformed varint");
+    }
+
+    /**
+     * Reads a variable length int which is used as a length or count, and so must
+     * not be negative, or larger than the number of bytes in the input.
+     */
+    static int readLength(ByteArrayDataInput in, int available) {
+        int length = readVarInt(in);
+        if (length < 0 || length > available) {
+            throw new EncodingException("Invalid length: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Writes a zigzag encoded variable length long, so small negative values are also short.
+     */
+    static void writeVarLong(ByteArrayDataOutput out, long value) {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    static long readVarLong(ByteArrayDataInput in) {
+        long v = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new EncodingException("Malformed varlong");
+    }
+
+    static void writeString(ByteArrayDataOutput out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteArrayDataInput in, int available) {
+        byte[] bytes = new byte[readLength(in, available)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeElement(ByteArrayDataOutput out, JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            out.writeByte(TAG_NULL);
+        } else if (element.isJsonPrimitive()) {
+            writePrimitive(out, element.getAsJsonPrimitive());
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            out.writeByte(TAG_ARRAY);
+            writeVarInt(out, array.size());
+            for (JsonElement e : array) {
+                writeElement(out, e);
+            }
+        } else {
+            JsonObject object = element.getAsJsonObject();
+            out.writeByte(TAG_OBJECT);
+            writeVarInt(out, object.entrySet().size());
+            for (Map.Entry<String, JsonElement> e : object.entrySet()) {
+                writeString(out, e.getKey());
+                writeElement(out, e.getValue());
+            }
+        }
+    }
+
+    private static void writePrimitive(ByteArrayDataOutput out, JsonPrimitive primitive) {
+        if (primitive.isBoolean()) {
+            out.writeByte(primitive.getAsBoolean() ? TAG_TRUE : TAG_FALSE);
+        } else if (primitive.isString()) {
+            out.writeByte(TAG_STRING);
+            writeString(out, primitive.getAsString());
+        } else {
+            Number number = primitive.getAsNumber();
+            if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+                out.writeByte(TAG_INTEGER);
+                writeVarLong(out, number.longValue());
+            } else if (number instanceof Double || number instanceof Float) {
+                out.writeByte(TAG_DOUBLE);
+                out.writeDouble(number.doubleValue());
+            } else {
+                // BigInteger, BigDecimal, or a number parsed lazily by gson
+                writeNumber(out, new BigDecimal(number.toString()));
+            }
+        }
+    }
+
+    private static void writeNumber(ByteArrayDataOutput out, BigDecimal number) {
+        try {
+            long value = number.longValueExact();
+            out.writeByte(TAG_INTEGER);
+            writeVarLong(out, value);
+            return;
+        } catch (ArithmeticException e) {
+            // not an integer, or too large
+        }
+
+        double value = number.doubleValue();
+        if (!Double.isInfinite(value) && new BigDecimal(value).compareTo(number) == 0) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(value);
+        } else {
+            out.writeByte(TAG_BIG_NUMBER);
+            writeString(out, number.toString());
+        }
+    }
+
+    static JsonElement readElement(ByteArrayDataInput in, int available) {
+        return readElement(in, available, 0);
+    }
+
+    private static JsonElement readElement(ByteArrayDataInput in, int available, int depth) {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return JsonNull.INSTANCE;
+            case TAG_FALSE:
+                return new JsonPrimitive(false);
+            case TAG_TRUE:
+                return new JsonPrimitive(true);
+            case TAG_INTEGER:
+                return new JsonPrimitive(readVarLong(in));
+            case TAG_DOUBLE:
+                return new JsonPrimitive(in.readDouble());
+            case TAG_STRING:
+                return new JsonPrimitive(readString(in, available));
+            case TAG_BIG_NUMBER:
+                return new JsonPrimitive(new BigDecimal(readString(in, available)));
+            case TAG_ARRAY: {
+                checkDepth(depth);
+                int size = readLength(in, available);
+                JsonArray array = new JsonArray();
+                for (int i = 0; i < size; i++) {
+                    array.add(readElement(in, available, depth + 1));
+                }
+                return array;
+            }
+            case TAG_OBJECT: {
+                checkDepth(depth);
+                int size = readLength(in, available);
+                JsonObject object = new JsonObject();
+                for (int i = 0; i < size; i++) {
+                    String key = readString(in, available);
+                    object.add(key, readElement(in, available, depth + 1));
+                }
+                return object;
+            }
+            default:
+                throw new EncodingException("Unknown tag: " + tag);
+        }
+    }
+
+    private static void checkDepth(int depth) {
+        if (depth >= MAX_DEPTH) {
+            throw new EncodingException("Maximum depth exceeded");
+        }
+    }
+
+    private BinaryIO() {
+        throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+}
@@ -0,0 +1,270 @@
+package com.pepej.papi.messaging.codec;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link Codec} wrapper using raw deflate compression.
+ *
+ * <p>Unlike {@link GZipCodec}, the {@link Deflater}s and {@link Inflater}s used are
+ * held in thread locals and reused, and messages smaller than a threshold are sent
+ * uncompressed.</p>
+ *
+ * <p>Small messages with a similar structure compress much better with a preset
+ * dictionary of the strings they have in common, which can be produced from sample
+ * messages with {@link #trainDictionary(Collection, int)}. Both sides must use the
+ * same dictionary.</p>
+ *
+ * @param <M> the message type
+ */
+public class DeflateCodec<M> implements Codec<M> {
+    // the maximum size of a decompressed message
+    private static final int MAX_SIZE = 64 * 1024 * 1024;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 1;
+    private static final int DEFLATED_WITH_DICTIONARY = 2;
+
+    private final Codec<M> delegate;
+    private final byte @Nullable [] dictionary;
+    private final int dictionaryId;
+    private final int threshold;
+
+    private final ThreadLocal<Deflater> deflater;
+    private final ThreadLocal<Inflater> inflater = ThreadLocal.withInitial(() -> new Inflater(true));
+    private final ThreadLocal<byte[]> buffer = ThreadLocal.withInitial(() -> new byte[4096]);
+
+    public DeflateCodec(Codec<M> delegate) {
+        this(delegate, null);
+    }
+
+    public DeflateCodec(Codec<M> delegate, byte @Nullable [] dictionary) {
+        this(delegate, dictionary, Deflater.DEFAULT_COMPRESSION, 64);
+    }
+
+    /**
+     * Creates a new deflate codec.
+     *
+     * @param delegate the codec to compress the output of
+     * @param dictionary the preset dictionary, or null
+     * @param level the compression level, from 0 to 9, or -1 for the default
+     * @param threshold the size in bytes below which messages are not compressed
+     */
+    public DeflateCodec(Codec<M> delegate, byte @Nullable [] dictionary, int level, int threshold) {
+        Preconditions.checkArgument(level == Deflater.DEFAULT_COMPRESSION || (level >= 0 && level <= 9), "invalid level: " + level);
+        Preconditions.checkArgument(threshold >= 0, "threshold must be >= 0");
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.dictionary = dictionary == null ? null : dictionary.clone();
+        this.dictionaryId = this.dictionary == null ? 0 : adler32(this.dictionary);
+        this.threshold = threshold;
+        this.deflater = ThreadLocal.withInitial(() -> new Deflater(level, true));
+    }
+
+    @Override
+    public byte[] encode(M message) throws EncodingException {
+        byte[] in = this.delegate.encode(message);
+        if (in.length < this.threshold) {
+            return stored(in);
+        }
+
+        Deflater deflater = this.deflater.get();
+        deflater.reset();
+        if (this.dictionary != null) {
+            deflater.setDictionary(this.dictionary);
+        }
+        deflater.setInput(in);
+        deflater.finish();
+
+        ByteArrayDataOutput out = ByteStreams.newDataOutput(in.length / 2 + 16);
+        if (this.dictionary != null) {
+            out.writeByte(DEFLATED_WITH_DICTIONARY);
+            out.writeInt(this.dictionaryId);
+        } else {
+            out.writeByte(DEFLATED);
+        }
+        BinaryIO.writeVarInt(out, in.length);
+
+        byte[] buffer = this.buffer.get();
+        int compressed = 0;
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+            compressed += n;
+            if (compressed >= in.length) {
+                // not worth compressing
+                return stored(in);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] stored(byte[] in) {
+        byte[] out = new byte[in.length + 1];
+        out[0] = STORED;
+        System.arraycopy(in, 0, out, 1, in.length);
+        return out;
+    }
+
+    @Override
+    public M decode(byte[] buf) throws EncodingException {
+        if (buf.length == 0) {
+            throw new EncodingException("Empty message");
+        }
+
+        int type = buf[0];
+        if (type == STORED) {
+            return this.delegate.decode(Arrays.copyOfRange(buf, 1, buf.length));
+        }
+
+        int offset = 1;
+        if (type == DEFLATED_WITH_DICTIONARY) {
+            if (buf.length < 5) {
+                throw new EncodingException("Truncated message");
+            }
+            int dictionaryId = ((buf[1] & 0xFF) << 24) | ((buf[2] & 0xFF) << 16) | ((buf[3] & 0xFF) << 8) | (buf[4] & 0xFF);
+            if (this.dictionary == null || dictionaryId != this.dictionaryId) {
+                throw new EncodingException("Message was compressed with a different dictionary");
+            }
+            offset = 5;
+        } else if (type != DEFLATED) {
+            throw new EncodingException("Unknown compression type: " + type);
+        }
+
+        // the uncompressed length, as a varint
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (offset >= buf.length || shift >= 35) {
+                throw new EncodingException("Truncated message");
+            }
+            byte b = buf[offset++];
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length < 0 || length > MAX_SIZE) {
+            throw new EncodingException("Invalid length: " + length);
+        }
+
+        return this.delegate.decode(inflate(buf, offset, length, type == DEFLATED_WITH_DICTIONARY));
+    }
+
+    private byte[] inflate(byte[] buf, int offset, int length, boolean withDictionary) {
+        Inflater inflater = this.inflater.get();
+        inflater.reset();
+        if (withDictionary) {
+            inflater.setDictionary(this.dictionary);
+        }
+        inflater.setInput(buf, offset, buf.length - offset);
+
+        byte[] out = new byte[length];
+        int read = 0;
+        try {
+            while (read < length) {
+                int n = inflater.inflate(out, read, length - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+        } catch (DataFormatException e) {
+            throw new EncodingException(e);
+        }
+        if (read != length) {
+            throw new EncodingException("Expected " + length + " bytes but inflated " + read);
+        }
+        return out;
+    }
+
+    private static int adler32(byte[] bytes) {
+        Adler32 adler = new Adler32();
+        adler.update(bytes, 0, bytes.length);
+        return (int) adler.getValue();
+    }
+
+    /**
+     * Produces a preset dictionary from sample encoded messages.
+     *
+     * <p>The dictionary is built from the byte sequences which occur in the most
+     * samples, with the most common placed at the end, where they can be referred
+     * to with the shortest distances.</p>
+     *
+     * @param samples the encoded sample messages
+     * @param maxSize the maximum size of the dictionary
+     * @return the dictionary
+     */
+    public static byte[] trainDictionary(Collection<byte[]> samples, int maxSize) {
+        Objects.requireNonNull(samples, "samples");
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be > 0");
+
+        // the length of the sequences to count, and of the segments copied into the dictionary
+        int gramLength = 8;
+        int segmentLength = 32;
+
+        // sequence --> the number of samples containing it, and where it was first seen
+        Map<String, int[]> counts = new HashMap<>();
+        List<byte[]> sampleList = new ArrayList<>(samples);
+        for (int s = 0; s < sampleList.size(); s++) {
+            byte[] sample = sampleList.get(s);
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i + gramLength <= sample.length; i++) {
+                // ISO_8859_1 maps each byte to a single char, so equal strings are equal bytes
+                String gram = new String(sample, i, gramLength, StandardCharsets.ISO_8859_1);
+                if (seen.add(gram)) {
+                    int[] count = counts.computeIfAbsent(gram, g -> new int[]{0, 0, 0});
+                    if (count[0]++ == 0) {
+                        count[1] = s;
+                        count[2] = i;
+                    }
+                }
+            }
+        }
+
+        List<Map.Entry<String, int[]>> ranked = new ArrayList<>(counts.entrySet());
+        ranked.removeIf(e -> e.getValue()[0] < 2);
+        ranked.sort((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]));
+
+        // segments, most common first
+        List<byte[]> segments = new ArrayList<>();
+        StringBuilder contents = new StringBuilder();
+        int size = 0;
+        for (Map.Entry<String, int[]> e : ranked) {
+            if (size >= maxSize) {
+                break;
+            }
+            if (contents.indexOf(e.getKey()) >= 0) {
+                continue;
+            }
+            byte[] sample = sampleList.get(e.getValue()[1]);
+            int start = e.getValue()[2];
+            int end = Math.min(sample.length, start + segmentLength);
+            byte[] segment = Arrays.copyOfRange(sample, start, Math.min(end, start + maxSize - size));
+            segments.add(segment);
+            contents.append(new String(segment, StandardCharsets.ISO_8859_1));
+            size += segment.length;
+        }
+
+        ByteArrayDataOutput out = ByteStreams.newDataOutput(size);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            out.write(segments.get(i));
+        }
+        return out.toByteArray();
+    }
+}
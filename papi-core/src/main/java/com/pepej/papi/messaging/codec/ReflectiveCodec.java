@@ -0,0 +1,513 @@
+package com.pepej.papi.messaging.codec;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonElement;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of {@link Codec} which writes the fields of a message class in a
+ * fixed order, without names or type tags.
+ *
+ * <p>The layout of each class is worked out once using reflection, and cached. Fields
+ * are written in declaration order of the class hierarchy, sorted by name within each
+ * class, skipping static and transient fields. Supported field types are primitives
+ * and their wrappers, {@link String}, {@link UUID}, enums, {@link JsonElement}s,
+ * arrays, {@link Collection}s and {@link Map}s of supported types, and other classes
+ * with a no-args constructor, whose fields are written in the same way.</p>
+ *
+ * <p>As nothing but the values is written, both sides must use the same version of
+ * the message class. Messages must not contain reference cycles.</p>
+ *
+ * <p>To use this codec in a {@link Message} annotation, extend it with a no-args
+ * constructor passing the message class.</p>
+ *
+ * @param <M> the message type
+ */
+public class ReflectiveCodec<M> implements Codec<M> {
+
+    // class --> the codec for its fields
+    private static final ClassValue<ObjectCodec> OBJECT_CODECS = new ClassValue<ObjectCodec>() {
+        @Override
+        protected ObjectCodec computeValue(Class<?> type) {
+            return new ObjectCodec(type);
+        }
+    };
+
+    private final Class<M> type;
+    private final ObjectCodec codec;
+
+    public ReflectiveCodec(Class<M> type) {
+        this.type = Objects.requireNonNull(type, "type");
+        this.codec = OBJECT_CODECS.get(type);
+    }
+
+    @Override
+    public byte[] encode(M message) throws EncodingException {
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        this.codec.write(out, message);
+        return out.toByteArray();
+    }
+
+    @Override
+    public M decode(byte[] buf) throws EncodingException {
+        try {
+            ByteArrayDataInput in = ByteStreams.newDataInput(buf);
+            return this.type.cast(this.codec.read(in, buf.length));
+        } catch (IllegalStateException e) {
+            // thrown by ByteArrayDataInput when the message is truncated
+            throw new EncodingException("Truncated message", e);
+        }
+    }
+
+    private interface ValueCodec {
+        void write(ByteArrayDataOutput out, Object value);
+
+        Object read(ByteArrayDataInput in, int available);
+    }
+
+    private static ValueCodec simple(BiConsumer<ByteArrayDataOutput, Object> writer, Function<ByteArrayDataInput, Object> reader) {
+        return new ValueCodec() {
+            @Override
+            public void write(ByteArrayDataOutput out, Object value) {
+                writer.accept(out, value);
+            }
+
+            @Override
+            public Object read(ByteArrayDataInput in, int available) {
+                return reader.apply(in);
+            }
+        };
+    }
+
+    private static final ValueCodec BOOLEAN = simple((out, v) -> out.writeBoolean((Boolean) v), ByteArrayDataInput::readBoolean);
+    private static final ValueCodec BYTE = simple((out, v) -> out.writeByte((Byte) v), ByteArrayDataInput::readByte);
+    private static final ValueCodec SHORT = simple((out, v) -> BinaryIO.writeVarLong(out, (Short) v), in -> (short) BinaryIO.readVarLong(in));
+    private static final ValueCodec CHAR = simple((out, v) -> BinaryIO.writeVarInt(out, (Character) v), in -> (char) BinaryIO.readVarInt(in));
+    private static final ValueCodec INT = simple((out, v) -> BinaryIO.writeVarLong(out, (Integer) v), in -> (int) BinaryIO.readVarLong(in));
+    private static final ValueCodec LONG = simple((out, v) -> BinaryIO.writeVarLong(out, (Long) v), BinaryIO::readVarLong);
+    private static final ValueCodec FLOAT = simple((out, v) -> out.writeFloat((Float) v), ByteArrayDataInput::readFloat);
+    private static final ValueCodec DOUBLE = simple((out, v) -> out.writeDouble((Double) v), ByteArrayDataInput::readDouble);
+    private static final ValueCodec UUID_CODEC = simple((out, v) -> {
+        UUID uuid = (UUID) v;
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }, in -> new UUID(in.readLong(), in.readLong()));
+
+    private static final ValueCodec STRING = new ValueCodec() {
+        @Override
+        public void write(ByteArrayDataOutput out, Object value) {
+            BinaryIO.writeString(out, (String) value);
+        }
+
+        @Override
+        public Object read(ByteArrayDataInput in, int available) {
+            return BinaryIO.readString(in, available);
+        }
+    };
+
+    private static final ValueCodec JSON = new ValueCodec() {
+        @Override
+        public void write(ByteArrayDataOutput out, Object value) {
+            BinaryIO.writeElement(out, (JsonElement) value);
+        }
+
+        @Override
+        public Object read(ByteArrayDataInput in, int available) {
+            return BinaryIO.readElement(in, available);
+        }
+    };
+
+    private static final ValueCodec BYTES = new ValueCodec() {
+        @Override
+        public void write(ByteArrayDataOutput out, Object value) {
+            byte[] bytes = (byte[]) value;
+            BinaryIO.writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public Object read(ByteArrayDataInput in, int available) {
+            byte[] bytes = new byte[BinaryIO.readLength(in, available)];
+            in.readFully(bytes);
+            return bytes;
+        }
+    };
+
+    /**
+     * Gets a codec for values of the given type, which may be null.
+     */
+    private static ValueCodec forType(Type type) {
+        if (type instanceof Class<?> && ((Class<?>) type).isPrimitive()) {
+            return forPrimitive((Class<?>) type);
+        }
+        return new NullableCodec(forReference(type));
+    }
+
+    private static ValueCodec forPrimitive(Class<?> type) {
+        if (type == boolean.class) return BOOLEAN;
+        if (type == byte.class) return BYTE;
+        if (type == short.class) return SHORT;
+        if (type == char.class) return CHAR;
+        if (type == int.class) return INT;
+        if (type == long.class) return LONG;
+        if (type == float.class) return FLOAT;
+        if (type == double.class) return DOUBLE;
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+
+    private static ValueCodec forReference(Type type) {
+        if (type instanceof WildcardType) {
+            return forReference(((WildcardType) type).getUpperBounds()[0]);
+        }
+        if (type instanceof GenericArrayType) {
+            Type component = ((GenericArrayType) type).getGenericComponentType();
+            Class<?> rawComponent = rawType(component);
+            return new ArrayCodec(rawComponent, forType(component));
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Class<?> raw = (Class<?>) parameterized.getRawType();
+            Type[] args = parameterized.getActualTypeArguments();
+            if (Collection.class.isAssignableFrom(raw)) {
+                return new CollectionCodec(collectionFactory(raw), forType(args[0]));
+            }
+            if (Map.class.isAssignableFrom(raw)) {
+                return new MapCodec(mapFactory(raw), forType(args[0]), forType(args[1]));
+            }
+            return new LazyObjectCodec(raw);
+        }
+        if (!(type instanceof Class<?>)) {
+            throw new IllegalArgumentException("Unsupported type: " + type);
+        }
+
+        Class<?> clazz = (Class<?>) type;
+        if (clazz == Boolean.class) return BOOLEAN;
+        if (clazz == Byte.class) return BYTE;
+        if (clazz == Short.class) return SHORT;
+        if (clazz == Character.class) return CHAR;
+        if (clazz == Integer.class) return INT;
+        if (clazz == Long.class) return LONG;
+        if (clazz == Float.class) return FLOAT;
+        if (clazz == Double.class) return DOUBLE;
+        if (clazz == String.class) return STRING;
+        if (clazz == UUID.class) return UUID_CODEC;
+        if (clazz == byte[].class) return BYTES;
+        if (JsonElement.class.isAssignableFrom(clazz)) return JSON;
+        if (clazz.isEnum()) return new EnumCodec(clazz);
+        if (clazz.isArray()) return new ArrayCodec(clazz.getComponentType(), forType(clazz.getComponentType()));
+        if (Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz)) {
+            throw new IllegalArgumentException("Raw collection types are not supported: " + clazz);
+        }
+        return new LazyObjectCodec(clazz);
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class<?>) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof WildcardType) {
+            return rawType(((WildcardType) type).getUpperBounds()[0]);
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Collection<Object>> collectionFactory(Class<?> type) {
+        if (type.isAssignableFrom(ArrayList.class)) {
+            return ArrayList::new;
+        }
+        if (type.isAssignableFrom(LinkedHashSet.class)) {
+            return LinkedHashSet::new;
+        }
+        Constructor<?> constructor = noArgsConstructor(type);
+        return () -> (Collection<Object>) newInstance(constructor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Map<Object, Object>> mapFactory(Class<?> type) {
+        if (type.isAssignableFrom(LinkedHashMap.class)) {
+            return LinkedHashMap::new;
+        }
+        Constructor<?> constructor = noArgsConstructor(type);
+        return () -> (Map<Object, Object>) newInstance(constructor);
+    }
+
+    private static Constructor<?> noArgsConstructor(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("Cannot instantiate " + type);
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type + " does not have a no-args constructor", e);
+        }
+    }
+
+    private static Object newInstance(Constructor<?> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new EncodingException("Unable to create instance of " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    private static final class NullableCodec implements ValueCodec {
+        private final ValueCodec delegate;
+
+        NullableCodec(ValueCodec delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(ByteArrayDataOutput out, Object value) {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                this.delegate.write(out, value);
+            }
+        }
+
+        @Override
+        public Object read(ByteArrayDataInput in, int available) {
+            return in.readBoolean() ? this.delegate.read(in, available) : null;
+        }
+    }
+
+    private static final class EnumCodec implements ValueCodec {
+        private final Object[] constants;
+
+        EnumCodec(Class<?> type) {
+            this.constants = type.getEnumConstants();
+        }
+
+        @Override
+        public void write(ByteArrayDataOutput out, Object value) {
+            BinaryIO.writeVarInt(out, ((Enum<?>) value).ordinal());
+        }
+
+        @Override
+        public Object read(ByteArrayDataInput in, int available) {
+            int ordinal = BinaryIO.readVarInt(in);
+            if (ordinal < 0 || ordinal >= this.constants.length) {
+                throw new EncodingException("Invalid ordinal: " + ordinal);
+            }
+            return this.constants[ordinal];
+        }
+    }
+
+    private static final class ArrayCodec implements ValueCodec {
+        private final Class<?> componentType;
+        private final ValueCodec component;
+
+        ArrayCodec(Class<?> componentType, ValueCodec component) {
+            this.componentType = componentType;
+            this.component = component;
+        }
+
+        @Override
+        public void write(ByteArrayDataOutput out, Object value) {
+            int length = Array.getLength(value);
+            BinaryIO.writeVarInt(out, length);
+            for (int i = 0; i < length; i++) {
+                this.component.write(out, Array.get(value, i));
+            }
+        }
+
+        @Override
+        public Object read(ByteArrayDataInput in, int available) {
+            int length = BinaryIO.readLength(in, available);
+            Object array = Array.newInstance(this.componentType, length);
+            for (int i = 0; i < length; i++) {
+                Array.set(array, i, this.component.read(in, available));
+            }
+            return array;
+        }
+    }
+
+    private static final class CollectionCodec implements ValueCodec {
+        private final Supplier<Collection<Object>> factory;
+        private final ValueCodec element;
+
+        CollectionCodec(Supplier<Collection<Object>> factory, ValueCodec element) {
+            this.factory = factory;
+            this.element = element;
+        }
+
+        @Override
+        public void write(ByteArrayDataOutput out, Object value) {
+            Collection<?> collection = (Collection<?>) value;
+            BinaryIO.writeVarInt(out, collection.size());
+            for (Object e : collection) {
+                this.element.write(out, e);
+            }
+        }
+
+        @Override
+        public Object read(ByteArrayDataInput in, int available) {
+            int size = BinaryIO.readLength(in, available);
+            Collection<Object> collection = this.factory.get();
+            for (int i = 0; i < size; i++) {
+                collection.add(this.element.read(in, available));
+            }
+            return collection;
+        }
+    }
+
+    private static final class MapCodec implements ValueCodec {
+        private final Supplier<Map<Object, Object>> factory;
+        private final ValueCodec key;
+        private final ValueCodec value;
+
+        MapCodec(Supplier<Map<Object, Object>> factory, ValueCodec key, ValueCodec value) {
+            this.factory = factory;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public void write(ByteArrayDataOutput out, Object value) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            BinaryIO.writeVarInt(out, map.size());
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                this.key.write(out, e.getKey());
+                this.value.write(out, e.getValue());
+            }
+        }
+
+        @Override
+        public Object read(ByteArrayDataInput in, int available) {
+            int size = BinaryIO.readLength(in, available);
+            Map<Object, Object> map = this.factory.get();
+            for (int i = 0; i < size; i++) {
+                map.put(this.key.read(in, available), this.value.read(in, available));
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Looks up the codec for a class when it is first used, so classes can refer to themselves.
+     */
+    private static final class LazyObjectCodec implements ValueCodec {
+        private final Class<?> type;
+        private ObjectCodec codec;
+
+        LazyObjectCodec(Class<?> type) {
+            this.type = type;
+        }
+
+        private ObjectCodec codec() {
+            ObjectCodec codec = this.codec;
+            if (codec == null) {
+                this.codec = codec = OBJECT_CODECS.get(this.type);
+            }
+            return codec;
+        }
+
+        @Override
+        public void write(ByteArrayDataOutput out, Object value) {
+            codec().write(out, value);
+        }
+
+        @Override
+        public Object read(ByteArrayDataInput in, int available) {
+            return codec().read(in, available);
+        }
+    }
+
+    private static final class ObjectCodec implements ValueCodec {
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+        private final ValueCodec[] codecs;
+
+        ObjectCodec(Class<?> type) {
+            if (type.isInterface() || type.isPrimitive() || type.isArray()) {
+                throw new IllegalArgumentException("Unsupported type: " + type);
+            }
+            this.constructor = noArgsConstructor(type);
+
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                hierarchy.add(0, c);
+            }
+
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c : hierarchy) {
+                List<Field> declared = new ArrayList<>();
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    declared.add(field);
+                }
+                declared.sort(Comparator.comparing(Field::getName));
+                fields.addAll(declared);
+            }
+
+            this.fields = fields.toArray(new Field[0]);
+            this.codecs = new ValueCodec[this.fields.length];
+            for (int i = 0; i < this.fields.length; i++) {
+                try {
+                    this.codecs[i] = forType(this.fields[i].getGenericType());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unable to encode field " + this.fields[i], e);
+                }
+            }
+        }
+
+        @Override
+        public void write(ByteArrayDataOutput out, Object value) {
+            try {
+                for (int i = 0; i < this.fields.length; i++) {
+                    this.codecs[i].write(out, this.fields[i].get(value));
+                }
+            } catch (IllegalAccessException e) {
+                throw new EncodingException(e);
+            }
+        }
+
+        @Override
+        public Object read(ByteArrayDataInput in, int available) {
+            Object instance = newInstance(this.constructor);
+            try {
+                for (int i = 0; i < this.fields.length; i++) {
+                    this.fields[i].set(instance, this.codecs[i].read(in, available));
+                }
+            } catch (IllegalAccessException e) {
+                throw new EncodingException(e);
+            }
+            return instance;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.pepej.papi.messaging.codec;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.pepej.papi.gson.GsonProvider;
+
+/**
+ * Implementation of {@link Codec} using a schema-less tagged binary format.
+ *
+ * <p>Messages are converted to and from a {@link JsonElement} tree by {@link Gson}, so
+ * any type which can be serialized by {@link GsonCodec} is supported, but the tree is
+ * written in binary: each value is preceded by a single byte tag, integers are written
+ * as variable length longs, and strings as length prefixed UTF-8.</p>
+ *
+ * @param <M> the message type
+ */
+public class TaggedBinaryCodec<M> implements Codec<M> {
+    private final Gson gson;
+    private final TypeToken<M> type;
+
+    public TaggedBinaryCodec(TypeToken<M> type) {
+        this(GsonProvider.standard(), type);
+    }
+
+    public TaggedBinaryCodec(Gson gson, TypeToken<M> type) {
+        this.gson = gson;
+        this.type = type;
+    }
+
+    @Override
+    public byte[] encode(M message) throws EncodingException {
+        JsonElement tree = this.gson.toJsonTree(message, this.type.getType());
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        BinaryIO.writeElement(out, tree);
+        return out.toByteArray();
+    }
+
+    @Override
+    public M decode(byte[] buf) throws EncodingException {
+        JsonElement tree;
+        try {
+            ByteArrayDataInput in = ByteStreams.newDataInput(buf);
+            tree = BinaryIO.readElement(in, buf.length);
+        } catch (IllegalStateException e) {
+            // thrown by ByteArrayDataInput when the message is truncated
+            throw new EncodingException("Truncated message", e);
+        }
+
+        try {
+            return this.gson.fromJson(tree, this.type.getType());
+        } catch (JsonParseException e) {
+            throw new EncodingException(e);
+        }
+    }
+}
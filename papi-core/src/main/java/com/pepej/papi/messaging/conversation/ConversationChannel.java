@@ -67,6 +67,10 @@ public interface ConversationChannel<T extends ConversationMessage, R extends Co
      * <p>This method will return immediately, and the promise will be completed
      * once the message has been sent.</p>
      *
+     * <p>If the reply listener hasn't stopped listening before the timeout expires,
+     * {@link ConversationReplyListener#onTimeout(java.util.List)} is called. Timeouts
+     * are shared between all channels, and may fire a few milliseconds late.</p>
+     *
      * @param message the message to dispatch
      * @param replyListener the reply listener
      * @param timeoutDuration the timeout duration for the reply listener
@@ -76,6 +80,18 @@ public interface ConversationChannel<T extends ConversationMessage, R extends Co
     @NonNull
     Promise<Void> sendMessage(@NonNull T message, @NonNull ConversationReplyListener<R> replyListener, long timeoutDuration, @NonNull TimeUnit unit);
 
+    /**
+     * Gets the metrics for the conversations started by this channel.
+     *
+     * <p>Channels which don't record metrics return metrics which are always zero.</p>
+     *
+     * @return the metrics
+     */
+    @NonNull
+    default ConversationMetrics getMetrics() {
+        return ConversationMetrics.empty();
+    }
+
     @Override
     void close();
 }
\ No newline at end of file
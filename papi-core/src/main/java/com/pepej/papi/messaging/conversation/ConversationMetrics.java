@@ -0,0 +1,57 @@
+package com.pepej.papi.messaging.conversation;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Counters describing the conversations started by a {@link ConversationChannel}.
+ */
+public interface ConversationMetrics {
+
+    /**
+     * Gets metrics which are always zero, for channels which don't record them.
+     *
+     * @return the empty metrics
+     */
+    @NonNull
+    static ConversationMetrics empty() {
+        return EmptyConversationMetrics.INSTANCE;
+    }
+
+    /**
+     * Gets the number of messages sent with a reply listener which has not yet
+     * stopped listening or timed out.
+     *
+     * @return the number of in-flight conversations
+     */
+    int getInFlight();
+
+    /**
+     * Gets the largest number of in-flight conversations seen since the channel was created.
+     *
+     * @return the peak number of in-flight conversations
+     */
+    int getPeakInFlight();
+
+    /**
+     * Gets the total number of messages sent with a reply listener.
+     *
+     * @return the number of conversations started
+     */
+    long getSent();
+
+    /**
+     * Gets the total number of conversations ended by their reply listener
+     * returning {@link ConversationReplyListener.RegistrationAction#STOP_LISTENING}.
+     *
+     * @return the number of completed conversations
+     */
+    long getCompleted();
+
+    /**
+     * Gets the total number of conversations which timed out.
+     *
+     * @return the number of timed out conversations
+     */
+    long getTimedOut();
+
+}
@@ -0,0 +1,42 @@
+package com.pepej.papi.messaging.conversation;
+
+/**
+ * The metrics of a {@link ConversationChannel} which doesn't record them.
+ */
+final class EmptyConversationMetrics implements ConversationMetrics {
+    static final EmptyConversationMetrics INSTANCE = new EmptyConversationMetrics();
+
+    private EmptyConversationMetrics() {
+
+    }
+
+    @Override
+    public int getInFlight() {
+        return 0;
+    }
+
+    @Override
+    public int getPeakInFlight() {
+        return 0;
+    }
+
+    @Override
+    public long getSent() {
+        return 0;
+    }
+
+    @Override
+    public long getCompleted() {
+        return 0;
+    }
+
+    @Override
+    public long getTimedOut() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ConversationMetrics(empty)";
+    }
+}
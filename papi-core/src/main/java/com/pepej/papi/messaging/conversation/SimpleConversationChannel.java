@@ -10,12 +10,16 @@ import com.pepej.papi.messaging.ChannelListener;
 import com.pepej.papi.messaging.Messenger;
 import com.pepej.papi.promise.Promise;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Simple implementation of {@link ConversationChannel}.
@@ -29,17 +33,28 @@ public class SimpleConversationChannel<T extends ConversationMessage, R extends
     private final Channel<R> replyChannel;
 
     private final Set<Agent<T, R>> agents = ConcurrentHashMap.newKeySet();
+    private final Metrics metrics = new Metrics();
 
-    private final ScheduledExecutorService replyTimeoutExecutor = Executors.newSingleThreadScheduledExecutor();
-    private final ChannelAgent<R> replyAgent;
-    private final SetMultimap<UUID, ReplyListenerRegistration<R>> replyListeners = Multimaps.newSetMultimap(new ConcurrentHashMap<>(), ConcurrentHashMap::newKeySet);
+    // only created once a message is sent, so channels which only reply don't listen for replies
+    @Nullable
+    private volatile ChannelAgent<R> replyAgent = null;
+    private final SetMultimap<UUID, ReplyListenerRegistration> replyListeners = Multimaps.newSetMultimap(new ConcurrentHashMap<>(), ConcurrentHashMap::newKeySet);
 
     public SimpleConversationChannel(Messenger messenger, String name, TypeToken<T> outgoingType, TypeToken<R> replyType) {
         this.name = name;
         this.outgoingChannel = messenger.getChannel(name + "-o", outgoingType);
         this.replyChannel = messenger.getChannel(name + "-r", replyType);
+    }
 
-        this.replyAgent = this.replyChannel.newAgent(new ReplyListener());
+    private void listenForReplies() {
+        if (this.replyAgent != null) {
+            return;
+        }
+        synchronized (this) {
+            if (this.replyAgent == null) {
+                this.replyAgent = this.replyChannel.newAgent(new ReplyListener());
+            }
+        }
     }
 
     private final class ReplyListener implements ChannelListener<R> {
@@ -49,16 +64,29 @@ public class SimpleConversationChannel<T extends ConversationMessage, R extends
         }
     }
 
-    private static final class ReplyListenerRegistration<R extends ConversationMessage> {
+    private final class ReplyListenerRegistration {
+        private final UUID conversationId;
         private final ConversationReplyListener<R> listener;
         private final List<R> replies = new ArrayList<>();
-        private ScheduledFuture<?> timeoutFuture;
+        private TimeoutWheel.@Nullable Timeout timeout = null;
 
         private boolean active = true;
 
-        private ReplyListenerRegistration(ConversationReplyListener<R> listener) {
+        private ReplyListenerRegistration(UUID conversationId, ConversationReplyListener<R> listener) {
+            this.conversationId = conversationId;
             this.listener = listener;
+        }
 
+        private void scheduleTimeout(long timeoutDuration, TimeUnit unit) {
+            TimeoutWheel.Timeout timeout = TimeoutWheel.get().schedule(this::timeout, timeoutDuration, unit);
+            synchronized (this) {
+                if (this.active) {
+                    this.timeout = timeout;
+                } else {
+                    // a reply arrived before the timeout was scheduled
+                    timeout.cancel();
+                }
+            }
         }
 
         /**
@@ -80,7 +108,10 @@ public class SimpleConversationChannel<T extends ConversationMessage, R extends
 
                     // unregister
                     this.active = false;
-                    this.timeoutFuture.cancel(false);
+                    if (this.timeout != null) {
+                        this.timeout.cancel();
+                    }
+                    SimpleConversationChannel.this.metrics.completed();
 
                     return true;
                 } else {
@@ -95,8 +126,10 @@ public class SimpleConversationChannel<T extends ConversationMessage, R extends
                     return;
                 }
 
-                this.listener.onTimeout(this.replies);
                 this.active = false;
+                SimpleConversationChannel.this.metrics.timedOut();
+                SimpleConversationChannel.this.replyListeners.remove(this.conversationId, this);
+                this.listener.onTimeout(this.replies);
             }
         }
     }
@@ -130,22 +163,88 @@ public class SimpleConversationChannel<T extends ConversationMessage, R extends
     @NonNull
     @Override
     public Promise<Void> sendMessage(@NonNull T message, @NonNull ConversationReplyListener<R> replyListener, long timeoutDuration, @NonNull TimeUnit unit) {
+        listenForReplies();
+
         // register the listener
-        ReplyListenerRegistration<R> listenerRegistration = new ReplyListenerRegistration<>(replyListener);
-        listenerRegistration.timeoutFuture = this.replyTimeoutExecutor.schedule(listenerRegistration::timeout, timeoutDuration, unit);
+        ReplyListenerRegistration listenerRegistration = new ReplyListenerRegistration(message.getConversationId(), replyListener);
+        this.metrics.sent();
         this.replyListeners.put(message.getConversationId(), listenerRegistration);
+        listenerRegistration.scheduleTimeout(timeoutDuration, unit);
 
         // send the outgoing message
         return this.outgoingChannel.sendMessage(message);
     }
 
+    @NonNull
+    @Override
+    public ConversationMetrics getMetrics() {
+        return this.metrics;
+    }
+
     @Override
     public void close() {
-        this.replyAgent.close();
-        this.replyTimeoutExecutor.shutdown();
+        synchronized (this) {
+            if (this.replyAgent != null) {
+                this.replyAgent.close();
+            }
+        }
         this.agents.forEach(Agent::close);
     }
 
+    private static final class Metrics implements ConversationMetrics {
+        private final AtomicInteger inFlight = new AtomicInteger(0);
+        private final AtomicInteger peakInFlight = new AtomicInteger(0);
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+
+        void sent() {
+            this.sent.increment();
+            this.peakInFlight.accumulateAndGet(this.inFlight.incrementAndGet(), Math::max);
+        }
+
+        void completed() {
+            this.completed.increment();
+            this.inFlight.decrementAndGet();
+        }
+
+        void timedOut() {
+            this.timedOut.increment();
+            this.inFlight.decrementAndGet();
+        }
+
+        @Override
+        public int getInFlight() {
+            return this.inFlight.get();
+        }
+
+        @Override
+        public int getPeakInFlight() {
+            return this.peakInFlight.get();
+        }
+
+        @Override
+        public long getSent() {
+            return this.sent.sum();
+        }
+
+        @Override
+        public long getCompleted() {
+            return this.completed.sum();
+        }
+
+        @Override
+        public long getTimedOut() {
+            return this.timedOut.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "ConversationMetrics(inFlight=" + getInFlight() + ", peakInFlight=" + getPeakInFlight() +
+                   ", sent=" + getSent() + ", completed=" + getCompleted() + ", timedOut=" + getTimedOut() + ")";
+        }
+    }
+
     private static final class Agent<T extends ConversationMessage, R extends ConversationMessage> implements ConversationChannelAgent<T, R> {
         private final SimpleConversationChannel<T, R> channel;
         private final ChannelAgent<T> delegateAgent;
@@ -0,0 +1,253 @@
+package com.pepej.papi.messaging.conversation;
+
+import com.google.common.base.Preconditions;
+import com.pepej.papi.scheduler.Schedulers;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * A hashed timing wheel used to time out the reply listeners of every {@link ConversationChannel}.
+ *
+ * <p>Scheduling and cancelling a timeout is a single queue operation, and the
+ * timeouts are only linked into the wheel, and unlinked from it, by the ticking
+ * thread. Timeouts fire at most one tick late, and never early.</p>
+ *
+ * <p>Expired tasks are handed to the wheel's executor, so a slow task doesn't
+ * delay the timeouts which follow it.</p>
+ */
+final class TimeoutWheel {
+    private static final TimeoutWheel INSTANCE = new TimeoutWheel(10, 512, System::nanoTime, task -> Schedulers.async().execute(task));
+
+    /**
+     * Gets the wheel shared by all conversation channels, starting it if necessary.
+     *
+     * @return the shared wheel
+     */
+    static TimeoutWheel get() {
+        INSTANCE.start();
+        return INSTANCE;
+    }
+
+    // the longest delay accepted, so deadlines can't overflow
+    private static final long MAX_DELAY_NANOS = TimeUnit.DAYS.toNanos(365);
+
+    private final long tickNanos;
+    private final int mask;
+    private final LongSupplier clock;
+    private final long origin;
+    private final Executor executor;
+
+    // the head of the list of timeouts in each bucket. only accessed by the ticking thread
+    private final Timeout[] wheel;
+    // the next tick to be processed. only accessed by the ticking thread
+    private long tick = 0;
+
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger(0);
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    @Nullable
+    private volatile Thread thread = null;
+
+    TimeoutWheel(long tickMillis, int wheelSize, @NonNull LongSupplier nanoClock, @NonNull Executor executor) {
+        Preconditions.checkArgument(tickMillis > 0, "tickMillis must be > 0");
+        Preconditions.checkArgument(wheelSize > 0 && (wheelSize & (wheelSize - 1)) == 0, "wheelSize must be a power of two");
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.mask = wheelSize - 1;
+        this.clock = nanoClock;
+        this.origin = nanoClock.getAsLong();
+        this.executor = executor;
+        this.wheel = new Timeout[wheelSize];
+    }
+
+    /**
+     * Starts a daemon thread to tick the wheel, if it hasn't been started already.
+     */
+    void start() {
+        if (this.started.getAndSet(true)) {
+            return;
+        }
+        Thread thread = new Thread(this::run, "papi-conversation-timeouts");
+        thread.setDaemon(true);
+        this.thread = thread;
+        thread.start();
+    }
+
+    private void run() {
+        while (true) {
+            long wait = this.tick * this.tickNanos - (this.clock.getAsLong() - this.origin);
+            if (wait > 0) {
+                if (this.pending.get() == 0) {
+                    // nothing to time out, wait to be woken by #schedule
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, wait);
+                }
+                continue;
+            }
+
+            try {
+                tick();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Schedules a task to run after the given delay.
+     *
+     * @param task the task
+     * @param delay the delay
+     * @param unit the unit of delay
+     * @return a handle to cancel the timeout
+     */
+    Timeout schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit) {
+        long delayNanos = Math.max(0, Math.min(unit.toNanos(delay), MAX_DELAY_NANOS));
+        long deadline = this.clock.getAsLong() - this.origin + delayNanos;
+
+        // round up, so the timeout never fires early
+        Timeout timeout = new Timeout(this, task, (deadline + this.tickNanos - 1) / this.tickNanos);
+        this.added.add(timeout);
+        if (this.pending.getAndIncrement() == 0) {
+            Thread thread = this.thread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+        return timeout;
+    }
+
+    /**
+     * Gets the number of timeouts which have not yet expired or been cancelled.
+     *
+     * @return the number of pending timeouts
+     */
+    int getPending() {
+        return this.pending.get();
+    }
+
+    /**
+     * Expires the timeouts which are due.
+     */
+    void tick() {
+        long target = (this.clock.getAsLong() - this.origin) / this.tickNanos;
+
+        Timeout timeout;
+        while ((timeout = this.cancelled.poll()) != null) {
+            unlink(timeout);
+        }
+        while ((timeout = this.added.poll()) != null) {
+            if (timeout.state == Timeout.PENDING) {
+                link(timeout, Math.max(timeout.deadlineTick, this.tick));
+            }
+        }
+
+        // if we've fallen more than a lap behind, there's no point visiting a bucket twice
+        for (long tick = Math.max(this.tick, target - this.mask); tick <= target; tick++) {
+            timeout = this.wheel[(int) (tick & this.mask)];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.deadlineTick <= target) {
+                    unlink(timeout);
+                    timeout.expire();
+                }
+                timeout = next;
+            }
+        }
+        this.tick = Math.max(this.tick, target + 1);
+    }
+
+    private void link(Timeout timeout, long tick) {
+        int bucket = (int) (tick & this.mask);
+        Timeout head = this.wheel[bucket];
+        timeout.bucket = bucket;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        this.wheel[bucket] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.bucket < 0) {
+            return;
+        }
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            this.wheel[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    /**
+     * A task scheduled on the wheel.
+     */
+    static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimeoutWheel wheel;
+        private final Runnable task;
+        private final long deadlineTick;
+        private volatile int state = PENDING;
+
+        // the bucket this timeout is linked into, or -1. only accessed by the ticking thread
+        private int bucket = -1;
+        @Nullable
+        private Timeout prev;
+        @Nullable
+        private Timeout next;
+
+        private Timeout(TimeoutWheel wheel, Runnable task, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancels the timeout.
+         *
+         * @return true if the timeout was cancelled, false if it had already expired or been cancelled
+         */
+        boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            this.wheel.pending.decrementAndGet();
+            this.wheel.cancelled.add(this);
+            return true;
+        }
+
+        private void expire() {
+            if (!STATE.compareAndSet(this, PENDING, EXPIRED)) {
+                return;
+            }
+            this.wheel.pending.decrementAndGet();
+            try {
+                this.wheel.executor.execute(this.task);
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+}
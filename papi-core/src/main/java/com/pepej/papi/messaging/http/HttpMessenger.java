@@ -5,10 +5,13 @@ import com.google.common.reflect.TypeToken;
 import com.pepej.papi.messaging.AbstractMessenger;
 import com.pepej.papi.messaging.Channel;
 import com.pepej.papi.messaging.Messenger;
+import com.pepej.papi.terminable.Terminable;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.io.InputStream;
@@ -21,22 +24,28 @@ import java.util.function.Function;
 /**
  * Proof of concept {@link Messenger} implementation using the HTTP protocol.
  *
- * <p>The messenger works by sending/receiving HTTP POST requests. It is a simple (not necessarily
- * the most efficient) implementation, which could be quite easily optimised if necessary - pooling
- * connections would be a start!</p>
+ * <p>The messenger works by sending/receiving HTTP POST requests. By default, each message is
+ * sent in its own request, on a new connection. For higher throughput, a messenger can be created
+ * with {@link HttpMessengerOptions}, which batches messages from all channels into requests sent
+ * over a pool of persistent connections, and handles incoming requests on a bounded worker pool.
+ * Both sides must use the same mode.</p>
  *
  * <p>Of course, a messenger using plain TCP sockets (optionally with a library like netty)
  * could work just as well.</p>
  */
-public class HttpMessenger implements Messenger {
+public class HttpMessenger implements Messenger, Terminable {
 
     // The abstract messenger implementation used as the basis for Channel construction and handling
     private final AbstractMessenger messenger;
 
-    // The http server used to handle incoming messages
+    // The http server used to handle incoming messages, null in pooled mode
+    @Nullable
     private final HttpServer httpServer;
     // A factory which creates remote URLs for outgoing messages
     private final Function<String, URL> remoteUrl;
+    // The transport used in pooled mode, null otherwise
+    @Nullable
+    private final PooledHttpTransport transport;
 
     public HttpMessenger(String host, int port, String remoteHost, int remotePort) {
         this.messenger = new AbstractMessenger(this::handleOutgoing, this::subscribe, this::unsubscribe);
@@ -45,9 +54,35 @@ public class HttpMessenger implements Messenger {
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        this.remoteUrl = channel -> {
+        this.remoteUrl = remoteUrl(remoteHost, remotePort);
+        this.transport = null;
+    }
+
+    /**
+     * Creates a messenger using the pooled transport.
+     *
+     * @param host the host to listen on
+     * @param port the port to listen on
+     * @param remoteHost the host of the remote messenger
+     * @param remotePort the port of the remote messenger
+     * @param options the transport options
+     */
+    public HttpMessenger(String host, int port, String remoteHost, int remotePort, HttpMessengerOptions options) {
+        // every channel is served by the batch endpoint, so there's nothing to subscribe to
+        this.messenger = new AbstractMessenger(this::handleOutgoing, channel -> {}, channel -> {});
+        this.remoteUrl = remoteUrl(remoteHost, remotePort);
+        try {
+            this.transport = new PooledHttpTransport(new InetSocketAddress(host, port), this.remoteUrl.apply(PooledHttpTransport.BATCH_PATH), options, this.messenger::registerIncomingMessage);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.httpServer = null;
+    }
+
+    private static Function<String, URL> remoteUrl(String remoteHost, int remotePort) {
+        return path -> {
             try {
-                return new URL("http", remoteHost, remotePort, channel);
+                return new URL("http", remoteHost, remotePort, path);
             } catch (MalformedURLException e) {
                 throw new RuntimeException(e);
             }
@@ -55,6 +90,11 @@ public class HttpMessenger implements Messenger {
     }
 
     private void handleOutgoing(String channel, byte[] message) {
+        if (this.transport != null) {
+            this.transport.send(channel, message);
+            return;
+        }
+
         // Handle outgoing messages: just send a HTTP POST request to the remote server.
 
         try {
@@ -132,4 +172,13 @@ public class HttpMessenger implements Messenger {
         return this.messenger.getChannel(name, type);
     }
 
+    @Override
+    public void close() {
+        if (this.transport != null) {
+            this.transport.close();
+        } else {
+            this.httpServer.stop(0);
+        }
+    }
+
 }
\ No newline at end of file
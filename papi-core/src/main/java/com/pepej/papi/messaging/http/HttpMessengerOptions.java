@@ -0,0 +1,183 @@
+package com.pepej.papi.messaging.http;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options for the pooled transport of a {@link HttpMessenger}.
+ *
+ * <p>In pooled mode, outgoing messages from all channels are queued, and a fixed number
+ * of sender threads each take as many queued messages as fit in a batch, and post them
+ * in a single request over a persistent keep-alive connection. Incoming batches are
+ * unpacked on a bounded pool of worker threads.</p>
+ *
+ * <p>Messages sent over different connections may arrive out of order. With a single
+ * connection, messages arrive in the order they were sent.</p>
+ */
+public final class HttpMessengerOptions {
+
+    /**
+     * Gets the default pooled options.
+     *
+     * @return the default options
+     */
+    @NonNull
+    public static HttpMessengerOptions pooled() {
+        return new HttpMessengerOptions(4, 256, 256 * 1024, 10_000, 4, 1024, 128, 5_000, 10_000);
+    }
+
+    private final int connections;
+    private final int maxBatchMessages;
+    private final int maxBatchBytes;
+    private final int maxQueuedMessages;
+    private final int workers;
+    private final int workerQueueCapacity;
+    private final int backlog;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    private HttpMessengerOptions(int connections, int maxBatchMessages, int maxBatchBytes, int maxQueuedMessages, int workers, int workerQueueCapacity, int backlog, int connectTimeoutMillis, int readTimeoutMillis) {
+        this.connections = connections;
+        this.maxBatchMessages = maxBatchMessages;
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxQueuedMessages = maxQueuedMessages;
+        this.workers = workers;
+        this.workerQueueCapacity = workerQueueCapacity;
+        this.backlog = backlog;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Sets the number of persistent connections used to send messages.
+     *
+     * @param connections the number of connections
+     * @return the new options
+     */
+    @NonNull
+    public HttpMessengerOptions connections(int connections) {
+        Preconditions.checkArgument(connections > 0, "connections must be > 0");
+        return new HttpMessengerOptions(connections, this.maxBatchMessages, this.maxBatchBytes, this.maxQueuedMessages, this.workers, this.workerQueueCapacity, this.backlog, this.connectTimeoutMillis, this.readTimeoutMillis);
+    }
+
+    /**
+     * Sets the maximum size of a batch of messages sent in one request.
+     *
+     * <p>A single message larger than maxBytes is still sent, on its own.</p>
+     *
+     * @param maxMessages the maximum number of messages in a batch
+     * @param maxBytes the maximum total size of the messages in a batch
+     * @return the new options
+     */
+    @NonNull
+    public HttpMessengerOptions batchSize(int maxMessages, int maxBytes) {
+        Preconditions.checkArgument(maxMessages > 0, "maxMessages must be > 0");
+        Preconditions.checkArgument(maxBytes > 0, "maxBytes must be > 0");
+        return new HttpMessengerOptions(this.connections, maxMessages, maxBytes, this.maxQueuedMessages, this.workers, this.workerQueueCapacity, this.backlog, this.connectTimeoutMillis, this.readTimeoutMillis);
+    }
+
+    /**
+     * Sets the maximum number of outgoing messages waiting to be sent. Once the
+     * queue is full, sending blocks until there is space.
+     *
+     * @param maxQueuedMessages the maximum number of queued messages
+     * @return the new options
+     */
+    @NonNull
+    public HttpMessengerOptions maxQueuedMessages(int maxQueuedMessages) {
+        Preconditions.checkArgument(maxQueuedMessages > 0, "maxQueuedMessages must be > 0");
+        return new HttpMessengerOptions(this.connections, this.maxBatchMessages, this.maxBatchBytes, maxQueuedMessages, this.workers, this.workerQueueCapacity, this.backlog, this.connectTimeoutMillis, this.readTimeoutMillis);
+    }
+
+    /**
+     * Sets the size of the pool handling incoming requests. Once the queue is full,
+     * requests are handled on the server's dispatcher thread, which stops it
+     * accepting further requests until there is space.
+     *
+     * @param workers the number of worker threads
+     * @param queueCapacity the number of requests which can wait for a worker
+     * @return the new options
+     */
+    @NonNull
+    public HttpMessengerOptions workers(int workers, int queueCapacity) {
+        Preconditions.checkArgument(workers > 0, "workers must be > 0");
+        Preconditions.checkArgument(queueCapacity > 0, "queueCapacity must be > 0");
+        return new HttpMessengerOptions(this.connections, this.maxBatchMessages, this.maxBatchBytes, this.maxQueuedMessages, workers, queueCapacity, this.backlog, this.connectTimeoutMillis, this.readTimeoutMillis);
+    }
+
+    /**
+     * Sets the server socket backlog.
+     *
+     * @param backlog the backlog
+     * @return the new options
+     */
+    @NonNull
+    public HttpMessengerOptions backlog(int backlog) {
+        Preconditions.checkArgument(backlog > 0, "backlog must be > 0");
+        return new HttpMessengerOptions(this.connections, this.maxBatchMessages, this.maxBatchBytes, this.maxQueuedMessages, this.workers, this.workerQueueCapacity, backlog, this.connectTimeoutMillis, this.readTimeoutMillis);
+    }
+
+    /**
+     * Sets the timeouts used when posting a batch. A batch which can't be sent within
+     * the timeouts is retried once, and then dropped.
+     *
+     * @param connectTimeout the timeout for opening a connection
+     * @param readTimeout the timeout for reading the response
+     * @param unit the unit of the timeouts
+     * @return the new options
+     */
+    @NonNull
+    public HttpMessengerOptions timeouts(long connectTimeout, long readTimeout, @NonNull TimeUnit unit) {
+        Preconditions.checkArgument(connectTimeout > 0, "connectTimeout must be > 0");
+        Preconditions.checkArgument(readTimeout > 0, "readTimeout must be > 0");
+        return new HttpMessengerOptions(this.connections, this.maxBatchMessages, this.maxBatchBytes, this.maxQueuedMessages, this.workers, this.workerQueueCapacity, this.backlog,
+                Ints.saturatedCast(unit.toMillis(connectTimeout)), Ints.saturatedCast(unit.toMillis(readTimeout)));
+    }
+
+    public int getConnections() {
+        return this.connections;
+    }
+
+    public int getMaxBatchMessages() {
+        return this.maxBatchMessages;
+    }
+
+    public int getMaxBatchBytes() {
+        return this.maxBatchBytes;
+    }
+
+    public int getMaxQueuedMessages() {
+        return this.maxQueuedMessages;
+    }
+
+    public int getWorkers() {
+        return this.workers;
+    }
+
+    public int getWorkerQueueCapacity() {
+        return this.workerQueueCapacity;
+    }
+
+    public int getBacklog() {
+        return this.backlog;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return this.connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return this.readTimeoutMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpMessengerOptions(connections=" + this.connections + ", maxBatchMessages=" + this.maxBatchMessages +
+               ", maxBatchBytes=" + this.maxBatchBytes + ", maxQueuedMessages=" + this.maxQueuedMessages +
+               ", workers=" + this.workers + ", workerQueueCapacity=" + this.workerQueueCapacity + ", backlog=" + this.backlog +
+               ", connectTimeoutMillis=" + this.connectTimeoutMillis + ", readTimeoutMillis=" + this.readTimeoutMillis + ")";
+    }
+}
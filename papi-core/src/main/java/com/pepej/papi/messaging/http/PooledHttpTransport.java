@@ -0,0 +1,324 @@
+package com.pepej.papi.messaging.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.pepej.papi.terminable.Terminable;
+import com.pepej.papi.utils.Log;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * The transport used by {@link HttpMessenger} in pooled mode.
+ *
+ * <p>Batches are posted to a single endpoint, with a body containing the number of
+ * messages, followed by the channel name, length and contents of each message.</p>
+ *
+ * <p>Each batch carries an id in the {@value #BATCH_ID_HEADER} header. A batch which
+ * fails to send is retried once with the same id, and the receiver ignores ids it has
+ * recently handled, so a retried batch is delivered at most once.</p>
+ */
+final class PooledHttpTransport implements Terminable {
+    static final String BATCH_PATH = "/papi-batch";
+    static final String BATCH_ID_HEADER = "X-Papi-Batch";
+
+    private final HttpMessengerOptions options;
+    private final URL remote;
+    private final BiConsumer<String, byte[]> incoming;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+
+    private final BlockingQueue<OutgoingMessage> queue;
+    private final List<Thread> senders = new ArrayList<>();
+    private final String origin = UUID.randomUUID().toString();
+    private final AtomicLong batchIds = new AtomicLong();
+    private final Cache<String, Boolean> handledBatches = CacheBuilder.newBuilder()
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .maximumSize(10_000)
+            .build();
+    private volatile boolean closed = false;
+
+    PooledHttpTransport(InetSocketAddress address, URL remote, HttpMessengerOptions options, BiConsumer<String, byte[]> incoming) throws IOException {
+        this.options = options;
+        this.remote = remote;
+        this.incoming = incoming;
+        this.queue = new LinkedBlockingQueue<>(options.getMaxQueuedMessages());
+
+        AtomicInteger workerIds = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+                options.getWorkers(), options.getWorkers(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(options.getWorkerQueueCapacity()),
+                r -> {
+                    Thread thread = new Thread(r, "papi-http-worker-" + workerIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // handle the request on the dispatcher thread, which stops it accepting more
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+
+        this.server = HttpServer.create(address, options.getBacklog());
+        this.server.createContext(BATCH_PATH, this::handle);
+        this.server.setExecutor(this.workers);
+        this.server.start();
+
+        for (int i = 0; i < options.getConnections(); i++) {
+            Thread sender = new Thread(this::sendLoop, "papi-http-sender-" + (i + 1));
+            sender.setDaemon(true);
+            sender.start();
+            this.senders.add(sender);
+        }
+    }
+
+    /**
+     * Gets the address the server is bound to.
+     *
+     * @return the address
+     */
+    InetSocketAddress getAddress() {
+        return this.server.getAddress();
+    }
+
+    /**
+     * Queues a message to be sent, blocking while the queue is full.
+     *
+     * @param channel the channel name
+     * @param message the message
+     */
+    void send(String channel, byte[] message) {
+        if (this.closed) {
+            throw new IllegalStateException("Transport is closed");
+        }
+        try {
+            this.queue.put(new OutgoingMessage(channel, message));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void sendLoop() {
+        List<OutgoingMessage> batch = new ArrayList<>();
+        while (!this.closed || !this.queue.isEmpty()) {
+            OutgoingMessage first;
+            try {
+                first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // interrupted by close, send anything left in the queue
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+
+            batch.add(first);
+            int bytes = first.message.length;
+            while (batch.size() < this.options.getMaxBatchMessages() && bytes < this.options.getMaxBatchBytes()) {
+                OutgoingMessage next = this.queue.peek();
+                if (next == null || bytes + next.message.length > this.options.getMaxBatchBytes()) {
+                    break;
+                }
+                next = this.queue.poll();
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                bytes += next.message.length;
+            }
+
+            int size = batch.size();
+            byte[] body = encode(batch, bytes);
+            batch.clear();
+            String id = this.origin + ":" + this.batchIds.incrementAndGet();
+            try {
+                post(id, body);
+            } catch (ResponseException e) {
+                // the remote handled (and rejected) the request, so sending it again won't help
+                Log.severe("[HTTP] Batch of %d messages rejected by %s: %s", size, this.remote, e.getMessage());
+            } catch (IOException e) {
+                // the pooled connection may have been closed by the remote, try again on a new one.
+                // the remote ignores the retry if it already handled the batch
+                try {
+                    post(id, body);
+                } catch (IOException e2) {
+                    Log.severe("[HTTP] Unable to send batch of %d messages to %s: %s", size, this.remote, e2);
+                }
+            }
+        }
+    }
+
+    private void post(String id, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) this.remote.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setUseCaches(false);
+        connection.setConnectTimeout(this.options.getConnectTimeoutMillis());
+        connection.setReadTimeout(this.options.getReadTimeoutMillis());
+        connection.setRequestProperty(BATCH_ID_HEADER, id);
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+
+        int code = connection.getResponseCode();
+        if (code >= 400) {
+            // consume the error body, so the connection can be reused
+            try (InputStream err = connection.getErrorStream()) {
+                if (err != null) {
+                    ByteStreams.exhaust(err);
+                }
+            }
+            throw new ResponseException("Response code: " + code + " - " + connection.getResponseMessage());
+        }
+
+        // read the (empty) response fully and close it, but don't disconnect, so the
+        // connection is returned to the keep-alive cache
+        try (InputStream in = connection.getInputStream()) {
+            ByteStreams.exhaust(in);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = ByteStreams.toByteArray(in);
+            }
+
+            List<OutgoingMessage> messages;
+            try {
+                messages = decode(body);
+            } catch (IllegalArgumentException e) {
+                Log.severe("[HTTP] Malformed batch from %s: %s", exchange.getRemoteAddress(), e.getMessage());
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_REQUEST, -1);
+                return;
+            }
+
+            // a retry of a batch we already handled
+            String id = exchange.getRequestHeaders().getFirst(BATCH_ID_HEADER);
+            if (id != null && this.handledBatches.asMap().putIfAbsent(id, Boolean.TRUE) != null) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NO_CONTENT, -1);
+                return;
+            }
+
+            for (OutgoingMessage message : messages) {
+                try {
+                    this.incoming.accept(message.channel, message.message);
+                } catch (Exception e) {
+                    Log.severe("[HTTP] Exception thrown whilst handling message on channel &d%s&c: %s", message.channel, e);
+                }
+            }
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NO_CONTENT, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static byte[] encode(List<OutgoingMessage> batch, int bytes) {
+        ByteArrayDataOutput out = ByteStreams.newDataOutput(4 + bytes + batch.size() * 24);
+        out.writeInt(batch.size());
+        for (OutgoingMessage message : batch) {
+            out.writeUTF(message.channel);
+            out.writeInt(message.message.length);
+            out.write(message.message);
+        }
+        return out.toByteArray();
+    }
+
+    static List<OutgoingMessage> decode(byte[] body) {
+        try {
+            ByteArrayDataInput in = ByteStreams.newDataInput(body);
+            int count = in.readInt();
+            if (count < 0 || count > body.length / 6) {
+                throw new IllegalArgumentException("Invalid batch size: " + count);
+            }
+            List<OutgoingMessage> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String channel = in.readUTF();
+                int length = in.readInt();
+                if (length < 0 || length > body.length) {
+                    throw new IllegalArgumentException("Invalid message length: " + length);
+                }
+                byte[] message = new byte[length];
+                in.readFully(message);
+                messages.add(new OutgoingMessage(channel, message));
+            }
+            return messages;
+        } catch (IllegalStateException e) {
+            throw new IllegalArgumentException("Malformed batch", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+
+        // wait for the senders to flush the queue
+        for (Thread sender : this.senders) {
+            sender.interrupt();
+            try {
+                sender.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        this.server.stop(0);
+        this.workers.shutdown();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Thrown when the remote responds to a batch with an error.
+     */
+    private static final class ResponseException extends IOException {
+        ResponseException(String message) {
+            super(message);
+        }
+    }
+
+    static final class OutgoingMessage {
+        final String channel;
+        final byte[] message;
+
+        OutgoingMessage(String channel, byte[] message) {
+            this.channel = channel;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.pepej.papi.messaging.loopback;
+
+import com.google.common.reflect.TypeToken;
+import com.pepej.papi.messaging.AbstractMessenger;
+import com.pepej.papi.messaging.Channel;
+import com.pepej.papi.messaging.Messenger;
+import com.pepej.papi.terminable.Terminable;
+
+import javax.annotation.Nonnull;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link Messenger} connected to the other messengers of a {@link LoopbackNetwork}.
+ *
+ * <p>Each messenger acts as a separate node, with its own channels and codecs.</p>
+ */
+public final class LoopbackMessenger implements Messenger, Terminable {
+
+    // The abstract messenger implementation used as the basis for Channel construction and handling
+    private final AbstractMessenger messenger;
+    private final LoopbackNetwork network;
+
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed = false;
+
+    LoopbackMessenger(LoopbackNetwork network) {
+        this.network = network;
+        this.messenger = new AbstractMessenger(this::handleOutgoing, this::subscribe, this::unsubscribe);
+    }
+
+    /**
+     * Gets the network this messenger is connected to.
+     *
+     * @return the network
+     */
+    public LoopbackNetwork getNetwork() {
+        return this.network;
+    }
+
+    private void handleOutgoing(String channel, byte[] message) {
+        if (this.closed) {
+            return;
+        }
+        this.network.publish(channel, message);
+    }
+
+    private void subscribe(String channel) {
+        if (this.closed) {
+            return;
+        }
+        this.subscriptions.add(channel);
+        this.network.subscribe(channel, this);
+    }
+
+    private void unsubscribe(String channel) {
+        this.subscriptions.remove(channel);
+        this.network.unsubscribe(channel, this);
+    }
+
+    void receive(String channel, byte[] message) {
+        this.messenger.registerIncomingMessage(channel, message);
+    }
+
+    @Nonnull
+    @Override
+    public <T> Channel<T> getChannel(@Nonnull String name, @Nonnull TypeToken<T> type) {
+        return this.messenger.getChannel(name, type);
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        for (String channel : this.subscriptions) {
+            unsubscribe(channel);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+}
@@ -0,0 +1,208 @@
+package com.pepej.papi.messaging.loopback;
+
+import com.pepej.papi.terminable.Terminable;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process message broker, connecting any number of {@link LoopbackMessenger}s.
+ *
+ * <p>Like a pub/sub broker, each message is delivered to every messenger subscribed to
+ * its channel, including the one which sent it. Latency and loss can be simulated with
+ * {@link LoopbackOptions}, which allows the messaging, network and request/response
+ * layers to be tested and benchmarked without a real broker.</p>
+ */
+public final class LoopbackNetwork implements Terminable {
+
+    /**
+     * Creates a network which delivers messages immediately.
+     *
+     * @return the network
+     */
+    @NonNull
+    public static LoopbackNetwork create() {
+        return create(LoopbackOptions.instant());
+    }
+
+    /**
+     * Creates a network with the given options.
+     *
+     * @param options the options
+     * @return the network
+     */
+    @NonNull
+    public static LoopbackNetwork create(@NonNull LoopbackOptions options) {
+        return new LoopbackNetwork(options);
+    }
+
+    // channel name --> the messengers subscribed to it
+    private final Map<String, Set<LoopbackMessenger>> subscribers = new ConcurrentHashMap<>();
+    private volatile LoopbackOptions options;
+
+    // delivers delayed messages, created when first needed
+    @Nullable
+    private ScheduledExecutorService scheduler = null;
+    private volatile boolean closed = false;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private LoopbackNetwork(LoopbackOptions options) {
+        this.options = Objects.requireNonNull(options, "options");
+    }
+
+    /**
+     * Creates a new messenger connected to this network.
+     *
+     * @return the messenger
+     */
+    @NonNull
+    public LoopbackMessenger newMessenger() {
+        if (this.closed) {
+            throw new IllegalStateException("Network is closed");
+        }
+        return new LoopbackMessenger(this);
+    }
+
+    /**
+     * Gets the conditions currently being simulated.
+     *
+     * @return the options
+     */
+    @NonNull
+    public LoopbackOptions getOptions() {
+        return this.options;
+    }
+
+    /**
+     * Changes the conditions being simulated. Messages already in flight are unaffected.
+     *
+     * @param options the new options
+     */
+    public void setOptions(@NonNull LoopbackOptions options) {
+        this.options = Objects.requireNonNull(options, "options");
+    }
+
+    void subscribe(String channel, LoopbackMessenger messenger) {
+        this.subscribers.computeIfAbsent(channel, c -> ConcurrentHashMap.newKeySet()).add(messenger);
+    }
+
+    void unsubscribe(String channel, LoopbackMessenger messenger) {
+        this.subscribers.computeIfPresent(channel, (c, set) -> {
+            set.remove(messenger);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    void publish(String channel, byte[] message) {
+        if (this.closed) {
+            return;
+        }
+        this.sent.increment();
+
+        Set<LoopbackMessenger> subscribers = this.subscribers.get(channel);
+        if (subscribers == null) {
+            return;
+        }
+
+        LoopbackOptions options = this.options;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (LoopbackMessenger subscriber : subscribers) {
+            if (options.getLoss() != 0 && random.nextDouble() < options.getLoss()) {
+                this.dropped.increment();
+                continue;
+            }
+
+            long delay = options.getLatencyNanos();
+            if (options.getJitterNanos() != 0) {
+                delay += random.nextLong(options.getJitterNanos() + 1);
+            }
+            if (delay == 0) {
+                deliver(subscriber, channel, message);
+            } else {
+                getScheduler().schedule(() -> deliver(subscriber, channel, message), delay, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void deliver(LoopbackMessenger subscriber, String channel, byte[] message) {
+        if (subscriber.isClosed()) {
+            return;
+        }
+        this.delivered.increment();
+        try {
+            subscriber.receive(channel, message);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (this.scheduler == null) {
+            // a single thread, so messages with the same delay arrive in the order they were sent
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "papi-loopback-delivery");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.scheduler;
+    }
+
+    /**
+     * Gets the number of messages which have been published to the network.
+     *
+     * @return the number of messages sent
+     */
+    public long getSent() {
+        return this.sent.sum();
+    }
+
+    /**
+     * Gets the number of times a message has been delivered to a messenger.
+     *
+     * @return the number of deliveries
+     */
+    public long getDelivered() {
+        return this.delivered.sum();
+    }
+
+    /**
+     * Gets the number of deliveries which were lost.
+     *
+     * @return the number of dropped deliveries
+     */
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+        this.subscribers.clear();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackNetwork(options=" + this.options + ", sent=" + getSent() + ", delivered=" + getDelivered() + ", dropped=" + getDropped() + ")";
+    }
+}
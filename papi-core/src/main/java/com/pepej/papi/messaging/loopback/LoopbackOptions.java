@@ -0,0 +1,101 @@
+package com.pepej.papi.messaging.loopback;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes the conditions simulated by a {@link LoopbackNetwork}.
+ *
+ * <p>Each message is delivered to each subscribed node after the latency, plus a
+ * random amount of up to the jitter, unless it is lost. Messages delayed by
+ * different amounts may arrive out of order.</p>
+ */
+public final class LoopbackOptions {
+    private static final LoopbackOptions INSTANT = new LoopbackOptions(0, 0, 0);
+
+    /**
+     * Gets options which deliver every message immediately, on the sending thread.
+     *
+     * @return the options
+     */
+    @NonNull
+    public static LoopbackOptions instant() {
+        return INSTANT;
+    }
+
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double loss;
+
+    private LoopbackOptions(long latencyNanos, long jitterNanos, double loss) {
+        this.latencyNanos = latencyNanos;
+        this.jitterNanos = jitterNanos;
+        this.loss = loss;
+    }
+
+    /**
+     * Sets the time taken to deliver each message.
+     *
+     * @param latency the latency
+     * @param unit the unit of latency
+     * @return the new options
+     */
+    @NonNull
+    public LoopbackOptions latency(long latency, @NonNull TimeUnit unit) {
+        Preconditions.checkArgument(latency >= 0, "latency must be >= 0");
+        return new LoopbackOptions(unit.toNanos(latency), this.jitterNanos, this.loss);
+    }
+
+    /**
+     * Sets the maximum random delay added to the latency of each message.
+     *
+     * @param jitter the jitter
+     * @param unit the unit of jitter
+     * @return the new options
+     */
+    @NonNull
+    public LoopbackOptions jitter(long jitter, @NonNull TimeUnit unit) {
+        Preconditions.checkArgument(jitter >= 0, "jitter must be >= 0");
+        return new LoopbackOptions(this.latencyNanos, unit.toNanos(jitter), this.loss);
+    }
+
+    /**
+     * Sets the probability of each delivery being lost.
+     *
+     * @param loss the probability, from 0 to 1
+     * @return the new options
+     */
+    @NonNull
+    public LoopbackOptions loss(double loss) {
+        Preconditions.checkArgument(loss >= 0 && loss <= 1, "loss must be between 0 and 1");
+        return new LoopbackOptions(this.latencyNanos, this.jitterNanos, loss);
+    }
+
+    public long getLatency(@NonNull TimeUnit unit) {
+        return unit.convert(this.latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getJitter(@NonNull TimeUnit unit) {
+        return unit.convert(this.jitterNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getLoss() {
+        return this.loss;
+    }
+
+    long getLatencyNanos() {
+        return this.latencyNanos;
+    }
+
+    long getJitterNanos() {
+        return this.jitterNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackOptions(latency=" + TimeUnit.NANOSECONDS.toMicros(this.latencyNanos) + "us, jitter=" +
+               TimeUnit.NANOSECONDS.toMicros(this.jitterNanos) + "us, loss=" + this.loss + ")";
+    }
+}
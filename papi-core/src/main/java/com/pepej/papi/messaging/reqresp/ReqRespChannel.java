@@ -2,9 +2,18 @@ package com.pepej.papi.messaging.reqresp;
 
 import com.pepej.papi.messaging.Channel;
 import com.pepej.papi.messaging.conversation.ConversationChannel;
+import com.pepej.papi.messaging.conversation.ConversationMetrics;
 import com.pepej.papi.promise.Promise;
+import com.pepej.papi.scheduler.Schedulers;
 import com.pepej.papi.terminable.Terminable;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * A generic request/response handler that can operate over the network.
  *
@@ -19,14 +28,127 @@ public interface ReqRespChannel<Req, Resp> extends Terminable {
     /**
      * Sends a request and returns a promise encapsulating the response.
      *
-     * <p>The promise will complete exceptionally if a response is not received before the timeout
-     * expires, by default after 5 seconds.</p>
+     * <p>The promise will complete exceptionally if a response is not received within 5 seconds.</p>
      *
      * @param req the request object
      * @return a promise encapsulating the response
      */
     Promise<Resp> request(Req req);
 
+    /**
+     * Sends a request and returns a promise encapsulating the response.
+     *
+     * <p>The promise will complete exceptionally with a {@link java.util.concurrent.TimeoutException}
+     * if a response is not received before the timeout expires.</p>
+     *
+     * <p>The default implementation waits for the promise returned by {@link #request(Object)},
+     * so can't wait for longer than that request's own timeout.</p>
+     *
+     * @param req the request object
+     * @param timeout the time to wait for a response
+     * @param unit the unit of timeout
+     * @return a promise encapsulating the response
+     */
+    default Promise<Resp> request(Req req, long timeout, TimeUnit unit) {
+        CompletableFuture<Resp> response = new CompletableFuture<>();
+        request(req).toCompletableFuture().whenComplete((resp, t) -> {
+            if (t != null) {
+                response.completeExceptionally(t);
+            } else {
+                response.complete(resp);
+            }
+        });
+        Schedulers.async().runLater(() -> response.completeExceptionally(new TimeoutException("Request timed out")), timeout, unit);
+        return Promise.wrapFuture(response);
+    }
+
+    /**
+     * Sends a number of requests in a single message, and returns a promise
+     * encapsulating the responses, in the same order as the requests.
+     *
+     * <p>The list contains null for each request the handler didn't respond to.
+     * The promise will complete exceptionally if a response is not received within 5 seconds.</p>
+     *
+     * @param reqs the request objects
+     * @return a promise encapsulating the responses
+     */
+    default Promise<List<Resp>> requestAll(Collection<? extends Req> reqs) {
+        return requestAll(reqs, 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Sends a number of requests in a single message, and returns a promise
+     * encapsulating the responses, in the same order as the requests.
+     *
+     * <p>The list contains null for each request the handler didn't respond to.
+     * The promise will complete exceptionally with a {@link java.util.concurrent.TimeoutException}
+     * if a response is not received before the timeout expires.</p>
+     *
+     * <p>The default implementation sends each request separately, using
+     * {@link #request(Object, long, TimeUnit)}, and completes exceptionally if
+     * any of them do.</p>
+     *
+     * @param reqs the request objects
+     * @param timeout the time to wait for the responses
+     * @param unit the unit of timeout
+     * @return a promise encapsulating the responses
+     */
+    default Promise<List<Resp>> requestAll(Collection<? extends Req> reqs, long timeout, TimeUnit unit) {
+        List<CompletableFuture<Resp>> responses = new ArrayList<>(reqs.size());
+        for (Req req : reqs) {
+            responses.add(request(req, timeout, unit).toCompletableFuture());
+        }
+        return Promise.wrapFuture(CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).thenApply(v -> {
+            List<Resp> result = new ArrayList<>(responses.size());
+            for (CompletableFuture<Resp> response : responses) {
+                result.add(response.join());
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * Limits the number of requests which can be awaiting a response at once.
+     * A batch sent with {@link #requestAll(Collection)} counts as a single request.
+     *
+     * <p>Once the limit is reached, further requests are queued until a response is
+     * received or a request times out. Time spent in the queue counts towards a
+     * request's timeout. Once the queue is full, requests fail immediately with a
+     * {@link java.util.concurrent.RejectedExecutionException}.</p>
+     *
+     * <p>By default the number of requests is not limited.</p>
+     *
+     * @param maxInFlight the maximum number of requests awaiting a response
+     * @param maxQueued the maximum number of requests waiting to be sent
+     * @throws UnsupportedOperationException if the channel doesn't support limits
+     */
+    default void setMaxInFlight(int maxInFlight, int maxQueued) {
+        throw new UnsupportedOperationException("Channel does not support in-flight limits");
+    }
+
+    /**
+     * Gets the number of requests waiting to be sent, because the
+     * {@link #setMaxInFlight(int, int) in-flight limit} has been reached.
+     *
+     * <p>Channels which don't support limits never queue requests, so return 0.</p>
+     *
+     * @return the number of queued requests
+     */
+    default int getQueuedRequests() {
+        return 0;
+    }
+
+    /**
+     * Gets the metrics for the requests sent by this channel.
+     *
+     * <p>Channels which don't record metrics return metrics which are always zero.</p>
+     *
+     * @return the metrics
+     */
+    default ConversationMetrics getMetrics() {
+        return ConversationMetrics.empty();
+    }
+
     /**
      * Registers a response handler.
      *
@@ -41,6 +163,25 @@ public interface ReqRespChannel<Req, Resp> extends Terminable {
      */
     void asyncResponseHandler(AsyncResponseHandler<Req, Resp> handler);
 
+    /**
+     * Registers a response handler that returns a Promise, and limits the number of
+     * requests it is handling at once.
+     *
+     * <p>Once the limit is reached, incoming requests are queued until one of the
+     * promises returned by the handler completes. Once the queue is full, further
+     * requests are dropped without a response, and time out at the requester.</p>
+     *
+     * <p>Channels which don't support limits register the handler with
+     * {@link #asyncResponseHandler(AsyncResponseHandler)}, ignoring them.</p>
+     *
+     * @param handler the response handler
+     * @param maxConcurrency the maximum number of requests being handled at once
+     * @param maxQueued the maximum number of requests waiting to be handled
+     */
+    default void asyncResponseHandler(AsyncResponseHandler<Req, Resp> handler, int maxConcurrency, int maxQueued) {
+        asyncResponseHandler(handler);
+    }
+
     interface ResponseHandler<Req, Resp> {
         Resp response(Req req);
     }
@@ -0,0 +1,170 @@
+package com.pepej.papi.messaging.reqresp;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of tasks which are running at once, queueing a bounded number
+ * of further tasks until a running task {@link #release() releases} its permit.
+ *
+ * <p>Queued tasks are run by whichever thread frees a permit, one after another.
+ * A task which releases its permit straight away doesn't start another drain, so
+ * a long queue doesn't build up a deep stack.</p>
+ */
+final class RequestLimiter {
+    private final LongSupplier clock;
+
+    private volatile int limit;
+    private volatile int maxQueued;
+
+    private final AtomicInteger active = new AtomicInteger(0);
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    // the number of times drain has been called since the queue was last drained.
+    // only the thread which increments it from zero drains the queue
+    private final AtomicInteger draining = new AtomicInteger(0);
+
+    RequestLimiter(int limit, int maxQueued) {
+        this(limit, maxQueued, System::nanoTime);
+    }
+
+    RequestLimiter(int limit, int maxQueued, LongSupplier nanoClock) {
+        this.clock = nanoClock;
+        setLimits(limit, maxQueued);
+    }
+
+    void setLimits(int limit, int maxQueued) {
+        Preconditions.checkArgument(limit > 0, "limit must be > 0");
+        Preconditions.checkArgument(maxQueued >= 0, "maxQueued must be >= 0");
+        this.limit = limit;
+        this.maxQueued = maxQueued;
+        // the limit may have been raised
+        drain();
+    }
+
+    /**
+     * Runs the task now if a permit is available, or queues it if there is room.
+     *
+     * <p>The task must call {@link #release()} once it has finished.</p>
+     *
+     * @param task the task
+     * @return false if the task was rejected
+     */
+    boolean submit(Runnable task) {
+        return submit(task, 0, null);
+    }
+
+    /**
+     * Runs the task now if a permit is available, or queues it if there is room.
+     *
+     * <p>If the deadline passes before a permit is available, the task is removed
+     * from the queue, and onExpiry is run instead. onExpiry doesn't hold a permit,
+     * so must not call {@link #release()}.</p>
+     *
+     * <p>The task must call {@link #release()} once it has finished.</p>
+     *
+     * @param task the task
+     * @param deadline the {@link System#nanoTime()} after which the task shouldn't be run
+     * @param onExpiry the task to run if the deadline passes while the task is queued,
+     *                 or null if the task has no deadline
+     * @return false if the task was rejected
+     */
+    boolean submit(Runnable task, long deadline, @Nullable Runnable onExpiry) {
+        if (tryAcquire()) {
+            task.run();
+            return true;
+        }
+
+        if (this.queued.incrementAndGet() > this.maxQueued) {
+            this.queued.decrementAndGet();
+            return false;
+        }
+        this.queue.add(new Entry(task, deadline, onExpiry));
+        // a permit may have been released since we tried to acquire one
+        drain();
+        return true;
+    }
+
+    /**
+     * Returns a permit, and runs the next queued task.
+     */
+    void release() {
+        this.active.decrementAndGet();
+        drain();
+    }
+
+    private void drain() {
+        if (this.draining.getAndIncrement() != 0) {
+            // another thread, or a caller further up this thread's stack, is draining
+            // the queue, and will check it again before it stops
+            return;
+        }
+
+        int missed = 1;
+        do {
+            Entry entry;
+            while ((entry = this.queue.peek()) != null) {
+                // only the draining thread takes from the queue, so the head can't change under us
+                if (entry.onExpiry != null && entry.deadline - this.clock.getAsLong() <= 0) {
+                    this.queue.poll();
+                    this.queued.decrementAndGet();
+                    run(entry.onExpiry);
+                    continue;
+                }
+
+                if (!tryAcquire()) {
+                    break;
+                }
+                this.queue.poll();
+                this.queued.decrementAndGet();
+                run(entry.task);
+            }
+            missed = this.draining.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+    }
+
+    private boolean tryAcquire() {
+        int active;
+        do {
+            active = this.active.get();
+            if (active >= this.limit) {
+                return false;
+            }
+        } while (!this.active.compareAndSet(active, active + 1));
+        return true;
+    }
+
+    int getActive() {
+        return this.active.get();
+    }
+
+    int getQueued() {
+        return this.queued.get();
+    }
+
+    private static final class Entry {
+        private final Runnable task;
+        private final long deadline;
+        @Nullable
+        private final Runnable onExpiry;
+
+        private Entry(Runnable task, long deadline, @Nullable Runnable onExpiry) {
+            this.task = task;
+            this.deadline = deadline;
+            this.onExpiry = onExpiry;
+        }
+    }
+}
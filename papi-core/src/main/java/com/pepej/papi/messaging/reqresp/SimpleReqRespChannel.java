@@ -4,49 +4,142 @@ import com.google.common.reflect.TypeParameter;
 import com.google.common.reflect.TypeToken;
 import com.pepej.papi.messaging.Messenger;
 import com.pepej.papi.messaging.conversation.ConversationChannel;
+import com.pepej.papi.messaging.conversation.ConversationMetrics;
 import com.pepej.papi.messaging.conversation.ConversationReply;
 import com.pepej.papi.messaging.conversation.ConversationReplyListener;
 import com.pepej.papi.promise.Promise;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implements a {@link ReqRespChannel} using {@link ConversationChannel}s.
  *
+ * <p>Batches of requests are sent on a second conversation channel, named
+ * <code>name + "-batch"</code>, which is only created once it is used, or once
+ * a response handler is registered. A channel which only responds to requests
+ * doesn't listen for replies.</p>
+ *
  * @param <Req> the request type
  * @param <Resp> the response type
  */
 public class SimpleReqRespChannel<Req, Resp> implements ReqRespChannel<Req, Resp> {
+    private final Messenger messenger;
+    private final String name;
+    private final TypeToken<Req> reqType;
+    private final TypeToken<Resp> respType;
+
     private final ConversationChannel<ReqResMessage<Req>, ReqResMessage<Resp>> channel;
+    @Nullable
+    private ConversationChannel<ReqResMessage<List<Req>>, ReqResMessage<List<Resp>>> batchChannel = null;
+
+    private final RequestLimiter window = new RequestLimiter(Integer.MAX_VALUE, 0);
 
     public SimpleReqRespChannel(Messenger messenger, String name, TypeToken<Req> reqType, TypeToken<Resp> respType) {
+        this.messenger = messenger;
+        this.name = name;
+        this.reqType = reqType;
+        this.respType = respType;
+
         TypeToken<ReqResMessage<Req>> reqMsgType = new TypeToken<ReqResMessage<Req>>(){}.where(new TypeParameter<Req>(){}, reqType);
         TypeToken<ReqResMessage<Resp>> respMsgType = new TypeToken<ReqResMessage<Resp>>(){}.where(new TypeParameter<Resp>(){}, respType);
         this.channel = messenger.getConversationChannel(name, reqMsgType, respMsgType);
     }
 
+    private synchronized ConversationChannel<ReqResMessage<List<Req>>, ReqResMessage<List<Resp>>> getBatchChannel() {
+        if (this.batchChannel == null) {
+            TypeToken<ReqResMessage<List<Req>>> reqMsgType = new TypeToken<ReqResMessage<List<Req>>>(){}.where(new TypeParameter<Req>(){}, this.reqType);
+            TypeToken<ReqResMessage<List<Resp>>> respMsgType = new TypeToken<ReqResMessage<List<Resp>>>(){}.where(new TypeParameter<Resp>(){}, this.respType);
+            this.batchChannel = this.messenger.getConversationChannel(this.name + "-batch", reqMsgType, respMsgType);
+        }
+        return this.batchChannel;
+    }
+
     @Override
     public Promise<Resp> request(Req req) {
-        ReqResMessage<Req> msg = new ReqResMessage<>(UUID.randomUUID(), req);
+        return request(req, 5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Promise<Resp> request(Req req, long timeout, TimeUnit unit) {
         Promise<Resp> promise = Promise.empty();
-        this.channel.sendMessage(msg, new ConversationReplyListener<ReqResMessage<Resp>>() {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!this.window.submit(() -> send(this.channel, req, promise, deadline), deadline, () -> expire(promise))) {
+            promise.supplyException(new RejectedExecutionException("Too many requests in flight"));
+        }
+        return promise;
+    }
+
+    @Override
+    public Promise<List<Resp>> requestAll(Collection<? extends Req> reqs, long timeout, TimeUnit unit) {
+        if (reqs.isEmpty()) {
+            return Promise.completed(Collections.emptyList());
+        }
+
+        List<Req> body = new ArrayList<>(reqs);
+        ConversationChannel<ReqResMessage<List<Req>>, ReqResMessage<List<Resp>>> batchChannel = getBatchChannel();
+        Promise<List<Resp>> promise = Promise.empty();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!this.window.submit(() -> send(batchChannel, body, promise, deadline), deadline, () -> expire(promise))) {
+            promise.supplyException(new RejectedExecutionException("Too many requests in flight"));
+        }
+        return promise;
+    }
+
+    private static void expire(Promise<?> promise) {
+        promise.supplyException(new TimeoutException("Request timed out before it could be sent"));
+    }
+
+    private <Q, P> void send(ConversationChannel<ReqResMessage<Q>, ReqResMessage<P>> channel, Q body, Promise<P> promise, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            this.window.release();
+            expire(promise);
+            return;
+        }
+
+        ReqResMessage<Q> msg = new ReqResMessage<>(UUID.randomUUID(), body);
+        channel.sendMessage(msg, new ConversationReplyListener<ReqResMessage<P>>() {
             @NonNull
             @Override
-            public RegistrationAction onReply(@NonNull ReqResMessage<Resp> reply) {
+            public RegistrationAction onReply(@NonNull ReqResMessage<P> reply) {
+                SimpleReqRespChannel.this.window.release();
                 promise.supply(reply.getBody());
                 return RegistrationAction.STOP_LISTENING;
             }
 
             @Override
-            public void onTimeout(@NonNull List<ReqResMessage<Resp>> replies) {
+            public void onTimeout(@NonNull List<ReqResMessage<P>> replies) {
+                SimpleReqRespChannel.this.window.release();
                 promise.supplyException(new TimeoutException("Request timed out"));
             }
-        }, 5, TimeUnit.SECONDS);
-        return promise;
+        }, remaining, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void setMaxInFlight(int maxInFlight, int maxQueued) {
+        this.window.setLimits(maxInFlight, maxQueued);
+    }
+
+    @Override
+    public int getQueuedRequests() {
+        return this.window.getQueued();
+    }
+
+    @Override
+    public ConversationMetrics getMetrics() {
+        return this.channel.getMetrics();
     }
 
     @Override
@@ -62,26 +155,112 @@ public class SimpleReqRespChannel<Req, Resp> implements ReqRespChannel<Req, Resp
                 return ConversationReply.noReply();
             }
         });
+
+        getBatchChannel().newAgent((agent, message) -> {
+            UUID id = message.getConversationId();
+            List<Req> reqs = message.getBody();
+            if (reqs == null) {
+                return ConversationReply.noReply();
+            }
+
+            List<Resp> resps = new ArrayList<>(reqs.size());
+            for (Req req : reqs) {
+                resps.add(handler.response(req));
+            }
+            return ConversationReply.of(new ReqResMessage<>(id, resps));
+        });
     }
 
     @Override
     public void asyncResponseHandler(AsyncResponseHandler<Req, Resp> handler) {
+        asyncResponseHandler(handler, Integer.MAX_VALUE, 0);
+    }
+
+    @Override
+    public void asyncResponseHandler(AsyncResponseHandler<Req, Resp> handler, int maxConcurrency, int maxQueued) {
+        Objects.requireNonNull(handler, "handler");
+        RequestLimiter limiter = new RequestLimiter(maxConcurrency, maxQueued);
+
         this.channel.newAgent((agent, message) -> {
             UUID id = message.getConversationId();
-            Req req = message.getBody();
+            Promise<ReqResMessage<Resp>> reply = Promise.empty();
+            respond(handler, limiter, message.getBody(), (resp, t) -> reply.supply(resp == null ? null : new ReqResMessage<>(id, resp)));
+            return ConversationReply.ofPromise(reply);
+        });
 
-            Promise<Resp> promise = handler.response(req);
-            if (promise != null) {
-                Promise<ReqResMessage<Resp>> composedPromise = promise.thenApplyAsync(resp -> resp == null ? null : new ReqResMessage<>(id, resp));
-                return ConversationReply.ofPromise(composedPromise);
-            } else {
+        getBatchChannel().newAgent((agent, message) -> {
+            UUID id = message.getConversationId();
+            List<Req> reqs = message.getBody();
+            if (reqs == null) {
                 return ConversationReply.noReply();
             }
+
+            if (reqs.isEmpty()) {
+                return ConversationReply.of(new ReqResMessage<>(id, Collections.emptyList()));
+            }
+
+            // requests which fail are answered with null, rather than failing the whole batch
+            Promise<ReqResMessage<List<Resp>>> reply = Promise.empty();
+            @SuppressWarnings("unchecked")
+            Resp[] resps = (Resp[]) new Object[reqs.size()];
+            AtomicInteger remaining = new AtomicInteger(reqs.size());
+            for (int i = 0; i < reqs.size(); i++) {
+                int index = i;
+                respond(handler, limiter, reqs.get(i), (resp, t) -> {
+                    resps[index] = resp;
+                    if (remaining.decrementAndGet() == 0) {
+                        reply.supply(new ReqResMessage<>(id, Arrays.asList(resps)));
+                    }
+                });
+            }
+            return ConversationReply.ofPromise(reply);
+        });
+    }
+
+    /**
+     * Passes the request to the handler once the limiter allows it, and calls the
+     * callback once the promise returned by the handler completes, or straight away
+     * if the limiter's queue is full.
+     */
+    private static <Req, Resp> void respond(AsyncResponseHandler<Req, Resp> handler, RequestLimiter limiter, Req req, ResponseCallback<Resp> callback) {
+        boolean accepted = limiter.submit(() -> {
+            Promise<Resp> promise;
+            try {
+                promise = handler.response(req);
+            } catch (Throwable t) {
+                t.printStackTrace();
+                limiter.release();
+                callback.complete(null, t);
+                return;
+            }
+
+            if (promise == null) {
+                limiter.release();
+                callback.complete(null, null);
+                return;
+            }
+
+            promise.toCompletableFuture().whenComplete((resp, t) -> {
+                limiter.release();
+                callback.complete(resp, t);
+            });
         });
+        if (!accepted) {
+            callback.complete(null, new RejectedExecutionException("Too many requests queued"));
+        }
+    }
+
+    private interface ResponseCallback<Resp> {
+        void complete(@Nullable Resp resp, @Nullable Throwable t);
     }
 
     @Override
     public void close() {
         this.channel.close();
+        synchronized (this) {
+            if (this.batchChannel != null) {
+                this.batchChannel.close();
+            }
+        }
     }
 }
@@ -15,14 +15,23 @@ import java.util.Optional;
  */
 public class AbstractMetadataRegistry<T> implements MetadataRegistry<T> {
 
-    private static final CacheLoader<?, MetadataMap> LOADER = new Loader<>();
-    private static <T> CacheLoader<T, MetadataMap> getLoader() {
-        //noinspection unchecked
-        return (CacheLoader) LOADER;
-    }
+    private final MetadataSweeper sweeper;
 
     @NonNull
-    protected final LoadingCache<T, MetadataMap> cache = CacheBuilder.newBuilder().build(getLoader());
+    protected final LoadingCache<T, MetadataMap> cache = CacheBuilder.newBuilder().build(new Loader());
+
+    public AbstractMetadataRegistry() {
+        this(MetadataSweeper.get());
+    }
+
+    /**
+     * Creates a new registry, which will have expired values removed by the given sweeper.
+     *
+     * @param sweeper the sweeper
+     */
+    AbstractMetadataRegistry(@NonNull MetadataSweeper sweeper) {
+        this.sweeper = Objects.requireNonNull(sweeper, "sweeper");
+    }
 
     @NonNull
     @Override
@@ -42,6 +51,7 @@ public class AbstractMetadataRegistry<T> implements MetadataRegistry<T> {
     public void remove(@NonNull T id) {
         MetadataMap map = this.cache.asMap().remove(id);
         if (map != null) {
+            untrack(map);
             map.clear();
         }
     }
@@ -49,13 +59,25 @@ public class AbstractMetadataRegistry<T> implements MetadataRegistry<T> {
     @Override
     public void cleanup() {
         // MetadataMap#isEmpty also removes expired values
-        this.cache.asMap().values().removeIf(MetadataMap::isEmpty);
+        this.cache.asMap().values().removeIf(map -> {
+            if (map.isEmpty()) {
+                untrack(map);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static void untrack(MetadataMap map) {
+        if (map instanceof MetadataMapImpl) {
+            ((MetadataMapImpl) map).untrack();
+        }
     }
 
-    private static final class Loader<T> extends CacheLoader<T, MetadataMap> {
+    private final class Loader extends CacheLoader<T, MetadataMap> {
         @Override
         public MetadataMap load(@NonNull T key) {
-            return MetadataMap.create();
+            return AbstractMetadataRegistry.this.sweeper.track(AbstractMetadataRegistry.this, key);
         }
     }
 }
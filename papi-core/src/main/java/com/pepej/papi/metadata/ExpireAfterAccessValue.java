@@ -65,4 +65,8 @@ public class ExpireAfterAccessValue<T> implements TransientValue<T> {
         return System.currentTimeMillis() > this.expireAt;
     }
 
+    long getExpireAt() {
+        return this.expireAt;
+    }
+
 }
@@ -58,4 +58,8 @@ public final class ExpiringValue<T> implements TransientValue<T> {
         return System.currentTimeMillis() > this.expireAt;
     }
 
+    long getExpireAt() {
+        return this.expireAt;
+    }
+
 }
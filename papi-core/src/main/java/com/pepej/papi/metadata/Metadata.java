@@ -3,7 +3,6 @@ package com.pepej.papi.metadata;
 
 import com.pepej.papi.events.Events;
 import com.pepej.papi.metadata.type.*;
-import com.pepej.papi.scheduler.Schedulers;
 import com.pepej.papi.serialize.BlockPosition;
 import org.bukkit.World;
 import org.bukkit.block.Block;
@@ -17,7 +16,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -39,18 +37,21 @@ public final class Metadata {
             Events.subscribe(PlayerQuitEvent.class, EventPriority.MONITOR)
                   .handler(e -> StandardMetadataRegistries.PLAYER.remove(e.getPlayer().getUniqueId()));
 
-            // cache housekeeping task
-            Schedulers.builder()
-                      .async()
-                      .afterAndEvery(1, TimeUnit.MINUTES)
-                      .run(() -> {
-                          for (MetadataRegistry<?> registry : StandardMetadataRegistries.values()) {
-                              registry.cleanup();
-                          }
-                      });
+            // incrementally remove expired values and empty maps
+            MetadataSweeper.get().start();
         }
     }
 
+    /**
+     * Gets the {@link MetadataSweeper} which removes expired values from the standard registries.
+     *
+     * @return the sweeper
+     */
+    public static MetadataSweeper sweeper() {
+        ensureSetup();
+        return MetadataSweeper.get();
+    }
+
     /**
      * Gets the {@link MetadataRegistry} for {@link Player}s.
      *
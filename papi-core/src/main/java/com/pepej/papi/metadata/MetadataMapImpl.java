@@ -1,18 +1,32 @@
 package com.pepej.papi.metadata;
 
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import java.util.*;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 final class MetadataMapImpl implements MetadataMap {
-    private final Map<MetadataKey<?>, Object> map = new HashMap<>();
+    // reads are lock-free, writes which need to check the existing value are serialised by the lock
+    private final Map<MetadataKey<?>, Entry> map = new ConcurrentHashMap<>();
     private final ReentrantLock lock = new ReentrantLock();
+    // the sweeper handle, if this map belongs to a registry
+    @Nullable
+    private final MetadataSweeper.Handle handle;
+
+    MetadataMapImpl() {
+        this(null);
+    }
+
+    MetadataMapImpl(@Nullable MetadataSweeper.Handle handle) {
+        this.handle = handle;
+    }
 
     @Override
     public <T> void put(@NonNull MetadataKey<T> key, @NonNull T value) {
@@ -30,25 +44,24 @@ final class MetadataMapImpl implements MetadataMap {
 
         this.lock.lock();
         try {
-            MetadataKey<?> existing = null;
-            for (MetadataKey<?> k : this.map.keySet()) {
-                if (k.equals(key)) {
-                    existing = k;
-                    break;
-                }
-            }
-
-            if (existing != null && !existing.getType().equals(key.getType())) {
-                throw new ClassCastException("Cannot cast key with id " + key.getId() + " with type " + key.getType().getRawType() + " to existing stored type " + existing.getType().getRawType());
+            Entry existing = live(key);
+            if (existing != null) {
+                existing.checkType(key);
             }
 
-            this.map.put(key, value);
-
+            store(key, value);
         } finally {
             this.lock.unlock();
         }
     }
 
+    private void store(MetadataKey<?> key, Object value) {
+        this.map.put(key, new Entry(key, value));
+        if (this.handle != null && value instanceof TransientValue<?>) {
+            this.handle.scheduled((TransientValue<?>) value);
+        }
+    }
+
     @Override
     public <T> void forcePut(@NonNull MetadataKey<T> key, @NonNull T value) {
         internalForcePut(key, value);
@@ -63,12 +76,7 @@ final class MetadataMapImpl implements MetadataMap {
         Objects.requireNonNull(key, "key");
         Objects.requireNonNull(value, "value");
 
-        this.lock.lock();
-        try {
-            this.map.put(key, value);
-        } finally {
-            this.lock.unlock();
-        }
+        store(key, value);
     }
 
     @Override
@@ -87,8 +95,11 @@ final class MetadataMapImpl implements MetadataMap {
 
         this.lock.lock();
         try {
-            cleanup();
-            return this.map.putIfAbsent(key, value) == null;
+            if (live(key) != null) {
+                return false;
+            }
+            store(key, value);
+            return true;
         } finally {
             this.lock.unlock();
         }
@@ -98,65 +109,60 @@ final class MetadataMapImpl implements MetadataMap {
     @Override
     public <T> Optional<T> get(@NonNull MetadataKey<T> key) {
         Objects.requireNonNull(key, "key");
+        return Optional.ofNullable(internalGet(key));
+    }
 
-        this.lock.lock();
-        try {
-            Map.Entry<MetadataKey<?>, Object> existing = null;
-
-            // try to locate an existing entry, and expire any values at the same time.
-            Iterator<Map.Entry<MetadataKey<?>, Object>> it = this.map.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<MetadataKey<?>, Object> kv = it.next();
-
-                if (kv.getValue() instanceof TransientValue<?>) {
-                    TransientValue<?> transientValue = ((TransientValue) kv.getValue());
-
-                    Object unboxed = transientValue.getOrNull();
-
-                    // if it has expired
-                    if (unboxed == null) {
-                        it.remove();
-                        continue;
-                    }
-
-                    // copy out the unboxed value
-                    if (kv.getKey().equals(key)) {
-                        existing = Maps.immutableEntry(kv.getKey(), unboxed);
-                        break;
-                    }
-
-                } else {
-                    if (kv.getKey().equals(key)) {
-                        existing = kv;
-                        break;
-                    }
-                }
-            }
+    /**
+     * Gets the unboxed value for the given key, expiring the stored value if necessary.
+     *
+     * @param key the key
+     * @param <T> the value type
+     * @return the value, or null if absent
+     */
+    @Nullable
+    private <T> T internalGet(MetadataKey<T> key) {
+        Entry entry = this.map.get(key);
+        if (entry == null) {
+            return null;
+        }
 
-            if (existing == null) {
-                return Optional.empty();
-            }
+        Object unboxed = entry.unbox();
+        if (unboxed == null) {
+            // it has expired
+            this.map.remove(key, entry);
+            return null;
+        }
 
-            if (!existing.getKey().getType().equals(key.getType())) {
-                throw new ClassCastException("Cannot cast key with id " + key.getId() + " with type " + key.getType().getRawType() + " to existing stored type " + existing.getKey().getType().getRawType());
-            }
+        entry.checkType(key);
+        return key.cast(unboxed);
+    }
 
-            return Optional.of(key.cast(existing.getValue()));
-        } finally {
-            this.lock.unlock();
+    /**
+     * Gets the entry for the given key, if it exists and has not expired.
+     *
+     * @param key the key
+     * @return the entry, or null
+     */
+    @Nullable
+    private Entry live(MetadataKey<?> key) {
+        Entry entry = this.map.get(key);
+        if (entry != null && entry.isExpired()) {
+            this.map.remove(key, entry);
+            return null;
         }
+        return entry;
     }
 
     @Override
     public <T> boolean ifPresent(@NonNull MetadataKey<T> key, @NonNull Consumer<? super T> action) {
         Objects.requireNonNull(key, "key");
         Objects.requireNonNull(action, "action");
-        Optional<T> opt = get(key);
-        if (!opt.isPresent()) {
+        T value = internalGet(key);
+        if (value == null) {
             return false;
         }
 
-        action.accept(opt.get());
+        action.accept(value);
         return true;
     }
 
@@ -164,14 +170,15 @@ final class MetadataMapImpl implements MetadataMap {
     @Override
     public <T> T getOrNull(@NonNull MetadataKey<T> key) {
         Objects.requireNonNull(key, "key");
-        return get(key).orElse(null);
+        return internalGet(key);
     }
 
     @NonNull
     @Override
     public <T> T getOrDefault(@NonNull MetadataKey<T> key, T def) {
         Objects.requireNonNull(key, "key");
-        return get(key).orElse(def);
+        T value = internalGet(key);
+        return value != null ? value : def;
     }
 
     @NonNull
@@ -180,53 +187,24 @@ final class MetadataMapImpl implements MetadataMap {
         Objects.requireNonNull(key, "key");
         Objects.requireNonNull(def, "def");
 
+        T existing = internalGet(key);
+        if (existing != null) {
+            return existing;
+        }
+
         this.lock.lock();
         try {
-            Map.Entry<MetadataKey<?>, Object> existing = null;
-
-            // try to locate an existing entry, and expire any values at the same time.
-            Iterator<Map.Entry<MetadataKey<?>, Object>> it = this.map.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<MetadataKey<?>, Object> kv = it.next();
-
-                if (kv.getValue() instanceof TransientValue<?>) {
-                    TransientValue<?> transientValue = ((TransientValue) kv.getValue());
-
-                    Object unboxed = transientValue.getOrNull();
-
-                    // if it has expired
-                    if (unboxed == null) {
-                        it.remove();
-                        continue;
-                    }
-
-                    // copy out the unboxed value
-                    if (kv.getKey().equals(key)) {
-                        existing = Maps.immutableEntry(kv.getKey(), unboxed);
-                        break;
-                    }
-
-                } else {
-                    if (kv.getKey().equals(key)) {
-                        existing = kv;
-                        break;
-                    }
-                }
-            }
-
-            if (existing == null) {
-                T t = def.get();
-                Objects.requireNonNull(t, "supplied def");
-
-                this.map.put(key, t);
-                return t;
+            // check again now we hold the lock
+            existing = internalGet(key);
+            if (existing != null) {
+                return existing;
             }
 
-            if (!existing.getKey().getType().equals(key.getType())) {
-                throw new ClassCastException("Cannot cast key with id " + key.getId() + " with type " + key.getType().getRawType() + " to existing stored type " + existing.getKey().getType().getRawType());
-            }
+            T t = def.get();
+            Objects.requireNonNull(t, "supplied def");
 
-            return key.cast(existing.getValue());
+            store(key, t);
+            return t;
         } finally {
             this.lock.unlock();
         }
@@ -238,58 +216,29 @@ final class MetadataMapImpl implements MetadataMap {
         Objects.requireNonNull(key, "key");
         Objects.requireNonNull(def, "def");
 
+        T existing = internalGet(key);
+        if (existing != null) {
+            return existing;
+        }
+
         this.lock.lock();
         try {
-            Map.Entry<MetadataKey<?>, Object> existing = null;
-
-            // try to locate an existing entry, and expire any values at the same time.
-            Iterator<Map.Entry<MetadataKey<?>, Object>> it = this.map.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<MetadataKey<?>, Object> kv = it.next();
-
-                if (kv.getValue() instanceof TransientValue<?>) {
-                    TransientValue<?> transientValue = ((TransientValue) kv.getValue());
-
-                    Object unboxed = transientValue.getOrNull();
-
-                    // if it has expired
-                    if (unboxed == null) {
-                        it.remove();
-                        continue;
-                    }
-
-                    // copy out the unboxed value
-                    if (kv.getKey().equals(key)) {
-                        existing = Maps.immutableEntry(kv.getKey(), unboxed);
-                        break;
-                    }
-
-                } else {
-                    if (kv.getKey().equals(key)) {
-                        existing = kv;
-                        break;
-                    }
-                }
+            // check again now we hold the lock
+            existing = internalGet(key);
+            if (existing != null) {
+                return existing;
             }
 
-            if (existing == null) {
-                TransientValue<T> t = def.get();
-                Objects.requireNonNull(t, "supplied def");
-
-                T value = t.getOrNull();
-                if (value == null) {
-                    throw new IllegalArgumentException("Transient value already expired: " + t);
-                }
+            TransientValue<T> t = def.get();
+            Objects.requireNonNull(t, "supplied def");
 
-                this.map.put(key, t);
-                return value;
+            T value = t.getOrNull();
+            if (value == null) {
+                throw new IllegalArgumentException("Transient value already expired: " + t);
             }
 
-            if (!existing.getKey().getType().equals(key.getType())) {
-                throw new ClassCastException("Cannot cast key with id " + key.getId() + " with type " + key.getType().getRawType() + " to existing stored type " + existing.getKey().getType().getRawType());
-            }
-
-            return key.cast(existing.getValue());
+            store(key, t);
+            return value;
         } finally {
             this.lock.unlock();
         }
@@ -299,87 +248,126 @@ final class MetadataMapImpl implements MetadataMap {
     public boolean has(@NonNull MetadataKey<?> key) {
         Objects.requireNonNull(key, "key");
 
-        this.lock.lock();
-        try {
-            Map.Entry<MetadataKey<?>, Object> existing = null;
-
-            // try to locate an existing entry, and expire any values at the same time.
-            Iterator<Map.Entry<MetadataKey<?>, Object>> it = this.map.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<MetadataKey<?>, Object> kv = it.next();
-
-                if (kv.getValue() instanceof TransientValue<?>) {
-                    TransientValue<?> transientValue = ((TransientValue) kv.getValue());
-
-                    if (transientValue.shouldExpire()) {
-                        it.remove();
-                        continue;
-                    }
-                }
-
-                if (kv.getKey().equals(key)) {
-                    existing = kv;
-                    break;
-                }
-            }
-
-            return existing != null && existing.getKey().getType().equals(key.getType());
-        } finally {
-            this.lock.unlock();
-        }
+        Entry entry = live(key);
+        return entry != null && entry.key.getType().equals(key.getType());
     }
 
     @Override
     public boolean remove(@NonNull MetadataKey<?> key) {
         Objects.requireNonNull(key, "key");
-
-        this.lock.lock();
-        try {
-            return this.map.remove(key) != null;
-        } finally {
-            this.lock.unlock();
+        if (this.map.remove(key) == null) {
+            return false;
         }
+        emptied();
+        return true;
     }
 
     @Override
     public void clear() {
-        this.lock.lock();
-        try {
-            this.map.clear();
-        } finally {
-            this.lock.unlock();
+        this.map.clear();
+        emptied();
+    }
+
+    // a map holding only permanent values isn't scheduled, so has to be scheduled once it's empty
+    private void emptied() {
+        if (this.handle != null && this.map.isEmpty()) {
+            this.handle.emptied();
         }
     }
 
     @NonNull
     @Override
     public ImmutableMap<MetadataKey<?>, Object> asMap() {
-        this.lock.lock();
-        try {
-            return ImmutableMap.copyOf(this.map);
-        } finally {
-            this.lock.unlock();
+        ImmutableMap.Builder<MetadataKey<?>, Object> builder = ImmutableMap.builder();
+        for (Entry entry : this.map.values()) {
+            builder.put(entry.key, entry.value);
         }
+        return builder.build();
     }
 
     @Override
     public boolean isEmpty() {
-        this.lock.lock();
-        try {
-            cleanup();
-            return this.map.isEmpty();
-        } finally {
-            this.lock.unlock();
-        }
+        cleanup();
+        return this.map.isEmpty();
     }
 
     @Override
     public void cleanup() {
-        this.lock.lock();
-        try {
-            this.map.values().removeIf(o -> o instanceof TransientValue<?> && ((TransientValue) o).shouldExpire());
-        } finally {
-            this.lock.unlock();
+        this.map.values().removeIf(Entry::isExpired);
+    }
+
+    /**
+     * Removes expired values from the map.
+     *
+     * @return the number of values removed
+     */
+    int sweep() {
+        int removed = 0;
+        for (Entry entry : this.map.values()) {
+            if (entry.isExpired() && this.map.remove(entry.key, entry)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the earliest time at which a value in this map is expected to expire.
+     *
+     * @return the earliest expiry time, or {@link Long#MAX_VALUE} if no values will expire
+     */
+    long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        if (this.handle == null) {
+            return next;
+        }
+        for (Entry entry : this.map.values()) {
+            if (entry.value instanceof TransientValue<?>) {
+                next = Math.min(next, this.handle.deadline((TransientValue<?>) entry.value));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Stops the sweeper from visiting this map, after it has been removed from its registry.
+     */
+    void untrack() {
+        if (this.handle != null) {
+            this.handle.cancel();
+        }
+    }
+
+    /**
+     * A stored value, along with the key it was stored with.
+     */
+    private static final class Entry {
+        private final MetadataKey<?> key;
+        private final Object value;
+
+        Entry(MetadataKey<?> key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Gets the value, unboxing it if it is a {@link TransientValue}.
+         *
+         * @return the value, or null if it has expired
+         */
+        @Nullable
+        Object unbox() {
+            return this.value instanceof TransientValue<?> ? ((TransientValue<?>) this.value).getOrNull() : this.value;
+        }
+
+        boolean isExpired() {
+            return this.value instanceof TransientValue<?> && ((TransientValue<?>) this.value).shouldExpire();
+        }
+
+        void checkType(MetadataKey<?> key) {
+            if (!this.key.getType().equals(key.getType())) {
+                throw new ClassCastException("Cannot cast key with id " + key.getId() + " with type " + key.getType().getRawType() + " to existing stored type " + this.key.getType().getRawType());
+            }
         }
     }
 
@@ -0,0 +1,367 @@
+package com.pepej.papi.metadata;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import com.pepej.papi.scheduler.Schedulers;
+import com.pepej.papi.scheduler.Task;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Incrementally removes expired values, and then empty maps, from {@link AbstractMetadataRegistry}s.
+ *
+ * <p>Each map provided by a registry is indexed in a hashed timing wheel by the time
+ * its next {@link TransientValue} is due to expire. Every tick the sweeper collects the
+ * maps which have become due, and visits at most {@link #getMaxVisitsPerTick()} of them,
+ * carrying any remainder over to the next tick. Maps which hold no transient values are
+ * not visited at all, other than once shortly after they are created, and once shortly
+ * after they are emptied by {@link MetadataMap#remove(MetadataKey)} or
+ * {@link MetadataMap#clear()}.</p>
+ *
+ * <p>The expiry time of {@link SoftValue}s, {@link WeakValue}s and custom
+ * {@link TransientValue} implementations can't be known ahead of time, so maps holding
+ * them are re-checked periodically.</p>
+ */
+public final class MetadataSweeper {
+    private static final MetadataSweeper INSTANCE = new MetadataSweeper(1000, 64, 1000, System::currentTimeMillis);
+
+    /**
+     * Gets the sweeper used by registries which aren't given one explicitly.
+     *
+     * @return the shared sweeper
+     */
+    @NonNull
+    public static MetadataSweeper get() {
+        return INSTANCE;
+    }
+
+    // the deadline of a handle which is not in the wheel
+    private static final long UNSCHEDULED = Long.MAX_VALUE;
+    // the deadline of a handle whose map has been removed from its registry
+    private static final long CANCELLED = Long.MIN_VALUE;
+
+    private final long tickMillis;
+    private final int mask;
+    private final int maxVisitsPerTick;
+    private final LongSupplier clock;
+
+    private final Queue<Node>[] wheel;
+    // the next tick to be collected from the wheel
+    private volatile long cursor;
+
+    // nodes which are due, but have not yet been visited. only accessed by the sweeping thread
+    private final ArrayDeque<Node> due = new ArrayDeque<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    @Nullable
+    private volatile Task task = null;
+
+    private final AtomicInteger trackedMaps = new AtomicInteger();
+    private final AtomicInteger scheduledMaps = new AtomicInteger();
+    private final AtomicLong visitedMaps = new AtomicLong();
+    private final AtomicLong sweptValues = new AtomicLong();
+    private final AtomicLong sweptMaps = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    MetadataSweeper(long tickMillis, int wheelSize, int maxVisitsPerTick, @NonNull LongSupplier clock) {
+        Preconditions.checkArgument(tickMillis > 0, "tickMillis must be > 0");
+        Preconditions.checkArgument(wheelSize > 0 && (wheelSize & (wheelSize - 1)) == 0, "wheelSize must be a power of two");
+        Preconditions.checkArgument(maxVisitsPerTick > 0, "maxVisitsPerTick must be > 0");
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.maxVisitsPerTick = maxVisitsPerTick;
+        this.clock = clock;
+        this.wheel = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            this.wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.cursor = clock.getAsLong() / tickMillis;
+    }
+
+    /**
+     * Starts sweeping on the async scheduler, if the sweeper hasn't been started already.
+     */
+    public void start() {
+        if (this.started.getAndSet(true)) {
+            return;
+        }
+        this.task = Schedulers.async().runRepeating(this::tick, this.tickMillis, TimeUnit.MILLISECONDS, this.tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sweeping. Maps continue to be indexed, and will be swept if the sweeper is started again.
+     */
+    public void stop() {
+        Task task = this.task;
+        if (task != null) {
+            task.stop();
+            this.task = null;
+        }
+        this.started.set(false);
+    }
+
+    /**
+     * Creates a map for the given registry entry, and starts tracking it.
+     *
+     * @param registry the registry
+     * @param id the id of the entry
+     * @return the map
+     */
+    MetadataMapImpl track(AbstractMetadataRegistry<?> registry, Object id) {
+        Handle handle = new Handle(this, registry, id);
+        this.trackedMaps.incrementAndGet();
+        // check back soon, so maps which are provided but never used don't hang around
+        handle.schedule(nextLap());
+        return handle.map;
+    }
+
+    // a lap of the wheel from now
+    private long nextLap() {
+        return this.clock.getAsLong() + this.tickMillis * (this.mask + 1);
+    }
+
+    private void enqueue(Node node) {
+        long tick = Math.max(node.deadline / this.tickMillis, this.cursor);
+        // if the cursor moves past this tick concurrently, the node is visited one lap late
+        this.wheel[(int) (tick & this.mask)].add(node);
+        this.scheduledMaps.incrementAndGet();
+    }
+
+    /**
+     * Collects the maps which are due from the wheel, and visits a bounded number of them.
+     */
+    void tick() {
+        if (!this.sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = this.clock.getAsLong();
+            collect(now);
+
+            Node node;
+            for (int i = 0; i < this.maxVisitsPerTick && (node = this.due.poll()) != null; i++) {
+                this.scheduledMaps.decrementAndGet();
+                visit(node);
+            }
+        } finally {
+            this.sweeping.set(false);
+        }
+    }
+
+    private void collect(long now) {
+        long target = now / this.tickMillis;
+        long cursor = this.cursor;
+        if (target - cursor > this.mask) {
+            // we've fallen more than a lap behind - there's no point in visiting a slot twice
+            cursor = target - this.mask;
+        }
+
+        List<Node> notDue = new ArrayList<>();
+        for (; cursor <= target; cursor++) {
+            Queue<Node> slot = this.wheel[(int) (cursor & this.mask)];
+            Node node;
+            while ((node = slot.poll()) != null) {
+                if (node.deadline / this.tickMillis <= target) {
+                    this.due.add(node);
+                } else {
+                    // due in a later lap of the wheel
+                    notDue.add(node);
+                }
+            }
+            slot.addAll(notDue);
+            notDue.clear();
+        }
+        this.cursor = cursor;
+    }
+
+    private void visit(Node node) {
+        Handle handle = node.handle;
+        if (!handle.deadline.compareAndSet(node.deadline, UNSCHEDULED)) {
+            // the map has since been scheduled for an earlier time, or removed
+            return;
+        }
+        this.visitedMaps.incrementAndGet();
+
+        MetadataMapImpl map = handle.map;
+        int removed = map.sweep();
+        if (removed != 0) {
+            this.sweptValues.addAndGet(removed);
+        }
+
+        long next = map.nextDeadline();
+        if (next != UNSCHEDULED) {
+            handle.schedule(next);
+        } else if (map.isEmpty() && handle.registry.cache.asMap().remove(handle.id, map)) {
+            // as with AbstractMetadataRegistry#cleanup, values put concurrently with removal are lost
+            handle.cancel();
+            this.sweptMaps.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the estimated time at which the given value will expire.
+     *
+     * @param value the value
+     * @return the estimated expiry time, in milliseconds since the epoch
+     */
+    long deadline(TransientValue<?> value) {
+        if (value instanceof ExpiringValue<?>) {
+            return ((ExpiringValue<?>) value).getExpireAt();
+        }
+        if (value instanceof ExpireAfterAccessValue<?>) {
+            return ((ExpireAfterAccessValue<?>) value).getExpireAt();
+        }
+        // not known, check again in a lap's time
+        return nextLap();
+    }
+
+    /**
+     * Gets the maximum number of maps visited by a single tick of the sweeper.
+     *
+     * @return the maximum number of maps visited per tick
+     */
+    public int getMaxVisitsPerTick() {
+        return this.maxVisitsPerTick;
+    }
+
+    /**
+     * Gets the number of maps which are currently held by registries using this sweeper.
+     *
+     * @return the number of live maps
+     */
+    public int getTrackedMaps() {
+        return this.trackedMaps.get();
+    }
+
+    /**
+     * Gets the number of maps which are waiting to be visited, including those
+     * which are due but have been deferred to a later tick.
+     *
+     * @return the number of scheduled maps
+     */
+    public int getScheduledMaps() {
+        return this.scheduledMaps.get();
+    }
+
+    /**
+     * Gets the number of maps which have been visited.
+     *
+     * @return the number of visited maps
+     */
+    public long getVisitedMaps() {
+        return this.visitedMaps.get();
+    }
+
+    /**
+     * Gets the number of expired values which have been removed.
+     *
+     * @return the number of swept values
+     */
+    public long getSweptValues() {
+        return this.sweptValues.get();
+    }
+
+    /**
+     * Gets the number of empty maps which have been removed from their registry.
+     *
+     * @return the number of swept maps
+     */
+    public long getSweptMaps() {
+        return this.sweptMaps.get();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("trackedMaps", getTrackedMaps())
+                          .add("scheduledMaps", getScheduledMaps())
+                          .add("visitedMaps", getVisitedMaps())
+                          .add("sweptValues", getSweptValues())
+                          .add("sweptMaps", getSweptMaps())
+                          .toString();
+    }
+
+    /**
+     * Links a map to the registry entry it belongs to, and tracks when it is next due to be visited.
+     */
+    static final class Handle {
+        private final MetadataSweeper sweeper;
+        private final AbstractMetadataRegistry<?> registry;
+        private final Object id;
+        private final MetadataMapImpl map;
+        private final AtomicLong deadline = new AtomicLong(UNSCHEDULED);
+
+        private Handle(MetadataSweeper sweeper, AbstractMetadataRegistry<?> registry, Object id) {
+            this.sweeper = sweeper;
+            this.registry = registry;
+            this.id = id;
+            this.map = new MetadataMapImpl(this);
+        }
+
+        /**
+         * Called when a transient value is put into the map.
+         *
+         * @param value the value
+         */
+        void scheduled(TransientValue<?> value) {
+            schedule(this.sweeper.deadline(value));
+        }
+
+        /**
+         * Gets the estimated time at which the given value will expire.
+         *
+         * @param value the value
+         * @return the estimated expiry time
+         */
+        long deadline(TransientValue<?> value) {
+            return this.sweeper.deadline(value);
+        }
+
+        /**
+         * Called when the last value is removed from the map.
+         */
+        void emptied() {
+            // wait a lap before removing the map, in case it is about to be used again
+            schedule(this.sweeper.nextLap());
+        }
+
+        void schedule(long deadline) {
+            long current;
+            do {
+                current = this.deadline.get();
+                if (current == CANCELLED || current <= deadline) {
+                    // removed, or already due to be visited first
+                    return;
+                }
+            } while (!this.deadline.compareAndSet(current, deadline));
+            this.sweeper.enqueue(new Node(this, deadline));
+        }
+
+        void cancel() {
+            if (this.deadline.getAndSet(CANCELLED) != CANCELLED) {
+                this.sweeper.trackedMaps.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Node {
+        private final Handle handle;
+        private final long deadline;
+
+        Node(Handle handle, long deadline) {
+            this.handle = handle;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.pepej.papi.network;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.gson.JsonElement;
 import com.pepej.papi.event.bus.method.EventExecutor;
 import com.pepej.papi.event.bus.method.MethodHandleEventExecutorFactory;
@@ -9,6 +11,7 @@ import com.pepej.papi.event.bus.method.MethodSubscriptionAdapter;
 import com.pepej.papi.event.bus.method.SimpleMethodSubscriptionAdapter;
 import com.pepej.papi.scheduler.Schedulers;
 import com.pepej.papi.cooldown.Cooldown;
+import com.pepej.papi.event.bus.api.DispatchMode;
 import com.pepej.papi.event.bus.api.EventBus;
 import com.pepej.papi.event.bus.api.EventSubscriber;
 import com.pepej.papi.event.bus.api.PostResult;
@@ -36,22 +39,51 @@ import org.jetbrains.annotations.Nullable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import static com.pepej.papi.text.Text.colorize;
 
 public class AbstractNetwork implements Network {
+    private static final long TIME_SYNC_THRESHOLD = TimeUnit.SECONDS.toMillis(2);
+
     protected final CompositeTerminable compositeTerminable = CompositeTerminable.create();
 
     protected final Messenger messenger;
     protected final InstanceData instanceData;
-    private final EventBus<NetworkEvent> eventBus = new SimpleEventBus<>(NetworkEvent.class);
+    private final EventBus<NetworkEvent> eventBus = new SimpleEventBus<>(NetworkEvent.class, DispatchMode.COPY_ON_WRITE);
     private final List<ServerMetadataProvider> metadataProviders = new CopyOnWriteArrayList<>();
     private final Map<String, ServerImpl> servers = new ConcurrentHashMap<>();
 
+    // uuid --> the server the player is connected to, maintained as status messages are applied
+    private final Map<UUID, PlayerEntry> playerIndex = new ConcurrentHashMap<>();
+    private final Map<UUID, Profile> onlinePlayers = Collections.unmodifiableMap(
+            Maps.transformValues(Maps.filterValues(this.playerIndex, e -> e.server.isOnline()), e -> e.profile)
+    );
+
+    private final Channel<StatusMessage> statusChannel;
+    private final Channel<StatusDelta> statusDeltaChannel;
+    private final StatusPublisher statusPublisher;
+    private final boolean legacyStatus;
+
     public AbstractNetwork(Messenger messenger, InstanceData instanceData) {
+        this(messenger, instanceData, false);
+    }
+
+    /**
+     * Creates a new network.
+     *
+     * @param messenger the messenger
+     * @param instanceData the instance data
+     * @param legacyStatus if the full status should also be published on the
+     *                     'pnet-status' channel, for servers which don't
+     *                     understand status deltas. Off by default, as every
+     *                     receiver has to decode it
+     */
+    public AbstractNetwork(Messenger messenger, InstanceData instanceData, boolean legacyStatus) {
         this.messenger = messenger;
         this.instanceData = instanceData;
+        this.legacyStatus = legacyStatus;
 
         /*
          * Handle connect / disconnect messages.
@@ -105,20 +137,27 @@ public class AbstractNetwork implements Network {
 
         /*
          * Handle status messages.
-         * These are sent via the 'pnet-status' channel.
+         * These are sent via the 'pnet-status-delta' channel, as a snapshot
+         * of the server status followed by the changes to it.
+         *
+         * Full status messages are still accepted via the 'pnet-status' channel,
+         * from servers which don't send deltas, and are only sent if legacyStatus
+         * is enabled.
          */
 
-        Channel<StatusMessage> statusChannel = messenger.getChannel("pnet-status", StatusMessage.class);
+        this.statusChannel = messenger.getChannel("pnet-status", StatusMessage.class);
+        // incoming (legacy)
+        this.statusChannel.newAgent((agent, message) -> handleIncomingLegacyStatusMessage(message)).bindWith(this.compositeTerminable);
+
+        this.statusDeltaChannel = messenger.getChannel("pnet-status-delta", StatusDelta.class);
+        this.statusPublisher = new StatusPublisher();
         // incoming
-        statusChannel.newAgent((agent, message) -> handleIncomingStatusMessage(message)).bindWith(this.compositeTerminable);
+        this.statusDeltaChannel.newAgent((agent, message) -> handleIncomingStatusDelta(message)).bindWith(this.compositeTerminable);
         // outgoing
         Schedulers.builder()
                 .async()
                 .afterAndEvery(3, TimeUnit.SECONDS)
-                .run(() -> {
-                    StatusMessage msg = produceStatusMessage();
-                    statusChannel.sendMessage(msg);
-                })
+                .run(this.statusPublisher::publish)
                 .bindWith(this.compositeTerminable);
     }
 
@@ -169,6 +208,32 @@ public class AbstractNetwork implements Network {
         return server;
     }
 
+    private void handleIncomingLegacyStatusMessage(StatusMessage message) {
+        ServerImpl server = this.servers.get(message.id);
+        if (server != null && server.isSendingDeltas()) {
+            // the server sends both, and the deltas are already being applied
+            return;
+        }
+        handleIncomingStatusMessage(message);
+    }
+
+    private void handleIncomingStatusDelta(StatusDelta message) {
+        if (message.type == StatusDelta.Type.RESYNC) {
+            if (this.instanceData.getId().equals(message.target)) {
+                this.statusPublisher.resyncRequested = true;
+            }
+            return;
+        }
+
+        ServerImpl server = this.servers.computeIfAbsent(message.id, ServerImpl::new);
+        if (server.loadData(message)) {
+            postEvent(new ServerStatusEvent(server));
+        } else if (server.resyncCooldown.testAndReset()) {
+            // we've missed a message, ask the server for a snapshot
+            this.statusDeltaChannel.sendMessage(StatusDelta.resync(this.instanceData.getId(), message.id));
+        }
+    }
+
     @Override
     public Map<String, Server> getServers() {
         return Collections.unmodifiableMap(this.servers);
@@ -181,11 +246,7 @@ public class AbstractNetwork implements Network {
 
     @Override
     public Map<UUID, Profile> getOnlinePlayers() {
-        Map<UUID, Profile> players = new HashMap<>();
-        for (Server server : this.servers.values()) {
-            players.putAll(server.getOnlinePlayers());
-        }
-        return Collections.unmodifiableMap(players);
+        return this.onlinePlayers;
     }
 
     @Override
@@ -208,19 +269,122 @@ public class AbstractNetwork implements Network {
         this.compositeTerminable.closeAndReportException();
     }
 
-    private static final class ServerImpl implements Server {
-        private static final long TIME_SYNC_THRESHOLD = TimeUnit.SECONDS.toMillis(2);
+    /**
+     * Publishes the status of this server as a sequence of deltas.
+     */
+    private final class StatusPublisher {
+        // the number of deltas to send between snapshots
+        private static final int SNAPSHOT_INTERVAL = 10;
+
+        private final long epoch = ThreadLocalRandom.current().nextLong();
+        private long sequence = 0;
+        private int sinceSnapshot = 0;
+        // always start with a snapshot
+        private volatile boolean resyncRequested = true;
+
+        // the status as of the last message sent
+        private List<String> groups = ImmutableList.of();
+        private Map<UUID, String> players = ImmutableMap.of();
+        private Map<String, JsonElement> metadata = ImmutableMap.of();
+
+        synchronized void publish() {
+            StatusMessage status = produceStatusMessage();
+
+            StatusDelta msg = new StatusDelta();
+            msg.id = status.id;
+            msg.epoch = this.epoch;
+            msg.sequence = ++this.sequence;
+            msg.time = status.time;
+            msg.maxPlayers = status.maxPlayers;
+            msg.whitelisted = status.whitelisted;
+
+            if (this.resyncRequested || ++this.sinceSnapshot >= SNAPSHOT_INTERVAL) {
+                this.resyncRequested = false;
+                this.sinceSnapshot = 0;
+
+                msg.type = StatusDelta.Type.SNAPSHOT;
+                msg.groups = status.groups;
+                msg.joined = status.players;
+                msg.metadata = status.metadata;
+            } else {
+                msg.type = StatusDelta.Type.DELTA;
+                if (!status.groups.equals(this.groups)) {
+                    msg.groups = status.groups;
+                }
+
+                Map<UUID, String> joined = new HashMap<>();
+                for (Map.Entry<UUID, String> p : status.players.entrySet()) {
+                    if (!p.getValue().equals(this.players.get(p.getKey()))) {
+                        joined.put(p.getKey(), p.getValue());
+                    }
+                }
+                List<UUID> left = new ArrayList<>();
+                for (UUID uuid : this.players.keySet()) {
+                    if (!status.players.containsKey(uuid)) {
+                        left.add(uuid);
+                    }
+                }
+
+                Map<String, JsonElement> metadata = new HashMap<>();
+                for (Map.Entry<String, JsonElement> m : status.metadata.entrySet()) {
+                    if (!m.getValue().equals(this.metadata.get(m.getKey()))) {
+                        metadata.put(m.getKey(), m.getValue());
+                    }
+                }
+                List<String> removedMetadata = new ArrayList<>();
+                for (String key : this.metadata.keySet()) {
+                    if (!status.metadata.containsKey(key)) {
+                        removedMetadata.add(key);
+                    }
+                }
+
+                msg.joined = joined;
+                msg.left = left;
+                msg.metadata = metadata;
+                msg.removedMetadata = removedMetadata;
+            }
+
+            this.groups = status.groups;
+            this.players = status.players;
+            this.metadata = status.metadata;
+
+            // an empty delta still acts as a heartbeat
+            AbstractNetwork.this.statusDeltaChannel.sendMessage(msg);
+            if (AbstractNetwork.this.legacyStatus) {
+                AbstractNetwork.this.statusChannel.sendMessage(status);
+            }
+        }
+    }
+
+    private static final class PlayerEntry {
+        private final ServerImpl server;
+        private final Profile profile;
 
+        PlayerEntry(ServerImpl server, Profile profile) {
+            this.server = server;
+            this.profile = profile;
+        }
+    }
+
+    private final class ServerImpl implements Server {
         private final String id;
 
         private long lastPing = 0;
+        private volatile long lastDelta = 0;
         private Set<String> groups = ImmutableSet.of();
-        private Map<UUID, Profile> players = ImmutableMap.of();
+        private final Map<UUID, Profile> players = new ConcurrentHashMap<>();
+        private final Map<UUID, Profile> playersView = Collections.unmodifiableMap(this.players);
         private int maxPlayers = 0;
         private boolean whitelisted = false;
-        private Map<String, JsonElement> metadata;
+        private Map<String, JsonElement> metadata = ImmutableMap.of();
+
+        // the position of the last status delta applied, if synced
+        private boolean synced = false;
+        private long epoch;
+        private long sequence;
 
         private final Cooldown timeSyncWarningCooldown = Cooldown.of(5, TimeUnit.SECONDS);
+        private final Cooldown resyncCooldown = Cooldown.of(3, TimeUnit.SECONDS);
 
         ServerImpl(String id) {
             this.id = id;
@@ -240,20 +404,109 @@ public class AbstractNetwork implements Network {
             }
         }
 
-        private void loadData(StatusMessage msg) {
+        private synchronized void loadData(StatusMessage msg) {
             checkTimeSync(msg.time);
 
             this.lastPing = msg.time;
             this.groups = ImmutableSet.copyOf(msg.groups);
+            setPlayers(msg.players);
+            this.maxPlayers = msg.maxPlayers;
+            this.whitelisted = msg.whitelisted;
+            this.metadata = ImmutableMap.copyOf(msg.metadata);
+
+            // full status messages aren't sequenced, so any following delta can't be applied
+            this.synced = false;
+        }
+
+        /**
+         * Applies a status delta.
+         *
+         * @return false if a previous message was missed, and the delta could not be applied
+         */
+        private synchronized boolean loadData(StatusDelta msg) {
+            checkTimeSync(msg.time);
+            this.lastDelta = System.currentTimeMillis();
+
+            if (this.synced && msg.epoch == this.epoch && msg.sequence <= this.sequence) {
+                // duplicate or out of date
+                return true;
+            }
+
+            if (msg.type == StatusDelta.Type.SNAPSHOT) {
+                this.synced = true;
+                this.epoch = msg.epoch;
+                this.sequence = msg.sequence;
+
+                this.groups = ImmutableSet.copyOf(msg.groups);
+                setPlayers(msg.joined);
+                this.metadata = ImmutableMap.copyOf(msg.metadata);
+            } else {
+                // the server is still alive, even if we can't apply the delta
+                this.lastPing = Math.max(this.lastPing, msg.time);
+
+                if (!this.synced || msg.epoch != this.epoch) {
+                    return false;
+                }
+                if (msg.sequence != this.sequence + 1) {
+                    this.synced = false;
+                    return false;
+                }
+                this.sequence = msg.sequence;
 
-            ImmutableMap.Builder<UUID, Profile> players = ImmutableMap.builder();
-            for (Map.Entry<UUID, String> p : msg.players.entrySet()) {
-                players.put(p.getKey(), Profile.create(p.getKey(), p.getValue()));
+                if (msg.groups != null) {
+                    this.groups = ImmutableSet.copyOf(msg.groups);
+                }
+                msg.left.forEach(this::playerLeft);
+                msg.joined.forEach(this::playerJoined);
+                if (!msg.metadata.isEmpty() || !msg.removedMetadata.isEmpty()) {
+                    Map<String, JsonElement> metadata = new HashMap<>(this.metadata);
+                    metadata.putAll(msg.metadata);
+                    metadata.keySet().removeAll(msg.removedMetadata);
+                    this.metadata = ImmutableMap.copyOf(metadata);
+                }
             }
-            this.players = players.build();
+
+            this.lastPing = msg.time;
             this.maxPlayers = msg.maxPlayers;
             this.whitelisted = msg.whitelisted;
-            this.metadata = ImmutableMap.copyOf(msg.metadata);
+            return true;
+        }
+
+        private void setPlayers(Map<UUID, String> players) {
+            for (UUID uuid : new ArrayList<>(this.players.keySet())) {
+                if (!players.containsKey(uuid)) {
+                    playerLeft(uuid);
+                }
+            }
+            players.forEach(this::playerJoined);
+        }
+
+        private void playerJoined(UUID uuid, String name) {
+            Profile profile = Profile.create(uuid, name);
+            this.players.put(uuid, profile);
+            AbstractNetwork.this.playerIndex.put(uuid, new PlayerEntry(this, profile));
+        }
+
+        private void playerLeft(UUID uuid) {
+            if (this.players.remove(uuid) == null) {
+                return;
+            }
+
+            Map<UUID, PlayerEntry> index = AbstractNetwork.this.playerIndex;
+            PlayerEntry entry = index.get(uuid);
+            if (entry == null || entry.server != this || !index.remove(uuid, entry)) {
+                // the player has already been indexed against another server
+                return;
+            }
+
+            // the player may have joined another server before leaving this one
+            for (ServerImpl server : AbstractNetwork.this.servers.values()) {
+                Profile profile = server.players.get(uuid);
+                if (profile != null) {
+                    index.putIfAbsent(uuid, new PlayerEntry(server, profile));
+                    break;
+                }
+            }
         }
 
         @NonNull
@@ -268,6 +521,17 @@ public class AbstractNetwork implements Network {
             return this.groups;
         }
 
+        /**
+         * Gets if this server has recently sent a status delta, so its full
+         * status messages can be ignored.
+         *
+         * @return if the server is sending deltas
+         */
+        private boolean isSendingDeltas() {
+            long diff = System.currentTimeMillis() - this.lastDelta;
+            return diff < TimeUnit.SECONDS.toMillis(10);
+        }
+
         @Override
         public boolean isOnline() {
             long diff = System.currentTimeMillis() - this.lastPing;
@@ -289,7 +553,7 @@ public class AbstractNetwork implements Network {
             if (!isOnline()) {
                 return ImmutableMap.of();
             }
-            return this.players;
+            return this.playersView;
         }
 
         @Override
@@ -30,6 +30,23 @@ public interface Network extends Terminable {
         return new AbstractNetwork(messenger, instanceData);
     }
 
+    /**
+     * Creates a new {@link Network} instance. These should be shared if possible.
+     *
+     * <p>Servers publish their status as deltas. Servers running older versions
+     * only understand the full status, so while any remain on the network, the
+     * full status should also be published by passing true. It isn't published
+     * by {@link #create(Messenger, InstanceData)}.</p>
+     *
+     * @param messenger the messenger
+     * @param instanceData the instance data
+     * @param legacyStatus if the full status should also be published
+     * @return the new network
+     */
+    static Network create(Messenger messenger, InstanceData instanceData, boolean legacyStatus) {
+        return new AbstractNetwork(messenger, instanceData, legacyStatus);
+    }
+
     /**
      * Tries to obtain an instance of network from the services manager, falling
      * back to given supplier if one is not already present.
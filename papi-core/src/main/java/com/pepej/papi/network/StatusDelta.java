@@ -0,0 +1,211 @@
+package com.pepej.papi.network;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonElement;
+import com.pepej.papi.gson.GsonProvider;
+import com.pepej.papi.messaging.codec.Codec;
+import com.pepej.papi.messaging.codec.EncodingException;
+import com.pepej.papi.messaging.codec.Message;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jetbrains.annotations.ApiStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A message in the delta encoded network status protocol, sent on the {@code pnet-status-delta} channel.
+ *
+ * <p>Each server numbers the status messages it sends sequentially, within an epoch which
+ * is chosen randomly when it starts. A {@link Type#SNAPSHOT snapshot} carries the complete
+ * status of the server, and a {@link Type#DELTA delta} carries the changes since the
+ * previous message. Receivers which miss a message send a {@link Type#RESYNC resync}
+ * request, and the server replies with a snapshot.</p>
+ */
+@ApiStatus.Internal
+@Message(codec = StatusDelta.StatusDeltaCodec.class)
+public final class StatusDelta {
+    private static final byte VERSION = 1;
+
+    enum Type {
+        SNAPSHOT, DELTA, RESYNC
+    }
+
+    Type type;
+    String id;
+    long epoch;
+    long sequence;
+    long time;
+
+    // only used by resync: the id of the server which should send a snapshot
+    @Nullable String target;
+
+    int maxPlayers;
+    boolean whitelisted;
+    // only set if the groups have changed, always set for snapshots
+    @Nullable List<String> groups;
+    Map<UUID, String> joined = ImmutableMap.of();
+    List<UUID> left = ImmutableList.of();
+    Map<String, JsonElement> metadata = ImmutableMap.of();
+    List<String> removedMetadata = ImmutableList.of();
+
+    static StatusDelta resync(String id, String target) {
+        StatusDelta msg = new StatusDelta();
+        msg.type = Type.RESYNC;
+        msg.id = id;
+        msg.time = System.currentTimeMillis();
+        msg.target = target;
+        return msg;
+    }
+
+    @Override
+    public String toString() {
+        return "StatusDelta(type=" + this.type + ", id=" + this.id + ", epoch=" + this.epoch + ", sequence=" + this.sequence +
+               ", joined=" + this.joined.size() + ", left=" + this.left.size() + ", metadata=" + this.metadata.keySet() + ")";
+    }
+
+    /**
+     * Encodes {@link StatusDelta}s into a compact binary form, with metadata values as JSON.
+     */
+    public static final class StatusDeltaCodec implements Codec<StatusDelta> {
+
+        @Override
+        public byte[] encode(StatusDelta msg) throws EncodingException {
+            ByteArrayDataOutput out = ByteStreams.newDataOutput(64 + msg.joined.size() * 32 + msg.left.size() * 16);
+            out.writeByte(VERSION);
+            out.writeByte(msg.type.ordinal());
+            out.writeUTF(msg.id);
+            out.writeLong(msg.epoch);
+            out.writeLong(msg.sequence);
+            out.writeLong(msg.time);
+
+            if (msg.type == Type.RESYNC) {
+                out.writeUTF(msg.target);
+                return out.toByteArray();
+            }
+
+            out.writeInt(msg.maxPlayers);
+            out.writeBoolean(msg.whitelisted);
+
+            out.writeBoolean(msg.groups != null);
+            if (msg.groups != null) {
+                out.writeInt(msg.groups.size());
+                for (String group : msg.groups) {
+                    out.writeUTF(group);
+                }
+            }
+
+            out.writeInt(msg.joined.size());
+            for (Map.Entry<UUID, String> player : msg.joined.entrySet()) {
+                writeUuid(out, player.getKey());
+                out.writeUTF(player.getValue());
+            }
+
+            out.writeInt(msg.left.size());
+            for (UUID uuid : msg.left) {
+                writeUuid(out, uuid);
+            }
+
+            out.writeInt(msg.metadata.size());
+            for (Map.Entry<String, JsonElement> metadata : msg.metadata.entrySet()) {
+                out.writeUTF(metadata.getKey());
+                // values may be longer than writeUTF allows
+                byte[] json = GsonProvider.toString(metadata.getValue()).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(json.length);
+                out.write(json);
+            }
+
+            out.writeInt(msg.removedMetadata.size());
+            for (String key : msg.removedMetadata) {
+                out.writeUTF(key);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public StatusDelta decode(byte[] buf) throws EncodingException {
+            try {
+                ByteArrayDataInput in = ByteStreams.newDataInput(buf);
+                byte version = in.readByte();
+                if (version != VERSION) {
+                    throw new EncodingException("Unsupported status version: " + version);
+                }
+
+                StatusDelta msg = new StatusDelta();
+                msg.type = Type.values()[in.readByte()];
+                msg.id = in.readUTF();
+                msg.epoch = in.readLong();
+                msg.sequence = in.readLong();
+                msg.time = in.readLong();
+
+                if (msg.type == Type.RESYNC) {
+                    msg.target = in.readUTF();
+                    return msg;
+                }
+
+                msg.maxPlayers = in.readInt();
+                msg.whitelisted = in.readBoolean();
+
+                if (in.readBoolean()) {
+                    int n = in.readInt();
+                    ImmutableList.Builder<String> groups = ImmutableList.builder();
+                    for (int i = 0; i < n; i++) {
+                        groups.add(in.readUTF());
+                    }
+                    msg.groups = groups.build();
+                }
+
+                int n = in.readInt();
+                ImmutableMap.Builder<UUID, String> joined = ImmutableMap.builder();
+                for (int i = 0; i < n; i++) {
+                    joined.put(readUuid(in), in.readUTF());
+                }
+                msg.joined = joined.build();
+
+                n = in.readInt();
+                ImmutableList.Builder<UUID> left = ImmutableList.builder();
+                for (int i = 0; i < n; i++) {
+                    left.add(readUuid(in));
+                }
+                msg.left = left.build();
+
+                n = in.readInt();
+                ImmutableMap.Builder<String, JsonElement> metadata = ImmutableMap.builder();
+                for (int i = 0; i < n; i++) {
+                    String key = in.readUTF();
+                    byte[] json = new byte[in.readInt()];
+                    in.readFully(json);
+                    metadata.put(key, GsonProvider.parser().parse(new String(json, StandardCharsets.UTF_8)));
+                }
+                msg.metadata = metadata.build();
+
+                n = in.readInt();
+                ImmutableList.Builder<String> removed = ImmutableList.builder();
+                for (int i = 0; i < n; i++) {
+                    removed.add(in.readUTF());
+                }
+                msg.removedMetadata = removed.build();
+                return msg;
+            } catch (EncodingException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // truncated or corrupt message
+                throw new EncodingException(e);
+            }
+        }
+
+        private static void writeUuid(ByteArrayDataOutput out, UUID uuid) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+
+        private static UUID readUuid(ByteArrayDataInput in) {
+            return new UUID(in.readLong(), in.readLong());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.pepej.papi.cooldown;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CooldownMapsTest {
+
+    @Test
+    public void snapshotRoundTrip() {
+        CooldownMap<UUID> map = CooldownMap.createCompact(Cooldown.of(5, TimeUnit.SECONDS));
+        UUID tested = UUID.randomUUID();
+        UUID older = UUID.randomUUID();
+        assertTrue(map.test(tested));
+        map.setLastTested(older, System.currentTimeMillis() - 3000);
+
+        byte[] snapshot = CooldownMaps.snapshot(map);
+        CooldownMap<UUID> restored = CooldownMap.create(Cooldown.of(5, TimeUnit.SECONDS));
+        assertEquals(2, CooldownMaps.restore(restored, snapshot));
+        assertEquals(map.getLastTested(tested), restored.getLastTested(tested));
+        assertEquals(map.getLastTested(older), restored.getLastTested(older));
+        assertFalse(restored.testSilently(tested));
+
+        // restoring again doesn't overwrite anything, as nothing is newer
+        assertEquals(0, CooldownMaps.restore(restored, snapshot));
+    }
+
+    @Test
+    public void rejectsMismatchedSnapshots() {
+        CooldownMap<UUID> map = CooldownMap.createCompact(Cooldown.of(5, TimeUnit.SECONDS));
+        map.test(UUID.randomUUID());
+        byte[] snapshot = CooldownMaps.snapshot(map);
+
+        CooldownMap<UUID> other = CooldownMap.createCompact(Cooldown.of(10, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> CooldownMaps.restore(other, snapshot));
+        assertThrows(IllegalArgumentException.class, () -> CooldownMaps.restore(map, Arrays.copyOf(snapshot, snapshot.length - 4)));
+    }
+}
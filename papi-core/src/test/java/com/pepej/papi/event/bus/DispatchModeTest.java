@@ -0,0 +1,70 @@
+package com.pepej.papi.event.bus;
+
+import com.pepej.papi.event.bus.api.DispatchMode;
+import com.pepej.papi.event.bus.api.EventBus;
+import com.pepej.papi.event.bus.api.EventSubscriber;
+import com.pepej.papi.event.bus.api.PostOrders;
+import com.pepej.papi.event.bus.api.SimpleEventBus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DispatchModeTest {
+
+    @Test
+    public void testRegisterAndUnregister() {
+        for (DispatchMode mode : DispatchMode.values()) {
+            testRegisterAndUnregister(mode);
+        }
+    }
+
+    private void testRegisterAndUnregister(DispatchMode mode) {
+        EventBus<Object> bus = new SimpleEventBus<>(Object.class, mode);
+        List<String> calls = new ArrayList<>();
+
+        // resolve the dispatch table before anything is registered
+        bus.post(new Child());
+
+        EventSubscriber<Parent> parent = event -> calls.add("parent");
+        EventSubscriber<Child> child = new EventSubscriber<Child>() {
+            @Override
+            public void invoke(Child event) {
+                calls.add("child");
+            }
+
+            @Override
+            public int postOrder() {
+                return PostOrders.EARLY;
+            }
+        };
+        bus.register(Parent.class, parent);
+        bus.register(Child.class, child);
+
+        bus.post(new Child());
+        bus.post(new Parent());
+        assertEquals(Arrays.asList("child", "parent", "parent"), calls);
+
+        calls.clear();
+        bus.unregister(parent);
+        bus.post(new Child());
+        bus.post(new Parent());
+        assertEquals(Arrays.asList("child"), calls);
+        assertTrue(bus.hasSubscribers(Child.class));
+        assertFalse(bus.hasSubscribers(Parent.class));
+
+        bus.unregisterAll();
+        assertFalse(bus.hasSubscribers(Child.class));
+    }
+
+    private static class Parent {
+    }
+
+    private static class Child extends Parent {
+    }
+}
@@ -0,0 +1,87 @@
+package com.pepej.papi.event.bus.method;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LambdaEventExecutorFactoryTest {
+
+    public static class Listener {
+        public void onEvent(AtomicInteger event) {
+            event.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void invokesListener() throws Throwable {
+        assertInvokes(new Listener());
+    }
+
+    @Test
+    public void invokesListenerFromAnotherClassLoader() throws Throwable {
+        Class<?> type = new IsolatingClassLoader(Listener.class).loadClass(Listener.class.getName());
+        assertNotSame(Listener.class, type);
+        assertInvokes(type.getConstructor().newInstance());
+    }
+
+    private static void assertInvokes(Object listener) throws Throwable {
+        LambdaEventExecutorFactory<Object, Object> factory = new LambdaEventExecutorFactory<>();
+        Method method = listener.getClass().getMethod("onEvent", AtomicInteger.class);
+        EventExecutor<Object, Object> executor = factory.create(listener, method);
+
+        AtomicInteger calls = new AtomicInteger();
+        executor.invoke(listener, calls);
+        executor.invoke(listener, calls);
+        assertEquals(2, calls.get());
+    }
+
+    /**
+     * Defines its own copy of a class, as a plugin class loader would.
+     */
+    private static final class IsolatingClassLoader extends ClassLoader {
+        private final Class<?> isolated;
+
+        private IsolatingClassLoader(Class<?> isolated) {
+            super(isolated.getClassLoader());
+            this.isolated = isolated;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(this.isolated.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    byte[] bytes = read(name.replace('.', '/') + ".class");
+                    loaded = defineClass(name, bytes, 0, bytes.length);
+                }
+                return loaded;
+            }
+        }
+
+        private byte[] read(String resource) throws ClassNotFoundException {
+            try (InputStream in = getParent().getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new ClassNotFoundException(resource);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new ClassNotFoundException(resource, e);
+            }
+        }
+    }
+}
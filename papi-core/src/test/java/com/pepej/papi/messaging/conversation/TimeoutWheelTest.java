@@ -0,0 +1,76 @@
+package com.pepej.papi.messaging.conversation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeoutWheelTest {
+    private final AtomicLong now = new AtomicLong();
+    private final TimeoutWheel wheel = new TimeoutWheel(10, 8, this.now::get, Runnable::run);
+
+    private void advance(long millis) {
+        this.now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        this.wheel.tick();
+    }
+
+    @Test
+    public void expiresTimeoutsInLaterLaps() {
+        AtomicInteger expired = new AtomicInteger();
+        this.wheel.schedule(expired::incrementAndGet, 25, TimeUnit.MILLISECONDS);
+        // more than a lap of the wheel away
+        this.wheel.schedule(expired::incrementAndGet, 205, TimeUnit.MILLISECONDS);
+        assertEquals(2, this.wheel.getPending());
+
+        // never early
+        advance(20);
+        assertEquals(0, expired.get());
+        advance(10);
+        assertEquals(1, expired.get());
+
+        advance(170);
+        assertEquals(1, expired.get());
+        advance(10);
+        assertEquals(2, expired.get());
+        assertEquals(0, this.wheel.getPending());
+    }
+
+    @Test
+    public void cancelledTimeoutsDoNotFire() {
+        AtomicInteger expired = new AtomicInteger();
+        TimeoutWheel.Timeout linked = this.wheel.schedule(expired::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        advance(10);
+        TimeoutWheel.Timeout unlinked = this.wheel.schedule(expired::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(linked.cancel());
+        assertTrue(unlinked.cancel());
+        assertFalse(linked.cancel());
+        assertEquals(0, this.wheel.getPending());
+
+        advance(1000);
+        assertEquals(0, expired.get());
+    }
+
+    @Test
+    public void catchesUpAfterFallingBehind() {
+        AtomicInteger expired = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            this.wheel.schedule(expired::incrementAndGet, i * 7, TimeUnit.MILLISECONDS);
+        }
+        advance(10_000);
+        assertEquals(100, expired.get());
+    }
+
+    @Test
+    public void sharedWheelTicksOnItsOwn() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        TimeoutWheel.get().schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+}
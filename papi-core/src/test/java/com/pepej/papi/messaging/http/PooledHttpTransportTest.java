@@ -0,0 +1,93 @@
+package com.pepej.papi.messaging.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PooledHttpTransportTest {
+
+    @Test
+    public void deliversBatchesToLoopbackPeer() throws Exception {
+        int count = 5000;
+        CountDownLatch latch = new CountDownLatch(count);
+        Map<String, List<String>> received = new ConcurrentHashMap<>();
+
+        HttpMessengerOptions options = HttpMessengerOptions.pooled().connections(1).batchSize(100, 64 * 1024);
+        PooledHttpTransport receiver = new PooledHttpTransport(new InetSocketAddress("127.0.0.1", 0), new URL("http://127.0.0.1:1/"), options, (channel, message) -> {
+            received.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(new String(message, StandardCharsets.UTF_8));
+            latch.countDown();
+        });
+        URL remote = new URL("http", "127.0.0.1", receiver.getAddress().getPort(), PooledHttpTransport.BATCH_PATH);
+        PooledHttpTransport sender = new PooledHttpTransport(new InetSocketAddress("127.0.0.1", 0), remote, options, (channel, message) -> fail("unexpected message"));
+
+        try {
+            for (int i = 0; i < count; i++) {
+                sender.send("channel-" + (i % 3), Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+            }
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+            // a single connection preserves the order of each channel's messages
+            assertEquals(3, received.size());
+            for (int c = 0; c < 3; c++) {
+                List<String> messages = received.get("channel-" + c);
+                for (int i = 0; i < messages.size(); i++) {
+                    assertEquals(Integer.toString(c + i * 3), messages.get(i));
+                }
+            }
+        } finally {
+            sender.close();
+            receiver.close();
+        }
+    }
+
+    @Test
+    public void ignoresRetriedBatches() throws Exception {
+        AtomicInteger delivered = new AtomicInteger();
+        PooledHttpTransport receiver = new PooledHttpTransport(new InetSocketAddress("127.0.0.1", 0), new URL("http://127.0.0.1:1/"), HttpMessengerOptions.pooled(), (channel, message) -> delivered.incrementAndGet());
+        URL remote = new URL("http", "127.0.0.1", receiver.getAddress().getPort(), PooledHttpTransport.BATCH_PATH);
+
+        byte[] message = "hello".getBytes(StandardCharsets.UTF_8);
+        byte[] body = PooledHttpTransport.encode(Collections.singletonList(new PooledHttpTransport.OutgoingMessage("channel", message)), message.length);
+        try {
+            assertEquals(HttpURLConnection.HTTP_NO_CONTENT, post(remote, "batch-1", body));
+            assertEquals(HttpURLConnection.HTTP_NO_CONTENT, post(remote, "batch-1", body));
+            assertEquals(1, delivered.get());
+
+            assertEquals(HttpURLConnection.HTTP_NO_CONTENT, post(remote, "batch-2", body));
+            assertEquals(2, delivered.get());
+        } finally {
+            receiver.close();
+        }
+    }
+
+    private static int post(URL remote, String id, byte[] body) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) remote.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty(PooledHttpTransport.BATCH_ID_HEADER, id);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return connection.getResponseCode();
+    }
+
+    @Test
+    public void rejectsMalformedBatches() {
+        assertThrows(IllegalArgumentException.class, () -> PooledHttpTransport.decode(new byte[]{0, 0, 0, 5, 0}));
+        assertThrows(IllegalArgumentException.class, () -> PooledHttpTransport.decode(new byte[]{(byte) 0xFF, 0, 0, 0}));
+    }
+}
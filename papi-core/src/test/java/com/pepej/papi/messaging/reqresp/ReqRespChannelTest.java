@@ -0,0 +1,61 @@
+package com.pepej.papi.messaging.reqresp;
+
+import com.pepej.papi.promise.Promise;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReqRespChannelTest {
+
+    /**
+     * A channel which only implements the abstract methods, answering each request itself.
+     */
+    private static final class MinimalChannel implements ReqRespChannel<Integer, Integer> {
+        private AsyncResponseHandler<Integer, Integer> handler;
+
+        @Override
+        public Promise<Integer> request(Integer req) {
+            return this.handler.response(req);
+        }
+
+        @Override
+        public Promise<Integer> request(Integer req, long timeout, TimeUnit unit) {
+            // answered straight away, so there's no need to time out
+            return request(req);
+        }
+
+        @Override
+        public void responseHandler(ResponseHandler<Integer, Integer> handler) {
+            asyncResponseHandler(req -> Promise.completed(handler.response(req)));
+        }
+
+        @Override
+        public void asyncResponseHandler(AsyncResponseHandler<Integer, Integer> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void requestAllSendsEachRequest() throws Exception {
+        MinimalChannel channel = new MinimalChannel();
+        channel.asyncResponseHandler(req -> Promise.completed(req * 2), 1, 0);
+
+        List<Integer> resps = channel.requestAll(Arrays.asList(1, 2, 3)).toCompletableFuture().get(1, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(2, 4, 6), resps);
+        assertEquals(0, channel.getQueuedRequests());
+    }
+
+    @Test
+    public void limitsAreUnsupportedByDefault() {
+        MinimalChannel channel = new MinimalChannel();
+        assertThrows(UnsupportedOperationException.class, () -> channel.setMaxInFlight(1, 0));
+    }
+}
@@ -0,0 +1,107 @@
+package com.pepej.papi.messaging.reqresp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestLimiterTest {
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void limitsRunningTasks() {
+        RequestLimiter limiter = new RequestLimiter(2, 0, this.now::get);
+        AtomicInteger ran = new AtomicInteger();
+
+        assertTrue(limiter.submit(ran::incrementAndGet));
+        assertTrue(limiter.submit(ran::incrementAndGet));
+        assertFalse(limiter.submit(ran::incrementAndGet));
+        assertEquals(2, ran.get());
+        assertEquals(2, limiter.getActive());
+
+        limiter.release();
+        assertTrue(limiter.submit(ran::incrementAndGet));
+        assertEquals(3, ran.get());
+    }
+
+    @Test
+    public void runsQueuedTasksInOrderAsPermitsAreReleased() {
+        RequestLimiter limiter = new RequestLimiter(1, 3, this.now::get);
+        List<Integer> ran = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            int id = i;
+            assertTrue(limiter.submit(() -> ran.add(id)));
+        }
+        assertFalse(limiter.submit(() -> ran.add(-1)));
+        assertEquals(3, limiter.getQueued());
+
+        for (int i = 0; i < 3; i++) {
+            limiter.release();
+            assertEquals(i + 2, ran.size());
+        }
+        assertEquals(0, limiter.getQueued());
+        assertEquals(1, limiter.getActive());
+        assertEquals(0, (int) ran.get(0));
+        assertEquals(3, (int) ran.get(3));
+    }
+
+    @Test
+    public void raisingTheLimitRunsQueuedTasks() {
+        RequestLimiter limiter = new RequestLimiter(1, 10, this.now::get);
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            limiter.submit(ran::incrementAndGet);
+        }
+        assertEquals(1, ran.get());
+
+        limiter.setLimits(3, 10);
+        assertEquals(3, ran.get());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    public void expiresQueuedTasksWithoutTakingAPermit() {
+        RequestLimiter limiter = new RequestLimiter(1, 10, this.now::get);
+        AtomicInteger ran = new AtomicInteger();
+        AtomicInteger expired = new AtomicInteger();
+
+        limiter.submit(ran::incrementAndGet);
+        long deadline = TimeUnit.MILLISECONDS.toNanos(100);
+        limiter.submit(ran::incrementAndGet, deadline, expired::incrementAndGet);
+        limiter.submit(ran::incrementAndGet, deadline * 2, expired::incrementAndGet);
+
+        this.now.set(deadline);
+        limiter.release();
+        assertEquals(1, expired.get());
+        assertEquals(2, ran.get());
+        assertEquals(1, limiter.getActive());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    public void drainsLongQueuesWithoutRecursing() {
+        RequestLimiter limiter = new RequestLimiter(1, Integer.MAX_VALUE, this.now::get);
+        AtomicInteger ran = new AtomicInteger();
+
+        // every queued task releases its permit straight away, from inside the drain
+        limiter.submit(ran::incrementAndGet);
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            limiter.submit(() -> {
+                ran.incrementAndGet();
+                limiter.release();
+            });
+        }
+        limiter.release();
+
+        assertEquals(count + 1, ran.get());
+        assertEquals(0, limiter.getActive());
+        assertEquals(0, limiter.getQueued());
+    }
+}
@@ -0,0 +1,59 @@
+package com.pepej.papi.messaging.reqresp;
+
+import com.pepej.papi.messaging.loopback.LoopbackNetwork;
+import com.pepej.papi.promise.Promise;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimpleReqRespChannelTest {
+
+    @Test
+    public void requestAllAnswersInRequestOrder() {
+        try (LoopbackNetwork network = LoopbackNetwork.create()) {
+            network.newMessenger().getReqRespChannel("test", Integer.class, Integer.class).responseHandler(req -> req < 0 ? null : req * 2);
+            ReqRespChannel<Integer, Integer> channel = network.newMessenger().getReqRespChannel("test", Integer.class, Integer.class);
+
+            List<Integer> resps = channel.requestAll(Arrays.asList(3, -1, 1, 2)).join();
+            assertEquals(Arrays.asList(6, null, 2, 4), resps);
+            assertEquals(Collections.emptyList(), channel.requestAll(Collections.emptyList()).join());
+        }
+    }
+
+    @Test
+    public void requestAllWithAsyncHandler() {
+        try (LoopbackNetwork network = LoopbackNetwork.create()) {
+            network.newMessenger().getReqRespChannel("test", Integer.class, Integer.class).asyncResponseHandler(req -> Promise.completed(req + 1), 1, 10);
+            ReqRespChannel<Integer, Integer> channel = network.newMessenger().getReqRespChannel("test", Integer.class, Integer.class);
+
+            assertEquals(Arrays.asList(1, 2, 3), channel.requestAll(Arrays.asList(0, 1, 2)).join());
+            assertEquals(5, (int) channel.request(4).join());
+        }
+    }
+
+    @Test
+    public void rejectsRequestsOnceTheQueueIsFull() {
+        try (LoopbackNetwork network = LoopbackNetwork.create()) {
+            // nothing answers, so requests stay in flight until they time out
+            ReqRespChannel<Integer, Integer> channel = network.newMessenger().getReqRespChannel("test", Integer.class, Integer.class);
+            channel.setMaxInFlight(1, 1);
+
+            Promise<Integer> sent = channel.request(0, 10, TimeUnit.SECONDS);
+            Promise<Integer> queued = channel.request(1, 10, TimeUnit.SECONDS);
+            Promise<List<Integer>> rejected = channel.requestAll(Arrays.asList(2, 3), 10, TimeUnit.SECONDS);
+
+            assertEquals(1, channel.getQueuedRequests());
+            Exception e = assertThrows(CompletionException.class, rejected::join);
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+            assertFalse(sent.isDone());
+            assertFalse(queued.isDone());
+        }
+    }
+}
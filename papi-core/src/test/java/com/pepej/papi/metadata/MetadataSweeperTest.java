@@ -0,0 +1,109 @@
+package com.pepej.papi.metadata;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetadataSweeperTest {
+    private static final MetadataKey<String> KEY = MetadataKey.createStringKey("test");
+
+    // a lap of the wheel, after which maps holding custom transient values are re-checked
+    private static final long LAP = 800;
+
+    private final AtomicLong now = new AtomicLong();
+    private final MetadataSweeper sweeper = new MetadataSweeper(100, 8, 2, this.now::get);
+    private final AbstractMetadataRegistry<Integer> registry = new AbstractMetadataRegistry<>(this.sweeper);
+
+    private void advance(long millis) {
+        this.now.addAndGet(millis);
+        this.sweeper.tick();
+    }
+
+    private TransientValue<String> expiringIn(long millis) {
+        return new TestValue("a", this.now.get() + millis);
+    }
+
+    @Test
+    public void removesExpiredValuesAndEmptyMaps() {
+        this.registry.provide(1).put(KEY, expiringIn(50));
+        this.registry.provide(2).put(KEY, "b");
+        assertEquals(2, this.sweeper.getTrackedMaps());
+
+        advance(LAP);
+        assertEquals(1, this.sweeper.getSweptValues());
+        assertEquals(1, this.sweeper.getSweptMaps());
+        assertFalse(this.registry.get(1).isPresent());
+
+        // the map with a permanent value is visited once, and then left alone
+        advance(LAP);
+        assertTrue(this.registry.get(2).isPresent());
+        assertEquals(1, this.sweeper.getTrackedMaps());
+        assertEquals(0, this.sweeper.getScheduledMaps());
+    }
+
+    @Test
+    public void visitsBoundedNumberOfMapsPerTick() {
+        for (int i = 0; i < 5; i++) {
+            this.registry.provide(i).put(KEY, expiringIn(50));
+        }
+
+        advance(LAP);
+        assertEquals(2, this.sweeper.getVisitedMaps());
+        advance(0);
+        advance(0);
+        assertEquals(5, this.sweeper.getVisitedMaps());
+        assertEquals(5, this.sweeper.getSweptMaps());
+        assertEquals(0, this.sweeper.getTrackedMaps());
+    }
+
+    @Test
+    public void removedMapsAreNotVisited() {
+        this.registry.provide(1).put(KEY, expiringIn(1000));
+        this.registry.remove(1);
+        assertEquals(0, this.sweeper.getTrackedMaps());
+
+        advance(2000);
+        assertEquals(0, this.sweeper.getVisitedMaps());
+    }
+
+    @Test
+    public void removesMapsEmptiedOfPermanentValues() {
+        this.registry.provide(1).put(KEY, "a");
+        advance(LAP);
+        assertEquals(1, this.sweeper.getVisitedMaps());
+        assertEquals(0, this.sweeper.getScheduledMaps());
+
+        assertTrue(this.registry.provide(1).remove(KEY));
+        assertEquals(1, this.sweeper.getScheduledMaps());
+
+        advance(LAP);
+        assertEquals(1, this.sweeper.getSweptMaps());
+        assertEquals(0, this.sweeper.getTrackedMaps());
+        assertFalse(this.registry.get(1).isPresent());
+    }
+
+    /**
+     * A value which expires by the test clock, rather than the system clock.
+     */
+    private final class TestValue implements TransientValue<String> {
+        private final String value;
+        private final long expireAt;
+
+        private TestValue(String value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        @Override
+        public String getOrNull() {
+            return shouldExpire() ? null : this.value;
+        }
+
+        @Override
+        public boolean shouldExpire() {
+            return MetadataSweeperTest.this.now.get() >= this.expireAt;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.pepej.papi.sql;
+
+import com.pepej.papi.sql.dialect.SqlDialect;
+import com.pepej.papi.sql.plugin.PapiSql;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the query, update and batch paths of {@link SqlStream} against an
+ * embedded database, next to the same query made with plain JDBC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlStreamBenchmark {
+    private static final int ROWS = 10_000;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"h2", "sqlite"})
+    public String dialect;
+
+    private PapiSql sql;
+    private SqlStream stream;
+
+    @Setup
+    public void setup() {
+        this.sql = new PapiSql(SqlDialect.byName(this.dialect), DatabaseCredentials.of("", 0, "mem:bench", "", ""));
+        this.stream = this.sql.stream();
+
+        this.stream.exec("DROP TABLE IF EXISTS players");
+        this.stream.exec("CREATE TABLE players (id INT PRIMARY KEY, name VARCHAR(16) NOT NULL, score BIGINT NOT NULL)");
+        try (BatchUpdate batch = this.stream.batchUpdate("INSERT INTO players (id, name, score) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                batch.with(i, "player" + i, (long) i).next();
+            }
+            batch.count();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.sql.close();
+    }
+
+    private static int randomId() {
+        return ThreadLocalRandom.current().nextInt(ROWS);
+    }
+
+    @Benchmark
+    public String jdbcQuery() throws SQLException {
+        try (Connection c = this.sql.getConnection();
+             PreparedStatement s = c.prepareStatement("SELECT name FROM players WHERE id = ?")) {
+            s.setInt(1, randomId());
+            try (ResultSet rs = s.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    @Benchmark
+    public Optional<String> streamQuery() {
+        return this.stream.first("SELECT name FROM players WHERE id = ?", rs -> rs.getString(1), randomId());
+    }
+
+    @Benchmark
+    public Optional<PlayerRow> streamQueryMapped() {
+        return this.stream.first("SELECT id, name, score FROM players WHERE id = ?", PlayerRow.class, randomId());
+    }
+
+    @Benchmark
+    public int streamUpdate() {
+        try (Update update = this.stream.update("UPDATE players SET score = score + 1 WHERE id = ?")) {
+            return update.with(randomId()).count();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int streamBatchUpdate() {
+        int start = ThreadLocalRandom.current().nextInt(ROWS - BATCH_SIZE);
+        try (BatchUpdate batch = this.stream.batchUpdate("UPDATE players SET score = ? WHERE id = ?")) {
+            for (int i = start; i < start + BATCH_SIZE; i++) {
+                batch.with((long) i, i).next();
+            }
+            return batch.count();
+        }
+    }
+
+    public static class PlayerRow {
+        private int id;
+        private String name;
+        private long score;
+    }
+}
@@ -0,0 +1,49 @@
+package com.pepej.papi.sql;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Splits the rows of a query into chunks for {@link Query#forEachChunk(com.pepej.papi.sql.util.SqlFunction, int, Consumer)}.
+ */
+final class Chunks {
+
+    /**
+     * Hands the rows to the consumer in lists of at most {@code chunkSize} rows,
+     * closing the stream once every row has been consumed.
+     *
+     * @param rows the rows
+     * @param chunkSize the maximum number of rows in each chunk
+     * @param consumer the consumer of each chunk
+     * @param <R> the type of the rows
+     * @return the number of rows consumed
+     */
+    static <R> long forEach(Stream<R> rows, int chunkSize, Consumer<? super List<R>> consumer) {
+        try (Stream<R> stream = rows) {
+            long count = 0;
+            List<R> chunk = new ArrayList<>(chunkSize);
+            Iterator<R> it = stream.iterator();
+            while (it.hasNext()) {
+                chunk.add(it.next());
+                if (chunk.size() == chunkSize) {
+                    consumer.accept(chunk);
+                    count += chunkSize;
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+                count += chunk.size();
+            }
+            return count;
+        }
+    }
+
+    private Chunks() {
+        throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+
+}
@@ -4,11 +4,46 @@ import com.pepej.papi.sql.util.SqlFunction;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 public interface Query extends ParameterProvider<Query, PreparedStatement> {
 
+    /**
+     * Sets the number of rows the driver should fetch from the database at a time.
+     * <p>
+     * Drivers may ignore this hint. MySQL Connector/J only uses it with a server
+     * side cursor, which is enabled with the {@code useCursorFetch=true} connection
+     * property, and otherwise reads the whole result into memory.
+     *
+     * @param rows the number of rows to fetch at a time
+     * @return {@code this} for chaining
+     * @see java.sql.Statement#setFetchSize(int)
+     */
+    default Query fetchSize(int rows) {
+        return prepare(statement -> statement.setFetchSize(rows));
+    }
+
+    /**
+     * Streams the results of this query from the database row by row, rather
+     * than reading the whole result into memory.
+     * <p>
+     * Queries made through a {@link SqlStream} use the streaming fetch size of
+     * the dialect of the database. Otherwise, this uses the {@code Integer.MIN_VALUE}
+     * fetch size understood by MySQL Connector/J and MariaDB Connector/J.
+     * <p>
+     * No other statement can be run on the connection until the stream has been
+     * read to the end or closed, at which point the connection is returned.
+     *
+     * @return {@code this} for chaining
+     * @see com.pepej.papi.sql.dialect.SqlDialect#getStreamingFetchSize()
+     */
+    default Query streaming() {
+        return fetchSize(Integer.MIN_VALUE);
+    }
+
     /**
      * Returns the first row of the current query using the provided mapping function.
      *
@@ -32,4 +67,81 @@ public interface Query extends ParameterProvider<Query, PreparedStatement> {
      * @return a lazily populated stream of each element returned by the query
      */
     <R> Stream<R> map(SqlFunction<ResultSet, R> mapping);
+
+    /**
+     * Returns the first row of the current query mapped to the provided class.
+     *
+     * @param type the class to map the row to
+     * @param <R> the type of the returned element
+     * @return the first mapped value of this query if any
+     * @see #mapTo(Class)
+     */
+    default <R> Optional<R> first(Class<R> type) {
+        return mapTo(type).findFirst();
+    }
+
+    /**
+     * Maps each row returned by this query to an instance of the provided class.
+     * <p>
+     * Columns are matched to the fields of the class by name, ignoring case and
+     * underscores. The class must either have a no-args constructor, in which case
+     * fields without a matching column are left unset, or a constructor taking each
+     * of its instance fields in declaration order. A class with a registered binding,
+     * such as {@code Long} or {@code String}, is instead read from the first column.
+     * <p>
+     * The matching is only resolved once for each query text and class, so this is
+     * as cheap per row as a hand written mapping function.
+     * <p>
+     * This method should be called with a {@code try}-with-resources construct
+     * to ensure that the underlying {@link java.sql.Statement} and {@link
+     * ResultSet} are correctly closed.
+     *
+     * @param type the class to map each row to
+     * @param <R> the type of the elements of the returned stream
+     * @return a lazily populated stream of each element returned by the query
+     * @throws UnsupportedOperationException if this query does not support mapping to classes
+     */
+    default <R> Stream<R> mapTo(Class<R> type) {
+        throw new UnsupportedOperationException("Query does not support mapping to classes");
+    }
+
+    /**
+     * Maps each row returned by this query using the provided mapping function,
+     * handing them to the consumer in lists of at most {@code chunkSize} rows.
+     * <p>
+     * Only a single chunk is held in memory at a time, so combined with
+     * {@link #streaming()} this can read results of any size. The query is
+     * closed once every row has been consumed.
+     *
+     * @param mapping the mapping function
+     * @param chunkSize the maximum number of rows in each chunk
+     * @param consumer the consumer of each chunk
+     * @param <R> the type of the mapped rows
+     * @return the number of rows consumed
+     */
+    default <R> long forEachChunk(SqlFunction<ResultSet, R> mapping, int chunkSize, Consumer<? super List<R>> consumer) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        return Chunks.forEach(map(mapping), chunkSize, consumer);
+    }
+
+    /**
+     * Maps each row returned by this query to an instance of the provided class,
+     * handing them to the consumer in lists of at most {@code chunkSize} rows.
+     *
+     * @param type the class to map each row to
+     * @param chunkSize the maximum number of rows in each chunk
+     * @param consumer the consumer of each chunk
+     * @param <R> the type of the mapped rows
+     * @return the number of rows consumed
+     * @see #mapTo(Class)
+     * @see #forEachChunk(SqlFunction, int, Consumer)
+     */
+    default <R> long forEachChunk(Class<R> type, int chunkSize, Consumer<? super List<R>> consumer) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        return Chunks.forEach(mapTo(type), chunkSize, consumer);
+    }
 }
@@ -3,6 +3,10 @@ package com.pepej.papi.sql;
 import com.pepej.papi.promise.Promise;
 import com.pepej.papi.scheduler.Schedulers;
 import com.pepej.papi.sql.batch.BatchBuilder;
+import com.pepej.papi.sql.batch.InsertBuilder;
+import com.pepej.papi.sql.batch.WriteBehindQueue;
+import com.pepej.papi.sql.cache.QueryCache;
+import com.pepej.papi.sql.cache.TableVersions;
 import com.pepej.papi.sql.util.SqlConsumer;
 import com.pepej.papi.sql.util.SqlFunction;
 import com.pepej.papi.terminable.Terminable;
@@ -15,6 +19,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Optional;
 import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents an individual SQL datasource, created by the library.
@@ -50,7 +55,8 @@ public interface Sql extends Terminable {
     /**
      * Executes a database statement with no preparation.
      *
-     * <p>This will be executed on an asynchronous thread.</p>
+     * <p>This will be executed on an asynchronous thread. Implementations may
+     * complete the promise exceptionally if the execution fails.</p>
      *
      * @param statement the statement to be executed
      * @return a Promise of an asynchronous database execution
@@ -58,7 +64,7 @@ public interface Sql extends Terminable {
      */
     @NonNull
     default Promise<Void> executeAsync(@Language("MySQL") @NonNull String statement) {
-        return Schedulers.async().run(() -> this.execute(statement));
+        return this.executeAsync(statement, stmt -> {});
     }
 
     /**
@@ -76,7 +82,8 @@ public interface Sql extends Terminable {
     /**
      * Executes a database statement with preparation.
      *
-     * <p>This will be executed on an asynchronous thread.</p>
+     * <p>This will be executed on an asynchronous thread. Implementations may
+     * complete the promise exceptionally if the execution fails.</p>
      *
      * @param statement the statement to be executed
      * @param preparer the preparation used for this statement
@@ -104,9 +111,10 @@ public interface Sql extends Terminable {
      *
      * <p>This will be executed on an asynchronous thread.</p>
      *
-     * <p>In the case of a {@link SQLException} or in the case of
-     * no data being returned, or the handler evaluating to null,
-     * this method will return an {@link Optional#empty()} object.</p>
+     * <p>In the case of no data being returned, or the handler evaluating
+     * to null, the promise will complete with an {@link Optional#empty()}
+     * object. Implementations may instead complete the promise exceptionally
+     * in the case of a {@link SQLException}.</p>
      *
      * @param query the query to be executed
      * @param handler the handler for the data returned by the query
@@ -115,7 +123,7 @@ public interface Sql extends Terminable {
      * @see #query(String, SqlFunction) to perform this query synchronously
      */
     default <R> Promise<Optional<R>> queryAsync(@Language("MySQL") @NonNull String query, @NonNull SqlFunction<ResultSet, R> handler) {
-        return Schedulers.async().supply(() -> query(query, handler));
+        return this.queryAsync(query, stmt -> {}, handler);
     }
 
     /**
@@ -142,9 +150,10 @@ public interface Sql extends Terminable {
      *
      * <p>This will be executed on an asynchronous thread.</p>
      *
-     * <p>In the case of a {@link SQLException} or in the case of
-     * no data being returned, or the handler evaluating to null,
-     * this method will return an {@link Optional#empty()} object.</p>
+     * <p>In the case of no data being returned, or the handler evaluating
+     * to null, the promise will complete with an {@link Optional#empty()}
+     * object. Implementations may instead complete the promise exceptionally
+     * in the case of a {@link SQLException}.</p>
      *
      * @param query the query to be executed
      * @param preparer the preparation used for this statement
@@ -214,4 +223,53 @@ public interface Sql extends Terminable {
      * @return a BatchBuilder
      */
     BatchBuilder batch(@Language("MySQL") @NonNull String statement);
+
+    /**
+     * Gets an {@link InsertBuilder} for the provided table, which inserts rows
+     * using multi-row statements.
+     *
+     * @param table the table to insert rows into
+     * @param columns the columns each row has a value for
+     * @return an InsertBuilder
+     * @throws UnsupportedOperationException if this datasource does not support multi-row inserts
+     */
+    default InsertBuilder insert(@NonNull String table, @NonNull String... columns) {
+        throw new UnsupportedOperationException("Datasource does not support multi-row inserts");
+    }
+
+    /**
+     * Creates a {@link QueryCache}, which caches the results of queries made
+     * through this datasource.
+     *
+     * <p>Writes made through this datasource invalidate the cached results
+     * read from the tables they write to.</p>
+     *
+     * <p>By default writes are not tracked automatically, and have to be
+     * reported through {@link QueryCache#getTableVersions()} to invalidate
+     * stale results.</p>
+     *
+     * @param maxEntries the maximum number of results to keep
+     * @return a new cache
+     */
+    @NonNull
+    default QueryCache cache(long maxEntries) {
+        return QueryCache.create(this, new TableVersions(), maxEntries);
+    }
+
+    /**
+     * Creates a {@link WriteBehindQueue}, which merges executions of the same
+     * statement into batches executed on this datasource.
+     *
+     * <p>The queue should be closed before this datasource.</p>
+     *
+     * @param interval the interval between flushes
+     * @param unit the unit of the interval
+     * @param maxBatchSize the number of queued executions of a statement which
+     *                     causes it to be flushed immediately
+     * @return a new queue
+     */
+    @NonNull
+    default WriteBehindQueue writeBehind(long interval, @NonNull TimeUnit unit, int maxBatchSize) {
+        return WriteBehindQueue.create(this, interval, unit, maxBatchSize);
+    }
 }
@@ -1,5 +1,6 @@
 package com.pepej.papi.sql;
 
+import com.pepej.papi.sql.dialect.SqlDialect;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 /**
@@ -27,6 +28,28 @@ public interface SqlProvider {
     @NonNull
     Sql getSql(@NonNull DatabaseCredentials credentials);
 
+    /**
+     * Constructs a new datasource for a database of the given dialect, using
+     * the given credentials.
+     *
+     * <p>The driver for the dialect is loaded if it isn't already.</p>
+     *
+     * <p>Providers which only support MySQL use {@link #getSql(DatabaseCredentials)}
+     * for it, and reject other dialects.</p>
+     *
+     * @param dialect the dialect of the database
+     * @param credentials the credentials for the database
+     * @return a new datasource
+     * @throws UnsupportedOperationException if the dialect isn't supported
+     */
+    @NonNull
+    default Sql getSql(@NonNull SqlDialect dialect, @NonNull DatabaseCredentials credentials) {
+        if (dialect == SqlDialect.MYSQL) {
+            return getSql(credentials);
+        }
+        throw new UnsupportedOperationException("Dialect not supported: " + dialect.getName());
+    }
+
     /**
      * Gets the global database credentials being used for the global datasource.
      *
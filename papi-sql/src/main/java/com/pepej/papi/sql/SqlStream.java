@@ -1,5 +1,6 @@
 package com.pepej.papi.sql;
 
+import com.pepej.papi.sql.dialect.SqlDialect;
 import com.pepej.papi.sql.impl.SqlStreamImpl;
 import com.pepej.papi.sql.util.SingleConnectionDataSource;
 import com.pepej.papi.sql.util.SqlFunction;
@@ -10,7 +11,10 @@ import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface SqlStream extends Terminable {
 
@@ -33,7 +37,19 @@ public interface SqlStream extends Terminable {
      * @return the newly created {@code Sql} instance
      */
     static SqlStream connect(DataSource dataSource) {
-        return new SqlStreamImpl(dataSource);
+        return connect(dataSource, SqlDialect.MYSQL);
+    }
+
+    /**
+     * Constructs a {@link SqlStream} instance retrieving new {@link Connection}s
+     * from the provided {@link DataSource} as needed.
+     *
+     * @param dataSource the datasource supplying connections
+     * @param dialect the dialect of the database
+     * @return the newly created {@code Sql} instance
+     */
+    static SqlStream connect(DataSource dataSource, SqlDialect dialect) {
+        return new SqlStreamImpl(dataSource, dialect);
     }
 
     <T> SqlStream registerCustomBinding(Class<T> clazz, PreparedStatementBinderByIndex<T> preparedStatementBinderByIndex);
@@ -149,6 +165,39 @@ public interface SqlStream extends Terminable {
         }
     }
 
+    /**
+     * Shortcut for {@link #query(String) query(sql).with(parameters).first(type)}.
+     *
+     * @param sql the sql query
+     * @param type the class to map the row to
+     * @param parameters parameters to apply in order to the provided query
+     * @param <R> the type of the returned element
+     * @return the first row mapped to the provided class, if any
+     * @see Query#mapTo(Class)
+     */
+    default <R> Optional<R> first(String sql, Class<R> type, Object... parameters) {
+        try (Query query = query(sql).with(parameters)) {
+            return query.first(type);
+        }
+    }
+
+    /**
+     * Shortcut for {@link #query(String) query(sql).with(parameters).mapTo(type)},
+     * collected to a list.
+     *
+     * @param sql the sql query
+     * @param type the class to map each row to
+     * @param parameters parameters to apply in order to the provided query
+     * @param <R> the type of the returned elements
+     * @return every row mapped to the provided class
+     * @see Query#mapTo(Class)
+     */
+    default <R> List<R> list(String sql, Class<R> type, Object... parameters) {
+        try (Query query = query(sql).with(parameters); Stream<R> rows = query.mapTo(type)) {
+            return rows.collect(Collectors.toList());
+        }
+    }
+
     /**
      * Shortcut for {@link #execute(String) execute(sql).with(parameters).execute()}.
      *
@@ -11,6 +11,10 @@ import java.util.Collection;
  * Represents a statement meant to be executed more than a single time.
  *
  * <p>It will be executed all at once, using a single database connection.</p>
+ *
+ * <p>To insert many rows, {@link com.pepej.papi.sql.Sql#insert(String, String...)}
+ * sends them as multi-row statements, which is usually much faster than a batch of
+ * single-row inserts.</p>
  */
 public interface BatchBuilder {
 
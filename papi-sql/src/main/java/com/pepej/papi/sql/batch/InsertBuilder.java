@@ -0,0 +1,133 @@
+package com.pepej.papi.sql.batch;
+
+import com.pepej.papi.promise.Promise;
+import com.pepej.papi.sql.UncheckedSqlException;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Collection;
+
+/**
+ * Builds rows to be inserted into a table using multi-row
+ * {@code INSERT ... VALUES (...), (...)} statements.
+ *
+ * <p>Rows are split into chunks, each sent as a single statement. Chunks are
+ * sized to stay under the maximum packet size of the server, and under the
+ * maximum number of parameters of a prepared statement.</p>
+ *
+ * <p>Each chunk is committed separately, so a failure part way through leaves
+ * the earlier chunks inserted.</p>
+ */
+public interface InsertBuilder {
+
+    /**
+     * The default estimate of the largest packet the server will accept, in bytes.
+     *
+     * <p>This matches the default {@code max_allowed_packet} of MySQL 5.7.</p>
+     */
+    int DEFAULT_MAX_PACKET_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Gets the table rows are inserted into.
+     *
+     * @return the table
+     */
+    @NonNull
+    String getTable();
+
+    /**
+     * Gets the number of rows which have been added.
+     *
+     * @return the number of rows
+     */
+    int getRows();
+
+    /**
+     * Adds a row to be inserted.
+     *
+     * <p>The values are set on the statement in the order the columns were
+     * given, using {@link java.sql.PreparedStatement#setObject(int, Object)}.</p>
+     *
+     * @param values the value of each column
+     * @return this builder
+     * @throws IllegalArgumentException if the number of values does not match the number of columns
+     */
+    InsertBuilder row(@NonNull Object... values);
+
+    /**
+     * Adds rows to be inserted.
+     *
+     * @param rows the rows
+     * @return this builder
+     * @see #row(Object...)
+     */
+    InsertBuilder rows(@NonNull Collection<Object[]> rows);
+
+    /**
+     * Updates the given columns of existing rows whose keys conflict with an
+     * inserted row, rather than failing.
+     *
+     * @param columns the columns to update
+     * @return this builder
+     */
+    InsertBuilder onDuplicateKeyUpdate(@NonNull String... columns);
+
+    /**
+     * Skips inserted rows whose keys conflict with existing rows, rather than failing.
+     *
+     * @return this builder
+     */
+    InsertBuilder ignoreDuplicates();
+
+    /**
+     * Sets the estimate of the largest packet the server will accept, in bytes.
+     *
+     * <p>This should be at most the {@code max_allowed_packet} of the server.</p>
+     *
+     * @param bytes the maximum packet size
+     * @return this builder
+     */
+    InsertBuilder maxPacketSize(int bytes);
+
+    /**
+     * Sets the maximum number of rows inserted by each statement.
+     *
+     * @param rows the maximum number of rows
+     * @return this builder
+     */
+    InsertBuilder maxRowsPerStatement(int rows);
+
+    /**
+     * Sets the number of connections chunks may be inserted on at once.
+     *
+     * <p>Chunks inserted in parallel may be committed in any order, so this
+     * should only be used when the order of the rows does not matter. Defaults
+     * to 1, which inserts chunks in order on a single connection. The number
+     * of connections used is capped at the dialect's maximum pool size.</p>
+     *
+     * @param connections the number of connections to use
+     * @return this builder
+     */
+    InsertBuilder parallelism(int connections);
+
+    /**
+     * Inserts the rows.
+     *
+     * <p>This will be executed on whichever thread it's called from.</p>
+     *
+     * @return the result of the insert
+     * @throws UncheckedSqlException if a chunk could not be inserted
+     */
+    @NonNull
+    InsertResult execute();
+
+    /**
+     * Inserts the rows.
+     *
+     * <p>This will be executed on an asynchronous thread. The promise completes
+     * exceptionally if a chunk could not be inserted.</p>
+     *
+     * @return a promise of the result of the insert
+     */
+    @NonNull
+    Promise<InsertResult> executeAsync();
+}
@@ -0,0 +1,75 @@
+package com.pepej.papi.sql.batch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of an {@link InsertBuilder}.
+ */
+public final class InsertResult {
+    private final int rows;
+    private final long affectedRows;
+    private final int statements;
+    private final long elapsedNanos;
+
+    public InsertResult(int rows, long affectedRows, int statements, long elapsedNanos) {
+        this.rows = rows;
+        this.affectedRows = affectedRows;
+        this.statements = statements;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of rows sent to the database.
+     *
+     * @return the number of rows
+     */
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Gets the number of rows affected, as reported by the database.
+     *
+     * <p>For upserts, MySQL counts each updated row twice.</p>
+     *
+     * @return the number of affected rows
+     */
+    public long getAffectedRows() {
+        return this.affectedRows;
+    }
+
+    /**
+     * Gets the number of statements the rows were sent in.
+     *
+     * @return the number of statements
+     */
+    public int getStatements() {
+        return this.statements;
+    }
+
+    /**
+     * Gets the time taken to insert the rows.
+     *
+     * @param unit the unit to return the time in
+     * @return the time taken
+     */
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(this.elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the number of rows inserted per second.
+     *
+     * @return the rows per second
+     */
+    public double getRowsPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.rows * (double) TimeUnit.SECONDS.toNanos(1) / this.elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "InsertResult(rows=" + this.rows + ", affectedRows=" + this.affectedRows +
+                ", statements=" + this.statements + ", elapsedMillis=" + getElapsed(TimeUnit.MILLISECONDS) +
+                ", rowsPerSecond=" + Math.round(getRowsPerSecond()) + ")";
+    }
+}
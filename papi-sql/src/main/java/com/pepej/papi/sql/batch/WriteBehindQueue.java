@@ -0,0 +1,212 @@
+package com.pepej.papi.sql.batch;
+
+import com.google.common.base.Preconditions;
+import com.pepej.papi.promise.Promise;
+import com.pepej.papi.scheduler.Schedulers;
+import com.pepej.papi.scheduler.Task;
+import com.pepej.papi.sql.Sql;
+import com.pepej.papi.sql.util.SqlConsumer;
+import com.pepej.papi.terminable.Terminable;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.intellij.lang.annotations.Language;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges small executions into batches, which are flushed periodically.
+ *
+ * <p>Executions of the same statement are run as a single {@link BatchBuilder},
+ * in the order they were queued. A batch of a statement only starts once the
+ * previous batch of that statement has finished. Executions of different statements
+ * may be run in any order relative to each other, so statements which depend on
+ * each other should not be queued together.</p>
+ */
+public final class WriteBehindQueue implements Terminable {
+
+    /**
+     * Creates a new write-behind queue.
+     *
+     * @param sql the datasource to execute statements on
+     * @param interval the interval between flushes
+     * @param unit the unit of the interval
+     * @param maxBatchSize the number of queued executions of a statement which
+     *                     causes it to be flushed immediately
+     * @return a new queue
+     */
+    @NonNull
+    public static WriteBehindQueue create(@NonNull Sql sql, long interval, @NonNull TimeUnit unit, int maxBatchSize) {
+        return new WriteBehindQueue(sql, interval, unit, maxBatchSize);
+    }
+
+    private final Sql sql;
+    private final int maxBatchSize;
+    private final Task task;
+
+    // statement -> queued executions, guarded by itself
+    private final Map<String, List<Entry>> queued = new LinkedHashMap<>();
+    // statement -> the last batch started, until it completes. guarded by queued
+    private final Map<String, CompletableFuture<Void>> running = new HashMap<>();
+    private int size = 0;
+    private boolean closed = false;
+
+    private WriteBehindQueue(Sql sql, long interval, TimeUnit unit, int maxBatchSize) {
+        this.sql = Objects.requireNonNull(sql, "sql");
+        Objects.requireNonNull(unit, "unit");
+        Preconditions.checkArgument(interval > 0, "interval must be positive");
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        this.maxBatchSize = maxBatchSize;
+        this.task = Schedulers.async().runRepeating(this::flush, interval, unit, interval, unit);
+    }
+
+    /**
+     * Queues an execution of a statement.
+     *
+     * <p>The returned promise completes once the batch containing the execution
+     * has been run, or completes exceptionally if the batch fails.</p>
+     *
+     * @param statement the statement to be executed
+     * @param preparer the preparation used for this execution
+     * @return a promise of the execution
+     */
+    @NonNull
+    public Promise<Void> execute(@Language("MySQL") @NonNull String statement, @NonNull SqlConsumer<PreparedStatement> preparer) {
+        Objects.requireNonNull(statement, "statement");
+        Objects.requireNonNull(preparer, "preparer");
+
+        Entry entry = new Entry(preparer);
+        Runnable full = null;
+        synchronized (this.queued) {
+            if (this.closed) {
+                return Promise.exceptionally(new IllegalStateException("Queue has been closed"));
+            }
+            List<Entry> entries = this.queued.computeIfAbsent(statement, s -> new ArrayList<>());
+            entries.add(entry);
+            this.size++;
+            if (entries.size() >= this.maxBatchSize) {
+                this.queued.remove(statement);
+                this.size -= entries.size();
+                full = schedule(statement, entries);
+            }
+        }
+
+        if (full != null) {
+            full.run();
+        }
+        return entry.promise;
+    }
+
+    /**
+     * Runs all queued executions now.
+     */
+    public void flush() {
+        List<Runnable> batches;
+        synchronized (this.queued) {
+            if (this.queued.isEmpty()) {
+                return;
+            }
+            batches = new ArrayList<>(this.queued.size());
+            for (Map.Entry<String, List<Entry>> entry : this.queued.entrySet()) {
+                batches.add(schedule(entry.getKey(), entry.getValue()));
+            }
+            this.queued.clear();
+            this.size = 0;
+        }
+
+        batches.forEach(Runnable::run);
+    }
+
+    /**
+     * Links a batch of executions after the last batch of the same statement.
+     * Must be called while holding the lock, so batches are linked in the order
+     * their executions were taken from the queue.
+     *
+     * @return a task which starts the batch, or chains it to the previous batch
+     */
+    private Runnable schedule(String statement, List<Entry> entries) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = this.running.put(statement, done);
+        if (previous == null) {
+            return () -> run(statement, entries, done);
+        }
+        return () -> previous.whenComplete((v, t) -> run(statement, entries, done));
+    }
+
+    private void run(String statement, List<Entry> entries, CompletableFuture<Void> done) {
+        Promise<Void> result;
+        try {
+            BatchBuilder batch = this.sql.batch(statement);
+            for (Entry entry : entries) {
+                batch.batch(entry.preparer);
+            }
+            result = this.sql.executeBatchAsync(batch);
+        } catch (Throwable t) {
+            result = Promise.exceptionally(t);
+        }
+
+        result.toCompletableFuture().whenComplete((v, t) -> {
+            // let the next batch of this statement start
+            synchronized (this.queued) {
+                this.running.remove(statement, done);
+            }
+            done.complete(null);
+
+            for (Entry entry : entries) {
+                if (t != null) {
+                    entry.promise.supplyException(t);
+                } else {
+                    entry.promise.supply(null);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the number of executions waiting to be flushed.
+     *
+     * @return the number of queued executions
+     */
+    public int getQueued() {
+        synchronized (this.queued) {
+            return this.size;
+        }
+    }
+
+    /**
+     * Stops the periodic flush, and runs all queued executions.
+     */
+    @Override
+    public void close() {
+        synchronized (this.queued) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+        }
+        this.task.stop();
+        flush();
+    }
+
+    @Override
+    public boolean isClosed() {
+        synchronized (this.queued) {
+            return this.closed;
+        }
+    }
+
+    private static final class Entry {
+        private final SqlConsumer<PreparedStatement> preparer;
+        private final Promise<Void> promise = Promise.empty();
+
+        Entry(SqlConsumer<PreparedStatement> preparer) {
+            this.preparer = preparer;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.pepej.papi.sql.cache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.pepej.papi.promise.Promise;
+import com.pepej.papi.sql.Sql;
+import com.pepej.papi.sql.util.SqlConsumer;
+import com.pepej.papi.sql.util.SqlFunction;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.intellij.lang.annotations.Language;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the results of queries made through a {@link Sql} datasource.
+ *
+ * <p>Results are keyed by a name given by the caller, the query text and its
+ * parameters, and are tagged with the tables named in the query. The name
+ * identifies how the handler reads the results, so two handlers which return
+ * different values for the same query must be given different names. Writes made
+ * through the datasource invalidate results read from the tables they write to.
+ * Queries whose tables can't be found, such as those with subqueries in their
+ * {@code FROM} clause, are invalidated by any write.</p>
+ *
+ * <p>Writes made outside of the datasource, such as through {@link Sql#stream()}
+ * or by other servers, are not seen, and have to be reported using
+ * {@link #getTableVersions()}.</p>
+ *
+ * <p>Cached results are shared between callers, so should not be modified.</p>
+ */
+public final class QueryCache {
+
+    /**
+     * Creates a new cache.
+     *
+     * @param sql the datasource to query
+     * @param versions the versions of the tables of the datasource
+     * @param maxEntries the maximum number of results to keep
+     * @return a new cache
+     */
+    @NonNull
+    public static QueryCache create(@NonNull Sql sql, @NonNull TableVersions versions, long maxEntries) {
+        return new QueryCache(sql, versions, maxEntries);
+    }
+
+    private final Sql sql;
+    private final TableVersions versions;
+    private final Cache<Key, Entry> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private QueryCache(Sql sql, TableVersions versions, long maxEntries) {
+        Preconditions.checkArgument(maxEntries > 0, "maxEntries must be positive");
+        this.sql = Objects.requireNonNull(sql, "sql");
+        this.versions = Objects.requireNonNull(versions, "versions");
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .removalListener(notification -> {
+                    if (notification.getCause() == RemovalCause.SIZE) {
+                        this.evictions.increment();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Executes a database query with parameters, or returns its cached result.
+     *
+     * <p>This will be executed on whichever thread it's called from.</p>
+     *
+     * <p>Results are only cached if the query succeeds, so follows
+     * {@link Sql#query(String, SqlConsumer, SqlFunction)} in the case of a
+     * failure.</p>
+     *
+     * @param name the name of the result, which identifies what the handler returns
+     * @param query the query to be executed
+     * @param handler the handler for the data returned by the query
+     * @param parameters the parameters of the query, set in order using
+     *                   {@link PreparedStatement#setObject(int, Object)}
+     * @param <R> the returned type
+     * @return the results of the database query
+     */
+    public <R> Optional<R> query(@NonNull String name, @Language("MySQL") @NonNull String query, @NonNull SqlFunction<ResultSet, R> handler, @NonNull Object... parameters) {
+        Objects.requireNonNull(handler, "handler");
+        Key key = new Key(name, query, parameters.clone());
+        Optional<R> cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        return this.sql.query(query, binder(key.parameters), loader(key, handler));
+    }
+
+    /**
+     * Executes a database query with parameters, or returns its cached result.
+     *
+     * <p>This will be executed on an asynchronous thread, unless the result is
+     * already cached.</p>
+     *
+     * @param name the name of the result, which identifies what the handler returns
+     * @param query the query to be executed
+     * @param handler the handler for the data returned by the query
+     * @param parameters the parameters of the query
+     * @param <R> the returned type
+     * @return a Promise of the results of the database query
+     * @see #query(String, String, SqlFunction, Object...)
+     */
+    public <R> Promise<Optional<R>> queryAsync(@NonNull String name, @Language("MySQL") @NonNull String query, @NonNull SqlFunction<ResultSet, R> handler, @NonNull Object... parameters) {
+        Objects.requireNonNull(handler, "handler");
+        Key key = new Key(name, query, parameters.clone());
+        Optional<R> cached = lookup(key);
+        if (cached != null) {
+            return Promise.completed(cached);
+        }
+        return this.sql.queryAsync(query, binder(key.parameters), loader(key, handler));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> Optional<R> lookup(Key key) {
+        Entry entry = this.cache.getIfPresent(key);
+        if (entry == null) {
+            this.misses.increment();
+            return null;
+        }
+        if (!this.versions.isCurrent(entry.tables, entry.versions)) {
+            this.cache.asMap().remove(key, entry);
+            this.invalidations.increment();
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        return Optional.ofNullable((R) entry.value);
+    }
+
+    private static SqlConsumer<PreparedStatement> binder(Object[] parameters) {
+        return s -> {
+            for (int i = 0; i < parameters.length; i++) {
+                s.setObject(i + 1, parameters[i]);
+            }
+        };
+    }
+
+    // wraps the handler to cache what it returns
+    private <R> SqlFunction<ResultSet, R> loader(Key key, SqlFunction<ResultSet, R> handler) {
+        // take the versions before the query runs, so a concurrent write invalidates the result
+        String[] tables = SqlTables.read(key.query).toArray(new String[0]);
+        long[] versions = this.versions.snapshot(tables);
+        return rs -> {
+            R value = handler.apply(rs);
+            this.cache.put(key, new Entry(tables, versions, value));
+            return value;
+        };
+    }
+
+    /**
+     * Gets the table versions used to invalidate results.
+     *
+     * @return the table versions
+     */
+    @NonNull
+    public TableVersions getTableVersions() {
+        return this.versions;
+    }
+
+    /**
+     * Removes every result from this cache.
+     */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * Gets the number of results in this cache, including any which have been
+     * invalidated but not yet removed.
+     *
+     * @return the number of results
+     */
+    public long getSize() {
+        return this.cache.size();
+    }
+
+    /**
+     * Gets the number of queries answered from this cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Gets the number of queries sent to the database.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * Gets the fraction of queries answered from this cache.
+     *
+     * @return the hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Gets the number of results found to be invalidated by a write.
+     *
+     * @return the number of invalidated results
+     */
+    public long getInvalidations() {
+        return this.invalidations.sum();
+    }
+
+    /**
+     * Gets the number of results removed to keep this cache under its size.
+     *
+     * @return the number of evicted results
+     */
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    private static final class Entry {
+        private final String[] tables;
+        private final long[] versions;
+        private final Object value;
+
+        Entry(String[] tables, long[] versions, Object value) {
+            this.tables = tables;
+            this.versions = versions;
+            this.value = value;
+        }
+    }
+
+    private static final class Key {
+        private final String name;
+        private final String query;
+        private final Object[] parameters;
+        private final int hash;
+
+        Key(String name, String query, Object[] parameters) {
+            this.name = Objects.requireNonNull(name, "name");
+            this.query = Objects.requireNonNull(query, "query");
+            this.parameters = parameters;
+            this.hash = 31 * (31 * name.hashCode() + query.hashCode()) + Arrays.deepHashCode(parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return this.hash == other.hash &&
+                    this.name.equals(other.name) &&
+                    this.query.equals(other.query) &&
+                    Arrays.deepEquals(this.parameters, other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
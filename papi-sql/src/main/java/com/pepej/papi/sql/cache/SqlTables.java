@@ -0,0 +1,127 @@
+package com.pepej.papi.sql.cache;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the tables read or written by a statement.
+ *
+ * <p>This only understands the common shapes of statements, and errs towards
+ * returning more tables than a statement uses, or none at all, rather than
+ * missing one.</p>
+ */
+final class SqlTables {
+
+    /**
+     * Stands for every table, for statements which could not be understood.
+     */
+    static final String ANY = "*";
+
+    private static final String NAME = "(`?[\\w$]+`?(?:\\s*\\.\\s*`?[\\w$]+`?)?)";
+
+    // the conflict clause of sqlite
+    private static final String CONFLICT = "(?:\\s+OR\\s+(?:IGNORE|REPLACE|ABORT|FAIL|ROLLBACK))?";
+
+    private static final Pattern WRITE_TARGET = Pattern.compile(
+            "^\\s*(?:" +
+                    "(?:INSERT|REPLACE)(?:\\s+(?:LOW_PRIORITY|DELAYED|HIGH_PRIORITY|IGNORE))*" + CONFLICT + "(?:\\s+INTO)?" +
+                    "|UPDATE(?:\\s+(?:LOW_PRIORITY|IGNORE))*" + CONFLICT +
+                    "|DELETE(?:\\s+(?:LOW_PRIORITY|QUICK|IGNORE))*\\s+FROM" +
+                    "|TRUNCATE(?:\\s+TABLE)?" +
+                    "|(?:CREATE|ALTER|DROP)(?:\\s+TEMPORARY)?\\s+TABLE(?:\\s+IF(?:\\s+NOT)?\\s+EXISTS)?" +
+                    ")\\s+" + NAME,
+            Pattern.CASE_INSENSITIVE
+    );
+
+    private static final Pattern READ_ONLY = Pattern.compile("^\\s*(?:SELECT|SHOW|DESCRIBE|EXPLAIN)\\b", Pattern.CASE_INSENSITIVE);
+
+    // an optional alias, which isn't the start of a join
+    private static final String ALIAS = "(?:\\s+(?:AS\\s+)?(?!(?:JOIN|INNER|LEFT|RIGHT|CROSS|NATURAL|STRAIGHT_JOIN|FULL|OUTER)\\b)[\\w$]+)?";
+
+    private static final Pattern SOURCE = Pattern.compile("\\b(?:FROM|JOIN)\\s+(\\(|" + NAME + ALIAS + "(\\s*,)?)", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern LIST = Pattern.compile("^" + ALIAS + "\\s*,", Pattern.CASE_INSENSITIVE);
+
+    private SqlTables() {
+        throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+
+    /**
+     * Gets the tables read by a query.
+     *
+     * @param query the query
+     * @return the tables, or {@link #ANY} if they could not be found
+     */
+    static Set<String> read(String query) {
+        Set<String> tables = new LinkedHashSet<>();
+        if (!addSources(query, tables) || tables.isEmpty()) {
+            tables.clear();
+            tables.add(ANY);
+        }
+        return tables;
+    }
+
+    /**
+     * Gets the tables written by a statement.
+     *
+     * @param statement the statement
+     * @return the tables, which are empty for read only statements,
+     *         or {@link #ANY} if they could not be found
+     */
+    static Set<String> written(String statement) {
+        Set<String> tables = new LinkedHashSet<>();
+        Matcher matcher = WRITE_TARGET.matcher(statement);
+        if (!matcher.find()) {
+            if (!READ_ONLY.matcher(statement).find()) {
+                tables.add(ANY);
+            }
+            return tables;
+        }
+
+        tables.add(normalize(matcher.group(1)));
+        if (LIST.matcher(statement.substring(matcher.end())).find()) {
+            // a multi-table update
+            tables.clear();
+            tables.add(ANY);
+            return tables;
+        }
+
+        // multi-table updates and deletes can write to any table they join
+        if (!addSources(statement, tables)) {
+            tables.clear();
+            tables.add(ANY);
+        }
+        return tables;
+    }
+
+    /**
+     * Normalizes a table name, so the same table is always named the same way.
+     *
+     * @param table the table name
+     * @return the normalized name
+     */
+    static String normalize(String table) {
+        String name = table.replace("`", "");
+        int dot = name.lastIndexOf('.');
+        if (dot != -1) {
+            name = name.substring(dot + 1);
+        }
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // returns false if the sources of the statement could not be understood
+    private static boolean addSources(String statement, Set<String> tables) {
+        Matcher matcher = SOURCE.matcher(statement);
+        while (matcher.find()) {
+            // subqueries and comma separated tables aren't worth parsing
+            if (matcher.group(1).equals("(") || matcher.group(3) != null) {
+                return false;
+            }
+            tables.add(normalize(matcher.group(2)));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,107 @@
+package com.pepej.papi.sql.cache;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks writes to the tables of a datasource, so cached results can tell when
+ * the tables they were read from have changed.
+ *
+ * <p>Each table has a version, which is incremented after each write to it.
+ * A cached result is only valid while the versions of the tables it was read
+ * from are the same as when it was read.</p>
+ */
+public final class TableVersions {
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    // incremented to invalidate every table
+    private final AtomicLong epoch = new AtomicLong();
+
+    /**
+     * Records that a statement has been executed, invalidating results read
+     * from the tables it writes to.
+     *
+     * <p>Statements which can't be understood invalidate every table.</p>
+     *
+     * @param statement the statement
+     */
+    public void written(String statement) {
+        Objects.requireNonNull(statement, "statement");
+        Set<String> tables = SqlTables.written(statement);
+        if (tables.contains(SqlTables.ANY)) {
+            invalidateAll();
+            return;
+        }
+        if (!tables.isEmpty()) {
+            tables.forEach(this::increment);
+            increment(SqlTables.ANY);
+        }
+    }
+
+    /**
+     * Invalidates results read from the given table.
+     *
+     * @param table the table
+     */
+    public void invalidate(String table) {
+        Objects.requireNonNull(table, "table");
+        increment(SqlTables.normalize(table));
+        increment(SqlTables.ANY);
+    }
+
+    /**
+     * Invalidates every result.
+     */
+    public void invalidateAll() {
+        this.epoch.incrementAndGet();
+    }
+
+    private void increment(String table) {
+        this.versions.computeIfAbsent(table, t -> new AtomicLong()).incrementAndGet();
+    }
+
+    private long get(String table) {
+        AtomicLong version = this.versions.get(table);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Gets the current versions of the given tables.
+     *
+     * <p>This must be taken before the tables are read.</p>
+     *
+     * @param tables the tables
+     * @return the versions
+     */
+    long[] snapshot(String[] tables) {
+        long[] snapshot = new long[tables.length + 1];
+        snapshot[0] = this.epoch.get();
+        for (int i = 0; i < tables.length; i++) {
+            snapshot[i + 1] = get(tables[i]);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets if the given tables have not been written to since the snapshot was taken.
+     *
+     * @param tables the tables
+     * @param snapshot the versions of the tables
+     * @return true if the tables are unchanged
+     */
+    boolean isCurrent(String[] tables, long[] snapshot) {
+        if (snapshot[0] != this.epoch.get()) {
+            return false;
+        }
+        for (int i = 0; i < tables.length; i++) {
+            if (snapshot[i + 1] != get(tables[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+package com.pepej.papi.sql.dialect;
+
+import com.google.common.collect.ImmutableMap;
+import com.pepej.papi.sql.DatabaseCredentials;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.nio.file.Paths;
+import java.util.Map;
+
+final class H2Dialect implements SqlDialect {
+
+    // the database is in process, so there's no network latency to hide
+    private static final int MAXIMUM_POOL_SIZE = Runtime.getRuntime().availableProcessors() + 1;
+
+    // accept the MySQL statements written for the other dialect
+    private static final String SETTINGS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+
+    @NonNull
+    @Override
+    public String getName() {
+        return "h2";
+    }
+
+    @NonNull
+    @Override
+    public String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+
+    @Override
+    public String getDriverDependency() {
+        return "com.h2database:h2:1.4.200";
+    }
+
+    @NonNull
+    @Override
+    public String getJdbcUrl(@NonNull DatabaseCredentials credentials) {
+        String database = credentials.getDatabase();
+        if (database.startsWith("mem:")) {
+            // keep the database open while no connections are
+            return "jdbc:h2:" + database + ";DB_CLOSE_DELAY=-1" + SETTINGS;
+        }
+        return "jdbc:h2:" + Paths.get(database).toAbsolutePath() + SETTINGS;
+    }
+
+    @NonNull
+    @Override
+    public Map<String, String> getProperties() {
+        return ImmutableMap.of();
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return MAXIMUM_POOL_SIZE;
+    }
+
+    @Override
+    public int getMaxParameters() {
+        // H2 has no fixed limit, so use the same as MySQL
+        return 65535;
+    }
+
+    @Override
+    public int getStreamingFetchSize() {
+        return 1000;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,35 @@
+package com.pepej.papi.sql.dialect;
+
+/**
+ * Quotes identifiers for the statements built by a {@link SqlDialect}.
+ */
+final class Identifiers {
+
+    /**
+     * Quotes each dot separated part of a name, doubling any quote characters
+     * within it.
+     *
+     * @param name the name, e.g. {@code players} or {@code db.players}
+     * @param quote the quote character
+     * @return the quoted name
+     */
+    static String quote(String name, char quote) {
+        String q = String.valueOf(quote);
+        StringBuilder sb = new StringBuilder(name.length() + 4);
+        int start = 0;
+        while (true) {
+            int dot = name.indexOf('.', start);
+            String part = dot == -1 ? name.substring(start) : name.substring(start, dot);
+            sb.append(quote).append(part.replace(q, q + q)).append(quote);
+            if (dot == -1) {
+                return sb.toString();
+            }
+            sb.append('.');
+            start = dot + 1;
+        }
+    }
+
+    private Identifiers() {
+        throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+}
@@ -0,0 +1,89 @@
+package com.pepej.papi.sql.dialect;
+
+import com.google.common.collect.ImmutableMap;
+import com.pepej.papi.sql.DatabaseCredentials;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+final class MySqlDialect implements SqlDialect {
+
+    // https://github.com/brettwooldridge/HikariCP/wiki/About-Pool-Sizing
+    private static final int MAXIMUM_POOL_SIZE = (Runtime.getRuntime().availableProcessors() * 2) + 1;
+
+    private static final Map<String, String> PROPERTIES = ImmutableMap.<String, String>builder()
+            // Ensure we use utf8 encoding
+            .put("useUnicode", "true")
+            .put("characterEncoding", "utf8")
+
+            // https://github.com/brettwooldridge/HikariCP/wiki/MySQL-Configuration
+            .put("cachePrepStmts", "true")
+            .put("prepStmtCacheSize", "250")
+            .put("prepStmtCacheSqlLimit", "2048")
+            .put("useServerPrepStmts", "true")
+            .put("useLocalSessionState", "true")
+            .put("rewriteBatchedStatements", "true")
+            .put("cacheResultSetMetadata", "true")
+            .put("cacheServerConfiguration", "true")
+            .put("elideSetAutoCommits", "true")
+            .put("maintainTimeStats", "false")
+            .put("alwaysSendSetIsolation", "false")
+            .put("cacheCallableStmts", "true")
+
+            // Set the driver level TCP socket timeout
+            // See: https://github.com/brettwooldridge/HikariCP/wiki/Rapid-Recovery
+            .put("socketTimeout", String.valueOf(TimeUnit.SECONDS.toMillis(30)))
+            .build();
+
+    @NonNull
+    @Override
+    public String getName() {
+        return "mysql";
+    }
+
+    @NonNull
+    @Override
+    public String getDriverClassName() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    @Override
+    public String getDriverDependency() {
+        // loaded by the plugin
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public String getJdbcUrl(@NonNull DatabaseCredentials credentials) {
+        return "jdbc:mysql://" + credentials.getAddress() + ":" + credentials.getPort() + "/" + credentials.getDatabase();
+    }
+
+    @NonNull
+    @Override
+    public Map<String, String> getProperties() {
+        return PROPERTIES;
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return MAXIMUM_POOL_SIZE;
+    }
+
+    @Override
+    public int getMaxParameters() {
+        return 65535;
+    }
+
+    @Override
+    public int getStreamingFetchSize() {
+        // makes Connector/J stream rows one at a time
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,171 @@
+package com.pepej.papi.sql.dialect;
+
+import com.pepej.papi.sql.DatabaseCredentials;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Describes how to connect to, and write statements for, a kind of database.
+ */
+public interface SqlDialect {
+
+    /**
+     * A MySQL or MariaDB server.
+     */
+    SqlDialect MYSQL = new MySqlDialect();
+
+    /**
+     * An embedded H2 database, running in MySQL compatibility mode.
+     *
+     * <p>The database of the credentials is the path of the database file, or
+     * {@code mem:<name>} for an in-memory database. The address and port are
+     * ignored.</p>
+     */
+    SqlDialect H2 = new H2Dialect();
+
+    /**
+     * An embedded SQLite database.
+     *
+     * <p>The database of the credentials is the path of the database file, or
+     * {@code mem:<name>} for an in-memory database. The address, port, username
+     * and password are ignored.</p>
+     *
+     * <p>An in-memory database only lives as long as the pooled connection, so is
+     * only suitable for tests.</p>
+     */
+    SqlDialect SQLITE = new SqliteDialect();
+
+    /**
+     * Gets a dialect by its name.
+     *
+     * @param name the name of the dialect, ignoring case
+     * @return the dialect
+     * @throws IllegalArgumentException if there is no dialect with the name
+     */
+    @NonNull
+    static SqlDialect byName(@NonNull String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "mysql":
+            case "mariadb":
+                return MYSQL;
+            case "h2":
+                return H2;
+            case "sqlite":
+                return SQLITE;
+            default:
+                throw new IllegalArgumentException("Unknown dialect: " + name);
+        }
+    }
+
+    /**
+     * Gets the name of this dialect.
+     *
+     * @return the name
+     */
+    @NonNull
+    String getName();
+
+    /**
+     * Gets the class name of the JDBC driver.
+     *
+     * @return the driver class name
+     */
+    @NonNull
+    String getDriverClassName();
+
+    /**
+     * Gets the maven coordinates of the JDBC driver, in the form
+     * {@code groupId:artifactId:version}, if it has to be loaded at runtime.
+     *
+     * @return the driver coordinates, or null if the driver is always present
+     */
+    @Nullable
+    String getDriverDependency();
+
+    /**
+     * Gets the JDBC url for the given credentials.
+     *
+     * @param credentials the credentials
+     * @return the url
+     */
+    @NonNull
+    String getJdbcUrl(@NonNull DatabaseCredentials credentials);
+
+    /**
+     * Gets the properties passed to the driver for each connection.
+     *
+     * @return the properties
+     */
+    @NonNull
+    Map<String, String> getProperties();
+
+    /**
+     * Gets the maximum number of pooled connections.
+     *
+     * @return the maximum pool size
+     */
+    int getMaximumPoolSize();
+
+    /**
+     * Gets the maximum number of parameters in a prepared statement.
+     *
+     * @return the maximum number of parameters
+     */
+    int getMaxParameters();
+
+    /**
+     * Gets the fetch size which makes the driver stream the results of a query,
+     * rather than reading them into memory.
+     *
+     * @return the fetch size
+     */
+    int getStreamingFetchSize();
+
+    /**
+     * Quotes a table or column name, so it can't be mistaken for a keyword.
+     *
+     * <p>Each dot separated part of the name is quoted separately, so a table
+     * may be qualified with its schema.</p>
+     *
+     * @param name the name
+     * @return the quoted name
+     */
+    @NonNull
+    default String quoteIdentifier(@NonNull String name) {
+        return Identifiers.quote(name, '`');
+    }
+
+    /**
+     * Gets the start of an insert statement which skips rows whose keys conflict
+     * with existing rows, up to and including {@code INTO}.
+     *
+     * @return the start of the statement
+     */
+    @NonNull
+    default String insertIgnore() {
+        return "INSERT IGNORE INTO";
+    }
+
+    /**
+     * Gets the clause appended to an insert statement to update the given
+     * columns of existing rows whose keys conflict with an inserted row.
+     *
+     * @param columns the columns to update, which are quoted by this method
+     * @return the clause
+     */
+    @NonNull
+    default String upsert(@NonNull String... columns) {
+        StringBuilder sb = new StringBuilder("ON DUPLICATE KEY UPDATE ");
+        for (int i = 0; i < columns.length; i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            String column = quoteIdentifier(columns[i]);
+            sb.append(column).append(" = VALUES(").append(column).append(')');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.pepej.papi.sql.dialect;
+
+import com.google.common.collect.ImmutableMap;
+import com.pepej.papi.sql.DatabaseCredentials;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+final class SqliteDialect implements SqlDialect {
+
+    private static final Map<String, String> PROPERTIES = ImmutableMap.of(
+            // let readers run alongside the writer
+            "journal_mode", "WAL",
+            "synchronous", "NORMAL",
+            "busy_timeout", String.valueOf(TimeUnit.SECONDS.toMillis(10))
+    );
+
+    @NonNull
+    @Override
+    public String getName() {
+        return "sqlite";
+    }
+
+    @NonNull
+    @Override
+    public String getDriverClassName() {
+        return "org.sqlite.JDBC";
+    }
+
+    @Override
+    public String getDriverDependency() {
+        return "org.xerial:sqlite-jdbc:3.36.0.3";
+    }
+
+    @NonNull
+    @Override
+    public String getJdbcUrl(@NonNull DatabaseCredentials credentials) {
+        String database = credentials.getDatabase();
+        if (database.startsWith("mem:")) {
+            // share the database between the connections of the pool
+            return "jdbc:sqlite:file:" + database.substring(4) + "?mode=memory&cache=shared";
+        }
+        return "jdbc:sqlite:" + database;
+    }
+
+    @NonNull
+    @Override
+    public Map<String, String> getProperties() {
+        return PROPERTIES;
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        // SQLite only allows a single writer at a time, so more connections
+        // just wait on each other
+        return 1;
+    }
+
+    @Override
+    public int getMaxParameters() {
+        return 32766;
+    }
+
+    @Override
+    public int getStreamingFetchSize() {
+        // rows are always read as they are stepped through
+        return 0;
+    }
+
+    @NonNull
+    @Override
+    public String quoteIdentifier(@NonNull String name) {
+        return Identifiers.quote(name, '"');
+    }
+
+    @NonNull
+    @Override
+    public String insertIgnore() {
+        return "INSERT OR IGNORE INTO";
+    }
+
+    @NonNull
+    @Override
+    public String upsert(@NonNull String... columns) {
+        // the conflict target can be left out since SQLite 3.35
+        StringBuilder sb = new StringBuilder("ON CONFLICT DO UPDATE SET ");
+        for (int i = 0; i < columns.length; i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            String column = quoteIdentifier(columns[i]);
+            sb.append(column).append(" = excluded.").append(column);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
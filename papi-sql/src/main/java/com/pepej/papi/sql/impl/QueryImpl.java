@@ -2,33 +2,69 @@ package com.pepej.papi.sql.impl;
 
 
 import com.pepej.papi.sql.Query;
+import com.pepej.papi.sql.UncheckedSqlException;
 import com.pepej.papi.sql.util.SqlFunction;
 import com.pepej.papi.sql.util.Wrap;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.stream.Stream;
 
 class QueryImpl extends ParameterProviderImpl<Query, PreparedStatement> implements Query {
 
     private final Connection connection;
     private final boolean closeConnection;
+    private final RowMappers rowMappers;
+    private final int streamingFetchSize;
+    private final String sql;
+    private boolean closed = false;
 
     QueryImpl(SqlStreamImpl sql, Connection connection, PreparedStatement statement, boolean closeConnection) {
+        this(sql, connection, statement, closeConnection, null);
+    }
+
+    QueryImpl(SqlStreamImpl sql, Connection connection, PreparedStatement statement, boolean closeConnection, String text) {
         super(statement, sql.bindings);
         this.connection = connection;
         this.closeConnection = closeConnection;
+        this.rowMappers = sql.bindings.rowMappers;
+        this.streamingFetchSize = sql.dialect.getStreamingFetchSize();
+        this.sql = text;
+    }
+
+    @Override
+    public Query streaming() {
+        return fetchSize(this.streamingFetchSize);
     }
 
     @Override
     public <R> Stream<R> map(SqlFunction<ResultSet, R> mapping) {
-        return ResultSetSpliterator.stream(mapping, Wrap.get(statement::executeQuery))
-                                   .onClose(this::close);
+        return ResultSetSpliterator.stream(mapping, Wrap.get(statement::executeQuery), this::close);
+    }
+
+    @Override
+    public <R> Stream<R> mapTo(Class<R> type) {
+        ResultSet resultSet = Wrap.get(statement::executeQuery);
+        SqlFunction<ResultSet, R> mapping;
+        try {
+            mapping = this.rowMappers.get(this.sql, type, resultSet.getMetaData());
+        } catch (SQLException | RuntimeException e) {
+            Wrap.execute(resultSet::close);
+            close();
+            throw e instanceof SQLException ? new UncheckedSqlException((SQLException) e) : (RuntimeException) e;
+        }
+        return ResultSetSpliterator.stream(mapping, resultSet, this::close);
     }
 
     @Override
     public void close() {
+        // called both when a stream is exhausted and when it is closed
+        if (closed) {
+            return;
+        }
+        closed = true;
         super.close();
         if (closeConnection) {
             Wrap.execute(connection::close);
@@ -13,28 +13,64 @@ import java.util.stream.StreamSupport;
 public class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
 
     static <T> Stream<T> stream(SqlFunction<ResultSet, T> mapping, ResultSet resultSet) {
+        return stream(mapping, resultSet, () -> {});
+    }
+
+    /**
+     * Creates a stream of the rows of a result set, which releases its resources
+     * as soon as the last row has been read, or when the stream is closed.
+     *
+     * <p>This matters for streamed results, which hold their connection until
+     * they are closed.</p>
+     *
+     * @param mapping the mapping function
+     * @param resultSet the result set
+     * @param release releases any other resources held by the result set
+     * @param <T> the type of the elements of the stream
+     * @return the stream
+     */
+    static <T> Stream<T> stream(SqlFunction<ResultSet, T> mapping, ResultSet resultSet, Runnable release) {
+        ResultSetSpliterator<T> spliterator = new ResultSetSpliterator<>(mapping, resultSet, release);
         return StreamSupport
-                .stream(new ResultSetSpliterator<>(mapping, resultSet), false)
-                .onClose(() -> Wrap.execute(resultSet::close));
+                .stream(spliterator, false)
+                .onClose(spliterator::release);
     }
 
     private final SqlFunction<ResultSet, T> mapping;
     private final ResultSet resultSet;
+    private final Runnable release;
+    private boolean released = false;
 
-    private ResultSetSpliterator(SqlFunction<ResultSet, T> mapping, ResultSet resultSet) {
+    private ResultSetSpliterator(SqlFunction<ResultSet, T> mapping, ResultSet resultSet, Runnable release) {
         super(Long.MAX_VALUE, Spliterator.ORDERED);
         this.resultSet = resultSet;
         this.mapping = mapping;
+        this.release = release;
     }
 
     @Override
     public boolean tryAdvance(Consumer<? super T> consumer) {
-        return Wrap.get(() -> {
-            boolean hasNext;
-            if (hasNext = resultSet.next()) {
-                consumer.accept(mapping.apply(resultSet));
-            }
-            return hasNext;
-        });
+        if (released) {
+            return false;
+        }
+        boolean hasNext = Wrap.get(resultSet::next);
+        if (hasNext) {
+            consumer.accept(Wrap.get(() -> mapping.apply(resultSet)));
+        } else {
+            release();
+        }
+        return hasNext;
+    }
+
+    private void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        try {
+            Wrap.execute(resultSet::close);
+        } finally {
+            release.run();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,367 @@
+package com.pepej.papi.sql.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.pepej.papi.sql.ResultSetRetrieverByIndex;
+import com.pepej.papi.sql.util.SqlFunction;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the rows of a {@link ResultSet} to instances of a class.
+ * <p>
+ * The columns of a result are matched to the fields of the class by name, ignoring
+ * case and underscores, so a {@code player_id} column is read into a {@code playerId}
+ * field. The matching is resolved once per query text and class, and kept for as
+ * long as the query returns the same column labels. Each row is read with readers
+ * specialised to the type of each field. Primitive fields are read and set without
+ * boxing.
+ * <p>
+ * Classes with a no-args constructor have their fields set directly. Otherwise, the
+ * class must declare a constructor taking every instance field in declaration order,
+ * as records and most immutable value classes do.
+ * <p>
+ * Classes with a binding in {@link SqlBindings} are instead read from the first
+ * column of the result.
+ * <p>
+ * Note that this class is not part of the public API of this library and as such, is
+ * not required to stay compatible between versions.
+ */
+final class RowMappers {
+    private static final int MAX_CACHED_MAPPERS = 1024;
+
+    private final SqlBindings bindings;
+
+    // the layout of each mapped class
+    private final Map<Class<?>, ClassLayout<?>> layouts = new ConcurrentHashMap<>();
+
+    // the resolved mapper for each query text and class. bounded, as query texts
+    // may be built at runtime
+    private final Cache<Key, Mapper<?>> mappers = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_MAPPERS)
+            .build();
+
+    RowMappers(SqlBindings bindings) {
+        this.bindings = bindings;
+    }
+
+    /**
+     * Gets a mapping function for a result of the given query.
+     *
+     * @param sql the query text, or null if unknown
+     * @param type the class to map rows to
+     * @param metadata the metadata of the result
+     * @param <T> the mapped type
+     * @return the mapping function
+     * @throws SQLException if the metadata could not be read
+     */
+    @SuppressWarnings("unchecked")
+    <T> SqlFunction<ResultSet, T> get(String sql, Class<T> type, ResultSetMetaData metadata) throws SQLException {
+        Objects.requireNonNull(type, "type");
+        if (sql == null) {
+            return resolve(type, metadata);
+        }
+
+        Key key = new Key(sql, type);
+        Mapper<T> mapper = (Mapper<T>) this.mappers.getIfPresent(key);
+
+        // the columns of a query can change with the schema, e.g. for "select *"
+        if (mapper == null || !mapper.matches(metadata)) {
+            mapper = resolve(type, metadata);
+            this.mappers.put(key, mapper);
+        }
+        return mapper;
+    }
+
+    private <T> Mapper<T> resolve(Class<T> type, ResultSetMetaData metadata) throws SQLException {
+        int columnCount = metadata.getColumnCount();
+        String[] labels = new String[columnCount];
+        for (int column = 1; column <= columnCount; column++) {
+            labels[column - 1] = metadata.getColumnLabel(column);
+        }
+
+        ResultSetRetrieverByIndex<T> single = this.bindings.getRetriever(type);
+        if (single != null) {
+            return new SingleColumnMapper<>(labels, single);
+        }
+
+        ClassLayout<T> layout = layout(type);
+        int[] columns = new int[layout.fields.length];
+        int matched = 0;
+        for (int column = 1; column <= columnCount; column++) {
+            Integer field = layout.fieldsByName.get(normalize(labels[column - 1]));
+            if (field != null && columns[field] == 0) {
+                columns[field] = column;
+                matched++;
+            }
+        }
+
+        if (layout.constructor != null) {
+            ResultSetRetrieverByIndex<?>[] arguments = new ResultSetRetrieverByIndex<?>[layout.fields.length];
+            for (int i = 0; i < arguments.length; i++) {
+                if (columns[i] == 0) {
+                    throw new IllegalArgumentException("No column for field " + layout.fields[i].getName() + " of " + type.getName());
+                }
+                arguments[i] = argumentReader(layout.fields[i].getType());
+            }
+            return new ConstructorMapper<>(labels, layout.constructor, arguments, columns);
+        }
+
+        // only read the fields which matched a column
+        FieldReader[] readers = new FieldReader[matched];
+        int[] readerColumns = new int[matched];
+        for (int i = 0, j = 0; i < columns.length; i++) {
+            if (columns[i] != 0) {
+                readers[j] = fieldReader(layout.fields[i]);
+                readerColumns[j++] = columns[i];
+            }
+        }
+        return new FieldMapper<>(labels, layout.noArgsConstructor, readers, readerColumns);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ClassLayout<T> layout(Class<T> type) {
+        return (ClassLayout<T>) this.layouts.computeIfAbsent(type, ClassLayout::new);
+    }
+
+    private FieldReader fieldReader(Field field) {
+        Class<?> type = field.getType();
+
+        // primitives are read and set without boxing
+        if (type == int.class) {
+            return (rs, column, target) -> field.setInt(target, rs.getInt(column));
+        }
+        if (type == long.class) {
+            return (rs, column, target) -> field.setLong(target, rs.getLong(column));
+        }
+        if (type == double.class) {
+            return (rs, column, target) -> field.setDouble(target, rs.getDouble(column));
+        }
+        if (type == float.class) {
+            return (rs, column, target) -> field.setFloat(target, rs.getFloat(column));
+        }
+        if (type == boolean.class) {
+            return (rs, column, target) -> field.setBoolean(target, rs.getBoolean(column));
+        }
+        if (type == short.class) {
+            return (rs, column, target) -> field.setShort(target, rs.getShort(column));
+        }
+        if (type == byte.class) {
+            return (rs, column, target) -> field.setByte(target, rs.getByte(column));
+        }
+
+        ResultSetRetrieverByIndex<?> retriever = argumentReader(type);
+        return (rs, column, target) -> field.set(target, retriever.retrieve(rs, column));
+    }
+
+    private ResultSetRetrieverByIndex<?> argumentReader(Class<?> type) {
+        ResultSetRetrieverByIndex<?> retriever = this.bindings.getRetriever(type);
+        if (retriever == null) {
+            // leave any other type to the driver
+            return (rs, column) -> rs.getObject(column, type);
+        }
+        if (type.isPrimitive()) {
+            // a null primitive is read as its default value, as the driver does
+            return retriever;
+        }
+        return (rs, column) -> {
+            Object value = retriever.retrieve(rs, column);
+            return rs.wasNull() ? null : value;
+        };
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    @FunctionalInterface
+    private interface FieldReader {
+        void readInto(ResultSet rs, int column, Object target) throws SQLException, IllegalAccessException;
+    }
+
+    private static final class ClassLayout<T> {
+        private final Field[] fields;
+        private final Map<String, Integer> fieldsByName = new HashMap<>();
+        private final Constructor<T> noArgsConstructor;
+        private final Constructor<T> constructor;
+
+        ClassLayout(Class<?> clazz) {
+            @SuppressWarnings("unchecked")
+            Class<T> type = (Class<T>) clazz;
+            if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+                throw new IllegalArgumentException("Cannot map rows to abstract " + type.getName());
+            }
+
+            List<Field> fields = new ArrayList<>();
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.add(field);
+            }
+            this.fields = fields.toArray(new Field[0]);
+            for (int i = 0; i < this.fields.length; i++) {
+                this.fieldsByName.putIfAbsent(normalize(this.fields[i].getName()), i);
+            }
+
+            Class<?>[] fieldTypes = new Class<?>[this.fields.length];
+            for (int i = 0; i < fieldTypes.length; i++) {
+                fieldTypes[i] = this.fields[i].getType();
+            }
+
+            this.noArgsConstructor = findConstructor(type);
+            this.constructor = this.noArgsConstructor == null ? findConstructor(type, fieldTypes) : null;
+            if (this.noArgsConstructor == null && this.constructor == null) {
+                throw new IllegalArgumentException(type.getName() + " has no no-args constructor, or constructor taking each of its fields");
+            }
+        }
+
+        private static <T> Constructor<T> findConstructor(Class<T> type, Class<?>... parameterTypes) {
+            try {
+                Constructor<T> constructor = type.getDeclaredConstructor(parameterTypes);
+                constructor.setAccessible(true);
+                return constructor;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    }
+
+    private abstract static class Mapper<T> implements SqlFunction<ResultSet, T> {
+        // the column labels the mapper was resolved against
+        private final String[] labels;
+
+        Mapper(String[] labels) {
+            this.labels = labels;
+        }
+
+        /**
+         * Gets if the result has the same columns as the one this mapper was resolved
+         * against, so the mapper can be reused for it.
+         *
+         * @param metadata the metadata of the result
+         * @return if the mapper can be reused
+         * @throws SQLException if the metadata could not be read
+         */
+        boolean matches(ResultSetMetaData metadata) throws SQLException {
+            if (metadata.getColumnCount() != this.labels.length) {
+                return false;
+            }
+            for (int i = 0; i < this.labels.length; i++) {
+                if (!this.labels[i].equals(metadata.getColumnLabel(i + 1))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class SingleColumnMapper<T> extends Mapper<T> {
+        private final ResultSetRetrieverByIndex<T> retriever;
+
+        SingleColumnMapper(String[] labels, ResultSetRetrieverByIndex<T> retriever) {
+            super(labels);
+            this.retriever = retriever;
+        }
+
+        @Override
+        public T apply(ResultSet rs) throws SQLException {
+            T value = this.retriever.retrieve(rs, 1);
+            return rs.wasNull() ? null : value;
+        }
+    }
+
+    private static final class FieldMapper<T> extends Mapper<T> {
+        private final Constructor<T> constructor;
+        private final FieldReader[] readers;
+        private final int[] columns;
+
+        FieldMapper(String[] labels, Constructor<T> constructor, FieldReader[] readers, int[] columns) {
+            super(labels);
+            this.constructor = constructor;
+            this.readers = readers;
+            this.columns = columns;
+        }
+
+        @Override
+        public T apply(ResultSet rs) throws SQLException {
+            try {
+                T instance = this.constructor.newInstance();
+                for (int i = 0; i < this.readers.length; i++) {
+                    this.readers[i].readInto(rs, this.columns[i], instance);
+                }
+                return instance;
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    private static final class ConstructorMapper<T> extends Mapper<T> {
+        private final Constructor<T> constructor;
+        private final ResultSetRetrieverByIndex<?>[] arguments;
+        private final int[] columns;
+
+        ConstructorMapper(String[] labels, Constructor<T> constructor, ResultSetRetrieverByIndex<?>[] arguments, int[] columns) {
+            super(labels);
+            this.constructor = constructor;
+            this.arguments = arguments;
+            this.columns = columns;
+        }
+
+        @Override
+        public T apply(ResultSet rs) throws SQLException {
+            // constructor arguments have to be boxed
+            Object[] args = new Object[this.arguments.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = this.arguments[i].retrieve(rs, this.columns[i]);
+            }
+            try {
+                return this.constructor.newInstance(args);
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final Class<?> type;
+
+        Key(String sql, Class<?> type) {
+            this.sql = sql;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return this.sql.equals(other.sql) && this.type == other.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.sql.hashCode() + this.type.hashCode();
+        }
+    }
+}
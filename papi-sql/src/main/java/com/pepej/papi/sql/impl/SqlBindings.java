@@ -9,9 +9,9 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides type based bindings for {@link ResultSet} and {@link PreparedStatement}
@@ -36,12 +36,21 @@ public final class SqlBindings {
         }
     }
 
+    private static final PreparedStatementBinderByIndex<Enum<?>> ENUM_BINDER = (s, i, v) -> s.setInt(i, v.ordinal());
+
     private final Map<Class<?>, PreparedStatementBinderByIndex<?>> binders;
     private final Map<Class<?>, SqlBindings.Bindings<?>> retrievers;
 
+    // enum constants are looked up by ordinal, without copying the constants for each row
+    private final Map<Class<?>, SqlBindings.Bindings<?>> enumRetrievers;
+
+    final RowMappers rowMappers;
+
     SqlBindings() {
-        this.binders = new HashMap<>();
-        this.retrievers = new HashMap<>();
+        this.binders = new ConcurrentHashMap<>();
+        this.retrievers = new ConcurrentHashMap<>();
+        this.enumRetrievers = new ConcurrentHashMap<>();
+        this.rowMappers = new RowMappers(this);
 
         addMapping(Date.class, ResultSet::getDate, ResultSet::getDate, PreparedStatement::setDate);
         addMapping(Time.class, ResultSet::getTime, ResultSet::getTime, PreparedStatement::setTime);
@@ -61,6 +70,10 @@ public final class SqlBindings {
         addMapping(short.class, ResultSet::getShort, ResultSet::getShort, PreparedStatement::setShort);
         addMapping(Byte.class, ResultSet::getByte, ResultSet::getByte, PreparedStatement::setByte);
         addMapping(byte.class, ResultSet::getByte, ResultSet::getByte, PreparedStatement::setByte);
+        addMapping(Double.class, ResultSet::getDouble, ResultSet::getDouble, PreparedStatement::setDouble);
+        addMapping(double.class, ResultSet::getDouble, ResultSet::getDouble, PreparedStatement::setDouble);
+        addMapping(Float.class, ResultSet::getFloat, ResultSet::getFloat, PreparedStatement::setFloat);
+        addMapping(float.class, ResultSet::getFloat, ResultSet::getFloat, PreparedStatement::setFloat);
         addMapping(Boolean.class, ResultSet::getBoolean, ResultSet::getBoolean, PreparedStatement::setBoolean);
         addMapping(boolean.class, ResultSet::getBoolean, ResultSet::getBoolean, PreparedStatement::setBoolean);
         addMapping(URL.class, ResultSet::getURL, ResultSet::getURL, PreparedStatement::setURL);
@@ -86,8 +99,9 @@ public final class SqlBindings {
     public <T> void bind(PreparedStatement stmt, int index, T value) throws SQLException {
         PreparedStatementBinderByIndex<T> toSqlBinding;
 
-        if (value.getClass().isEnum()) {
-            toSqlBinding = (s, i, v) -> s.setInt(i, ((Enum<?>) v).ordinal());
+        // enum constants with a body are subclasses of the enum class
+        if (value instanceof Enum) {
+            toSqlBinding = (PreparedStatementBinderByIndex<T>) ENUM_BINDER;
         }
         else {
             toSqlBinding = (PreparedStatementBinderByIndex<T>) this.binders.get(value.getClass());
@@ -100,43 +114,48 @@ public final class SqlBindings {
     }
 
     public <T> T retrieve(ResultSet resultSet, int index, Class<T> clazz) throws SQLException {
-        ResultSetRetrieverByIndex<T> fromSqlBinding;
-
-        if (clazz.isEnum()) {
-            fromSqlBinding = (rs, i) -> clazz.getEnumConstants()[rs.getInt(i)];
-        }
-        else {
-            @SuppressWarnings("unchecked")
-            SqlBindings.Bindings<T> bindings = (SqlBindings.Bindings<T>) this.retrievers.get(clazz);
-            if (bindings == null) {
-                throw new IllegalArgumentException("No binding for " + clazz);
-            }
-
-            fromSqlBinding = bindings.retrieverByIndex;
-        }
-
+        ResultSetRetrieverByIndex<T> fromSqlBinding = getBindings(clazz).retrieverByIndex;
         T retrieved = fromSqlBinding.retrieve(resultSet, index);
         return resultSet.wasNull() ? null : retrieved;
     }
 
     public <T> T retrieve(ResultSet resultSet, String name, Class<T> clazz) throws SQLException {
-        ResultSetRetrieverByName<T> fromSqlBinding;
+        ResultSetRetrieverByName<T> fromSqlBinding = getBindings(clazz).retrieverByName;
+        T retrieved = fromSqlBinding.retrieve(resultSet, name);
+        return resultSet.wasNull() ? null : retrieved;
+    }
+
+    /**
+     * Gets the retriever for the given class, if there is one.
+     *
+     * @param clazz the class
+     * @param <T> the type
+     * @return the retriever, or null
+     */
+    @SuppressWarnings("unchecked")
+    <T> ResultSetRetrieverByIndex<T> getRetriever(Class<T> clazz) {
+        SqlBindings.Bindings<T> bindings = clazz.isEnum()
+                ? (SqlBindings.Bindings<T>) this.enumRetrievers.computeIfAbsent(clazz, SqlBindings::enumBindings)
+                : (SqlBindings.Bindings<T>) this.retrievers.get(clazz);
+        return bindings == null ? null : bindings.retrieverByIndex;
+    }
 
+    @SuppressWarnings("unchecked")
+    private <T> SqlBindings.Bindings<T> getBindings(Class<T> clazz) {
         if (clazz.isEnum()) {
-            fromSqlBinding = (rs, i) -> clazz.getEnumConstants()[rs.getInt(i)];
+            return (SqlBindings.Bindings<T>) this.enumRetrievers.computeIfAbsent(clazz, SqlBindings::enumBindings);
         }
-        else {
-            @SuppressWarnings("unchecked")
-            SqlBindings.Bindings<T> bindings = (SqlBindings.Bindings<T>) this.retrievers.get(clazz);
-            if (bindings == null) {
-                throw new IllegalArgumentException("No binding for " + clazz);
-            }
 
-            fromSqlBinding = bindings.retrieverByName;
+        SqlBindings.Bindings<T> bindings = (SqlBindings.Bindings<T>) this.retrievers.get(clazz);
+        if (bindings == null) {
+            throw new IllegalArgumentException("No binding for " + clazz);
         }
+        return bindings;
+    }
 
-        T retrieved = fromSqlBinding.retrieve(resultSet, name);
-        return resultSet.wasNull() ? null : retrieved;
+    private static <T> SqlBindings.Bindings<T> enumBindings(Class<T> clazz) {
+        T[] constants = clazz.getEnumConstants();
+        return new Bindings<>((rs, i) -> constants[rs.getInt(i)], (rs, name) -> constants[rs.getInt(name)]);
     }
 
     public <T> boolean hasBinder(Class<T> clazz) {
@@ -1,6 +1,7 @@
 package com.pepej.papi.sql.impl;
 
 import com.pepej.papi.sql.*;
+import com.pepej.papi.sql.dialect.SqlDialect;
 import com.pepej.papi.sql.util.SqlBiFunction;
 import com.pepej.papi.sql.util.SqlFunction;
 import com.pepej.papi.sql.util.Wrap;
@@ -14,14 +15,21 @@ public class SqlStreamImpl implements SqlStream {
 
     private final DataSource dataSource;
     final SqlBindings bindings;
+    final SqlDialect dialect;
 
-    SqlStreamImpl(SqlBindings bindings) {
+    SqlStreamImpl(SqlStreamImpl sql) {
         this.dataSource = null;
-        this.bindings = bindings;
+        this.bindings = sql.bindings;
+        this.dialect = sql.dialect;
     }
 
     public SqlStreamImpl(DataSource dataSource) {
+        this(dataSource, SqlDialect.MYSQL);
+    }
+
+    public SqlStreamImpl(DataSource dataSource, SqlDialect dialect) {
         this.dataSource = Objects.requireNonNull(dataSource);
+        this.dialect = Objects.requireNonNull(dialect);
         this.bindings = new SqlBindings();
     }
 
@@ -55,6 +63,12 @@ public class SqlStreamImpl implements SqlStream {
         return prepare(QueryImpl::new, preparer);
     }
 
+    @Override
+    public Query query(String sql) {
+        // keep the text, so row mappings can be reused between executions
+        return prepare(sql, (impl, connection, statement, close) -> new QueryImpl(impl, connection, statement, close, sql), Connection::prepareStatement);
+    }
+
     @Override
     public Update update(SqlFunction<Connection, PreparedStatement> preparer) {
         return prepare(UpdateImpl::new, preparer);
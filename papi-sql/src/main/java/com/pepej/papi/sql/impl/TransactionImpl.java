@@ -10,13 +10,13 @@ class TransactionImpl extends SqlStreamImpl implements Transaction {
     private final Connection connection;
 
     TransactionImpl(SqlStreamImpl sql) {
-        super(sql.bindings);
+        super(sql);
         this.connection = sql.getConnection();
         Wrap.execute(() -> connection.setAutoCommit(false));
     }
 
     TransactionImpl(SqlStreamImpl sql, int isolationLevel) {
-        super(sql.bindings);
+        super(sql);
         this.connection = sql.getConnection();
         Wrap.execute(() -> {
             connection.setAutoCommit(false);
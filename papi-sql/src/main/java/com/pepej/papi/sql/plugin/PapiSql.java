@@ -1,10 +1,14 @@
 package com.pepej.papi.sql.plugin;
 
-import com.google.common.collect.ImmutableMap;
+import com.pepej.papi.promise.Promise;
 import com.pepej.papi.sql.DatabaseCredentials;
 import com.pepej.papi.sql.Sql;
 import com.pepej.papi.sql.SqlStream;
 import com.pepej.papi.sql.batch.BatchBuilder;
+import com.pepej.papi.sql.batch.InsertBuilder;
+import com.pepej.papi.sql.cache.QueryCache;
+import com.pepej.papi.sql.cache.TableVersions;
+import com.pepej.papi.sql.dialect.SqlDialect;
 import com.pepej.papi.sql.util.SqlConsumer;
 import com.pepej.papi.sql.util.SqlFunction;
 import com.zaxxer.hikari.HikariConfig;
@@ -16,72 +20,84 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * A {@link Sql} datasource backed by a Hikari connection pool, connected to a
+ * database of the given {@link SqlDialect}, which is MySQL by default.
+ *
+ * <p>Asynchronous operations are run on a dedicated executor with one thread per pooled
+ * connection, rather than the shared async scheduler, and queue once every connection
+ * is in use. The promises they return complete exceptionally if the operation fails.</p>
+ */
 public class PapiSql implements Sql {
 
     private static final AtomicInteger POOL_COUNTER = new AtomicInteger(0);
 
-    // https://github.com/brettwooldridge/HikariCP/wiki/About-Pool-Sizing
-    private static final int MAXIMUM_POOL_SIZE = (Runtime.getRuntime().availableProcessors() * 2) + 1;
-    private static final int MINIMUM_IDLE = Math.min(MAXIMUM_POOL_SIZE, 10);
+    private static final int MINIMUM_IDLE = 10;
 
     private static final long MAX_LIFETIME = TimeUnit.MINUTES.toMillis(30);
     private static final long CONNECTION_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    // the number of asynchronous operations which can wait for a connection
+    private static final int EXECUTOR_QUEUE_CAPACITY = 1024;
+
+    // the most statements sent to the server in a single batch
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final SqlDialect dialect;
     private final HikariDataSource source;
     private final SqlStream stream;
+    private final SqlExecutor executor;
+    private final TableVersions tableVersions = new TableVersions();
 
     public PapiSql(@NonNull DatabaseCredentials credentials) {
+        this(SqlDialect.MYSQL, credentials);
+    }
+
+    public PapiSql(@NonNull SqlDialect dialect, @NonNull DatabaseCredentials credentials) {
+        this.dialect = Objects.requireNonNull(dialect, "dialect");
         final HikariConfig hikari = new HikariConfig();
 
-        hikari.setPoolName("papi-sql-" + POOL_COUNTER.getAndIncrement());
+        String poolName = "papi-sql-" + POOL_COUNTER.getAndIncrement();
+        hikari.setPoolName(poolName);
 
-        hikari.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        hikari.setJdbcUrl("jdbc:mysql://" + credentials.getAddress() + ":" + credentials.getPort() + "/" + credentials.getDatabase());
+        hikari.setDriverClassName(dialect.getDriverClassName());
+        hikari.setJdbcUrl(dialect.getJdbcUrl(credentials));
 
         hikari.setUsername(credentials.getUsername());
         hikari.setPassword(credentials.getPassword());
 
-        hikari.setMaximumPoolSize(MAXIMUM_POOL_SIZE);
-        hikari.setMinimumIdle(MINIMUM_IDLE);
+        int maximumPoolSize = dialect.getMaximumPoolSize();
+        hikari.setMaximumPoolSize(maximumPoolSize);
+        hikari.setMinimumIdle(Math.min(maximumPoolSize, MINIMUM_IDLE));
 
         hikari.setMaxLifetime(MAX_LIFETIME);
         hikari.setConnectionTimeout(CONNECTION_TIMEOUT);
 
-        Map<String, String> properties = ImmutableMap.<String, String>builder()
-                // Ensure we use utf8 encoding
-                .put("useUnicode", "true")
-                .put("characterEncoding", "utf8")
-
-                // https://github.com/brettwooldridge/HikariCP/wiki/MySQL-Configuration
-                .put("cachePrepStmts", "true")
-                .put("prepStmtCacheSize", "250")
-                .put("prepStmtCacheSqlLimit", "2048")
-                .put("useServerPrepStmts", "true")
-                .put("useLocalSessionState", "true")
-                .put("rewriteBatchedStatements", "true")
-                .put("cacheResultSetMetadata", "true")
-                .put("cacheServerConfiguration", "true")
-                .put("elideSetAutoCommits", "true")
-                .put("maintainTimeStats", "false")
-                .put("alwaysSendSetIsolation", "false")
-                .put("cacheCallableStmts", "true")
-
-                // Set the driver level TCP socket timeout
-                // See: https://github.com/brettwooldridge/HikariCP/wiki/Rapid-Recovery
-                .put("socketTimeout", String.valueOf(TimeUnit.SECONDS.toMillis(30)))
-                .build();
-
-        for (Map.Entry<String, String> property : properties.entrySet()) {
+        for (Map.Entry<String, String> property : dialect.getProperties().entrySet()) {
             hikari.addDataSourceProperty(property.getKey(), property.getValue());
         }
 
         this.source = new HikariDataSource(hikari);
-        this.stream = SqlStream.connect(this.source);
+        this.stream = SqlStream.connect(this.source, dialect);
+        this.executor = new SqlExecutor(poolName, maximumPoolSize, EXECUTOR_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Gets the dialect of the database.
+     *
+     * @return the dialect
+     */
+    @NonNull
+    public SqlDialect getDialect() {
+        return this.dialect;
     }
 
     @NonNull
@@ -104,46 +120,103 @@ public class PapiSql implements Sql {
 
     @Override
     public void execute(@Language("MySQL") @NonNull String statement, @NonNull SqlConsumer<PreparedStatement> preparer) {
+        try {
+            executeChecked(statement, preparer);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @NonNull
+    @Override
+    public Promise<Void> executeAsync(@Language("MySQL") @NonNull String statement, @NonNull SqlConsumer<PreparedStatement> preparer) {
+        return this.executor.submit(() -> {
+            executeChecked(statement, preparer);
+            return null;
+        });
+    }
+
+    private void executeChecked(String statement, SqlConsumer<PreparedStatement> preparer) throws SQLException {
         try (Connection c = this.getConnection(); PreparedStatement s = c.prepareStatement(statement)) {
             preparer.accept(s);
             s.execute();
+        } finally {
+            this.tableVersions.written(statement);
+        }
+    }
+
+    @Override
+    public <R> Optional<R> query(@Language("MySQL") @NonNull String query, @NonNull SqlConsumer<PreparedStatement> preparer, @NonNull SqlFunction<ResultSet, R> handler) {
+        try {
+            return queryChecked(query, preparer, handler);
         } catch (SQLException e) {
             e.printStackTrace();
+            return Optional.empty();
         }
     }
 
     @Override
-    public <R> Optional<R> query(@Language("MySQL") @NonNull String query, @NonNull SqlConsumer<PreparedStatement> preparer, @NonNull SqlFunction<ResultSet, R> handler) {
+    public <R> Promise<Optional<R>> queryAsync(@Language("MySQL") @NonNull String query, @NonNull SqlConsumer<PreparedStatement> preparer, @NonNull SqlFunction<ResultSet, R> handler) {
+        return this.executor.submit(() -> queryChecked(query, preparer, handler));
+    }
+
+    private <R> Optional<R> queryChecked(String query, SqlConsumer<PreparedStatement> preparer, SqlFunction<ResultSet, R> handler) throws SQLException {
         try (Connection c = this.getConnection(); PreparedStatement s = c.prepareStatement(query)) {
             preparer.accept(s);
             try (ResultSet r = s.executeQuery()) {
                 return Optional.ofNullable(handler.apply(r));
             }
+        }
+    }
+
+    @Override
+    public void executeBatch(@NonNull BatchBuilder builder) {
+        try {
+            executeBatchChecked(builder.getStatement(), new ArrayList<>(builder.getHandlers()));
         } catch (SQLException e) {
             e.printStackTrace();
-            return Optional.empty();
         }
     }
 
     @Override
-    public void executeBatch(@NonNull BatchBuilder builder) {
-        if (builder.getHandlers().isEmpty()) {
+    public Promise<Void> executeBatchAsync(@NonNull BatchBuilder builder) {
+        // copy the handlers now, as the builder may be reset and reused before the batch runs
+        String statement = builder.getStatement();
+        List<SqlConsumer<PreparedStatement>> handlers = new ArrayList<>(builder.getHandlers());
+        return this.executor.submit(() -> {
+            executeBatchChecked(statement, handlers);
+            return null;
+        });
+    }
+
+    private void executeBatchChecked(String statement, List<SqlConsumer<PreparedStatement>> handlers) throws SQLException {
+        if (handlers.isEmpty()) {
             return;
         }
 
-        if (builder.getHandlers().size() == 1) {
-            this.execute(builder.getStatement(), builder.getHandlers().iterator().next());
+        if (handlers.size() == 1) {
+            executeChecked(statement, handlers.get(0));
             return;
         }
 
-        try (Connection c = this.getConnection(); PreparedStatement s = c.prepareStatement(builder.getStatement())) {
-            for (SqlConsumer<PreparedStatement> handlers : builder.getHandlers()) {
-                handlers.accept(s);
+        try (Connection c = this.getConnection(); PreparedStatement s = c.prepareStatement(statement)) {
+            int batched = 0;
+            for (SqlConsumer<PreparedStatement> handler : handlers) {
+                handler.accept(s);
                 s.addBatch();
+
+                // send large batches in parts, so a single packet doesn't get too large
+                if (++batched == MAX_BATCH_SIZE) {
+                    s.executeBatch();
+                    batched = 0;
+                }
             }
-            s.executeBatch();
-        } catch (SQLException e) {
-            e.printStackTrace();
+            if (batched != 0) {
+                s.executeBatch();
+            }
+        } finally {
+            // invalidate even if the batch failed, as part of it may have been written
+            this.tableVersions.written(statement);
         }
     }
 
@@ -152,8 +225,41 @@ public class PapiSql implements Sql {
         return new PapiSqlBatchBuilder(this, statement);
     }
 
+    @Override
+    public InsertBuilder insert(@NonNull String table, @NonNull String... columns) {
+        return new PapiSqlInsertBuilder(this, this.executor, table, columns);
+    }
+
+    @NonNull
+    @Override
+    public QueryCache cache(long maxEntries) {
+        return QueryCache.create(this, this.tableVersions, maxEntries);
+    }
+
+    /**
+     * Gets the versions of the tables written through this datasource, used
+     * to invalidate the results of its {@link QueryCache}s.
+     *
+     * @return the table versions
+     */
+    @NonNull
+    public TableVersions getTableVersions() {
+        return this.tableVersions;
+    }
+
+    /**
+     * Gets the number of asynchronous operations waiting for a connection.
+     *
+     * @return the number of queued operations
+     */
+    public int getQueuedOperations() {
+        return this.executor.getQueued();
+    }
+
     @Override
     public void close() {
+        // let queued operations finish before the pool is closed
+        this.executor.shutdown();
         this.source.close();
     }
 }
@@ -0,0 +1,321 @@
+package com.pepej.papi.sql.plugin;
+
+import com.google.common.base.Preconditions;
+import com.pepej.papi.promise.Promise;
+import com.pepej.papi.sql.UncheckedSqlException;
+import com.pepej.papi.sql.batch.InsertBuilder;
+import com.pepej.papi.sql.batch.InsertResult;
+import com.pepej.papi.sql.dialect.SqlDialect;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PapiSqlInsertBuilder implements InsertBuilder {
+
+    private static final int DEFAULT_MAX_ROWS_PER_STATEMENT = 1000;
+
+    @NonNull
+    private final PapiSql owner;
+    @NonNull
+    private final SqlExecutor executor;
+    @NonNull
+    private final String table;
+    @NonNull
+    private final String[] columns;
+    @NonNull
+    private final List<Object[]> rows = new ArrayList<>();
+
+    private String[] updateColumns = null;
+    private boolean ignoreDuplicates = false;
+    private int maxPacketSize = DEFAULT_MAX_PACKET_SIZE;
+    private int maxRowsPerStatement = DEFAULT_MAX_ROWS_PER_STATEMENT;
+    private int parallelism = 1;
+
+    PapiSqlInsertBuilder(@NonNull PapiSql owner, @NonNull SqlExecutor executor, @NonNull String table, @NonNull String[] columns) {
+        Preconditions.checkArgument(columns.length > 0, "no columns");
+        this.owner = owner;
+        this.executor = executor;
+        this.table = table;
+        this.columns = columns.clone();
+    }
+
+    @NonNull
+    @Override
+    public String getTable() {
+        return this.table;
+    }
+
+    @Override
+    public int getRows() {
+        return this.rows.size();
+    }
+
+    @Override
+    public InsertBuilder row(@NonNull Object... values) {
+        Preconditions.checkArgument(values.length == this.columns.length, "expected %s values, got %s", this.columns.length, values.length);
+        this.rows.add(values.clone());
+        return this;
+    }
+
+    @Override
+    public InsertBuilder rows(@NonNull Collection<Object[]> rows) {
+        for (Object[] row : rows) {
+            row(row);
+        }
+        return this;
+    }
+
+    @Override
+    public InsertBuilder onDuplicateKeyUpdate(@NonNull String... columns) {
+        Preconditions.checkArgument(columns.length > 0, "no columns");
+        Preconditions.checkState(!this.ignoreDuplicates, "duplicates are already ignored");
+        this.updateColumns = columns.clone();
+        return this;
+    }
+
+    @Override
+    public InsertBuilder ignoreDuplicates() {
+        Preconditions.checkState(this.updateColumns == null, "duplicates are already updated");
+        this.ignoreDuplicates = true;
+        return this;
+    }
+
+    @Override
+    public InsertBuilder maxPacketSize(int bytes) {
+        Preconditions.checkArgument(bytes > 0, "bytes must be positive");
+        this.maxPacketSize = bytes;
+        return this;
+    }
+
+    @Override
+    public InsertBuilder maxRowsPerStatement(int rows) {
+        Preconditions.checkArgument(rows > 0, "rows must be positive");
+        this.maxRowsPerStatement = rows;
+        return this;
+    }
+
+    @Override
+    public InsertBuilder parallelism(int connections) {
+        Preconditions.checkArgument(connections > 0, "connections must be positive");
+        this.parallelism = connections;
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public InsertResult execute() {
+        try {
+            return plan().insert();
+        } catch (SQLException e) {
+            throw new UncheckedSqlException(e);
+        }
+    }
+
+    @NonNull
+    @Override
+    public Promise<InsertResult> executeAsync() {
+        // plan now, as the builder may be changed before the insert runs
+        Plan plan = plan();
+        return this.executor.submit(plan::insert);
+    }
+
+    private Plan plan() {
+        List<Object[]> rows = new ArrayList<>(this.rows);
+
+        SqlDialect dialect = this.owner.getDialect();
+        StringBuilder columns = new StringBuilder();
+        for (String column : this.columns) {
+            if (columns.length() != 0) {
+                columns.append(", ");
+            }
+            columns.append(dialect.quoteIdentifier(column));
+        }
+        String head = (this.ignoreDuplicates ? dialect.insertIgnore() : "INSERT INTO") + " " +
+                dialect.quoteIdentifier(this.table) + " (" + columns + ") VALUES ";
+        String tail = this.updateColumns == null ? "" : " " + dialect.upsert(this.updateColumns);
+
+        // split the rows into chunks which stay under the packet size
+        int maxRows = Math.min(this.maxRowsPerStatement, dialect.getMaxParameters() / this.columns.length);
+        int rowText = this.columns.length * 3 + 2;
+        int baseSize = head.length() + tail.length();
+
+        List<int[]> chunks = new ArrayList<>();
+        int start = 0;
+        long size = baseSize;
+        for (int i = 0; i < rows.size(); i++) {
+            long rowSize = rowText + estimateSize(rows.get(i));
+            if (i > start && (i - start >= maxRows || size + rowSize > this.maxPacketSize)) {
+                chunks.add(new int[]{start, i});
+                start = i;
+                size = baseSize;
+            }
+            size += rowSize;
+        }
+        if (start < rows.size()) {
+            chunks.add(new int[]{start, rows.size()});
+        }
+
+        // helpers beyond the pool size would claim chunks and then just wait for a free connection
+        int parallelism = Math.min(Math.min(this.parallelism, dialect.getMaximumPoolSize()), chunks.size());
+        return new Plan(rows, chunks, head, tail, parallelism);
+    }
+
+    private static long estimateSize(Object[] row) {
+        long size = 0;
+        for (Object value : row) {
+            if (value == null) {
+                size += 4;
+            } else if (value instanceof CharSequence) {
+                // at most 3 bytes per char, escaped
+                size += ((CharSequence) value).length() * 6L + 2;
+            } else if (value instanceof byte[]) {
+                size += ((byte[]) value).length * 2L + 3;
+            } else {
+                size += 32;
+            }
+        }
+        return size;
+    }
+
+    private final class Plan {
+        private final List<Object[]> rows;
+        private final List<int[]> chunks;
+        private final String head;
+        private final String tail;
+        private final int parallelism;
+
+        // statements are reused between chunks with the same number of rows
+        private final Map<Integer, String> statements = new HashMap<>();
+
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final CountDownLatch done;
+        private final LongAdder affectedRows = new LongAdder();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Plan(List<Object[]> rows, List<int[]> chunks, String head, String tail, int parallelism) {
+            this.rows = rows;
+            this.chunks = chunks;
+            this.head = head;
+            this.tail = tail;
+            this.parallelism = parallelism;
+            this.done = new CountDownLatch(chunks.size());
+        }
+
+        InsertResult insert() throws SQLException {
+            long start = System.nanoTime();
+            if (this.chunks.isEmpty()) {
+                return new InsertResult(0, 0, 0, 0);
+            }
+
+            // build every statement up front, so workers don't have to synchronize
+            for (int[] chunk : this.chunks) {
+                this.statements.computeIfAbsent(chunk[1] - chunk[0], this::statement);
+            }
+
+            // helpers take chunks as they become free. the calling thread takes
+            // chunks too, so the insert finishes even if no helper ever runs, or
+            // the executor has no room for them
+            for (int i = 1; i < this.parallelism; i++) {
+                if (!PapiSqlInsertBuilder.this.executor.tryExecute(this::work)) {
+                    break;
+                }
+            }
+            work();
+
+            try {
+                this.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for chunks to be inserted", e);
+            } finally {
+                PapiSqlInsertBuilder.this.owner.getTableVersions().invalidate(PapiSqlInsertBuilder.this.table);
+            }
+
+            Throwable failure = this.failure.get();
+            if (failure instanceof SQLException) {
+                throw (SQLException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw new SQLException(failure);
+            }
+            return new InsertResult(this.rows.size(), this.affectedRows.sum(), this.chunks.size(), System.nanoTime() - start);
+        }
+
+        private void work() {
+            Connection connection = null;
+            try {
+                int index;
+                while ((index = this.nextChunk.getAndIncrement()) < this.chunks.size()) {
+                    try {
+                        // skip the remaining chunks once one has failed
+                        if (this.failure.get() == null) {
+                            if (connection == null) {
+                                connection = PapiSqlInsertBuilder.this.owner.getConnection();
+                            }
+                            this.affectedRows.add(insert(connection, this.chunks.get(index)));
+                        }
+                    } catch (Throwable t) {
+                        this.failure.compareAndSet(null, t);
+                    } finally {
+                        this.done.countDown();
+                    }
+                }
+            } finally {
+                if (connection != null) {
+                    try {
+                        connection.close();
+                    } catch (SQLException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        private int insert(Connection connection, int[] chunk) throws SQLException {
+            try (PreparedStatement s = connection.prepareStatement(this.statements.get(chunk[1] - chunk[0]))) {
+                int index = 1;
+                for (int i = chunk[0]; i < chunk[1]; i++) {
+                    for (Object value : this.rows.get(i)) {
+                        s.setObject(index++, value);
+                    }
+                }
+                return s.executeUpdate();
+            }
+        }
+
+        private String statement(int rows) {
+            StringBuilder placeholders = new StringBuilder("(");
+            for (int i = 0; i < PapiSqlInsertBuilder.this.columns.length; i++) {
+                placeholders.append(i == 0 ? "?" : ", ?");
+            }
+            String row = placeholders.append(')').toString();
+
+            StringBuilder sb = new StringBuilder(this.head.length() + this.tail.length() + rows * (row.length() + 2));
+            sb.append(this.head);
+            for (int i = 0; i < rows; i++) {
+                if (i != 0) {
+                    sb.append(", ");
+                }
+                sb.append(row);
+            }
+            return sb.append(this.tail).toString();
+        }
+    }
+}
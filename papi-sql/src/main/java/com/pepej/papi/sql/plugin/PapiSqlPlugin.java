@@ -3,11 +3,14 @@ package com.pepej.papi.sql.plugin;
 import com.pepej.papi.ap.Plugin;
 import com.pepej.papi.ap.PluginDependency;
 import com.pepej.papi.dependency.Dependency;
+import com.pepej.papi.dependency.DependencyLoader;
 import com.pepej.papi.internal.PapiImplementationPlugin;
 import com.pepej.papi.plugin.PapiJavaPlugin;
 import com.pepej.papi.sql.DatabaseCredentials;
 import com.pepej.papi.sql.Sql;
 import com.pepej.papi.sql.SqlProvider;
+import com.pepej.papi.sql.dialect.SqlDialect;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.util.Optional;
@@ -26,8 +29,9 @@ public final class PapiSqlPlugin extends PapiJavaPlugin implements SqlProvider {
 
     @Override
     public void onPluginEnable() {
-        this.globalCredentials = DatabaseCredentials.fromConfig(loadConfig("config.yml"));
-        this.globalDataSource = getSql(globalCredentials);
+        YamlConfiguration config = loadConfig("config.yml");
+        this.globalCredentials = DatabaseCredentials.fromConfig(config);
+        this.globalDataSource = getSql(SqlDialect.byName(config.getString("dialect", "mysql")), globalCredentials);
         this.globalDataSource.bindWith(this);
 
         // expose all instances as services.
@@ -66,6 +70,18 @@ public final class PapiSqlPlugin extends PapiJavaPlugin implements SqlProvider {
         return new PapiSql(credentials);
     }
 
+    @NonNull
+    @Override
+    public Sql getSql(@NonNull SqlDialect dialect, @NonNull DatabaseCredentials credentials) {
+        // embedded drivers aren't shaded, so are only downloaded when they're used
+        String dependency = dialect.getDriverDependency();
+        if (dependency != null) {
+            String[] parts = dependency.split(":");
+            DependencyLoader.load(parts[0], parts[1], parts[2]);
+        }
+        return new PapiSql(dialect, credentials);
+    }
+
     @NonNull
     @Override
     public DatabaseCredentials getGlobalCredentials() {
@@ -0,0 +1,153 @@
+package com.pepej.papi.sql.plugin;
+
+import com.pepej.papi.internal.LoaderUtils;
+import com.pepej.papi.promise.Promise;
+import com.pepej.papi.sql.util.SqlSupplier;
+import org.bukkit.Bukkit;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Runs the asynchronous operations of a {@link PapiSql} instance.
+ *
+ * <p>The number of threads matches the size of the connection pool, so a task never
+ * waits for a connection, and tasks beyond that wait in a bounded queue. Once the
+ * queue is full, asynchronous threads submitting tasks are blocked for up to
+ * {@value #QUEUE_FULL_TIMEOUT_SECONDS} seconds until there is space, and tasks
+ * submitted from the server thread are rejected. Tasks submitted after, or while
+ * waiting for, the executor to shut down are rejected.</p>
+ */
+final class SqlExecutor {
+    private static final long QUEUE_FULL_TIMEOUT_SECONDS = 10;
+
+    private final ThreadPoolExecutor executor;
+
+    SqlExecutor(String poolName, int threads, int queueCapacity) {
+        AtomicInteger ids = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, poolName + "-worker-" + ids.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                SqlExecutor::onQueueFull
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static void onQueueFull(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        if (Bukkit.getServer() != null && Bukkit.isPrimaryThread()) {
+            // never block the server
+            throw new RejectedExecutionException("Too many queued SQL operations");
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(QUEUE_FULL_TIMEOUT_SECONDS);
+        try {
+            // wait in short steps, so a shutdown doesn't leave us blocked
+            while (!executor.getQueue().offer(task, 100, TimeUnit.MILLISECONDS)) {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Executor has been shut down");
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    throw new RejectedExecutionException("Timed out waiting for space in the SQL queue");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+        // the workers may have already exited, and would never run the task
+        if (executor.isShutdown() && executor.getQueue().remove(task)) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+    }
+
+    /**
+     * Runs the task on the executor.
+     *
+     * <p>The returned promise completes exceptionally if the task throws, or if it
+     * could not be queued.</p>
+     *
+     * @param task the task
+     * @param <T> the result type
+     * @return a promise of the result
+     */
+    <T> Promise<T> submit(SqlSupplier<T> task) {
+        Promise<T> promise = Promise.empty();
+        try {
+            this.executor.execute(() -> {
+                try {
+                    promise.supply(task.get());
+                } catch (Throwable t) {
+                    promise.supplyException(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            promise.supplyException(e);
+        }
+        return promise;
+    }
+
+    /**
+     * Runs the task on the executor if it can be queued without waiting.
+     *
+     * <p>The task is offered to the queue directly, so a full queue never blocks
+     * the caller. Callers should run the work themselves if this returns false.</p>
+     *
+     * @param task the task
+     * @return true if the task was queued
+     */
+    boolean tryExecute(Runnable task) {
+        if (this.executor.isShutdown() || !this.executor.getQueue().offer(task)) {
+            return false;
+        }
+        // the executor may have shut down since we checked
+        if (this.executor.isShutdown() && this.executor.getQueue().remove(task)) {
+            return false;
+        }
+        // make sure there is a thread to take it, as idle threads time out
+        this.executor.prestartCoreThread();
+        return true;
+    }
+
+    /**
+     * Gets the number of tasks waiting for a thread.
+     *
+     * @return the number of queued tasks
+     */
+    int getQueued() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * Stops accepting tasks, and waits for those already submitted to finish.
+     */
+    void shutdown() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                getLogger().warning("Timed out waiting for " + (this.executor.getQueue().size() + this.executor.getActiveCount()) + " SQL operations to finish");
+            }
+        } catch (InterruptedException e) {
+            getLogger().warning("Interrupted while waiting for SQL operations to finish");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Logger getLogger() {
+        if (Bukkit.getServer() != null) {
+            return LoaderUtils.getPlugin().getLogger();
+        }
+        return Logger.getLogger(PapiSql.class.getName());
+    }
+}
@@ -0,0 +1,78 @@
+package com.pepej.papi.sql.cache;
+
+import com.pepej.papi.sql.DatabaseCredentials;
+import com.pepej.papi.sql.dialect.SqlDialect;
+import com.pepej.papi.sql.plugin.PapiSql;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryCacheTest {
+    private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger(0);
+
+    private static PapiSql connect() {
+        PapiSql sql = new PapiSql(SqlDialect.H2, DatabaseCredentials.of("", 0, "mem:cache" + DATABASE_COUNTER.getAndIncrement(), "", ""));
+        sql.execute("CREATE TABLE points (id INT PRIMARY KEY, amount INT)");
+        sql.execute("CREATE TABLE other (id INT PRIMARY KEY)");
+        sql.execute("INSERT INTO points (id, amount) VALUES (1, 10)");
+        return sql;
+    }
+
+    private static Optional<Integer> amount(QueryCache cache, int id) {
+        return cache.query("amount", "SELECT amount FROM points WHERE id = ?", rs -> rs.next() ? rs.getInt(1) : null, id);
+    }
+
+    @Test
+    public void answersRepeatedQueriesFromTheCache() {
+        try (PapiSql sql = connect()) {
+            QueryCache cache = sql.cache(100);
+
+            assertEquals(Optional.of(10), amount(cache, 1));
+            assertEquals(Optional.of(10), amount(cache, 1));
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.getHits());
+
+            // different parameters are cached separately
+            assertEquals(Optional.empty(), amount(cache, 2));
+            assertEquals(2, cache.getMisses());
+        }
+    }
+
+    @Test
+    public void keysResultsByName() {
+        try (PapiSql sql = connect()) {
+            QueryCache cache = sql.cache(100);
+            String query = "SELECT amount FROM points WHERE id = ?";
+
+            for (int multiplier = 1; multiplier <= 2; multiplier++) {
+                int m = multiplier;
+                // the same lambda class, capturing a different value
+                Optional<Integer> result = cache.query("amount*" + m, query, rs -> rs.next() ? rs.getInt(1) * m : null, 1);
+                assertEquals(Optional.of(10 * m), result);
+            }
+            assertEquals(2, cache.getMisses());
+        }
+    }
+
+    @Test
+    public void invalidatesResultsOfWrittenTables() {
+        try (PapiSql sql = connect()) {
+            QueryCache cache = sql.cache(100);
+
+            assertEquals(Optional.of(10), amount(cache, 1));
+
+            // writes to other tables leave the result cached
+            sql.execute("INSERT INTO other (id) VALUES (1)");
+            assertEquals(Optional.of(10), amount(cache, 1));
+            assertEquals(1, cache.getHits());
+
+            sql.execute("UPDATE points SET amount = 20 WHERE id = 1");
+            assertEquals(Optional.of(20), amount(cache, 1));
+            assertEquals(1, cache.getInvalidations());
+            assertEquals(2, cache.getMisses());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.pepej.papi.sql.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlTablesTest {
+
+    private static Set<String> tables(String... tables) {
+        return new LinkedHashSet<>(Arrays.asList(tables));
+    }
+
+    @Test
+    public void findsReadTables() {
+        assertEquals(tables("ranks"), SqlTables.read("SELECT * FROM ranks WHERE id = ?"));
+        assertEquals(tables("kits", "kit_items"), SqlTables.read("select k.name, i.item from `db`.`kits` k left join kit_items as i on i.kit = k.id"));
+        assertEquals(tables("players", "ranks"), SqlTables.read("SELECT * FROM players WHERE rank IN (SELECT id FROM ranks)"));
+    }
+
+    @Test
+    public void readsAnyTableWhenUnsure() {
+        assertEquals(tables(SqlTables.ANY), SqlTables.read("SELECT * FROM (SELECT * FROM ranks) r"));
+        assertEquals(tables(SqlTables.ANY), SqlTables.read("SELECT * FROM ranks r, players p WHERE p.rank = r.id"));
+        assertEquals(tables(SqlTables.ANY), SqlTables.read("SELECT 1"));
+    }
+
+    @Test
+    public void findsWrittenTables() {
+        assertEquals(tables("ranks"), SqlTables.written("INSERT IGNORE INTO ranks (id, name) VALUES (?, ?)"));
+        assertEquals(tables("ranks"), SqlTables.written("INSERT OR IGNORE INTO ranks (id, name) VALUES (?, ?)"));
+        assertEquals(tables("ranks"), SqlTables.written("update `ranks` set name = ? where id = ?"));
+        assertEquals(tables("ranks"), SqlTables.written("DELETE FROM ranks WHERE id = ?"));
+        assertEquals(tables("ranks"), SqlTables.written("TRUNCATE TABLE ranks"));
+        assertEquals(tables("ranks"), SqlTables.written("CREATE TABLE IF NOT EXISTS ranks (id INT)"));
+        assertEquals(tables("ranks", "players"), SqlTables.written("UPDATE ranks r JOIN players p ON p.rank = r.id SET r.size = r.size + 1"));
+        assertEquals(Collections.emptySet(), SqlTables.written("SELECT * FROM ranks"));
+    }
+
+    @Test
+    public void writesAnyTableWhenUnsure() {
+        assertEquals(tables(SqlTables.ANY), SqlTables.written("UPDATE ranks r, players p SET r.size = 0"));
+        assertEquals(tables(SqlTables.ANY), SqlTables.written("CALL reset_ranks()"));
+    }
+
+    @Test
+    public void invalidatesOnlyWrittenTables() {
+        TableVersions versions = new TableVersions();
+        String[] ranks = {"ranks"};
+        String[] any = {SqlTables.ANY};
+        long[] ranksSnapshot = versions.snapshot(ranks);
+        long[] anySnapshot = versions.snapshot(any);
+
+        versions.written("UPDATE kits SET name = ?");
+        assertTrue(versions.isCurrent(ranks, ranksSnapshot));
+        assertFalse(versions.isCurrent(any, anySnapshot));
+
+        versions.written("UPDATE ranks SET name = ?");
+        assertFalse(versions.isCurrent(ranks, ranksSnapshot));
+
+        ranksSnapshot = versions.snapshot(ranks);
+        versions.invalidateAll();
+        assertFalse(versions.isCurrent(ranks, ranksSnapshot));
+    }
+}
@@ -0,0 +1,26 @@
+package com.pepej.papi.sql.dialect;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdentifiersTest {
+
+    @Test
+    public void quotesEachPartOfTheName() {
+        assertEquals("`order`", SqlDialect.MYSQL.quoteIdentifier("order"));
+        assertEquals("`shop`.`order`", SqlDialect.MYSQL.quoteIdentifier("shop.order"));
+        assertEquals("\"shop\".\"order\"", SqlDialect.SQLITE.quoteIdentifier("shop.order"));
+    }
+
+    @Test
+    public void doublesQuoteCharacters() {
+        assertEquals("`a``b`", SqlDialect.MYSQL.quoteIdentifier("a`b"));
+        assertEquals("\"a\"\"b\"", SqlDialect.SQLITE.quoteIdentifier("a\"b"));
+    }
+
+    @Test
+    public void quotesUpsertColumns() {
+        assertEquals("ON DUPLICATE KEY UPDATE `key` = VALUES(`key`)", SqlDialect.MYSQL.upsert("key"));
+    }
+}
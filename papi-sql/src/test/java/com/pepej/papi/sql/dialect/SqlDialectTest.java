@@ -0,0 +1,75 @@
+package com.pepej.papi.sql.dialect;
+
+import com.pepej.papi.sql.DatabaseCredentials;
+import com.pepej.papi.sql.plugin.PapiSql;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlDialectTest {
+    private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger(0);
+
+    // the embedded dialects, which can be tested without a server
+    private static final SqlDialect[] DIALECTS = {SqlDialect.H2, SqlDialect.SQLITE};
+
+    private static PapiSql connect(SqlDialect dialect) {
+        String database = "mem:dialect" + DATABASE_COUNTER.getAndIncrement();
+        PapiSql sql = new PapiSql(dialect, DatabaseCredentials.of("", 0, database, "", ""));
+        sql.execute("CREATE TABLE points (id INT PRIMARY KEY, amount INT)");
+        sql.execute("INSERT INTO points (id, amount) VALUES (1, 10)");
+        return sql;
+    }
+
+    private static int amount(PapiSql sql, int id) {
+        return sql.query("SELECT amount FROM points WHERE id = ?", s -> s.setInt(1, id), rs -> rs.next() ? rs.getInt(1) : -1).orElse(-1);
+    }
+
+    @Test
+    public void upsertUpdatesExistingRows() {
+        for (SqlDialect dialect : DIALECTS) {
+            try (PapiSql sql = connect(dialect)) {
+                sql.execute("INSERT INTO points (id, amount) VALUES (1, 20), (2, 30) " + dialect.upsert("amount"));
+
+                assertEquals(20, amount(sql, 1), dialect.getName());
+                assertEquals(30, amount(sql, 2), dialect.getName());
+            }
+        }
+    }
+
+    @Test
+    public void insertIgnoreSkipsExistingRows() {
+        for (SqlDialect dialect : DIALECTS) {
+            try (PapiSql sql = connect(dialect)) {
+                sql.execute(dialect.insertIgnore() + " points (id, amount) VALUES (1, 20), (2, 30)");
+
+                assertEquals(10, amount(sql, 1), dialect.getName());
+                assertEquals(30, amount(sql, 2), dialect.getName());
+            }
+        }
+    }
+
+    @Test
+    public void streamsEveryRow() {
+        for (SqlDialect dialect : DIALECTS) {
+            try (PapiSql sql = connect(dialect)) {
+                List<Object[]> rows = new ArrayList<>();
+                for (int i = 2; i <= 2500; i++) {
+                    rows.add(new Object[]{i, i * 10});
+                }
+                sql.insert("points", "id", "amount").rows(rows).execute();
+
+                try (Stream<Integer> amounts = sql.stream().query("SELECT amount FROM points ORDER BY id").streaming().map(rs -> rs.getInt(1))) {
+                    List<Integer> result = amounts.collect(Collectors.toList());
+                    assertEquals(2500, result.size(), dialect.getName());
+                    assertEquals(25000, (int) result.get(2499), dialect.getName());
+                }
+            }
+        }
+    }
+}
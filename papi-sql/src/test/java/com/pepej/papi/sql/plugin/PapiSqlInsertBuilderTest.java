@@ -0,0 +1,123 @@
+package com.pepej.papi.sql.plugin;
+
+import com.pepej.papi.sql.DatabaseCredentials;
+import com.pepej.papi.sql.batch.InsertResult;
+import com.pepej.papi.sql.dialect.SqlDialect;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PapiSqlInsertBuilderTest {
+    private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger(0);
+
+    private static PapiSql connect() {
+        String database = "mem:insert" + DATABASE_COUNTER.getAndIncrement();
+        return new PapiSql(SqlDialect.H2, DatabaseCredentials.of("", 0, database, "", ""));
+    }
+
+    private static int count(PapiSql sql, String table) {
+        return sql.query("SELECT COUNT(*) FROM " + table, rs -> {
+            rs.next();
+            return rs.getInt(1);
+        }).orElse(-1);
+    }
+
+    @Test
+    public void splitsRowsIntoChunks() {
+        try (PapiSql sql = connect()) {
+            sql.execute("CREATE TABLE points (id INT PRIMARY KEY, amount INT)");
+
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                rows.add(new Object[]{i, i * 10});
+            }
+            InsertResult result = sql.insert("points", "id", "amount")
+                    .rows(rows)
+                    .maxRowsPerStatement(10)
+                    .execute();
+
+            assertEquals(25, result.getRows());
+            assertEquals(3, result.getStatements());
+            assertEquals(25, count(sql, "points"));
+        }
+    }
+
+    @Test
+    public void insertsChunksInParallel() {
+        try (PapiSql sql = connect()) {
+            sql.execute("CREATE TABLE points (id INT PRIMARY KEY, amount INT)");
+
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                rows.add(new Object[]{i, i});
+            }
+            InsertResult result = sql.insert("points", "id", "amount")
+                    .rows(rows)
+                    .maxRowsPerStatement(7)
+                    .parallelism(4)
+                    .execute();
+
+            assertEquals(100, result.getRows());
+            assertEquals(100, count(sql, "points"));
+        }
+    }
+
+    @Test
+    public void ignoresDuplicates() {
+        try (PapiSql sql = connect()) {
+            sql.execute("CREATE TABLE points (id INT PRIMARY KEY, amount INT)");
+            sql.execute("INSERT INTO points (id, amount) VALUES (1, 10)");
+
+            sql.insert("points", "id", "amount")
+                    .row(1, 99)
+                    .row(2, 20)
+                    .ignoreDuplicates()
+                    .execute();
+
+            assertEquals(2, count(sql, "points"));
+            assertEquals(10, (int) sql.query("SELECT amount FROM points WHERE id = 1", rs -> {
+                rs.next();
+                return rs.getInt(1);
+            }).orElse(-1));
+        }
+    }
+
+    @Test
+    public void updatesDuplicates() {
+        try (PapiSql sql = connect()) {
+            sql.execute("CREATE TABLE points (id INT PRIMARY KEY, amount INT)");
+            sql.execute("INSERT INTO points (id, amount) VALUES (1, 10)");
+
+            sql.insert("points", "id", "amount")
+                    .row(1, 99)
+                    .row(2, 20)
+                    .onDuplicateKeyUpdate("amount")
+                    .execute();
+
+            assertEquals(2, count(sql, "points"));
+            assertEquals(99, (int) sql.query("SELECT amount FROM points WHERE id = 1", rs -> {
+                rs.next();
+                return rs.getInt(1);
+            }).orElse(-1));
+        }
+    }
+
+    @Test
+    public void quotesReservedWords() {
+        try (PapiSql sql = connect()) {
+            sql.execute("CREATE TABLE `order` (`key` INT PRIMARY KEY, `value` INT)");
+
+            sql.insert("order", "key", "value")
+                    .row(1, 10)
+                    .row(2, 20)
+                    .onDuplicateKeyUpdate("value")
+                    .execute();
+
+            assertEquals(2, count(sql, "`order`"));
+        }
+    }
+}